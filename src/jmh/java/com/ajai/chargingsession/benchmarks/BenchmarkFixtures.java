@@ -0,0 +1,94 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+import com.ajai.chargingsession.charging.clock.SystemSessionClock;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.NoOpChargingSessionJournal;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+
+/**
+ * Utility class with the fixtures shared by the benchmarks.
+ * 
+ * @author ajai
+ *
+ */
+final class BenchmarkFixtures {
+
+  static final long SECONDS_LOWER_LIMIT = 1;
+
+  static final long SECONDS_HIGHER_LIMIT = 60;
+
+  static final int PAGE_SIZE_LIMIT = 1000;
+
+  static final int BATCH_SIZE_LIMIT = 1000;
+
+  static final long SUMMARY_CACHE_MILLIS = 100;
+
+  static final int STATIONS = 10_000;
+
+  private BenchmarkFixtures() {
+    // EMPTY
+  }
+
+  /**
+   * Creates a handler configured like the application.
+   * 
+   * @param shards the number of shards
+   * @return ChargingSessionsHandler new handler.
+   */
+  static ChargingSessionsHandler newHandler(int shards) {
+    return newHandler(shards, NoOpChargingSessionJournal.INSTANCE, ChargingSessionMetrics.noOp());
+  }
+
+  /**
+   * Creates a handler configured like the application with the given journal and meters.
+   * 
+   * @param shards the number of shards
+   * @param journal the journal to append to
+   * @param metrics the meters of the charging sessions
+   * @return ChargingSessionsHandler new handler.
+   */
+  static ChargingSessionsHandler newHandler(int shards, ChargingSessionJournal journal,
+      ChargingSessionMetrics metrics) {
+    return new ChargingSessionsHandler(SECONDS_LOWER_LIMIT, SECONDS_HIGHER_LIMIT, shards,
+        PAGE_SIZE_LIMIT, BATCH_SIZE_LIMIT, SUMMARY_CACHE_MILLIS, journal, metrics,
+        new SystemSessionClock());
+  }
+
+  /**
+   * Creates the DTOs of the charging stations the benchmarks start sessions on.
+   * 
+   * @return array of ChargingStationDTO.
+   */
+  static ChargingStationDTO[] newChargingStations() {
+    return IntStream.range(0, STATIONS).mapToObj(index -> new ChargingStationDTO("ABC-" + index))
+        .toArray(ChargingStationDTO[]::new);
+  }
+
+  /**
+   * Starts the given number of charging sessions on the handler and stops every other one.
+   * 
+   * @param handler the handler to fill
+   * @param chargingStations the stations to start the sessions on
+   * @param sessions the number of sessions to start
+   * @return array with the ids of the sessions that are still in progress.
+   */
+  static UUID[] fill(ChargingSessionsHandler handler, ChargingStationDTO[] chargingStations,
+      int sessions) {
+    UUID[] inProgressIds = new UUID[sessions - sessions / 2];
+    for (int index = 0; index < sessions; index++) {
+      UUID id = handler.startChargingSession(chargingStations[index % chargingStations.length])
+          .getId();
+      if (index % 2 == 0) {
+        inProgressIds[index / 2] = id;
+      } else {
+        handler.stopChargingSession(id);
+      }
+    }
+    return inProgressIds;
+  }
+
+}
@@ -0,0 +1,96 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.ajai.chargingsession.charging.json.ChargingSessionJsonModule;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Benchmarks of the JSON serialization of charging sessions with an ObjectMapper configured like
+ * the one of the application, with the bean serializers of Jackson, with the hand-written
+ * serializers of the ChargingSessionJsonModule and with those serializers caching the JSON of the
+ * finished sessions.
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ChargingSessionSerializationBenchmark {
+
+  @Param({"bean", "streaming", "cached"})
+  private String serializers;
+
+  private ObjectMapper objectMapper;
+
+  private ChargingSession inProgressChargingSession;
+
+  private ChargingSession finishedChargingSession;
+
+  private List<ChargingSession> chargingSessions;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Jackson2ObjectMapperBuilder objectMapperBuilder = Jackson2ObjectMapperBuilder.json()
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    if (!"bean".equals(serializers)) {
+      objectMapperBuilder
+          .modulesToInstall(new ChargingSessionJsonModule("cached".equals(serializers) ? 100 : 0));
+    }
+    objectMapper = objectMapperBuilder.build();
+    inProgressChargingSession = newChargingSession(StatusEnum.IN_PROGRESS);
+    finishedChargingSession = newChargingSession(StatusEnum.FINISHED);
+    chargingSessions = IntStream.range(0, 100)
+        .mapToObj(index -> newChargingSession(
+            index % 2 == 0 ? StatusEnum.IN_PROGRESS : StatusEnum.FINISHED))
+        .collect(Collectors.toList());
+  }
+
+  @Benchmark
+  public byte[] serializeInProgressChargingSession() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(inProgressChargingSession);
+  }
+
+  @Benchmark
+  public byte[] serializeFinishedChargingSession() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(finishedChargingSession);
+  }
+
+  @Benchmark
+  public byte[] serializeHundredChargingSessions() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(chargingSessions);
+  }
+
+  private static ChargingSession newChargingSession(StatusEnum status) {
+    LocalDateTime startedAt = LocalDateTime.now();
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = UUID.randomUUID();
+      chargingSessionBuilder.stationId = "ABC-" + startedAt.getNano();
+      chargingSessionBuilder.startedAt = startedAt;
+      chargingSessionBuilder.stoppedAt =
+          status == StatusEnum.FINISHED ? startedAt.plusMinutes(30) : null;
+      chargingSessionBuilder.status = status;
+    }).build();
+  }
+
+}
@@ -0,0 +1,91 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.store.ChargingSessionStore;
+
+/**
+ * Benchmark of the ChargingSessionStore under the mixed load of the ChargingSessionStoreStressTest.
+ * Every thread starts and stops charging sessions on a range of stations and summarizes them every
+ * 100 charging sessions, for 1, 8 and 64 shards. A start and a stop count as two operations.
+ * 
+ * <p>
+ * Run with {@code -Pjmh.threads=N} to measure the store under contention. The store is created
+ * again for every iteration, so its size stays within what an iteration adds.
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ChargingSessionStoreBenchmark {
+
+  private static final int STATIONS = 1_000;
+
+  private static final int SUMMARY_INTERVAL = 100;
+
+  @Param({"1", "8", "64"})
+  public int shards;
+
+  private ChargingSessionStore chargingSessionStore;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    chargingSessionStore = new ChargingSessionStore(60, shards);
+  }
+
+  /**
+   * Per thread position in the stations.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next;
+
+    int next() {
+      next = next + 1 == STATIONS * SUMMARY_INTERVAL ? 0 : next + 1;
+      return next;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(2)
+  public ChargingSession startAndStop(Cursor cursor) {
+    int index = cursor.next();
+    ChargingSession chargingSession =
+        chargingSessionStore.add(newChargingSession("ABC-" + (index % STATIONS)));
+    if (index % SUMMARY_INTERVAL == 0) {
+      chargingSessionStore.getSummary(LocalDateTime.now(), 60);
+    }
+    return chargingSessionStore.stop(chargingSession.getId(), LocalDateTime.now());
+  }
+
+  private static ChargingSession newChargingSession(String stationId) {
+    // time-ordered ids like the handler's, so the rows are appended and the shards partition on
+    // the station
+    LocalDateTime startedAt = LocalDateTime.now();
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = SessionIdGenerator.next(startedAt, stationId);
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = startedAt;
+      chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+    }).build();
+  }
+
+}
@@ -0,0 +1,112 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionPage;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+
+/**
+ * Benchmarks of the ChargingSessionsHandler methods against a handler that already holds a given
+ * number of charging sessions, half of which are in progress.
+ * 
+ * <p>
+ * The cost of a stop is the difference between {@link #startAndStopChargingSession} and
+ * {@link #startChargingSession}. Run with {@code -Pjmh.threads=N} to measure under contention.
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ChargingSessionsHandlerBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int sessions;
+
+  @Param({"8"})
+  public int shards;
+
+  private ChargingSessionsHandler handler;
+
+  private ChargingStationDTO[] chargingStations;
+
+  private UUID[] inProgressIds;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    handler = BenchmarkFixtures.newHandler(shards);
+    chargingStations = BenchmarkFixtures.newChargingStations();
+    inProgressIds = BenchmarkFixtures.fill(handler, chargingStations, sessions);
+  }
+
+  /**
+   * Per thread position in the stations and the in progress sessions.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next;
+
+    int next(int bound) {
+      next = next + 1 == bound ? 0 : next + 1;
+      return next;
+    }
+  }
+
+  @Benchmark
+  public ChargingSession startChargingSession(Cursor cursor) {
+    return handler.startChargingSession(chargingStations[cursor.next(chargingStations.length)]);
+  }
+
+  @Benchmark
+  public ChargingSession startAndStopChargingSession(Cursor cursor) {
+    ChargingSession chargingSession =
+        handler.startChargingSession(chargingStations[cursor.next(chargingStations.length)]);
+    return handler.stopChargingSession(chargingSession.getId());
+  }
+
+  @Benchmark
+  public ChargingSession stopFinishedChargingSession(Cursor cursor) {
+    // after the first pass every one of these sessions is finished, so this measures the lookup
+    return handler.stopChargingSession(inProgressIds[cursor.next(inProgressIds.length)]);
+  }
+
+  @Benchmark
+  public Map<StatusEnum, Long> getChargingSessionSummaryOneSecond() {
+    return handler.getChargingSessionSummary(1);
+  }
+
+  @Benchmark
+  public Map<StatusEnum, Long> getChargingSessionSummarySixtySeconds() {
+    return handler.getChargingSessionSummary(60);
+  }
+
+  @Benchmark
+  public ChargingSessionPage getFirstChargingSessionsPage() {
+    return handler.getChargingSessions(null, 100);
+  }
+
+  @Benchmark
+  public List<ChargingSession> getChargingSessionsOfStation(Cursor cursor) {
+    return handler.getChargingSessionsOfStation(
+        chargingStations[cursor.next(chargingStations.length)].getStationId(),
+        StatusEnum.IN_PROGRESS);
+  }
+
+}
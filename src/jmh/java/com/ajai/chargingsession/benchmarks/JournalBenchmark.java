@@ -0,0 +1,111 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.FsyncPolicy;
+import com.ajai.chargingsession.charging.journal.JdbcChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.JournalType;
+import com.ajai.chargingsession.charging.journal.MappedChargingSessionJournal;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+
+/**
+ * Benchmark of appending the start of a charging session to the memory-mapped and the JDBC
+ * journal for every fsync policy, one at a time and in batches that share a single force or
+ * commit. The throughput is measured along with the distribution of the latencies, whose tail
+ * shows the appends that waited for a force or a commit. Every append starts a charging session
+ * with a new id, since the JDBC journal inserts a row per charging session.
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  @Param({"MAPPED", "JDBC"})
+  public JournalType type;
+
+  @Param({"PER_WRITE", "GROUP_COMMIT", "OS"})
+  public FsyncPolicy fsyncPolicy;
+
+  @Param({"2"})
+  public long groupCommitMillis;
+
+  private Path directory;
+
+  private ChargingSessionJournal journal;
+
+  private AtomicLong sequence;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("journal-benchmark");
+    if (type == JournalType.JDBC) {
+      journal = new JdbcChargingSessionJournal("jdbc:h2:file:" + directory.resolve("sessions"),
+          fsyncPolicy, groupCommitMillis);
+    } else {
+      journal = new MappedChargingSessionJournal(directory, 64 * 1024 * 1024, fsyncPolicy,
+          groupCommitMillis);
+    }
+    sequence = new AtomicLong();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    journal.close();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void appendStarted() {
+    journal.started(newChargingSession());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void appendStartedBatch() {
+    List<ChargingSession> chargingSessions = LongStream.range(0, BATCH_SIZE)
+        .mapToObj(index -> newChargingSession()).collect(Collectors.toList());
+    journal.startedAll(chargingSessions);
+  }
+
+  private ChargingSession newChargingSession() {
+    long id = sequence.incrementAndGet();
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = new UUID(0, id);
+      chargingSessionBuilder.stationId = "ABC-1";
+      chargingSessionBuilder.startedAt = LocalDateTime.now();
+      chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+    }).build();
+  }
+
+}
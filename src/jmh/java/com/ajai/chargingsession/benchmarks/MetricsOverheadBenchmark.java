@@ -0,0 +1,130 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.journal.FsyncPolicy;
+import com.ajai.chargingsession.charging.journal.MappedChargingSessionJournal;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionPage;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmark of the overhead of the meters on the hot paths of the ChargingSessionsHandler and the
+ * journal. With {@code NONE} the meters are registered in a registry without any backend, so they
+ * record nothing; with {@code SIMPLE} they record into an in-memory registry like the one behind
+ * the actuator endpoint. The journal does not force its appends, so the timers of its lock are not
+ * hidden behind the cost of a force. Every start and stop also times the write lock of a session
+ * table, and the {@code listingWhileWriting} group lists pages while sessions are started and
+ * stopped, so the optimistic reads of the session tables are retried and counted.
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+  public enum Meters {
+    NONE, SIMPLE
+  }
+
+  @Param({"NONE", "SIMPLE"})
+  public Meters meters;
+
+  @Param({"8"})
+  public int shards;
+
+  private static final int SESSIONS = 10_000;
+
+  private Path directory;
+
+  private MappedChargingSessionJournal journal;
+
+  private ChargingSessionsHandler handler;
+
+  private ChargingStationDTO[] chargingStations;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    MeterRegistry meterRegistry =
+        meters == Meters.SIMPLE ? new SimpleMeterRegistry() : new CompositeMeterRegistry();
+    directory = Files.createTempDirectory("metrics-benchmark");
+    journal = new MappedChargingSessionJournal(directory, 64 * 1024 * 1024, FsyncPolicy.OS, 0,
+        meterRegistry, Tags.empty());
+    handler = BenchmarkFixtures.newHandler(shards, journal,
+        new ChargingSessionMetrics(meterRegistry, "benchmark"));
+    chargingStations = BenchmarkFixtures.newChargingStations();
+    BenchmarkFixtures.fill(handler, chargingStations, SESSIONS);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    journal.close();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  /**
+   * Per thread position in the stations.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next;
+
+    int next(int bound) {
+      next = next + 1 == bound ? 0 : next + 1;
+      return next;
+    }
+  }
+
+  @Benchmark
+  public ChargingSession startAndStopChargingSession(Cursor cursor) {
+    ChargingSession chargingSession =
+        handler.startChargingSession(chargingStations[cursor.next(chargingStations.length)]);
+    return handler.stopChargingSession(chargingSession.getId());
+  }
+
+  @Benchmark
+  public Map<StatusEnum, Long> getChargingSessionSummaryOneSecond() {
+    return handler.getChargingSessionSummary(1);
+  }
+
+  @Benchmark
+  @Group("listingWhileWriting")
+  public ChargingSession startAndStopWhileListing(Cursor cursor) {
+    return startAndStopChargingSession(cursor);
+  }
+
+  @Benchmark
+  @Group("listingWhileWriting")
+  public ChargingSessionPage listWhileWriting() {
+    return handler.getChargingSessions(null, 100);
+  }
+
+}
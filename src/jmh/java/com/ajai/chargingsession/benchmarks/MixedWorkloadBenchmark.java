@@ -0,0 +1,93 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionPage;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+
+/**
+ * Benchmark of a mixed read/write workload on a shared ChargingSessionsHandler. Every group runs
+ * four threads starting and stopping sessions, two threads summarizing and one thread paging
+ * through the sessions, for 1, 8 and 64 shards.
+ * 
+ * <p>
+ * Run with {@code -Pjmh.threads=N} where {@code N} is a multiple of 7 to run several groups.
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Group)
+public class MixedWorkloadBenchmark {
+
+  @Param({"100000"})
+  public int sessions;
+
+  @Param({"1", "8", "64"})
+  public int shards;
+
+  private ChargingSessionsHandler handler;
+
+  private ChargingStationDTO[] chargingStations;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    handler = BenchmarkFixtures.newHandler(shards);
+    chargingStations = BenchmarkFixtures.newChargingStations();
+    BenchmarkFixtures.fill(handler, chargingStations, sessions);
+  }
+
+  /**
+   * Per thread position in the stations.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next;
+
+    int next(int bound) {
+      next = next + 1 == bound ? 0 : next + 1;
+      return next;
+    }
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(4)
+  public ChargingSession startAndStop(Cursor cursor) {
+    ChargingSession chargingSession =
+        handler.startChargingSession(chargingStations[cursor.next(chargingStations.length)]);
+    return handler.stopChargingSession(chargingSession.getId());
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(2)
+  public Map<StatusEnum, Long> summary() {
+    return handler.getChargingSessionSummary(60);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public ChargingSessionPage page() {
+    return handler.getChargingSessions(null, 100);
+  }
+
+}
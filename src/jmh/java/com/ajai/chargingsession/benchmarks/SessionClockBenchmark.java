@@ -0,0 +1,78 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import com.ajai.chargingsession.charging.clock.CoarseSessionClock;
+import com.ajai.chargingsession.charging.clock.ManualSessionClock;
+import com.ajai.chargingsession.charging.clock.SessionClock;
+import com.ajai.chargingsession.charging.clock.SystemSessionClock;
+
+/**
+ * Benchmark of the per-call cost of every clock, both of reading it in nanoseconds as the summary
+ * does and of building the date-time a start or stop needs, against {@code LocalDateTime.now()},
+ * which does not depend on the clock.
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SessionClockBenchmark {
+
+  public enum Clock {
+    SYSTEM, COARSE, MANUAL
+  }
+
+  @Param({"SYSTEM", "COARSE", "MANUAL"})
+  public Clock clock;
+
+  private SessionClock sessionClock;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    switch (clock) {
+      case COARSE:
+        sessionClock = new CoarseSessionClock(new SystemSessionClock(), 1);
+        break;
+      case MANUAL:
+        sessionClock = new ManualSessionClock(LocalDateTime.now());
+        break;
+      default:
+        sessionClock = new SystemSessionClock();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (sessionClock instanceof CoarseSessionClock) {
+      ((CoarseSessionClock) sessionClock).close();
+    }
+  }
+
+  @Benchmark
+  public long nanos() {
+    return sessionClock.nanos();
+  }
+
+  @Benchmark
+  public LocalDateTime now() {
+    return sessionClock.now();
+  }
+
+  @Benchmark
+  public LocalDateTime localDateTimeNow() {
+    return LocalDateTime.now();
+  }
+
+}
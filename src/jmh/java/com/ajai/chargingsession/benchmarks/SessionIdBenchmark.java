@@ -0,0 +1,34 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+
+/**
+ * Benchmark of the time-ordered session ids against {@code UUID.randomUUID()}, which draws from a
+ * shared {@code SecureRandom}, with 32 threads generating ids at once.
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(32)
+public class SessionIdBenchmark {
+
+  @Benchmark
+  public UUID randomUUID() {
+    return UUID.randomUUID();
+  }
+
+  @Benchmark
+  public UUID timeOrdered() {
+    return SessionIdGenerator.next(System.currentTimeMillis(), "ABC-1");
+  }
+
+}
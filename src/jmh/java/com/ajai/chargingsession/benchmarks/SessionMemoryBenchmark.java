@@ -0,0 +1,76 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+
+/**
+ * Benchmark of the memory retained per charging session. Every iteration fills a new handler with
+ * the given number of charging sessions, half of which are stopped. The time reported is the time
+ * taken to fill the handler; after every iteration the growth of the used heap after a full
+ * collection, divided by the number of sessions, is printed next to the estimate the store makes
+ * of itself.
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SessionMemoryBenchmark {
+
+  @Param({"10000000"})
+  public int sessions;
+
+  @Param({"8"})
+  public int shards;
+
+  private ChargingStationDTO[] chargingStations;
+
+  private long baselineBytes;
+
+  private ChargingSessionsHandler handler;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    chargingStations = BenchmarkFixtures.newChargingStations();
+  }
+
+  @Setup(Level.Iteration)
+  public void measureBaseline() {
+    handler = null;
+    baselineBytes = usedHeapBytes();
+  }
+
+  @TearDown(Level.Iteration)
+  public void measureFootprint() {
+    long bytesPerSession = (usedHeapBytes() - baselineBytes) / sessions;
+    System.out.println(String.format("%,d sessions: %d bytes per session, estimated %d",
+        sessions, bytesPerSession, handler.getEstimatedMemoryBytes() / sessions));
+  }
+
+  @Benchmark
+  public void fill() {
+    handler = BenchmarkFixtures.newHandler(shards);
+    BenchmarkFixtures.fill(handler, chargingStations, sessions);
+  }
+
+  private static long usedHeapBytes() {
+    for (int collection = 0; collection < 3; collection++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+
+/**
+ * Benchmark of dashboards polling the summary of a busy handler. Every group runs one thread
+ * starting and stopping sessions and seven threads polling the summary of the last minute, either
+ * computed by every poll or shared through the summary cache.
+ * 
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Group)
+public class SummaryCacheBenchmark {
+
+  @Param({"100000"})
+  public int sessions;
+
+  @Param({"uncached", "cached"})
+  public String summaries;
+
+  private ChargingSessionsHandler handler;
+
+  private ChargingStationDTO[] chargingStations;
+
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    handler = BenchmarkFixtures.newHandler(8);
+    chargingStations = BenchmarkFixtures.newChargingStations();
+    BenchmarkFixtures.fill(handler, chargingStations, sessions);
+  }
+
+  @Benchmark
+  @Group("polls")
+  @GroupThreads(1)
+  public ChargingSession startAndStop() {
+    next = next + 1 == chargingStations.length ? 0 : next + 1;
+    ChargingSession chargingSession = handler.startChargingSession(chargingStations[next]);
+    return handler.stopChargingSession(chargingSession.getId());
+  }
+
+  @Benchmark
+  @Group("polls")
+  @GroupThreads(7)
+  public ChargingSessionSummary summary() {
+    if ("cached".equals(summaries)) {
+      return handler.summarize(60);
+    }
+    return new ChargingSessionSummary(handler.getChargingSessionSummary(60),
+        handler.getChargingSessionDurations(60));
+  }
+
+}
@@ -0,0 +1,116 @@
+package com.ajai.chargingsession.benchmarks;
+
+import static com.ajai.chargingsession.constants.Constants.REACTIVE_PROFILE;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import com.ajai.chargingsession.Application;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Load test of the servlet stack against the reactive stack at high connection counts. The client
+ * keeps the given number of connections open and every invocation starts a charging session on
+ * each of them at once. The body of every request is sent in two halves, the second one only
+ * after the given delay, like a charger on a slow connection would. The servlet stack blocks one of
+ * its threads while it reads such a body, so the connections beyond its thread pool have to wait;
+ * the reactive stack reads the bodies without blocking.
+ *
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class WebStackBenchmark {
+
+  public enum Stack {
+    SERVLET, REACTIVE
+  }
+
+  private static final int HALF = 8;
+
+  @Param({"SERVLET", "REACTIVE"})
+  public Stack stack;
+
+  @Param({"256", "2048"})
+  public int connections;
+
+  @Param({"0", "50"})
+  public long slowMillis;
+
+  private ConfigurableApplicationContext context;
+
+  private ConnectionProvider connectionProvider;
+
+  private HttpClient httpClient;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class)
+        .properties("server.port=0", "logging.level.root=WARN", "spring.main.banner-mode=off");
+    if (stack == Stack.REACTIVE) {
+      builder.profiles(REACTIVE_PROFILE);
+    }
+    context = builder.run();
+    int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+    // the requests beyond the open connections wait for one instead of being rejected
+    connectionProvider = ConnectionProvider.builder("web-stack-benchmark")
+        .maxConnections(connections).pendingAcquireMaxCount(-1)
+        .pendingAcquireTimeout(Duration.ofMinutes(1)).build();
+    httpClient = HttpClient.create(connectionProvider).baseUrl("http://localhost:" + port)
+        .headers(headers -> headers.set(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON_VALUE));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    connectionProvider.dispose();
+    context.close();
+  }
+
+  @Benchmark
+  public long startChargingSessions() {
+    return Flux.range(0, connections)
+        .flatMap(index -> httpClient.post().uri(URL_CHARGING_SESSIONS).send(body(index))
+            .responseSingle((response, content) -> {
+              if (response.status().code() != HttpStatus.CREATED.value()) {
+                return Mono.error(new IllegalStateException(
+                    "Unexpected response status " + response.status()));
+              }
+              return content.thenReturn(index);
+            }), connections)
+        .count().block();
+  }
+
+  private Flux<ByteBuf> body(int index) {
+    String json = String.format("{\"stationId\":\"ABC-%08d\"}", index);
+    Mono<ByteBuf> firstHalf = Mono.fromSupplier(() -> Unpooled
+        .copiedBuffer(json.substring(0, HALF), StandardCharsets.UTF_8));
+    Mono<ByteBuf> secondHalf = Mono.fromSupplier(() -> Unpooled
+        .copiedBuffer(json.substring(HALF), StandardCharsets.UTF_8));
+    return slowMillis == 0 ? Flux.concat(firstHalf, secondHalf)
+        : Flux.concat(firstHalf, secondHalf.delaySubscription(Duration.ofMillis(slowMillis)));
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.ajai.chargingsession.benchmarks;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Benchmarks of the JSON and the CBOR wire format of the messages of the charging session API with
+ * ObjectMappers configured like the ones of the application. The setup prints the number of bytes
+ * every message takes in the format.
+ *
+ * @author ajai
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+  @Param({"json", "cbor"})
+  private String format;
+
+  private ObjectMapper objectMapper;
+
+  private ChargingStationDTO chargingStation;
+
+  private byte[] chargingStationBytes;
+
+  private ChargingSession chargingSession;
+
+  private ChargingSessionSummary chargingSessionSummary;
+
+  @Setup(Level.Trial)
+  public void setUp() throws JsonProcessingException {
+    Jackson2ObjectMapperBuilder objectMapperBuilder =
+        "cbor".equals(format) ? Jackson2ObjectMapperBuilder.cbor()
+            : Jackson2ObjectMapperBuilder.json();
+    objectMapper = objectMapperBuilder
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    chargingStation = new ChargingStationDTO("ABC-12345");
+    chargingStationBytes = objectMapper.writeValueAsBytes(chargingStation);
+    LocalDateTime startedAt = LocalDateTime.of(2020, 3, 1, 12, 0, 0, 123_000_000);
+    chargingSession = new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = UUID.randomUUID();
+      chargingSessionBuilder.stationId = chargingStation.getStationId();
+      chargingSessionBuilder.startedAt = startedAt;
+      chargingSessionBuilder.stoppedAt = startedAt.plusMinutes(30);
+      chargingSessionBuilder.status = StatusEnum.FINISHED;
+    }).build();
+    Map<StatusEnum, Long> summaryMap = new EnumMap<>(StatusEnum.class);
+    summaryMap.put(StatusEnum.IN_PROGRESS, 1_234L);
+    summaryMap.put(StatusEnum.FINISHED, 56_789L);
+    chargingSessionSummary = new ChargingSessionSummary(summaryMap);
+
+    System.out.println(String.format(
+        "%s: %d bytes per charging station, %d per charging session, %d per summary", format,
+        chargingStationBytes.length, objectMapper.writeValueAsBytes(chargingSession).length,
+        objectMapper.writeValueAsBytes(chargingSessionSummary).length));
+  }
+
+  @Benchmark
+  public byte[] serializeChargingStation() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(chargingStation);
+  }
+
+  @Benchmark
+  public ChargingStationDTO deserializeChargingStation() throws IOException {
+    return objectMapper.readValue(chargingStationBytes, ChargingStationDTO.class);
+  }
+
+  @Benchmark
+  public byte[] serializeChargingSession() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(chargingSession);
+  }
+
+  @Benchmark
+  public byte[] serializeChargingSessionSummary() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(chargingSessionSummary);
+  }
+
+}
@@ -0,0 +1,282 @@
+package com.ajai.chargingsession.loadtest;
+
+import static com.ajai.chargingsession.constants.Constants.LIMIT;
+import static com.ajai.chargingsession.constants.Constants.REACTIVE_PROFILE;
+import static com.ajai.chargingsession.constants.Constants.SECONDS;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS_SUMMARY;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import com.ajai.chargingsession.Application;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * End-to-end load test of the application over HTTP.
+ *
+ * <p>
+ * The load test boots the {@link Application} on a random port and sends it a mix of starts,
+ * stops, listings and summaries at a fixed arrival rate, an open model: the requests are sent on
+ * schedule whether or not the earlier ones have been answered, like independent chargers and
+ * dashboards would. A stop stops a session started earlier in the run, or is sent as a start when
+ * there is none. The latency of a request is measured from the time it was due to be sent, so a
+ * stalled server is charged for the requests that queued up behind it. The requests of the warmup
+ * are not measured, and the throughput is the number of measured responses over the time from the
+ * first measured request to the last response, so it falls below the rate once the server falls
+ * behind.
+ * </p>
+ *
+ * <p>
+ * It is configured with system properties, which the {@code loadTest} task of the build passes on
+ * from the project properties:
+ * <ol>
+ * <li>{@code loadtest.rate}, the requests per second,</li>
+ * <li>{@code loadtest.seconds} and {@code loadtest.warmup.seconds}, how long the requests are
+ * measured for and sent before that,</li>
+ * <li>{@code loadtest.mix}, the weights of the operations,</li>
+ * <li>{@code loadtest.stack}, {@code servlet} or {@code reactive},</li>
+ * <li>{@code loadtest.connections}, the largest number of open connections,</li>
+ * <li>{@code loadtest.output}, the file the report is written to as JSON, and</li>
+ * <li>{@code loadtest.max.p99.millis}, the 99th percentile latency above which the load test
+ * fails, {@code 0} for none.</li>
+ * </ol>
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public final class LoadTest {
+
+  private static final int STATIONS = 10_000;
+
+  private static final int PAGE_SIZE = 100;
+
+  private static final int SUMMARY_SECONDS = 60;
+
+  private final double rate;
+  private final long seconds;
+  private final long warmupSeconds;
+  private final Operation.Mix mix;
+  private final String stack;
+  private final int connections;
+  private final File output;
+  private final double maxP99Millis;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<Operation, OperationStatistics> statistics;
+  private final Queue<String> inProgress = new ConcurrentLinkedQueue<>();
+  private final AtomicLong stations = new AtomicLong();
+  private final AtomicLong lastResponseNanos = new AtomicLong();
+
+  private long measuredNanos;
+
+  private HttpClient httpClient;
+
+  private LoadTest() {
+    rate = Double.parseDouble(System.getProperty("loadtest.rate", "5000"));
+    seconds = Long.parseLong(System.getProperty("loadtest.seconds", "30"));
+    warmupSeconds = Long.parseLong(System.getProperty("loadtest.warmup.seconds", "10"));
+    mix = Operation.Mix
+        .parse(System.getProperty("loadtest.mix", "start=40,stop=40,list=10,summary=10"));
+    stack = System.getProperty("loadtest.stack", "servlet");
+    connections = Integer.parseInt(System.getProperty("loadtest.connections", "512"));
+    output = new File(System.getProperty("loadtest.output", "loadtest-results.json"));
+    maxP99Millis = Double.parseDouble(System.getProperty("loadtest.max.p99.millis", "0"));
+    if (rate <= 0 || seconds <= 0 || warmupSeconds < 0 || connections <= 0) {
+      throw new IllegalArgumentException("Invalid load test configuration " + this);
+    }
+
+    statistics = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      statistics.put(operation, new OperationStatistics());
+    }
+  }
+
+  /**
+   * Runs the load test and writes its report.
+   *
+   * @param args ignored, the load test is configured with system properties
+   * @throws Exception if the load test cannot be run or the latency exceeds the limit.
+   */
+  public static void main(String[] args) throws Exception {
+    new LoadTest().run();
+  }
+
+  private void run() throws IOException, InterruptedException, TimeoutException {
+    SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class)
+        .properties("server.port=0", "logging.level.root=WARN", "spring.main.banner-mode=off");
+    if (REACTIVE_PROFILE.equals(stack)) {
+      builder.profiles(REACTIVE_PROFILE);
+    }
+    Map<String, Object> total;
+    try (ConfigurableApplicationContext context = builder.run()) {
+      int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+      // the requests beyond the open connections wait for one instead of being rejected
+      ConnectionProvider connectionProvider = ConnectionProvider.builder("load-test")
+          .maxConnections(connections).pendingAcquireMaxCount(-1)
+          .pendingAcquireTimeout(Duration.ofMinutes(1)).build();
+      try {
+        httpClient = HttpClient.create(connectionProvider).baseUrl("http://localhost:" + port)
+            .headers(headers -> headers.set(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON_VALUE));
+        System.out.println("Sending " + rate + " requests per second of " + mix + " to the "
+            + stack + " stack for " + warmupSeconds + " + " + seconds + " seconds");
+        send();
+      } finally {
+        connectionProvider.dispose();
+      }
+      total = report();
+    }
+
+    double p99Millis = (Double) total.get("p99Millis");
+    if (maxP99Millis > 0 && p99Millis > maxP99Millis) {
+      throw new IllegalStateException("The 99th percentile latency of " + p99Millis
+          + " ms exceeds the limit of " + maxP99Millis + " ms");
+    }
+  }
+
+  private void send() throws InterruptedException, TimeoutException {
+    AtomicLong pending = new AtomicLong();
+    long startNanos = System.nanoTime();
+    measuredNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+    long endNanos = measuredNanos + TimeUnit.SECONDS.toNanos(seconds);
+    for (long request = 0;; request++) {
+      // the schedule is derived from the start rather than the previous request, so it never drifts
+      long dueNanos = startNanos + (long) (request * TimeUnit.SECONDS.toNanos(1) / rate);
+      if (dueNanos >= endNanos) {
+        break;
+      }
+      long delayNanos = dueNanos - System.nanoTime();
+      if (delayNanos > 0) {
+        LockSupport.parkNanos(delayNanos);
+      }
+      pending.incrementAndGet();
+      send(mix.next(), dueNanos, dueNanos >= measuredNanos, pending);
+    }
+
+    long deadlineNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+    while (pending.get() > 0) {
+      if (System.nanoTime() > deadlineNanos) {
+        throw new TimeoutException(pending.get() + " requests were not answered");
+      }
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+  }
+
+  private void send(Operation operation, long dueNanos, boolean measured, AtomicLong pending) {
+    String chargingSessionId = operation == Operation.STOP ? inProgress.poll() : null;
+    Operation sent = operation == Operation.STOP && chargingSessionId == null ? Operation.START
+        : operation;
+    OperationStatistics operationStatistics = statistics.get(sent);
+    request(sent, chargingSessionId).doFinally(signal -> pending.decrementAndGet())
+        .subscribe(success -> {
+          if (!measured) {
+            return;
+          }
+          long responseNanos = System.nanoTime();
+          lastResponseNanos.accumulateAndGet(responseNanos, Math::max);
+          if (success) {
+            operationStatistics.completed(responseNanos - dueNanos);
+          } else {
+            operationStatistics.failed();
+          }
+        }, error -> {
+          if (measured) {
+            operationStatistics.failed();
+          }
+        });
+  }
+
+  private Mono<Boolean> request(Operation operation, String chargingSessionId) {
+    switch (operation) {
+      case START:
+        String stationId = "LOAD-" + stations.getAndIncrement() % STATIONS;
+        return httpClient.post().uri(URL_CHARGING_SESSIONS)
+            .send(ByteBufFlux.fromString(Mono.just("{\"stationId\":\"" + stationId + "\"}")))
+            .responseSingle((response, content) -> content.asByteArray().map(bytes -> {
+              if (response.status().code() != 201) {
+                return false;
+              }
+              inProgress.offer(readId(bytes));
+              return true;
+            }).defaultIfEmpty(false));
+      case STOP:
+        return status(httpClient.put().uri(URL_CHARGING_SESSIONS + "/" + chargingSessionId));
+      case LIST:
+        return status(httpClient.get().uri(URL_CHARGING_SESSIONS + "?" + LIMIT + "=" + PAGE_SIZE));
+      default:
+        return status(httpClient.get()
+            .uri(URL_CHARGING_SESSIONS_SUMMARY + "?" + SECONDS + "=" + SUMMARY_SECONDS));
+    }
+  }
+
+  private static Mono<Boolean> status(HttpClient.ResponseReceiver<?> request) {
+    return request.responseSingle((response, content) -> content.asByteArray()
+        .map(bytes -> response.status().code() == 200).defaultIfEmpty(false));
+  }
+
+  private String readId(byte[] chargingSession) {
+    try {
+      return objectMapper.readTree(chargingSession).get("id").asText();
+    } catch (IOException e) {
+      throw new IllegalStateException("Unexpected charging session", e);
+    }
+  }
+
+  private Map<String, Object> report() throws IOException {
+    double elapsedSeconds = Math.max(TimeUnit.SECONDS.toNanos(seconds),
+        lastResponseNanos.get() - measuredNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    Map<String, Object> operations = new LinkedHashMap<>();
+    Histogram totalLatencies = new Histogram(3);
+    long totalErrors = 0;
+    for (Map.Entry<Operation, OperationStatistics> entry : statistics.entrySet()) {
+      operations.put(entry.getKey().label(), entry.getValue().report(elapsedSeconds));
+      totalErrors += entry.getValue().addTo(totalLatencies);
+    }
+    Map<String, Object> total = OperationStatistics.report(totalLatencies, totalErrors, elapsedSeconds);
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("stack", stack);
+    report.put("rate", rate);
+    report.put("seconds", seconds);
+    report.put("warmupSeconds", warmupSeconds);
+    report.put("elapsedSeconds", elapsedSeconds);
+    report.put("mix", mix.toString());
+    report.put("connections", connections);
+    report.put("total", total);
+    report.put("operations", operations);
+
+    File directory = output.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create " + directory);
+    }
+    objectMapper.writerWithDefaultPrettyPrinter().writeValue(output, report);
+    System.out.println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+    System.out.println("Wrote the report to " + output);
+    return total;
+  }
+
+  @Override
+  public String toString() {
+    return "[rate=" + rate + ", seconds=" + seconds + ", warmupSeconds=" + warmupSeconds
+        + ", connections=" + connections + "]";
+  }
+
+}
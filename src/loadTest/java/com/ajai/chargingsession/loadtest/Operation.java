@@ -0,0 +1,92 @@
+package com.ajai.chargingsession.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.util.Assert;
+
+/**
+ * The requests the load test sends.
+ *
+ * @author ajai
+ *
+ */
+enum Operation {
+
+  START, STOP, LIST, SUMMARY;
+
+  /**
+   * Returns the name of the operation in the mix and the report.
+   *
+   * @return the lower case name.
+   */
+  String label() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * A weighted mix of operations, such as {@code start=40,stop=40,list=10,summary=10}.
+   */
+  static final class Mix {
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private Mix(Map<Operation, Integer> weights) {
+      operations = weights.keySet().toArray(new Operation[0]);
+      cumulativeWeights = new int[operations.length];
+      int total = 0;
+      for (int index = 0; index < operations.length; index++) {
+        total += weights.get(operations[index]);
+        cumulativeWeights[index] = total;
+      }
+      Assert.isTrue(total > 0, "Expected at least one operation in the mix");
+    }
+
+    /**
+     * Parses a mix of comma separated {@code operation=weight} pairs.
+     *
+     * @param mix the mix to parse
+     * @return Mix the mix.
+     *
+     * @throws IllegalArgumentException if the mix is invalid.
+     */
+    static Mix parse(String mix) {
+      Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+      for (String pair : mix.split(",")) {
+        String[] operationAndWeight = pair.trim().split("=");
+        Assert.isTrue(operationAndWeight.length == 2, () -> "Invalid operation [" + pair + "]");
+        int weight = Integer.parseInt(operationAndWeight[1].trim());
+        Assert.isTrue(weight >= 0, () -> "Invalid weight of [" + pair + "]");
+        weights.put(valueOf(operationAndWeight[0].trim().toUpperCase(Locale.ROOT)), weight);
+      }
+      return new Mix(weights);
+    }
+
+    /**
+     * Draws the next operation at random according to the weights.
+     *
+     * @return Operation the operation.
+     */
+    Operation next() {
+      int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[operations.length - 1]);
+      int index = 0;
+      while (cumulativeWeights[index] <= draw) {
+        index++;
+      }
+      return operations[index];
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder mix = new StringBuilder();
+      for (int index = 0; index < operations.length; index++) {
+        mix.append(index == 0 ? "" : ",").append(operations[index].label()).append('=')
+            .append(cumulativeWeights[index] - (index == 0 ? 0 : cumulativeWeights[index - 1]));
+      }
+      return mix.toString();
+    }
+  }
+
+}
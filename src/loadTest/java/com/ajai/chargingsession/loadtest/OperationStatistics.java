@@ -0,0 +1,95 @@
+package com.ajai.chargingsession.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The latencies and errors of the measured requests of one operation.
+ *
+ * <p>
+ * The latencies are recorded in microseconds in an HdrHistogram with three significant digits, from
+ * the time a request was due to be sent rather than the time it was sent, so a stalled server is
+ * charged for the requests that queued up behind it.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+final class OperationStatistics {
+
+  private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final Histogram latencies;
+  private final LongAdder errors;
+
+  OperationStatistics() {
+    latencies = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+    errors = new LongAdder();
+  }
+
+  /**
+   * Records the latency of a completed request.
+   *
+   * @param latencyNanos the time from when the request was due to its response
+   */
+  void completed(long latencyNanos) {
+    latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_MICROS));
+  }
+
+  /**
+   * Counts a request that failed or was answered with an unexpected status.
+   */
+  void failed() {
+    errors.increment();
+  }
+
+  /**
+   * Adds the latencies of the operation to the given histogram and returns its number of errors.
+   *
+   * @param total the histogram to add the latencies to
+   * @return the number of errors.
+   */
+  long addTo(Histogram total) {
+    total.add(latencies);
+    return errors.sum();
+  }
+
+  /**
+   * Returns the report of the operation.
+   *
+   * @param seconds the number of seconds from the first measured request to the last response
+   * @return the count, errors, throughput and latency percentiles in milliseconds.
+   */
+  Map<String, Object> report(double seconds) {
+    return report(latencies, errors.sum(), seconds);
+  }
+
+  /**
+   * Returns the report of the given latencies and errors.
+   *
+   * @param latencies the latencies in microseconds
+   * @param errors the number of errors
+   * @param seconds the number of seconds from the first measured request to the last response
+   * @return the count, errors, throughput and latency percentiles in milliseconds.
+   */
+  static Map<String, Object> report(Histogram latencies, long errors, double seconds) {
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("count", latencies.getTotalCount());
+    report.put("errors", errors);
+    report.put("throughput", latencies.getTotalCount() / seconds);
+    report.put("p50Millis", millis(latencies.getValueAtPercentile(50)));
+    report.put("p99Millis", millis(latencies.getValueAtPercentile(99)));
+    report.put("p999Millis", millis(latencies.getValueAtPercentile(99.9)));
+    report.put("maxMillis", millis(latencies.getMaxValue()));
+    return report;
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+}
@@ -0,0 +1,61 @@
+package com.ajai.chargingsession.charging.clock;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.util.Assert;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Clock that is read from a field which a background ticker updates from another clock at a fixed
+ * rate.
+ *
+ * <p>
+ * Reading this clock costs a volatile read, which suits the paths that read the clock at a high
+ * rate. In return the date-time is up to a tick behind and the sessions started within a tick
+ * share their start date-time. The date-time never goes backwards, even if the source does.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public class CoarseSessionClock implements SessionClock, AutoCloseable {
+
+  private final SessionClock source;
+  private final ScheduledExecutorService ticker;
+  private volatile long nanos;
+
+  /**
+   * Creates a clock that reads the given clock every tick.
+   *
+   * @param source the clock to read
+   * @param tickMillis the milliseconds between two reads of the source
+   */
+  public CoarseSessionClock(SessionClock source, long tickMillis) {
+    Assert.isTrue(tickMillis > 0, () -> "Invalid tick of [" + tickMillis + "] milliseconds");
+    this.source = source;
+    nanos = source.nanos();
+    ticker = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("session-clock-ticker").setDaemon(true).build());
+    ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void tick() {
+    // only the ticker writes the field
+    nanos = Math.max(nanos, source.nanos());
+  }
+
+  @Override
+  public long nanos() {
+    return nanos;
+  }
+
+  /**
+   * Stops the ticker. The clock keeps returning the date-time of the last tick.
+   */
+  @Override
+  public void close() {
+    ticker.shutdownNow();
+  }
+
+}
@@ -0,0 +1,55 @@
+package com.ajai.chargingsession.charging.clock;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock that only moves when it is told to, so that the time windows of the charging sessions can
+ * be tested and simulated deterministically.
+ *
+ * @author ajai
+ *
+ */
+public class ManualSessionClock implements SessionClock {
+
+  private final AtomicLong nanos;
+
+  /**
+   * Creates a clock set to the given date-time.
+   *
+   * @param dateTime the date-time to start at
+   */
+  public ManualSessionClock(LocalDateTime dateTime) {
+    nanos = new AtomicLong(toNanos(dateTime));
+  }
+
+  @Override
+  public long nanos() {
+    return nanos.get();
+  }
+
+  /**
+   * Moves the clock forward, or backward for a negative duration.
+   *
+   * @param duration the duration to move the clock by
+   */
+  public void advance(Duration duration) {
+    nanos.addAndGet(duration.toNanos());
+  }
+
+  /**
+   * Sets the clock to the given date-time.
+   *
+   * @param dateTime the date-time to set
+   */
+  public void set(LocalDateTime dateTime) {
+    nanos.set(toNanos(dateTime));
+  }
+
+  private static long toNanos(LocalDateTime dateTime) {
+    return dateTime.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + dateTime.getNano();
+  }
+
+}
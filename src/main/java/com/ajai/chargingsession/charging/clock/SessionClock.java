@@ -0,0 +1,50 @@
+package com.ajai.chargingsession.charging.clock;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Source of the current date-time of the charging sessions.
+ *
+ * <p>
+ * The date-time is the local date-time of the clock's time-zone. It is read as nanoseconds since
+ * the epoch of that local date-time, as if it were in UTC, which is how the store keeps the
+ * date-times of the charging sessions, so reading the clock does not have to allocate. A
+ * {@link LocalDateTime} is only built when one is asked for.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public interface SessionClock {
+
+  long NANOS_PER_SECOND = 1_000_000_000L;
+
+  /**
+   * Returns the current local date-time as nanoseconds since the epoch.
+   *
+   * @return the current local date-time in nanoseconds.
+   */
+  long nanos();
+
+  /**
+   * Returns the current local date-time.
+   *
+   * @return the current local date-time.
+   */
+  default LocalDateTime now() {
+    long nanos = nanos();
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+        (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+  }
+
+  /**
+   * Returns the current local date-time as whole seconds since the epoch.
+   *
+   * @return the current local date-time in seconds.
+   */
+  default long epochSecond() {
+    return Math.floorDiv(nanos(), NANOS_PER_SECOND);
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.ajai.chargingsession.charging.clock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.zone.ZoneRules;
+
+/**
+ * Clock that reads the system clock on every call, like {@code LocalDateTime.now()} does, without
+ * building a date-time.
+ *
+ * @author ajai
+ *
+ */
+public class SystemSessionClock implements SessionClock {
+
+  private final Clock clock;
+  private final ZoneRules zoneRules;
+
+  /**
+   * Creates a clock of the system clock in the default time-zone.
+   */
+  public SystemSessionClock() {
+    this(Clock.systemDefaultZone());
+  }
+
+  /**
+   * Creates a clock of the given clock in its time-zone.
+   *
+   * @param clock the clock to read
+   */
+  public SystemSessionClock(Clock clock) {
+    this.clock = clock;
+    zoneRules = clock.getZone().getRules();
+  }
+
+  @Override
+  public long nanos() {
+    Instant instant = clock.instant();
+    long epochSecond = instant.getEpochSecond() + zoneRules.getOffset(instant).getTotalSeconds();
+    return epochSecond * NANOS_PER_SECOND + instant.getNano();
+  }
+
+}
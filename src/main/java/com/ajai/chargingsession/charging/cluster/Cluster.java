@@ -0,0 +1,419 @@
+package com.ajai.chargingsession.charging.cluster;
+
+import static com.ajai.chargingsession.constants.Constants.CLUSTER_FORWARDED_HEADER;
+import static com.ajai.chargingsession.constants.Constants.IDEMPOTENCY_KEY_HEADER;
+import static com.ajai.chargingsession.constants.Constants.SECONDS;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS_BATCH;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS_SUMMARY;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.session.ChargingSessionDurations;
+import com.ajai.chargingsession.charging.session.ChargingSessionResult;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.handlers.NodeUnavailableException;
+import com.ajai.chargingsession.handlers.TooManyRequestsException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The nodes of the cluster the application runs in, which partition the charging sessions on
+ * their stationId.
+ *
+ * <p>
+ * The nodes are listed by their base URL in {@code cluster.nodes}, in the same order on every
+ * node, and {@code cluster.node} is the index of this node in that list. Without nodes the
+ * application runs on its own and keeps every charging session. In a cluster a charging session
+ * is started on the node its stationId belongs to on a {@link ConsistentHashRing}, and the number
+ * of that node is part of the id of the session, see {@link SessionIdGenerator}, so the node that
+ * keeps a session is known from its stationId or its id.
+ * </p>
+ *
+ * <p>
+ * A request that reaches a node the charging session does not belong to is forwarded to the node
+ * it belongs to, and the response of that node is passed back as it is. A forwarded request is
+ * marked with the {@code X-Cluster-Forwarded} header and is always served by the node it is
+ * forwarded to, so a request is forwarded at most once even while the nodes disagree on the ring.
+ * A summary is gathered from every node and their counts are added up. A node that does not answer
+ * within {@code cluster.forward.timeout.millis} fails the request with a
+ * {@link NodeUnavailableException}.
+ * </p>
+ *
+ * <p>
+ * A batch is split by the node every item belongs to, the part of every other node is forwarded
+ * to it as a batch of its own, and the results of the parts are put back in the order of the
+ * items. A part that a node rejects as a whole, or that its node does not answer in time, fails
+ * every item of it with the status of the rejection, so the results of the other parts, which
+ * have been applied already, are still returned.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+@Component
+public class Cluster {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(Cluster.class);
+
+  private final List<String> nodes;
+  private final int node;
+  private final ConsistentHashRing ring;
+  private final WebClient webClient;
+  private final Duration forwardTimeout;
+
+  /**
+   * Creates a new instance of Cluster.
+   *
+   * @param nodes the base URLs of the nodes, none when the application runs on its own
+   * @param node the index of this node in the list of the nodes
+   * @param virtualNodes the number of points of every node on the ring
+   * @param forwardTimeoutMillis the time the other nodes are given to answer in milliseconds
+   * @param webClientBuilder the builder of the client of the other nodes
+   *
+   * @throws IllegalArgumentException if the nodes or the index of this node are invalid.
+   */
+  public Cluster(@Value("${cluster.nodes}") String[] nodes, @Value("${cluster.node}") int node,
+      @Value("${cluster.virtual.nodes}") int virtualNodes,
+      @Value("${cluster.forward.timeout.millis}") long forwardTimeoutMillis,
+      ObjectProvider<WebClient.Builder> webClientBuilder) {
+    this.nodes = Arrays.stream(nodes).map(String::trim).filter(url -> !url.isEmpty())
+        .collect(Collectors.toList());
+    this.node = node;
+    this.forwardTimeout = Duration.ofMillis(forwardTimeoutMillis);
+    if (this.nodes.isEmpty()) {
+      this.ring = null;
+      this.webClient = null;
+      return;
+    }
+
+    Assert.isTrue(this.nodes.size() <= SessionIdGenerator.MAX_NODES,
+        () -> "The number of nodes cannot exceed " + SessionIdGenerator.MAX_NODES);
+    Assert.isTrue(node >= 0 && node < this.nodes.size(),
+        () -> "The node should be between 0 and " + (this.nodes.size() - 1));
+    Assert.isTrue(forwardTimeoutMillis > 0,
+        () -> "Invalid forward timeout of [" + forwardTimeoutMillis + "] ms");
+    this.ring = new ConsistentHashRing(this.nodes, virtualNodes);
+    this.webClient = webClientBuilder.getIfAvailable(WebClient::builder).build();
+    // the ids generated from now on tell the other nodes that the session is kept here
+    SessionIdGenerator.setNode(node);
+    LOGGER.info("Running as node {} of the cluster {}", node, this.nodes);
+  }
+
+  /**
+   * Returns whether the application runs in a cluster.
+   *
+   * @return {@code true} if there are nodes.
+   */
+  public boolean isEnabled() {
+    return ring != null;
+  }
+
+  /**
+   * Returns the node that the charging sessions of the given station belong to.
+   *
+   * @param stationId the id of the station
+   * @return the index of the node.
+   */
+  public int ownerOfStation(String stationId) {
+    return isEnabled() ? ring.owner(stationId) : node;
+  }
+
+  /**
+   * Returns the node that keeps the charging session with the given id, the node that started it.
+   *
+   * @param chargingSessionId the id of the charging session
+   * @return the index of the node.
+   */
+  public int ownerOfSession(UUID chargingSessionId) {
+    int owner = SessionIdGenerator.nodeOf(chargingSessionId);
+    // an id of another cluster or a made-up one is left to this node to reject
+    return isEnabled() && owner < nodes.size() ? owner : node;
+  }
+
+  /**
+   * Returns whether a request to the charging sessions of the given node is to be forwarded to
+   * it, which is when it is another node and the request has not been forwarded already.
+   *
+   * @param owner the node the charging sessions of the request belong to
+   * @param requestHeaders the headers of the request
+   * @return {@code true} if the request is to be forwarded.
+   */
+  public boolean isForwardedTo(int owner, HttpHeaders requestHeaders) {
+    return owner != node && !requestHeaders.containsKey(CLUSTER_FORWARDED_HEADER);
+  }
+
+  /**
+   * Returns whether the summary of a request is to be gathered from every node, which is when the
+   * application runs in a cluster and the request has not been sent by another node.
+   *
+   * @param requestHeaders the headers of the request
+   * @return {@code true} if the summary is to be gathered.
+   */
+  public boolean isGathered(HttpHeaders requestHeaders) {
+    return isEnabled() && !requestHeaders.containsKey(CLUSTER_FORWARDED_HEADER);
+  }
+
+  /**
+   * Forwards a request to the given node. The {@code Accept} and {@code Idempotency-Key} headers of
+   * the request are passed on and the request is sent as JSON.
+   *
+   * @param owner the node to forward the request to
+   * @param method the method of the request
+   * @param uri the path and query of the request, with the tenant in the path
+   * @param requestHeaders the headers of the request
+   * @param body the body of the request or {@code null} for none
+   * @return {@code Mono<ResponseEntity<byte[]>>} the status, the content type and the body of the
+   *         response of the node, whatever its status.
+   */
+  public Mono<ResponseEntity<byte[]>> forward(int owner, HttpMethod method, String uri,
+      HttpHeaders requestHeaders, Object body) {
+    // a request without a body, such as a stop, is still routed on its JSON content type
+    WebClient.RequestBodySpec request = webClient.method(method).uri(nodes.get(owner) + uri)
+        .contentType(MediaType.APPLICATION_JSON).headers(headers -> {
+          headers.setAccept(requestHeaders.getAccept());
+          if (requestHeaders.containsKey(IDEMPOTENCY_KEY_HEADER)) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, requestHeaders.getFirst(IDEMPOTENCY_KEY_HEADER));
+          }
+          headers.set(CLUSTER_FORWARDED_HEADER, Integer.toString(node));
+        });
+    WebClient.RequestHeadersSpec<?> requestWithBody =
+        body == null ? request : request.bodyValue(body);
+    return requestWithBody.exchange().flatMap(response -> response.toEntity(byte[].class))
+        .map(Cluster::withoutTransportHeaders).timeout(forwardTimeout)
+        .onErrorMap(ex -> unavailable(owner, ex));
+  }
+
+  /**
+   * Starts a batch of charging sessions on the nodes their stations belong to. The DTOs of this
+   * node are started by the given function and those of every other node are forwarded to it, so
+   * every charging session is charged to the limits of the tenant on the node that keeps it. A
+   * batch outside of a cluster or forwarded already is started here as it is.
+   *
+   * @param tenantId the id of the tenant of the batch
+   * @param chargingStationDTOs the charging stations to start the charging sessions at
+   * @param requestHeaders the headers of the request
+   * @param local the function that starts the charging sessions of this node
+   * @return {@code Mono<List<?>>} the result for every DTO, in the same order.
+   */
+  public Mono<List<?>> forwardStarts(String tenantId, List<ChargingStationDTO> chargingStationDTOs,
+      HttpHeaders requestHeaders,
+      Function<List<ChargingStationDTO>, Mono<List<ChargingSessionResult>>> local) {
+    // an invalid DTO is left to this node to reject
+    return forwardBatch(tenantId, HttpMethod.POST, chargingStationDTOs,
+        chargingStationDTO -> chargingStationDTO == null
+            || chargingStationDTO.getStationId() == null ? node
+                : ownerOfStation(chargingStationDTO.getStationId()),
+        requestHeaders, local);
+  }
+
+  /**
+   * Stops a batch of charging sessions on the nodes that keep them. The ids of this node are
+   * stopped by the given function and those of every other node are forwarded to it. A batch
+   * outside of a cluster or forwarded already is stopped here as it is.
+   *
+   * @param tenantId the id of the tenant of the batch
+   * @param chargingSessionIds the ids of the charging sessions
+   * @param requestHeaders the headers of the request
+   * @param local the function that stops the charging sessions of this node
+   * @return {@code Mono<List<?>>} the result for every id, in the same order.
+   */
+  public Mono<List<?>> forwardStops(String tenantId, List<UUID> chargingSessionIds,
+      HttpHeaders requestHeaders, Function<List<UUID>, Mono<List<ChargingSessionResult>>> local) {
+    return forwardBatch(tenantId, HttpMethod.PUT, chargingSessionIds,
+        chargingSessionId -> chargingSessionId == null ? node : ownerOfSession(chargingSessionId),
+        requestHeaders, local);
+  }
+
+  private <T> Mono<List<?>> forwardBatch(String tenantId, HttpMethod method, List<T> items,
+      ToIntFunction<T> ownerOf, HttpHeaders requestHeaders,
+      Function<List<T>, Mono<List<ChargingSessionResult>>> local) {
+    if (!isEnabled() || requestHeaders.containsKey(CLUSTER_FORWARDED_HEADER)) {
+      return local.apply(items).<List<?>>map(results -> results);
+    }
+
+    Map<Integer, List<Integer>> positionsByOwner = new TreeMap<>();
+    for (int position = 0; position < items.size(); position++) {
+      positionsByOwner
+          .computeIfAbsent(ownerOf.applyAsInt(items.get(position)), owner -> new ArrayList<>())
+          .add(position);
+    }
+    List<Integer> localPositions = positionsByOwner.remove(node);
+    if (positionsByOwner.isEmpty()) {
+      return local.apply(items).<List<?>>map(results -> results);
+    }
+
+    String uri = UriComponentsBuilder.fromPath(URL_TENANT_CHARGING_SESSIONS_BATCH)
+        .buildAndExpand(tenantId).encode().toUriString();
+    Object[] results = new Object[items.size()];
+    List<Mono<Void>> parts = new ArrayList<>();
+    positionsByOwner.forEach((owner, positions) -> parts.add(fill(results, positions,
+        forwardPart(owner, method, uri, select(items, positions)))));
+    // the part of this node goes last, so the other parts are on their way while it is applied
+    if (localPositions != null) {
+      parts.add(fill(results, localPositions,
+          local.apply(select(items, localPositions)).onErrorResume(TooManyRequestsException.class,
+              ex -> Mono.just(failed(localPositions.size(), HttpStatus.TOO_MANY_REQUESTS,
+                  ex.getMessage())))));
+    }
+    return Flux.merge(parts).then(Mono.fromSupplier(() -> Arrays.asList(results)));
+  }
+
+  private Mono<List<?>> forwardPart(int owner, HttpMethod method, String uri, List<?> part) {
+    return webClient.method(method).uri(nodes.get(owner) + uri)
+        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)
+        .header(CLUSTER_FORWARDED_HEADER, Integer.toString(node)).bodyValue(part).exchange()
+        .flatMap(response -> response.bodyToMono(JsonNode.class)
+            .defaultIfEmpty(MissingNode.getInstance())
+            .<List<?>>map(body -> toResults(owner, response.statusCode(), body, part.size())))
+        .timeout(forwardTimeout).onErrorResume(ex -> Mono.<List<?>>just(failed(part.size(),
+            HttpStatus.SERVICE_UNAVAILABLE, unavailable(owner, ex).getMessage())));
+  }
+
+  private List<?> toResults(int owner, HttpStatus status, JsonNode body, int items) {
+    if (!status.is2xxSuccessful()) {
+      StringJoiner errors = new StringJoiner(", ");
+      body.path("errors").forEach(error -> errors.add(error.asText()));
+      return failed(items, status,
+          errors.length() > 0 ? errors.toString() : status.getReasonPhrase());
+    }
+    if (!body.isArray() || body.size() != items) {
+      return failed(items, HttpStatus.BAD_GATEWAY,
+          "Node " + owner + " at [" + nodes.get(owner) + "] answered " + body.size()
+              + " results for " + items + " items");
+    }
+    List<JsonNode> results = new ArrayList<>(items);
+    body.forEach(results::add);
+    return results;
+  }
+
+  private static <T> List<T> select(List<T> items, List<Integer> positions) {
+    return positions.stream().map(items::get).collect(Collectors.toList());
+  }
+
+  private static List<ChargingSessionResult> failed(int items, HttpStatus status, String error) {
+    return Collections.nCopies(items, ChargingSessionResult.error(status, error));
+  }
+
+  private static Mono<Void> fill(Object[] results, List<Integer> positions,
+      Mono<? extends List<?>> part) {
+    return part.doOnNext(partResults -> {
+      for (int item = 0; item < positions.size(); item++) {
+        results[positions.get(item)] = partResults.get(item);
+      }
+    }).then();
+  }
+
+  /**
+   * Gathers the summaries of the other nodes and merges them with the summary of this node.
+   *
+   * @param tenantId the id of the tenant of the summary
+   * @param seconds the number of seconds ago
+   * @param localSummary the summary of the charging sessions of this node
+   * @return {@code Mono<ChargingSessionSummary>} the summary of the whole cluster.
+   */
+  public Mono<ChargingSessionSummary> summarize(String tenantId, long seconds,
+      ChargingSessionSummary localSummary) {
+    String uri = UriComponentsBuilder.fromPath(URL_TENANT_CHARGING_SESSIONS_SUMMARY)
+        .queryParam(SECONDS, seconds).buildAndExpand(tenantId).encode().toUriString();
+    return Flux.range(0, nodes.size()).filter(other -> other != node)
+        .flatMap(other -> webClient.get().uri(nodes.get(other) + uri)
+            .accept(MediaType.APPLICATION_JSON)
+            .header(CLUSTER_FORWARDED_HEADER, Integer.toString(node)).retrieve()
+            .bodyToMono(JsonNode.class).timeout(forwardTimeout)
+            .onErrorMap(ex -> unavailable(other, ex)).map(Cluster::toSummary))
+        .startWith(localSummary).collectList().map(Cluster::merge);
+  }
+
+  /**
+   * Merges the summaries of the nodes. The counts are added up, and the mean and the longest
+   * duration are exact. The percentiles of the durations cannot be merged without the histograms
+   * of the nodes, so the highest percentile of the nodes is taken, which is never below the
+   * percentile of the whole cluster.
+   *
+   * @param summaries the summaries of the nodes
+   * @return ChargingSessionSummary the summary of the whole cluster.
+   */
+  public static ChargingSessionSummary merge(List<ChargingSessionSummary> summaries) {
+    long startedCount = 0;
+    long stoppedCount = 0;
+    long totalMillis = 0;
+    long p50Millis = 0;
+    long p90Millis = 0;
+    long p99Millis = 0;
+    long maxMillis = 0;
+    for (ChargingSessionSummary summary : summaries) {
+      ChargingSessionDurations durations = summary.getDurations();
+      startedCount += summary.getStartedCount();
+      stoppedCount += summary.getStoppedCount();
+      totalMillis += durations.getMeanMillis() * summary.getStoppedCount();
+      p50Millis = Math.max(p50Millis, durations.getP50Millis());
+      p90Millis = Math.max(p90Millis, durations.getP90Millis());
+      p99Millis = Math.max(p99Millis, durations.getP99Millis());
+      maxMillis = Math.max(maxMillis, durations.getMaxMillis());
+    }
+
+    Map<StatusEnum, Long> summaryMap = new EnumMap<>(StatusEnum.class);
+    summaryMap.put(StatusEnum.IN_PROGRESS, startedCount);
+    summaryMap.put(StatusEnum.FINISHED, stoppedCount);
+    if (stoppedCount == 0) {
+      return new ChargingSessionSummary(summaryMap);
+    }
+    return new ChargingSessionSummary(summaryMap, new ChargingSessionDurations(
+        totalMillis / stoppedCount, p50Millis, p90Millis, p99Millis, maxMillis));
+  }
+
+  private static ChargingSessionSummary toSummary(JsonNode summary) {
+    Map<StatusEnum, Long> summaryMap = new EnumMap<>(StatusEnum.class);
+    summaryMap.put(StatusEnum.IN_PROGRESS, summary.path("startedCount").asLong());
+    summaryMap.put(StatusEnum.FINISHED, summary.path("stoppedCount").asLong());
+    JsonNode durations = summary.path("durations");
+    return new ChargingSessionSummary(summaryMap,
+        new ChargingSessionDurations(durations.path("meanMillis").asLong(),
+            durations.path("p50Millis").asLong(), durations.path("p90Millis").asLong(),
+            durations.path("p99Millis").asLong(), durations.path("maxMillis").asLong()));
+  }
+
+  private static ResponseEntity<byte[]> withoutTransportHeaders(ResponseEntity<byte[]> response) {
+    // the length and the encoding of the response are up to the node that passes it back
+    ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.getStatusCode());
+    MediaType contentType = response.getHeaders().getContentType();
+    if (contentType != null) {
+      builder.contentType(contentType);
+    }
+    return builder.body(response.getBody());
+  }
+
+  private NodeUnavailableException unavailable(int other, Throwable cause) {
+    return new NodeUnavailableException(
+        "Node " + other + " at [" + nodes.get(other) + "] is unavailable", cause);
+  }
+
+}
@@ -0,0 +1,69 @@
+package com.ajai.chargingsession.charging.cluster;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.springframework.util.Assert;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Consistent hash ring that assigns keys, the stationIds, to the nodes of a cluster.
+ *
+ * <p>
+ * Every node is placed on the ring at a number of points, its virtual nodes, hashed from its name
+ * and the number of the point. A key belongs to the node of the first point at or after the hash
+ * of the key, wrapping around at the end of the ring. The many points of every node even out the
+ * share of the keys of the nodes, and adding or removing a node only moves the keys of the points
+ * next to its own. Since the points are hashed from the names of the nodes, every node that is
+ * given the same names builds the same ring, whatever the order of the names.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public final class ConsistentHashRing {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final NavigableMap<Long, Integer> points;
+
+  /**
+   * Creates a new instance of ConsistentHashRing.
+   *
+   * @param nodes the names of the nodes, such as their URLs
+   * @param virtualNodes the number of points of every node on the ring
+   *
+   * @throws IllegalArgumentException if there are no nodes or no virtual nodes.
+   */
+  public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+    Assert.notEmpty(nodes, "Expected at least one node.");
+    Assert.isTrue(virtualNodes > 0,
+        () -> "Invalid number of virtual nodes [" + virtualNodes + "]");
+    points = new TreeMap<>();
+    for (int node = 0; node < nodes.size(); node++) {
+      for (int virtualNode = 0; virtualNode < virtualNodes; virtualNode++) {
+        // a point hashed by two nodes goes to either, the same one on every node
+        points.merge(hash(nodes.get(node) + "#" + virtualNode), node, Math::min);
+      }
+    }
+  }
+
+  /**
+   * Returns the node the given key belongs to.
+   *
+   * @param key the key, such as a stationId
+   * @return the index of the node in the list the ring was created with.
+   */
+  public int owner(String key) {
+    Map.Entry<Long, Integer> point = points.ceilingEntry(hash(key));
+    return (point == null ? points.firstEntry() : point).getValue();
+  }
+
+  private static long hash(String value) {
+    return HASH_FUNCTION.hashString(value, UTF_8).asLong();
+  }
+
+}
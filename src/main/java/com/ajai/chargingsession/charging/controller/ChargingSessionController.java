@@ -1,84 +1,264 @@
 package com.ajai.chargingsession.charging.controller;
 
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 import static com.ajai.chargingsession.constants.UrlConstants.*;
 import static com.ajai.chargingsession.constants.Constants.*;
+import java.util.List;
 import java.util.UUID;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+import com.ajai.chargingsession.charging.cluster.Cluster;
 import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
 import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
 import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionPage;
 import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.summary.SummaryBroadcaster;
+import com.ajai.chargingsession.charging.tenant.Tenant;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.annotations.ApiOperation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import springfox.documentation.annotations.ApiIgnore;
 
 /**
  * A RestController for handling the charging sessions. Apart from containing methods for starting
  * and stopping a charging session it also has methods that returns all the charging sessions and
  * also summarizing charging sessions over the last minute.
  * 
+ * <p>
+ * Every endpoint is also available under the {@code /tenants/{tenant-id}} prefix. The tenant can
+ * be selected by that prefix or by the {@code X-Tenant-Id} header, and the default tenant serves
+ * the requests without either.
+ * </p>
+ * 
+ * <p>
+ * The request and response bodies are JSON or, for the gateways that send high volumes of small
+ * messages, the more compact CBOR, as negotiated by the {@code Content-Type} and {@code Accept}
+ * headers. JSON is the default.
+ * </p>
+ * 
+ * <p>
+ * A start or stop with an {@code Idempotency-Key} header is applied once per key, so a charger
+ * that retries it gets the charging session of its first request.
+ * </p>
+ * 
+ * <p>
+ * In a {@link Cluster}, starts, stops and listings of a station whose charging sessions belong to
+ * another node are forwarded to that node, the items of a batch are forwarded to their nodes in a
+ * batch per node, and summaries are gathered from every node. The other listings and the streams
+ * only cover the charging sessions of this node.
+ * </p>
+ * 
  * @author ajai
  *
  */
 @ApiOperation(
     value = "Endpoints for initiating, viewing, terminating, and summarizing the charging sessions.")
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class ChargingSessionController {
 
   private static final String DEFAULT_NO_OF_SECONDS = "1";
 
-  private final ChargingSessionsHandler handler;
+  private static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+  private final ObjectWriter streamingWriter;
+
+  private final SummaryBroadcaster summaryBroadcaster;
+
+  private final Cluster cluster;
 
   /**
-   * Creates a new instance of ChargingController.
+   * Creates a new instance of ChargingController. The charging sessions are handled by the
+   * {@link ChargingSessionsHandler} of the {@link Tenant} of every request.
    * 
-   * @param handler instance of ChargingSessionsHandler
+   * @param objectMapper the ObjectMapper used for streaming the charging sessions
+   * @param summaryBroadcaster the broadcaster of the live summaries
+   * @param cluster the cluster the charging sessions are partitioned across
    */
-  public ChargingSessionController(ChargingSessionsHandler handler) {
-    this.handler = handler;
+  public ChargingSessionController(ObjectMapper objectMapper,
+      SummaryBroadcaster summaryBroadcaster, Cluster cluster) {
+    this.streamingWriter =
+        objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    this.summaryBroadcaster = summaryBroadcaster;
+    this.cluster = cluster;
   }
 
   @ApiOperation(value = "View available charging sessions", response = Iterable.class)
-  @GetMapping(path = URL_CHARGING_SESSIONS, produces = APPLICATION_JSON_VALUE)
-  public HttpEntity<Iterable<ChargingSession>> getAllChargingSessions() {
-    return new ResponseEntity<>(handler.getAllChargingSessions(), HttpStatus.OK);
+  @GetMapping(path = {URL_CHARGING_SESSIONS, URL_TENANT_CHARGING_SESSIONS},
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<Iterable<ChargingSession>> getAllChargingSessions(@ApiIgnore Tenant tenant) {
+    return new ResponseEntity<>(tenant.getHandler().getAllChargingSessions(), HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "View a page of charging sessions", response = ChargingSessionPage.class)
+  @GetMapping(path = {URL_CHARGING_SESSIONS, URL_TENANT_CHARGING_SESSIONS}, params = LIMIT,
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<ChargingSessionPage> getChargingSessions(@ApiIgnore Tenant tenant,
+      @RequestParam(LIMIT) int limit,
+      @RequestParam(value = CURSOR, required = false) String cursor) {
+    return new ResponseEntity<>(tenant.getHandler().getChargingSessions(cursor, limit),
+        HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "View the charging sessions of a charging station",
+      response = Iterable.class)
+  @GetMapping(path = {URL_CHARGING_SESSIONS, URL_TENANT_CHARGING_SESSIONS},
+      params = {STATION_ID, "!" + LIMIT},
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<?> getChargingSessionsOfStation(@ApiIgnore Tenant tenant,
+      @ApiIgnore @RequestHeader HttpHeaders headers, @RequestParam(STATION_ID) String stationId,
+      @RequestParam(value = STATUS, required = false) StatusEnum status) {
+    int owner = cluster.ownerOfStation(stationId);
+    if (cluster.isForwardedTo(owner, headers)) {
+      UriComponentsBuilder uri = UriComponentsBuilder.fromPath(URL_TENANT_CHARGING_SESSIONS)
+          .queryParam(STATION_ID, stationId);
+      if (status != null) {
+        uri.queryParam(STATUS, status);
+      }
+      return cluster.forward(owner, HttpMethod.GET,
+          uri.buildAndExpand(tenant.getId()).encode().toUriString(), headers, null).block();
+    }
+    return new ResponseEntity<>(
+        tenant.getHandler().getChargingSessionsOfStation(stationId, status), HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "Stream all charging sessions as newline delimited JSON")
+  @GetMapping(path = {URL_CHARGING_SESSIONS_STREAM, URL_TENANT_CHARGING_SESSIONS_STREAM},
+      produces = APPLICATION_NDJSON_VALUE)
+  public HttpEntity<StreamingResponseBody> streamChargingSessions(@ApiIgnore Tenant tenant) {
+    Iterable<ChargingSession> chargingSessions = tenant.getHandler().streamChargingSessions();
+    StreamingResponseBody body = outputStream -> {
+      try (JsonGenerator generator = streamingWriter.getFactory().createGenerator(outputStream)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        for (ChargingSession chargingSession : chargingSessions) {
+          streamingWriter.writeValue(generator, chargingSession);
+          generator.writeRaw('\n');
+        }
+      }
+    };
+    return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
   }
 
   @ApiOperation(value = "Create a new charging session", response = ChargingSession.class)
-  @PostMapping(path = URL_CHARGING_SESSIONS, consumes = APPLICATION_JSON_VALUE,
-      produces = APPLICATION_JSON_VALUE)
-  public HttpEntity<ChargingSession> startChargingSession(
+  @PostMapping(path = {URL_CHARGING_SESSIONS, URL_TENANT_CHARGING_SESSIONS},
+      consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE},
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<?> startChargingSession(@ApiIgnore Tenant tenant,
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+      @ApiIgnore @RequestHeader HttpHeaders headers,
       @Valid @RequestBody ChargingStationDTO chargingStationDTO) {
-    return new ResponseEntity<>(handler.startChargingSession(chargingStationDTO),
+    int owner = cluster.ownerOfStation(chargingStationDTO.getStationId());
+    if (cluster.isForwardedTo(owner, headers)) {
+      return cluster.forward(owner, HttpMethod.POST,
+          tenantUri(URL_TENANT_CHARGING_SESSIONS, tenant), headers, chargingStationDTO).block();
+    }
+    return new ResponseEntity<>(tenant.startChargingSession(idempotencyKey, chargingStationDTO),
         HttpStatus.CREATED);
   }
 
   @ApiOperation(value = "Stop a charging session", response = ChargingSession.class)
-  @PutMapping(path = URL_CHARGING_SESSION, consumes = APPLICATION_JSON_VALUE,
-      produces = APPLICATION_JSON_VALUE)
-  public HttpEntity<ChargingSession> stopChargingSession(
+  @PutMapping(path = {URL_CHARGING_SESSION, URL_TENANT_CHARGING_SESSION},
+      consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE},
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<?> stopChargingSession(@ApiIgnore Tenant tenant,
+      @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+      @ApiIgnore @RequestHeader HttpHeaders headers,
       @PathVariable(CHARGING_SESSION_ID) @NotBlank UUID chargingSessionId) {
-    return new ResponseEntity<>(handler.stopChargingSession(chargingSessionId), HttpStatus.OK);
+    int owner = cluster.ownerOfSession(chargingSessionId);
+    if (cluster.isForwardedTo(owner, headers)) {
+      return cluster.forward(owner, HttpMethod.PUT,
+          tenantUri(URL_TENANT_CHARGING_SESSION, tenant, chargingSessionId), headers, null)
+          .block();
+    }
+    return new ResponseEntity<>(tenant.stopChargingSession(idempotencyKey, chargingSessionId),
+        HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "Create a batch of new charging sessions", response = Iterable.class)
+  @PostMapping(path = {URL_CHARGING_SESSIONS_BATCH, URL_TENANT_CHARGING_SESSIONS_BATCH},
+      consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE},
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<List<?>> startChargingSessions(@ApiIgnore Tenant tenant,
+      @ApiIgnore @RequestHeader HttpHeaders headers,
+      @RequestBody List<ChargingStationDTO> chargingStationDTOs) {
+    tenant.getHandler().checkBatchSize(chargingStationDTOs.size());
+    return new ResponseEntity<>(cluster.forwardStarts(tenant.getId(), chargingStationDTOs,
+        headers, part -> Mono.fromSupplier(
+            () -> tenant.startChargingSessions(part, ChargingSessionsHandler::validate)))
+        .block(), HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "Stop a batch of charging sessions", response = Iterable.class)
+  @PutMapping(path = {URL_CHARGING_SESSIONS_BATCH, URL_TENANT_CHARGING_SESSIONS_BATCH},
+      consumes = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE},
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<List<?>> stopChargingSessions(@ApiIgnore Tenant tenant,
+      @ApiIgnore @RequestHeader HttpHeaders headers, @RequestBody List<UUID> chargingSessionIds) {
+    tenant.getHandler().checkBatchSize(chargingSessionIds.size());
+    return new ResponseEntity<>(cluster.forwardStops(tenant.getId(), chargingSessionIds, headers,
+        part -> Mono.fromSupplier(() -> tenant.stopChargingSessions(part))).block(),
+        HttpStatus.OK);
   }
 
   @ApiOperation(value = "View a summary of charging sessions",
       response = ChargingSessionSummary.class)
-  @GetMapping(path = URL_CHARGING_SESSIONS_SUMMARY, produces = APPLICATION_JSON_VALUE)
-  public HttpEntity<ChargingSessionSummary> getChargingSessionSummary(@Valid @RequestParam(
-      value = SECONDS, defaultValue = DEFAULT_NO_OF_SECONDS) @NotBlank long seconds) {
-    ChargingSessionSummary summary =
-        new ChargingSessionSummary(handler.getChargingSessionSummary(seconds));
-    return new ResponseEntity<>(summary, HttpStatus.OK);
+  @GetMapping(path = {URL_CHARGING_SESSIONS_SUMMARY, URL_TENANT_CHARGING_SESSIONS_SUMMARY},
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  public HttpEntity<ChargingSessionSummary> getChargingSessionSummary(@ApiIgnore Tenant tenant,
+      @ApiIgnore @RequestHeader HttpHeaders headers,
+      @Valid @RequestParam(value = SECONDS,
+          defaultValue = DEFAULT_NO_OF_SECONDS) @NotBlank long seconds) {
+    ChargingSessionSummary chargingSessionSummary = tenant.getHandler().summarize(seconds);
+    if (cluster.isGathered(headers)) {
+      chargingSessionSummary =
+          cluster.summarize(tenant.getId(), seconds, chargingSessionSummary).block();
+    }
+    return new ResponseEntity<>(chargingSessionSummary, HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "Stream a live summary of charging sessions as server-sent events",
+      response = ChargingSessionSummary.class)
+  @GetMapping(
+      path = {URL_CHARGING_SESSIONS_SUMMARY_STREAM, URL_TENANT_CHARGING_SESSIONS_SUMMARY_STREAM},
+      produces = TEXT_EVENT_STREAM_VALUE)
+  public Flux<ChargingSessionSummary> streamChargingSessionSummary(@ApiIgnore Tenant tenant,
+      @RequestParam(value = SECONDS, defaultValue = DEFAULT_NO_OF_SECONDS) long seconds) {
+    return summaryBroadcaster.subscribe(tenant.getHandler(), seconds);
+  }
+
+  private static String tenantUri(String template, Tenant tenant, Object... uriVariables) {
+    Object[] variables = new Object[uriVariables.length + 1];
+    variables[0] = tenant.getId();
+    System.arraycopy(uriVariables, 0, variables, 1, uriVariables.length);
+    return UriComponentsBuilder.fromPath(template).buildAndExpand(variables).encode()
+        .toUriString();
   }
 
 }
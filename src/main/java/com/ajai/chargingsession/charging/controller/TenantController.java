@@ -0,0 +1,65 @@
+package com.ajai.chargingsession.charging.controller;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANTS;
+import static com.ajai.chargingsession.constants.Constants.TENANT_ID;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.ajai.chargingsession.charging.tenant.Tenant;
+import com.ajai.chargingsession.charging.tenant.TenantRegistry;
+import com.ajai.chargingsession.charging.tenant.TenantStatistics;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * A RestController for registering the tenants and viewing their statistics, such as their number
+ * of charging sessions, their estimated memory footprint and the requests rejected for exceeding
+ * their limits.
+ * 
+ * @author ajai
+ *
+ */
+@ApiOperation(value = "Endpoints for registering the tenants and viewing their statistics.")
+@RestController
+public class TenantController {
+
+  private final TenantRegistry tenantRegistry;
+
+  /**
+   * Creates a new instance of TenantController.
+   * 
+   * @param tenantRegistry the registry of the tenants
+   */
+  public TenantController(TenantRegistry tenantRegistry) {
+    this.tenantRegistry = tenantRegistry;
+  }
+
+  @ApiOperation(value = "View the statistics of all the tenants", response = Iterable.class)
+  @GetMapping(path = URL_TENANTS, produces = APPLICATION_JSON_VALUE)
+  public HttpEntity<List<TenantStatistics>> getTenants() {
+    return new ResponseEntity<>(tenantRegistry.getTenants().stream().map(Tenant::getStatistics)
+        .collect(Collectors.toList()), HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "View the statistics of a tenant", response = TenantStatistics.class)
+  @GetMapping(path = URL_TENANT, produces = APPLICATION_JSON_VALUE)
+  public HttpEntity<TenantStatistics> getTenant(@PathVariable(TENANT_ID) String tenantId) {
+    return new ResponseEntity<>(tenantRegistry.findTenant(tenantId).getStatistics(),
+        HttpStatus.OK);
+  }
+
+  @ApiOperation(value = "Register a tenant", response = TenantStatistics.class)
+  @PutMapping(path = URL_TENANT, produces = APPLICATION_JSON_VALUE)
+  public HttpEntity<TenantStatistics> registerTenant(@PathVariable(TENANT_ID) String tenantId) {
+    return new ResponseEntity<>(tenantRegistry.registerTenant(tenantId).getStatistics(),
+        HttpStatus.OK);
+  }
+
+}
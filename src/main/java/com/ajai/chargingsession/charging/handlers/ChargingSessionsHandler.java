@@ -1,33 +1,62 @@
 package com.ajai.chargingsession.charging.handlers;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.SortedMap;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import com.ajai.chargingsession.charging.clock.SessionClock;
 import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.RecoveryStatistics;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
 import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionDurations;
+import com.ajai.chargingsession.charging.session.ChargingSessionPage;
+import com.ajai.chargingsession.charging.session.ChargingSessionResult;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
 import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.store.ChargingSessionStore;
+import com.ajai.chargingsession.charging.store.SessionCursor;
+import com.ajai.chargingsession.charging.summary.SummaryCache;
 import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Table;
-import com.google.common.collect.TreeBasedTable;
+import com.google.common.collect.Iterables;
 
 /**
  * Handler for ChargingSessions.
  * 
  * <p>
  * This class provides a variety of methods to read, write, and summarize the charging session
- * information to the backing {@link com.google.common.collect.Table}. The reads from and writes to
- * this data-structure are thread-safe.
+ * information to the backing {@link ChargingSessionStore}. The store keeps the charging sessions
+ * as compact rows of primitives and the reads from and writes to it are thread-safe. The sessions
+ * are partitioned into shards on their stationId, so starts and stops of sessions of stations in
+ * different shards do not contend with each other, and the reads hardly ever hold up the writes.
+ * </p>
+ * 
+ * <p>
+ * Every start and stop is appended to the {@link ChargingSessionJournal} before it is acknowledged.
+ * When the handler is created, the charging sessions are restored from the latest snapshot and the
+ * journal appended after it.
+ * </p>
+ * 
+ * <p>
+ * The summaries served to clients are kept in a {@link SummaryCache}, so simultaneous polls of the
+ * same window share one computation.
  * </p>
  * 
  * @author ajai
@@ -36,25 +65,122 @@ import com.google.common.collect.TreeBasedTable;
 @Component
 public class ChargingSessionsHandler {
 
-  @Value("${seconds.lower.limit}")
-  private long secondsLowerLimit;
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChargingSessionsHandler.class);
+
+  private static final String BLANK_STATION_ID = "The stationId should not be blank";
 
-  @Value("${seconds.higher.limit}")
-  private long secondsHigherLimit;
+  private static final IntConsumer ADMIT_ALL = chargingSessions -> {
+    // EMPTY
+  };
 
-  private final Table<LocalDateTime, UUID, ChargingSession> chargingSessionTable;
-  private final ReadWriteLock readWriteLock;
-  private final Lock readLock;
-  private final Lock writeLock;
+  private final long secondsLowerLimit;
+  private final long secondsHigherLimit;
+  private final int pageSizeLimit;
+  private final int batchSizeLimit;
+
+  private final ChargingSessionStore chargingSessionStore;
+  private final ChargingSessionMetrics metrics;
+  private final SessionClock clock;
+  private final RecoveryStatistics recoveryStatistics;
+  private final SummaryCache summaryCache;
 
   /**
-   * Creates an instance of ChargingSessionsHandler along with the Table and locks.
+   * Creates an instance of ChargingSessionsHandler along with the store.
+   * 
+   * @param secondsLowerLimit the shortest summary window in seconds
+   * @param secondsHigherLimit the longest summary window in seconds
+   * @param shards the number of shards the sessions are partitioned into on their stationId
+   * @param pageSizeLimit the largest number of charging sessions on a page
+   * @param batchSizeLimit the largest number of charging sessions started or stopped in a batch
+   * @param summaryCacheMillis the number of milliseconds a summary is reused for while the
+   *        charging sessions change
+   * @param journal the journal to restore the charging sessions from and to append to
+   * @param metrics the meters of the charging sessions
+   * @param clock the clock the charging sessions are started, stopped and summarized on
    */
-  public ChargingSessionsHandler() {
-    chargingSessionTable = TreeBasedTable.create();
-    readWriteLock = new ReentrantReadWriteLock();
-    readLock = readWriteLock.readLock();
-    writeLock = readWriteLock.writeLock();
+  public ChargingSessionsHandler(@Value("${seconds.lower.limit}") long secondsLowerLimit,
+      @Value("${seconds.higher.limit}") long secondsHigherLimit,
+      @Value("${sessions.shards}") int shards, @Value("${page.size.limit}") int pageSizeLimit,
+      @Value("${batch.size.limit}") int batchSizeLimit,
+      @Value("${summary.cache.millis}") long summaryCacheMillis, ChargingSessionJournal journal,
+      ChargingSessionMetrics metrics, SessionClock clock) {
+    this.secondsLowerLimit = secondsLowerLimit;
+    this.secondsHigherLimit = secondsHigherLimit;
+    this.pageSizeLimit = pageSizeLimit;
+    this.batchSizeLimit = batchSizeLimit;
+    this.metrics = metrics;
+    this.clock = clock;
+    this.summaryCache = new SummaryCache(summaryCacheMillis, metrics);
+    chargingSessionStore = new ChargingSessionStore(secondsHigherLimit, shards, journal, metrics);
+    metrics.gaugeChargingSessions(StatusEnum.IN_PROGRESS, chargingSessionStore,
+        ChargingSessionStore::getInProgressCount);
+    metrics.gaugeChargingSessions(StatusEnum.FINISHED, chargingSessionStore,
+        store -> store.size() - store.getInProgressCount());
+
+    recoveryStatistics = journal.recover(new ChargingSessionJournal.Replayer() {
+
+      @Override
+      public void restored(ChargingSession chargingSession) {
+        chargingSessionStore.restore(chargingSession);
+      }
+
+      @Override
+      public void stopped(UUID chargingSessionId, LocalDateTime stoppedAt) {
+        chargingSessionStore.restoreStopped(chargingSessionId, stoppedAt);
+      }
+    });
+    if (recoveryStatistics.getSnapshotSessions() + recoveryStatistics.getJournalRecords() > 0) {
+      LOGGER.info("Restored {} charging sessions, {}", chargingSessionStore.size(),
+          recoveryStatistics);
+    }
+    metrics.gaugeRecovery(recoveryStatistics);
+  }
+
+  /**
+   * Writes a snapshot of the charging sessions to the journal while the starts and stops go on,
+   * so that a later recovery only replays the journal after it.
+   */
+  public void writeSnapshot() {
+    long startNanos = System.nanoTime();
+    chargingSessionStore.snapshot();
+    LOGGER.debug("Wrote a snapshot in {} ms",
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+  }
+
+  /**
+   * Returns the number of charging sessions.
+   * 
+   * @return number of charging sessions.
+   */
+  public int getChargingSessionCount() {
+    return chargingSessionStore.size();
+  }
+
+  /**
+   * Returns the number of charging sessions in progress.
+   * 
+   * @return number of charging sessions in progress.
+   */
+  public long getInProgressCount() {
+    return chargingSessionStore.getInProgressCount();
+  }
+
+  /**
+   * Returns an estimate of the memory retained by the charging sessions.
+   * 
+   * @return estimated number of bytes.
+   */
+  public long getEstimatedMemoryBytes() {
+    return chargingSessionStore.getEstimatedMemoryBytes();
+  }
+
+  /**
+   * Returns the statistics of the recovery of the charging sessions on creation.
+   *
+   * @return RecoveryStatistics statistics of the recovery.
+   */
+  public RecoveryStatistics getRecoveryStatistics() {
+    return recoveryStatistics;
   }
 
   /**
@@ -63,13 +189,66 @@ public class ChargingSessionsHandler {
    * @return Iterable of charging sessions.
    */
   public Iterable<ChargingSession> getAllChargingSessions() {
+    return ImmutableList.copyOf(chargingSessionStore.getChargingSessions());
+  }
 
-    readLock.lock();
-    try {
-      return ImmutableList.<ChargingSession>builder().addAll(chargingSessionTable.values()).build();
-    } finally {
-      readLock.unlock();
+  /**
+   * Thread safe method that returns a page of the charging sessions ordered on their start time.
+   * 
+   * @param cursor the cursor of the page or {@code null} for the first page
+   * @param limit the maximum number of charging sessions on the page
+   * 
+   * @return ChargingSessionPage page of charging sessions.
+   * 
+   * @throws IllegalArgumentException if the limit is out of range or the cursor is invalid.
+   */
+  public ChargingSessionPage getChargingSessions(String cursor, int limit) {
+
+    Assert.isTrue(limit > 0 && limit <= pageSizeLimit,
+        () -> "The page size specified should be between 1 and " + pageSizeLimit);
+
+    SessionCursor after = cursor == null ? null : SessionCursor.parse(cursor);
+
+    // fetch one more than the limit to find out whether there is a next page
+    List<ChargingSession> chargingSessions = ImmutableList
+        .copyOf(Iterables.limit(chargingSessionStore.getChargingSessions(after), limit + 1));
+
+    if (chargingSessions.size() <= limit) {
+      return new ChargingSessionPage(chargingSessions, null);
     }
+
+    List<ChargingSession> page = chargingSessions.subList(0, limit);
+    return new ChargingSessionPage(page, SessionCursor.of(page.get(limit - 1)).toString());
+  }
+
+  /**
+   * Thread safe method that returns the charging sessions of a station ordered on their start time.
+   * The sessions are looked up in an index of the station ids, so the cost depends on the number of
+   * sessions of the station rather than on the number of all the sessions.
+   * 
+   * @param stationId the id of the station
+   * @param status the status of the charging sessions or {@code null} for all of them
+   * 
+   * @return {@code List<ChargingSession>} charging sessions of the station.
+   * 
+   * @throws IllegalArgumentException if the station id is blank.
+   */
+  public List<ChargingSession> getChargingSessionsOfStation(String stationId, StatusEnum status) {
+
+    Assert.isTrue(StringUtils.hasText(stationId), () -> "The stationId should not be blank");
+
+    return chargingSessionStore.getChargingSessions(stationId, status);
+  }
+
+  /**
+   * Thread safe method that returns a weakly consistent view of all the charging sessions ordered on
+   * their start time. The charging sessions are not copied, so this is meant for streaming them
+   * one by one.
+   * 
+   * @return Iterable of charging sessions.
+   */
+  public Iterable<ChargingSession> streamChargingSessions() {
+    return chargingSessionStore.getChargingSessions();
   }
 
   /**
@@ -81,65 +260,151 @@ public class ChargingSessionsHandler {
    */
   public ChargingSession startChargingSession(ChargingStationDTO chargingStationDTO) {
 
-    writeLock.lock();
-    try {
-      UUID chargingSessionId = UUID.randomUUID();
-      LocalDateTime chargingStartDateTime = LocalDateTime.now();
-      ChargingSession newChargingSession =
-          new ChargingSessionBuilder().with(chargingSessionBuilder -> {
-            chargingSessionBuilder.id = chargingSessionId;
-            chargingSessionBuilder.stationId = chargingStationDTO.getStationId();
-            chargingSessionBuilder.startedAt = chargingStartDateTime;
-            chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
-          }).build();
-
-      chargingSessionTable.put(chargingStartDateTime, chargingSessionId, newChargingSession);
-      ChargingSession chargingSession = chargingSessionTable.get(chargingStartDateTime, chargingSessionId);
-      return chargingSession;
-
-    } finally {
-      writeLock.unlock();
+    ChargingSession chargingSession = chargingSessionStore
+        .add(newChargingSession(chargingStationDTO.getStationId(), clock.now()));
+    metrics.started(1);
+    return chargingSession;
+  }
+
+  /**
+   * Thread-safe method to create and store a batch of new charging sessions in a single pass. Every
+   * DTO gets its own result, so an invalid DTO does not prevent the others from being started.
+   * 
+   * @param chargingStationDTOs the DTO objects that have the charging station information
+   * 
+   * @return {@code List<ChargingSessionResult>} the result for every DTO, in the same order.
+   * 
+   * @throws IllegalArgumentException if the size of the batch is out of range.
+   */
+  public List<ChargingSessionResult> startChargingSessions(
+      List<ChargingStationDTO> chargingStationDTOs) {
+    return startChargingSessions(chargingStationDTOs, ChargingSessionsHandler::validate,
+        ADMIT_ALL);
+  }
+
+  /**
+   * Thread-safe method to create and store a batch of new charging sessions in a single pass. Every
+   * DTO is checked by the given validator and gets its own result, so an invalid DTO does not
+   * prevent the others from being started. The number of valid DTOs is passed to the admission
+   * before any charging session is started, so it can charge them to a quota or reject the whole
+   * batch by throwing.
+   * 
+   * @param chargingStationDTOs the DTO objects that have the charging station information
+   * @param validator the function that returns why a DTO is invalid or {@code null} if it is valid
+   * @param admission the callback to pass the number of charging sessions to be started to
+   * 
+   * @return {@code List<ChargingSessionResult>} the result for every DTO, in the same order.
+   * 
+   * @throws IllegalArgumentException if the size of the batch is out of range.
+   */
+  public List<ChargingSessionResult> startChargingSessions(
+      List<ChargingStationDTO> chargingStationDTOs,
+      Function<ChargingStationDTO, String> validator, IntConsumer admission) {
+
+    checkBatchSize(chargingStationDTOs.size());
+
+    LocalDateTime chargingStartDateTime = clock.now();
+    List<ChargingSessionResult> results = new ArrayList<>(chargingStationDTOs.size());
+    List<ChargingSession> newChargingSessions = new ArrayList<>(chargingStationDTOs.size());
+    for (ChargingStationDTO chargingStationDTO : chargingStationDTOs) {
+      String error = chargingStationDTO == null ? BLANK_STATION_ID
+          : validator.apply(chargingStationDTO);
+      if (error != null) {
+        results.add(ChargingSessionResult.error(HttpStatus.BAD_REQUEST, error));
+      } else {
+        ChargingSession newChargingSession =
+            newChargingSession(chargingStationDTO.getStationId(), chargingStartDateTime);
+        newChargingSessions.add(newChargingSession);
+        results.add(ChargingSessionResult.success(HttpStatus.CREATED, newChargingSession));
+      }
     }
+
+    admission.accept(newChargingSessions.size());
+    chargingSessionStore.addAll(newChargingSessions);
+    metrics.started(newChargingSessions.size());
+    return results;
   }
 
   /**
    * Thread-safe method to stop a charging session.
    * 
    * @param chargingSessionId the charging session id
-   * @return Collection chargingSessions that were updated.
+   * @return ChargingSession the charging session that was stopped.
    * 
-   * @throws IllegalArgumentException if no charging session exists for this id.
+   * @throws IllegalStateException if no charging session exists for this id.
    */
   public ChargingSession stopChargingSession(UUID chargingSessionId) {
 
-    writeLock.lock();
-    try {
-      Assert.state(chargingSessionTable.containsColumn(chargingSessionId),
-          () -> "Invalid chargingSessionId [" + chargingSessionId + "] received");
-
-      Map<LocalDateTime, ChargingSession> column = chargingSessionTable.column(chargingSessionId);
-      column.replaceAll((localDateTime, chargingSession) -> {
-        if (chargingSession.getStatus().equals(StatusEnum.IN_PROGRESS)) {
-          chargingSession.setStatus(StatusEnum.FINISHED);
-          chargingSession.setStoppedAt(LocalDateTime.now());
-        }
-        return chargingSession;
-      });
-
-      for (Entry<LocalDateTime, ChargingSession> entry : column.entrySet()) {
-        chargingSessionTable.put(entry.getKey(), chargingSessionId, entry.getValue());
-      }
+    // counted only if this call stopped it, not on a repeated stop of a FINISHED one
+    ChargingSession chargingSession = chargingSessionStore.stop(chargingSessionId, clock.now(),
+        stoppedChargingSession -> metrics.stopped(1));
+
+    Assert.state(chargingSession != null,
+        () -> "Invalid chargingSessionId [" + chargingSessionId + "] received");
+
+    return chargingSession;
+  }
 
-      return chargingSessionTable.column(chargingSessionId).values().iterator().next();
+  /**
+   * Thread-safe method to stop a batch of charging sessions in a single pass. Every id gets its own
+   * result, so an unknown id does not prevent the others from being stopped.
+   * 
+   * @param chargingSessionIds the charging session ids
+   * 
+   * @return {@code List<ChargingSessionResult>} the result for every id, in the same order.
+   * 
+   * @throws IllegalArgumentException if the size of the batch is out of range.
+   */
+  public List<ChargingSessionResult> stopChargingSessions(List<UUID> chargingSessionIds) {
+    return stopChargingSessions(chargingSessionIds, ADMIT_ALL);
+  }
 
-    } finally {
-      writeLock.unlock();
+  /**
+   * Thread-safe method to stop a batch of charging sessions in a single pass. Every id gets its own
+   * result, so an unknown id does not prevent the others from being stopped. The number of non-null
+   * ids is passed to the admission before any charging session is stopped, so it can charge them
+   * to a quota or reject the whole batch by throwing.
+   * 
+   * @param chargingSessionIds the charging session ids
+   * @param admission the callback to pass the number of charging sessions to be stopped to
+   * 
+   * @return {@code List<ChargingSessionResult>} the result for every id, in the same order.
+   * 
+   * @throws IllegalArgumentException if the size of the batch is out of range.
+   */
+  public List<ChargingSessionResult> stopChargingSessions(List<UUID> chargingSessionIds,
+      IntConsumer admission) {
+
+    checkBatchSize(chargingSessionIds.size());
+
+    List<UUID> nonNullChargingSessionIds = chargingSessionIds.stream().filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    admission.accept(nonNullChargingSessionIds.size());
+    int[] stopped = new int[1];
+    Iterator<ChargingSession> chargingSessions = chargingSessionStore
+        .stopAll(nonNullChargingSessionIds, clock.now(), stoppedChargingSession -> stopped[0]++)
+        .iterator();
+
+    List<ChargingSessionResult> results = new ArrayList<>(chargingSessionIds.size());
+    for (UUID chargingSessionId : chargingSessionIds) {
+      ChargingSession chargingSession = chargingSessionId == null ? null : chargingSessions.next();
+      if (chargingSession == null) {
+        results.add(ChargingSessionResult.error(HttpStatus.NOT_FOUND,
+            "Invalid chargingSessionId [" + chargingSessionId + "] received"));
+      } else {
+        results.add(ChargingSessionResult.success(HttpStatus.OK, chargingSession));
+      }
     }
+    metrics.stopped(stopped[0]);
+    return results;
   }
 
   /**
    * Returns a summary of the charging sessions from second(s) ago categorized according to the
-   * charging status.
+   * charging status. The summary is read from per-second counters, so its cost does not depend on
+   * the number of charging sessions, only on how many were started and stopped in its oldest and
+   * current second. It covers the sessions started from exactly that many seconds ago up to, but
+   * not including, the current date-time of the clock.
    * 
    * @param seconds the number of seconds ago.
    * 
@@ -147,26 +412,95 @@ public class ChargingSessionsHandler {
    */
   public Map<StatusEnum, Long> getChargingSessionSummary(long seconds) {
 
-    readLock.lock();
-    try {
-      Assert.isTrue(seconds >= secondsLowerLimit && seconds <= secondsHigherLimit,
-          () -> "The number of seconds specified should be between " + secondsLowerLimit + " and "
-              + secondsHigherLimit);
+    checkSummarySeconds(seconds);
+
+    return metrics.timeSummary(() -> chargingSessionStore.getSummary(clock.nanos(), seconds));
+  }
+
+  /**
+   * Returns the distribution of the durations of the charging sessions from second(s) ago that
+   * have been stopped. The distribution is read from per-second histograms that are updated when a
+   * charging session is stopped, so its cost does not depend on the number of charging sessions.
+   * 
+   * @param seconds the number of seconds ago.
+   * 
+   * @return ChargingSessionDurations the durations of the stopped charging sessions
+   */
+  public ChargingSessionDurations getChargingSessionDurations(long seconds) {
 
-      SortedMap<LocalDateTime, Map<UUID, ChargingSession>> rowMap =
-          (SortedMap<LocalDateTime, Map<UUID, ChargingSession>>) chargingSessionTable.rowMap();
+    checkSummarySeconds(seconds);
 
-      LocalDateTime now = LocalDateTime.now();
+    return chargingSessionStore.getDurations(clock.epochSecond(), seconds);
+  }
 
-      SortedMap<LocalDateTime, Map<UUID, ChargingSession>> subMap =
-          rowMap.subMap(now.minusSeconds(seconds), now);
+  /**
+   * Returns the summary of the charging sessions from second(s) ago along with the durations of
+   * the stopped ones. The summary is shared with the simultaneous requests for the same number of
+   * seconds through the {@link SummaryCache}, and reused while the charging sessions do not change.
+   * 
+   * @param seconds the number of seconds ago.
+   * 
+   * @return ChargingSessionSummary the summary of the charging sessions
+   */
+  public ChargingSessionSummary summarize(long seconds) {
 
-      return ImmutableMap.copyOf(subMap.values().stream().flatMap(e -> e.values().stream())
-          .collect(Collectors.groupingBy(ChargingSession::getStatus, Collectors.counting())));
+    checkSummarySeconds(seconds);
 
-    } finally {
-      readLock.unlock();
-    }
+    // the version is read first, so a change after it is never cached as part of that version
+    long version = chargingSessionStore.getVersion();
+    long nowNanos = clock.nanos();
+    long epochSecond = Math.floorDiv(nowNanos, SessionClock.NANOS_PER_SECOND);
+    return summaryCache.get(seconds, epochSecond, version,
+        () -> new ChargingSessionSummary(
+            metrics.timeSummary(() -> chargingSessionStore.getSummary(nowNanos, seconds)),
+            chargingSessionStore.getDurations(epochSecond, seconds)));
+  }
+
+  /**
+   * Checks that a summary can be computed over the given number of seconds.
+   * 
+   * @param seconds the number of seconds ago.
+   * 
+   * @throws IllegalArgumentException if the number of seconds is out of range.
+   */
+  public void checkSummarySeconds(long seconds) {
+    Assert.isTrue(seconds >= secondsLowerLimit && seconds <= secondsHigherLimit,
+        () -> "The number of seconds specified should be between " + secondsLowerLimit + " and "
+            + secondsHigherLimit);
+  }
+
+  /**
+   * Checks that a batch of the given size can be started or stopped.
+   * 
+   * @param batchSize the number of charging sessions in the batch
+   * 
+   * @throws IllegalArgumentException if the size of the batch is out of range.
+   */
+  public void checkBatchSize(int batchSize) {
+    Assert.isTrue(batchSize > 0 && batchSize <= batchSizeLimit,
+        () -> "The number of charging sessions in a batch should be between 1 and "
+            + batchSizeLimit);
+  }
+
+  /**
+   * Returns why a charging station DTO is invalid, for the batches started without a validator.
+   * 
+   * @param chargingStationDTO the DTO object that has the charging station information
+   * @return the reason the DTO is invalid or {@code null} if it is valid.
+   */
+  public static String validate(ChargingStationDTO chargingStationDTO) {
+    return StringUtils.hasText(chargingStationDTO.getStationId()) ? null : BLANK_STATION_ID;
+  }
+
+  private static ChargingSession newChargingSession(String stationId,
+      LocalDateTime chargingStartDateTime) {
+    UUID chargingSessionId = SessionIdGenerator.next(chargingStartDateTime, stationId);
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = chargingSessionId;
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = chargingStartDateTime;
+      chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+    }).build();
   }
 
 }
@@ -0,0 +1,383 @@
+package com.ajai.chargingsession.charging.handlers;
+
+import static com.ajai.chargingsession.constants.Constants.*;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSION;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import com.ajai.chargingsession.charging.cluster.Cluster;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.summary.SummaryBroadcaster;
+import com.ajai.chargingsession.charging.tenant.Tenant;
+import com.ajai.chargingsession.charging.tenant.TenantRegistry;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking handler of the WebFlux functional routes of the charging sessions, which serve the
+ * same URLs as the ChargingSessionController when the application runs with the {@code reactive}
+ * profile.
+ *
+ * <p>
+ * The charging sessions are kept in memory, so reading, starting and stopping them never waits and
+ * is done on the event loop. Only when the sessions are journaled, starting and stopping them may
+ * wait for the journal to be made durable, so they are then moved to a bounded elastic scheduler
+ * and the event loop is left free for the other connections.
+ * </p>
+ *
+ * <p>
+ * The request and response bodies are JSON or, for the gateways that send high volumes of small
+ * messages, the more compact CBOR, depending on the {@code Content-Type} and {@code Accept}
+ * headers of the request.
+ * </p>
+ *
+ * <p>
+ * In a {@link Cluster}, starts, stops and listings of a station whose charging sessions belong to
+ * another node are forwarded to that node without blocking, the items of a batch are forwarded to
+ * their nodes in a batch per node, and summaries are gathered from every node. The other listings
+ * and the streams only cover the charging sessions of this node.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveChargingSessionsHandler {
+
+  private static final String DEFAULT_NO_OF_SECONDS = "1";
+
+  private static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+  private static final ParameterizedTypeReference<List<ChargingStationDTO>> CHARGING_STATION_DTOS =
+      new ParameterizedTypeReference<List<ChargingStationDTO>>() {};
+
+  private static final ParameterizedTypeReference<List<UUID>> CHARGING_SESSION_IDS =
+      new ParameterizedTypeReference<List<UUID>>() {};
+
+  private final TenantRegistry tenantRegistry;
+  private final SummaryBroadcaster summaryBroadcaster;
+  private final Validator validator;
+  private final ObjectWriter streamingWriter;
+  private final Scheduler writeScheduler;
+  private final Cluster cluster;
+
+  /**
+   * Creates a new instance of ReactiveChargingSessionsHandler. The charging sessions are handled
+   * by the {@link ChargingSessionsHandler} of the {@link Tenant} of every request.
+   *
+   * @param tenantRegistry the registry of the tenants
+   * @param summaryBroadcaster the broadcaster of the live summaries
+   * @param validator the validator of the request bodies
+   * @param objectMapper the ObjectMapper used for streaming the charging sessions
+   * @param journalEnabled whether the charging sessions are journaled
+   * @param cluster the cluster the charging sessions are partitioned across
+   */
+  public ReactiveChargingSessionsHandler(TenantRegistry tenantRegistry,
+      SummaryBroadcaster summaryBroadcaster, Validator validator, ObjectMapper objectMapper,
+      @Value("${journal.enabled}") boolean journalEnabled, Cluster cluster) {
+    this.tenantRegistry = tenantRegistry;
+    this.summaryBroadcaster = summaryBroadcaster;
+    this.validator = validator;
+    this.streamingWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    this.writeScheduler = journalEnabled ? Schedulers.boundedElastic() : Schedulers.immediate();
+    this.cluster = cluster;
+  }
+
+  /**
+   * Returns all the charging sessions of the tenant of the request.
+   *
+   * @param request the request
+   * @return {@code Mono<ServerResponse>} the response with the charging sessions.
+   */
+  public Mono<ServerResponse> getAllChargingSessions(ServerRequest request) {
+    return respond(request, HttpStatus.OK,
+        resolveTenant(request).getHandler().getAllChargingSessions());
+  }
+
+  /**
+   * Returns a page of the charging sessions of the tenant of the request.
+   *
+   * @param request the request with the {@code limit} and the optional {@code cursor} parameters
+   * @return {@code Mono<ServerResponse>} the response with the page.
+   */
+  public Mono<ServerResponse> getChargingSessions(ServerRequest request) {
+    int limit = Integer.parseInt(request.queryParam(LIMIT).orElse(""));
+    String cursor = request.queryParam(CURSOR).orElse(null);
+    return respond(request, HttpStatus.OK,
+        resolveTenant(request).getHandler().getChargingSessions(cursor, limit));
+  }
+
+  /**
+   * Returns the charging sessions of a station of the tenant of the request.
+   *
+   * @param request the request with the {@code stationId} and the optional {@code status}
+   *        parameters
+   * @return {@code Mono<ServerResponse>} the response with the charging sessions.
+   */
+  public Mono<ServerResponse> getChargingSessionsOfStation(ServerRequest request) {
+    String stationId = request.queryParam(STATION_ID).orElse(null);
+    StatusEnum status = request.queryParam(STATUS).map(StatusEnum::valueOf).orElse(null);
+    Tenant tenant = resolveTenant(request);
+    HttpHeaders headers = request.headers().asHttpHeaders();
+    // a missing stationId is rejected by this node
+    int owner = stationId == null ? -1 : cluster.ownerOfStation(stationId);
+    if (owner >= 0 && cluster.isForwardedTo(owner, headers)) {
+      UriComponentsBuilder uri = UriComponentsBuilder.fromPath(URL_TENANT_CHARGING_SESSIONS)
+          .queryParam(STATION_ID, stationId);
+      if (status != null) {
+        uri.queryParam(STATUS, status);
+      }
+      return cluster.forward(owner, HttpMethod.GET,
+          uri.buildAndExpand(tenant.getId()).encode().toUriString(), headers, null)
+          .flatMap(ReactiveChargingSessionsHandler::relay);
+    }
+    return respond(request, HttpStatus.OK,
+        tenant.getHandler().getChargingSessionsOfStation(stationId, status));
+  }
+
+  /**
+   * Streams all the charging sessions of the tenant of the request as newline delimited JSON. Every
+   * charging session is written to a buffer of its own as soon as the connection asks for it, so
+   * the charging sessions are not copied.
+   *
+   * @param request the request
+   * @return {@code Mono<ServerResponse>} the response streaming the charging sessions.
+   */
+  public Mono<ServerResponse> streamChargingSessions(ServerRequest request) {
+    Iterable<ChargingSession> chargingSessions =
+        resolveTenant(request).getHandler().streamChargingSessions();
+    DataBufferFactory bufferFactory = request.exchange().getResponse().bufferFactory();
+    Flux<DataBuffer> body = Flux.fromIterable(chargingSessions)
+        .map(chargingSession -> writeLine(bufferFactory, chargingSession));
+    return ServerResponse.ok().contentType(APPLICATION_NDJSON)
+        .body(BodyInserters.fromDataBuffers(body));
+  }
+
+  /**
+   * Starts a charging session for the tenant of the request.
+   *
+   * @param request the request with the ChargingStationDTO
+   * @return {@code Mono<ServerResponse>} the response with the started charging session.
+   */
+  public Mono<ServerResponse> startChargingSession(ServerRequest request) {
+    Tenant tenant = resolveTenant(request);
+    HttpHeaders headers = request.headers().asHttpHeaders();
+    String idempotencyKey = headers.getFirst(IDEMPOTENCY_KEY_HEADER);
+    return requireBody(request.bodyToMono(ChargingStationDTO.class)).doOnNext(this::validate)
+        .flatMap(chargingStationDTO -> {
+          int owner = cluster.ownerOfStation(chargingStationDTO.getStationId());
+          if (cluster.isForwardedTo(owner, headers)) {
+            return cluster.forward(owner, HttpMethod.POST,
+                tenantUri(URL_TENANT_CHARGING_SESSIONS, tenant), headers, chargingStationDTO)
+                .flatMap(ReactiveChargingSessionsHandler::relay);
+          }
+          return Mono.just(chargingStationDTO).publishOn(writeScheduler)
+              .map(dto -> tenant.startChargingSession(idempotencyKey, dto))
+              .flatMap(chargingSession -> respond(request, HttpStatus.CREATED, chargingSession));
+        });
+  }
+
+  /**
+   * Stops a charging session of the tenant of the request.
+   *
+   * @param request the request with the id of the charging session in its path
+   * @return {@code Mono<ServerResponse>} the response with the stopped charging session.
+   */
+  public Mono<ServerResponse> stopChargingSession(ServerRequest request) {
+    Tenant tenant = resolveTenant(request);
+    UUID chargingSessionId = UUID.fromString(request.pathVariable(CHARGING_SESSION_ID));
+    HttpHeaders headers = request.headers().asHttpHeaders();
+    String idempotencyKey = headers.getFirst(IDEMPOTENCY_KEY_HEADER);
+    int owner = cluster.ownerOfSession(chargingSessionId);
+    if (cluster.isForwardedTo(owner, headers)) {
+      return cluster.forward(owner, HttpMethod.PUT,
+          tenantUri(URL_TENANT_CHARGING_SESSION, tenant, chargingSessionId), headers, null)
+          .flatMap(ReactiveChargingSessionsHandler::relay);
+    }
+    return Mono.fromSupplier(() -> tenant.stopChargingSession(idempotencyKey, chargingSessionId))
+        .subscribeOn(writeScheduler)
+        .flatMap(chargingSession -> respond(request, HttpStatus.OK, chargingSession));
+  }
+
+  /**
+   * Starts a batch of charging sessions for the tenant of the request.
+   *
+   * @param request the request with the list of ChargingStationDTO
+   * @return {@code Mono<ServerResponse>} the response with the result for every DTO.
+   */
+  public Mono<ServerResponse> startChargingSessions(ServerRequest request) {
+    Tenant tenant = resolveTenant(request);
+    HttpHeaders headers = request.headers().asHttpHeaders();
+    return requireBody(request.bodyToMono(CHARGING_STATION_DTOS))
+        .doOnNext(chargingStationDTOs -> tenant.getHandler()
+            .checkBatchSize(chargingStationDTOs.size()))
+        .flatMap(chargingStationDTOs -> cluster.forwardStarts(tenant.getId(),
+            chargingStationDTOs, headers,
+            part -> Mono.just(part).publishOn(writeScheduler)
+                .map(dtos -> tenant.startChargingSessions(dtos, this::violations))))
+        .flatMap(results -> respond(request, HttpStatus.OK, results));
+  }
+
+  /**
+   * Stops a batch of charging sessions of the tenant of the request.
+   *
+   * @param request the request with the list of charging session ids
+   * @return {@code Mono<ServerResponse>} the response with the result for every id.
+   */
+  public Mono<ServerResponse> stopChargingSessions(ServerRequest request) {
+    Tenant tenant = resolveTenant(request);
+    HttpHeaders headers = request.headers().asHttpHeaders();
+    return requireBody(request.bodyToMono(CHARGING_SESSION_IDS))
+        .doOnNext(chargingSessionIds -> tenant.getHandler()
+            .checkBatchSize(chargingSessionIds.size()))
+        .flatMap(chargingSessionIds -> cluster.forwardStops(tenant.getId(), chargingSessionIds,
+            headers, part -> Mono.just(part).publishOn(writeScheduler)
+                .map(tenant::stopChargingSessions)))
+        .flatMap(results -> respond(request, HttpStatus.OK, results));
+  }
+
+  /**
+   * Returns the summary of the charging sessions of the tenant of the request.
+   *
+   * @param request the request with the optional {@code seconds} parameter
+   * @return {@code Mono<ServerResponse>} the response with the summary.
+   */
+  public Mono<ServerResponse> getChargingSessionSummary(ServerRequest request) {
+    long seconds = Long.parseLong(request.queryParam(SECONDS).orElse(DEFAULT_NO_OF_SECONDS));
+    Tenant tenant = resolveTenant(request);
+    ChargingSessionSummary chargingSessionSummary = tenant.getHandler().summarize(seconds);
+    if (cluster.isGathered(request.headers().asHttpHeaders())) {
+      return cluster.summarize(tenant.getId(), seconds, chargingSessionSummary)
+          .flatMap(clusterSummary -> respond(request, HttpStatus.OK, clusterSummary));
+    }
+    return respond(request, HttpStatus.OK, chargingSessionSummary);
+  }
+
+  /**
+   * Streams a live summary of the charging sessions of the tenant of the request as server-sent
+   * events.
+   *
+   * @param request the request with the optional {@code seconds} parameter
+   * @return {@code Mono<ServerResponse>} the response streaming the summaries.
+   */
+  public Mono<ServerResponse> streamChargingSessionSummary(ServerRequest request) {
+    long seconds = Long.parseLong(request.queryParam(SECONDS).orElse(DEFAULT_NO_OF_SECONDS));
+    return ServerResponse.ok().contentType(MediaType.TEXT_EVENT_STREAM)
+        .body(summaryBroadcaster.subscribe(resolveTenant(request).getHandler(), seconds),
+            ChargingSessionSummary.class);
+  }
+
+  private Tenant resolveTenant(ServerRequest request) {
+    return tenantRegistry.resolveTenant(request.pathVariables().get(TENANT_ID),
+        request.headers().asHttpHeaders().getFirst(TENANT_ID_HEADER));
+  }
+
+  private void validate(Object body) {
+    String violations = violations(body);
+    Assert.isTrue(violations == null, violations);
+  }
+
+  // the violations of a batch item are answered in its own result rather than failing the batch
+  private String violations(Object body) {
+    Set<ConstraintViolation<Object>> violations = validator.validate(body);
+    return violations.isEmpty() ? null : violations.stream()
+        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+        .collect(Collectors.joining(", "));
+  }
+
+  private DataBuffer writeLine(DataBufferFactory bufferFactory, ChargingSession chargingSession) {
+    DataBuffer buffer = bufferFactory.allocateBuffer();
+    boolean written = false;
+    try {
+      streamingWriter.writeValue(buffer.asOutputStream(), chargingSession);
+      buffer.write((byte) '\n');
+      written = true;
+      return buffer;
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      if (!written) {
+        DataBufferUtils.release(buffer);
+      }
+    }
+  }
+
+  private static String tenantUri(String template, Tenant tenant, Object... uriVariables) {
+    Object[] variables = new Object[uriVariables.length + 1];
+    variables[0] = tenant.getId();
+    System.arraycopy(uriVariables, 0, variables, 1, uriVariables.length);
+    return UriComponentsBuilder.fromPath(template).buildAndExpand(variables).encode()
+        .toUriString();
+  }
+
+  // the response of the node the request was forwarded to, passed back as it is
+  private static Mono<ServerResponse> relay(ResponseEntity<byte[]> response) {
+    ServerResponse.BodyBuilder builder = ServerResponse.status(response.getStatusCode());
+    MediaType contentType = response.getHeaders().getContentType();
+    if (contentType != null) {
+      builder.contentType(contentType);
+    }
+    return response.getBody() == null ? builder.build() : builder.bodyValue(response.getBody());
+  }
+
+  private static <T> Mono<T> requireBody(Mono<T> body) {
+    return body.switchIfEmpty(
+        Mono.defer(() -> Mono.error(new ServerWebInputException("Request body is missing"))));
+  }
+
+  private static Mono<ServerResponse> respond(ServerRequest request, HttpStatus status,
+      Object body) {
+    return ServerResponse.status(status).contentType(negotiate(request)).bodyValue(body);
+  }
+
+  // CBOR only when the request accepts it before JSON, so JSON stays the default
+  private static MediaType negotiate(ServerRequest request) {
+    List<MediaType> acceptedMediaTypes = new ArrayList<>(request.headers().accept());
+    MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+    for (MediaType acceptedMediaType : acceptedMediaTypes) {
+      if (acceptedMediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        return MediaType.APPLICATION_JSON;
+      }
+      if (acceptedMediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+        return MediaType.APPLICATION_CBOR;
+      }
+    }
+    return MediaType.APPLICATION_JSON;
+  }
+
+}
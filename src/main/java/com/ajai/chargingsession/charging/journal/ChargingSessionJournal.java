@@ -0,0 +1,114 @@
+package com.ajai.chargingsession.charging.journal;
+
+import java.io.Closeable;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+
+/**
+ * Journal to which every start and stop of a charging session is appended before it is
+ * acknowledged, so the charging sessions can be recovered after a restart.
+ *
+ * <p>
+ * Recovering the whole history from the journal would take longer and longer, so the charging
+ * sessions are periodically written to a snapshot. A recovery loads the latest snapshot and
+ * replays only the starts and stops appended after it.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public interface ChargingSessionJournal extends Closeable {
+
+  /**
+   * Appends the start of a charging session.
+   *
+   * @param chargingSession the started charging session
+   */
+  void started(ChargingSession chargingSession);
+
+  /**
+   * Appends the stop of a charging session.
+   *
+   * @param chargingSession the stopped charging session
+   */
+  void stopped(ChargingSession chargingSession);
+
+  /**
+   * Appends the starts of several charging sessions. Implementations may append them together, so
+   * they share the cost of making them durable.
+   *
+   * @param chargingSessions the started charging sessions
+   */
+  default void startedAll(List<ChargingSession> chargingSessions) {
+    chargingSessions.forEach(this::started);
+  }
+
+  /**
+   * Appends the stops of several charging sessions. Implementations may append them together, so
+   * they share the cost of making them durable.
+   *
+   * @param chargingSessions the stopped charging sessions
+   */
+  default void stoppedAll(List<ChargingSession> chargingSessions) {
+    chargingSessions.forEach(this::stopped);
+  }
+
+  /**
+   * Returns the position after the last appended start or stop.
+   *
+   * @return current position
+   */
+  long position();
+
+  /**
+   * Writes a snapshot of the charging sessions and discards the part of the journal that it makes
+   * redundant. The charging sessions must reflect at least every start and stop appended before
+   * the given position. They may reflect later ones as well, since replaying those again on
+   * recovery has no effect.
+   *
+   * @param position the position the snapshot was taken at
+   * @param chargingSessions the charging sessions to write
+   */
+  void snapshot(long position, Iterable<ChargingSession> chargingSessions);
+
+  /**
+   * Restores the charging sessions of the latest snapshot and then replays the starts and stops
+   * appended after it, in the order in which they were appended.
+   *
+   * @param replayer the replayer to apply the charging sessions, starts and stops to
+   * @return RecoveryStatistics statistics of the recovery.
+   */
+  RecoveryStatistics recover(Replayer replayer);
+
+  /**
+   * Forces the appended starts and stops and closes the journal.
+   */
+  @Override
+  void close();
+
+  /**
+   * Callback that applies the recovered charging sessions and stops.
+   */
+  interface Replayer {
+
+    /**
+     * Applies a charging session restored from a snapshot or a replayed start. A charging session
+     * that has already been applied must be ignored.
+     *
+     * @param chargingSession the restored charging session
+     */
+    void restored(ChargingSession chargingSession);
+
+    /**
+     * Applies the stop of a charging session. A charging session that has already been stopped
+     * must be left unchanged.
+     *
+     * @param chargingSessionId id of the stopped charging session
+     * @param stoppedAt the date-time of stoppage
+     */
+    void stopped(UUID chargingSessionId, LocalDateTime stoppedAt);
+  }
+
+}
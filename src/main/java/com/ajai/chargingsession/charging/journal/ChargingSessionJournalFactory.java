@@ -0,0 +1,21 @@
+package com.ajai.chargingsession.charging.journal;
+
+/**
+ * Factory of the journals of the tenants, so every tenant recovers and appends its charging
+ * sessions independently of the others.
+ *
+ * @author ajai
+ *
+ */
+@FunctionalInterface
+public interface ChargingSessionJournalFactory {
+
+  /**
+   * Opens the journal of the given tenant.
+   *
+   * @param tenantId id of the tenant
+   * @return ChargingSessionJournal the journal of the tenant.
+   */
+  ChargingSessionJournal open(String tenantId);
+
+}
@@ -0,0 +1,28 @@
+package com.ajai.chargingsession.charging.journal;
+
+/**
+ * Represents the possible policies for forcing the journal to the storage device.
+ *
+ * @author ajai
+ *
+ */
+public enum FsyncPolicy {
+
+  /**
+   * Every append is forced before it returns. Nothing acknowledged is lost on a crash.
+   */
+  PER_WRITE,
+
+  /**
+   * Appends wait for a background flush that forces the journal every few milliseconds, so
+   * concurrent appends share a single force. Nothing acknowledged is lost on a crash.
+   */
+  GROUP_COMMIT,
+
+  /**
+   * The journal is never forced explicitly and the operating system writes it back. The appends
+   * survive a crash of the process but not of the machine.
+   */
+  OS
+
+}
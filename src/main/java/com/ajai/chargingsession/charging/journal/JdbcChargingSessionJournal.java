@@ -0,0 +1,549 @@
+package com.ajai.chargingsession.charging.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Journal kept as a table of an H2 database, with a row per charging session.
+ *
+ * <p>
+ * The database is a journal behind the {@link ChargingSessionJournal} interface rather than a
+ * repository the store reads from: the store stays the system of record for the reads, which never
+ * go through JDBC, and the database only makes the starts and stops durable and restores them on
+ * startup. So the backends can be swapped without touching the store.
+ * </p>
+ *
+ * <p>
+ * A start inserts the row of the charging session and a stop updates its stop date-time. The
+ * appends are queued and written by a single writer thread, which takes all the appends queued
+ * since its last commit, inserts and updates their rows in two JDBC batches and commits them in a
+ * single transaction. The inserts of a group are executed before its updates, which is safe since
+ * a charging session is always started before it is stopped. If the group fails, its appends are
+ * retried in transactions of their own, so a failing row only fails the append it belongs to.
+ * </p>
+ *
+ * <p>
+ * Every append waits for the commit of its group, so a failure is always reported to its caller.
+ * H2 writes the committed transactions back lazily, so the {@link FsyncPolicy} decides whether a
+ * commit is also forced to disk:
+ * <ol>
+ * <li>{@link FsyncPolicy#PER_WRITE} commits and forces every append in a transaction of its
+ * own,</li>
+ * <li>{@link FsyncPolicy#GROUP_COMMIT} commits at most every {@code groupCommitMillis} and forces
+ * the commit, so concurrent appends share a single commit and force, and</li>
+ * <li>{@link FsyncPolicy#OS} commits the appends queued whenever the writer is free and never
+ * forces them, so they survive a crash of the process but not of the machine.</li>
+ * </ol>
+ * The time waited for a commit and the number of appended starts and stops per commit are
+ * recorded.
+ * </p>
+ *
+ * <p>
+ * Every row carries the position of its latest start or stop. A snapshot writes the charging
+ * sessions in compact chunks to a table of its own, and a recovery restores them and then only
+ * replays the rows changed from the position of the snapshot on, instead of reading every row
+ * through JDBC. The position is the number of starts and stops ever appended.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public class JdbcChargingSessionJournal implements ChargingSessionJournal {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(JdbcChargingSessionJournal.class);
+
+  private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS charging_session ("
+      + "id UUID PRIMARY KEY, station_id VARCHAR(65535) NOT NULL, "
+      + "started_at TIMESTAMP(9) NOT NULL, stopped_at TIMESTAMP(9), position BIGINT NOT NULL)";
+  private static final String CREATE_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + "charging_session_position ON charging_session (position)";
+  private static final String CREATE_SNAPSHOT_TABLE = "CREATE TABLE IF NOT EXISTS "
+      + "charging_session_snapshot (position BIGINT NOT NULL, chunk INT NOT NULL, "
+      + "sessions VARBINARY NOT NULL, PRIMARY KEY (position, chunk))";
+  private static final String INSERT = "INSERT INTO charging_session "
+      + "(id, station_id, started_at, position) VALUES (?, ?, ?, ?)";
+  private static final String UPDATE = "UPDATE charging_session SET stopped_at = ?, position = ? "
+      + "WHERE id = ? AND stopped_at IS NULL";
+  private static final String SELECT = "SELECT id, station_id, started_at, stopped_at "
+      + "FROM charging_session WHERE position >= ? ORDER BY position";
+  private static final String SELECT_POSITION = "SELECT COALESCE(MAX(position) + 1, 0) FROM "
+      + "charging_session UNION ALL SELECT COALESCE(MAX(position), 0) FROM "
+      + "charging_session_snapshot";
+  private static final String SELECT_SNAPSHOT = "SELECT position, sessions FROM "
+      + "charging_session_snapshot ORDER BY position DESC, chunk";
+  private static final String INSERT_SNAPSHOT =
+      "INSERT INTO charging_session_snapshot (position, chunk, sessions) VALUES (?, ?, ?)";
+  private static final String DELETE_SNAPSHOTS =
+      "DELETE FROM charging_session_snapshot WHERE position <> ?";
+  private static final String FORCE = "CHECKPOINT SYNC";
+
+  // a chunk of a snapshot is written once it holds this many bytes
+  private static final int SNAPSHOT_CHUNK_SIZE = 1 << 16;
+
+  private static final Append CLOSE = new Append(false, Collections.emptyList(), -1);
+
+  private final String url;
+  private final FsyncPolicy fsyncPolicy;
+  private final long groupCommitNanos;
+
+  private final Connection connection;
+  private final BlockingQueue<Append> appends;
+  private final Object appendMonitor;
+  private final AtomicLong position;
+  private boolean closed;
+  private final Thread writer;
+
+  private final Timer durabilityWait;
+  private final DistributionSummary commitSize;
+
+  /**
+   * Creates an instance of JdbcChargingSessionJournal that appends to the table of the database at
+   * the given URL, creating the table if it does not exist yet.
+   *
+   * @param url the JDBC URL of the database
+   * @param fsyncPolicy the policy for committing the appends
+   * @param groupCommitMillis the interval between commits for {@link FsyncPolicy#GROUP_COMMIT}
+   *
+   * @throws UncheckedSQLException if the database cannot be opened.
+   */
+  public JdbcChargingSessionJournal(String url, FsyncPolicy fsyncPolicy, long groupCommitMillis) {
+    this(url, fsyncPolicy, groupCommitMillis, new CompositeMeterRegistry(), Tags.empty());
+  }
+
+  /**
+   * Creates an instance of JdbcChargingSessionJournal that appends to the table of the database at
+   * the given URL, creating the table if it does not exist yet, and times the appends in the given
+   * registry.
+   *
+   * @param url the JDBC URL of the database
+   * @param fsyncPolicy the policy for committing the appends
+   * @param groupCommitMillis the interval between commits for {@link FsyncPolicy#GROUP_COMMIT}
+   * @param meterRegistry the registry to register the meters of the appends in
+   * @param tags the tags of the meters
+   *
+   * @throws UncheckedSQLException if the database cannot be opened.
+   */
+  public JdbcChargingSessionJournal(String url, FsyncPolicy fsyncPolicy, long groupCommitMillis,
+      MeterRegistry meterRegistry, Iterable<Tag> tags) {
+    Assert.isTrue(fsyncPolicy != FsyncPolicy.GROUP_COMMIT || groupCommitMillis > 0,
+        () -> "Invalid group commit interval of [" + groupCommitMillis + "] ms");
+
+    this.url = url;
+    this.fsyncPolicy = fsyncPolicy;
+    this.groupCommitNanos =
+        fsyncPolicy == FsyncPolicy.GROUP_COMMIT ? TimeUnit.MILLISECONDS.toNanos(groupCommitMillis)
+            : 0;
+    this.appends = new LinkedBlockingQueue<>();
+    this.appendMonitor = new Object();
+    this.position = new AtomicLong();
+    this.durabilityWait = Timer.builder("charging.journal.durability.wait").tags(tags)
+        .description("Time waited for a group commit to make the appends durable")
+        .publishPercentileHistogram().register(meterRegistry);
+    this.commitSize = DistributionSummary.builder("charging.journal.commit.size").tags(tags)
+        .description("Number of starts and stops committed together").register(meterRegistry);
+
+    try {
+      connection = DriverManager.getConnection(url);
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(CREATE_TABLE);
+        statement.execute(CREATE_INDEX);
+        statement.execute(CREATE_SNAPSHOT_TABLE);
+        // the positions of the failed appends may only be counted by a snapshot
+        try (ResultSet resultSet = statement.executeQuery(SELECT_POSITION)) {
+          while (resultSet.next()) {
+            position.accumulateAndGet(resultSet.getLong(1), Math::max);
+          }
+        }
+      }
+      connection.setAutoCommit(false);
+    } catch (SQLException e) {
+      throw new UncheckedSQLException("Could not open the journal at [" + url + "]", e);
+    }
+
+    writer = new Thread(this::write, "journal-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void started(ChargingSession chargingSession) {
+    append(true, Collections.singletonList(chargingSession));
+  }
+
+  @Override
+  public void stopped(ChargingSession chargingSession) {
+    append(false, Collections.singletonList(chargingSession));
+  }
+
+  @Override
+  public void startedAll(List<ChargingSession> chargingSessions) {
+    append(true, chargingSessions);
+  }
+
+  @Override
+  public void stoppedAll(List<ChargingSession> chargingSessions) {
+    append(false, chargingSessions);
+  }
+
+  @Override
+  public long position() {
+    return position.get();
+  }
+
+  /**
+   * Writes the charging sessions in chunks to the snapshot table on a connection of its own, so
+   * the appends go on meanwhile, and deletes the older snapshots in the same transaction.
+   */
+  @Override
+  public synchronized void snapshot(long position, Iterable<ChargingSession> chargingSessions) {
+    long count = 0;
+    try (Connection snapshotConnection = DriverManager.getConnection(url)) {
+      snapshotConnection.setAutoCommit(false);
+      try (PreparedStatement insert = snapshotConnection.prepareStatement(INSERT_SNAPSHOT);
+          PreparedStatement delete = snapshotConnection.prepareStatement(DELETE_SNAPSHOTS)) {
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(SNAPSHOT_CHUNK_SIZE + 1024);
+        DataOutputStream output = new DataOutputStream(chunk);
+        int chunks = 0;
+        for (ChargingSession chargingSession : chargingSessions) {
+          writeSession(output, chargingSession);
+          count++;
+          if (chunk.size() >= SNAPSHOT_CHUNK_SIZE) {
+            insertChunk(insert, position, chunks++, chunk);
+          }
+        }
+        if (chunk.size() > 0 || chunks == 0) {
+          insertChunk(insert, position, chunks, chunk);
+        }
+        delete.setLong(1, position);
+        delete.executeUpdate();
+        snapshotConnection.commit();
+      } catch (SQLException | RuntimeException e) {
+        snapshotConnection.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new UncheckedSQLException("Could not write a snapshot to [" + url + "]", e);
+    }
+    LOGGER.info("Wrote a snapshot of {} charging sessions at journal position {}", count,
+        position);
+  }
+
+  @Override
+  public RecoveryStatistics recover(Replayer replayer) {
+    long startNanos = System.nanoTime();
+    long snapshotSessions = 0;
+    long records = 0;
+    try {
+      long snapshotPosition = -1;
+      try (Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery(SELECT_SNAPSHOT)) {
+        // only the chunks of the latest snapshot, which come first
+        while (resultSet.next() && (snapshotPosition < 0
+            || resultSet.getLong(1) == snapshotPosition)) {
+          snapshotPosition = resultSet.getLong(1);
+          snapshotSessions += readChunk(resultSet.getBytes(2), replayer);
+        }
+      }
+      try (PreparedStatement select = connection.prepareStatement(SELECT)) {
+        select.setLong(1, Math.max(snapshotPosition, 0));
+        try (ResultSet resultSet = select.executeQuery()) {
+          while (resultSet.next()) {
+            UUID id = resultSet.getObject(1, UUID.class);
+            LocalDateTime stoppedAt = resultSet.getObject(4, LocalDateTime.class);
+            // a session of the snapshot is left unchanged by the restore but not by the stop
+            replayer.restored(newChargingSession(id, resultSet.getString(2),
+                resultSet.getObject(3, LocalDateTime.class), stoppedAt));
+            if (stoppedAt != null) {
+              replayer.stopped(id, stoppedAt);
+            }
+            records++;
+          }
+        }
+      }
+      connection.commit();
+    } catch (SQLException e) {
+      throw new UncheckedSQLException("Could not recover from [" + url + "]", e);
+    }
+    return new RecoveryStatistics(snapshotSessions, records, System.nanoTime() - startNanos);
+  }
+
+  @Override
+  public void close() {
+    synchronized (appendMonitor) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      appends.add(CLOSE);
+    }
+    // the writer commits the appends queued before it and closes the connection
+    Uninterruptibles.joinUninterruptibly(writer);
+  }
+
+  /**
+   * Queues the records of the given type as a single append, so they are also committed together,
+   * and waits for the commit.
+   */
+  private void append(boolean started, List<ChargingSession> chargingSessions) {
+    Append append;
+    synchronized (appendMonitor) {
+      Assert.state(!closed, "The journal is closed");
+      append = new Append(started, chargingSessions,
+          position.getAndAdd(chargingSessions.size()));
+      appends.add(append);
+    }
+
+    long durabilityStartNanos = System.nanoTime();
+    append.await();
+    durabilityWait.record(System.nanoTime() - durabilityStartNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void write() {
+    List<Append> group = new ArrayList<>();
+    long lastCommitNanos = System.nanoTime();
+    boolean open = true;
+    while (open) {
+      group.add(Uninterruptibles.takeUninterruptibly(appends));
+      if (fsyncPolicy != FsyncPolicy.PER_WRITE) {
+        long lingerNanos = lastCommitNanos + groupCommitNanos - System.nanoTime();
+        if (lingerNanos > 0) {
+          Uninterruptibles.sleepUninterruptibly(lingerNanos, TimeUnit.NANOSECONDS);
+        }
+        appends.drainTo(group);
+      }
+      // nothing is queued after the close, so it can only be the last append of a group
+      if (group.get(group.size() - 1) == CLOSE) {
+        group.remove(group.size() - 1);
+        open = false;
+      }
+      lastCommitNanos = System.nanoTime();
+      if (!group.isEmpty()) {
+        commit(group);
+      }
+      group.clear();
+    }
+
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      LOGGER.warn("Could not close the journal at [{}]", url, e);
+    }
+  }
+
+  private void commit(List<Append> group) {
+    try {
+      commitSize.record(execute(group));
+      group.forEach(append -> append.committed.complete(null));
+      return;
+    } catch (SQLException e) {
+      rollback();
+      if (group.size() == 1) {
+        fail(group.get(0), e);
+        return;
+      }
+    }
+    // a single failing row fails the whole group, so its appends are retried one by one
+    for (Append append : group) {
+      try {
+        commitSize.record(execute(Collections.singletonList(append)));
+        append.committed.complete(null);
+      } catch (SQLException e) {
+        rollback();
+        fail(append, e);
+      }
+    }
+  }
+
+  /**
+   * Inserts and updates the rows of the given appends in a single transaction and commits it,
+   * forcing it to disk unless the policy is {@link FsyncPolicy#OS}.
+   *
+   * @return the number of starts and stops committed.
+   */
+  private int execute(List<Append> group) throws SQLException {
+    int count = 0;
+    try (PreparedStatement insert = connection.prepareStatement(INSERT);
+        PreparedStatement update = connection.prepareStatement(UPDATE)) {
+      boolean inserted = false;
+      boolean updated = false;
+      for (Append append : group) {
+        long rowPosition = append.position;
+        for (ChargingSession chargingSession : append.chargingSessions) {
+          if (append.started) {
+            insert.setObject(1, chargingSession.getId());
+            insert.setString(2, chargingSession.getStationId());
+            insert.setObject(3, chargingSession.getStartedAt());
+            insert.setLong(4, rowPosition++);
+            insert.addBatch();
+            inserted = true;
+          } else {
+            update.setObject(1, chargingSession.getStoppedAt());
+            update.setLong(2, rowPosition++);
+            update.setObject(3, chargingSession.getId());
+            update.addBatch();
+            updated = true;
+          }
+          count++;
+        }
+      }
+      if (inserted) {
+        insert.executeBatch();
+      }
+      if (updated) {
+        update.executeBatch();
+      }
+      connection.commit();
+    }
+    if (fsyncPolicy != FsyncPolicy.OS) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(FORCE);
+      }
+    }
+    return count;
+  }
+
+  private void fail(Append append, SQLException e) {
+    UncheckedSQLException exception =
+        new UncheckedSQLException("Could not commit to the journal at [" + url + "]", e);
+    LOGGER.error("Failed to commit {} starts and stops", append.chargingSessions.size(),
+        exception);
+    append.committed.completeExceptionally(exception);
+  }
+
+  private void rollback() {
+    try {
+      connection.rollback();
+    } catch (SQLException e) {
+      LOGGER.warn("Could not roll back the journal at [{}]", url, e);
+    }
+  }
+
+  private static void insertChunk(PreparedStatement insert, long position, int index,
+      ByteArrayOutputStream chunk) throws SQLException {
+    insert.setLong(1, position);
+    insert.setInt(2, index);
+    insert.setBytes(3, chunk.toByteArray());
+    insert.executeUpdate();
+    chunk.reset();
+  }
+
+  private static void writeSession(DataOutputStream output, ChargingSession chargingSession) {
+    try {
+      output.writeLong(chargingSession.getId().getMostSignificantBits());
+      output.writeLong(chargingSession.getId().getLeastSignificantBits());
+      output.writeUTF(chargingSession.getStationId());
+      writeDateTime(output, chargingSession.getStartedAt());
+      output.writeBoolean(chargingSession.getStoppedAt() != null);
+      if (chargingSession.getStoppedAt() != null) {
+        writeDateTime(output, chargingSession.getStoppedAt());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeDateTime(DataOutputStream output, LocalDateTime dateTime)
+      throws IOException {
+    output.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+    output.writeInt(dateTime.getNano());
+  }
+
+  private static long readChunk(byte[] chunk, Replayer replayer) {
+    long count = 0;
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(chunk))) {
+      while (input.available() > 0) {
+        UUID id = new UUID(input.readLong(), input.readLong());
+        String stationId = input.readUTF();
+        LocalDateTime startedAt = readDateTime(input);
+        LocalDateTime stoppedAt = input.readBoolean() ? readDateTime(input) : null;
+        replayer.restored(newChargingSession(id, stationId, startedAt, stoppedAt));
+        count++;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return count;
+  }
+
+  private static LocalDateTime readDateTime(DataInputStream input) throws IOException {
+    return LocalDateTime.ofEpochSecond(input.readLong(), input.readInt(), ZoneOffset.UTC);
+  }
+
+  private static ChargingSession newChargingSession(UUID id, String stationId,
+      LocalDateTime startedAt, LocalDateTime stoppedAt) {
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = id;
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = startedAt;
+      chargingSessionBuilder.stoppedAt = stoppedAt;
+      chargingSessionBuilder.status =
+          stoppedAt == null ? StatusEnum.IN_PROGRESS : StatusEnum.FINISHED;
+    }).build();
+  }
+
+  /**
+   * The starts or stops appended together, the position of the first of them and the commit they
+   * wait for.
+   */
+  private static final class Append {
+
+    private final boolean started;
+    private final List<ChargingSession> chargingSessions;
+    private final long position;
+    private final CompletableFuture<Void> committed;
+
+    private Append(boolean started, List<ChargingSession> chargingSessions, long position) {
+      this.started = started;
+      this.chargingSessions = chargingSessions;
+      this.position = position;
+      this.committed = new CompletableFuture<>();
+    }
+
+    private void await() {
+      try {
+        committed.join();
+      } catch (CompletionException ex) {
+        if (ex.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) ex.getCause();
+        }
+        throw ex;
+      }
+    }
+  }
+
+}
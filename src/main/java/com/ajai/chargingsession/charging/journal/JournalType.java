@@ -0,0 +1,23 @@
+package com.ajai.chargingsession.charging.journal;
+
+/**
+ * Represents the possible backends of the journal of the charging sessions.
+ *
+ * @author ajai
+ *
+ */
+public enum JournalType {
+
+  /**
+   * The {@link MappedChargingSessionJournal}, which appends binary records to memory-mapped
+   * segment files and periodically writes a snapshot next to them.
+   */
+  MAPPED,
+
+  /**
+   * The {@link JdbcChargingSessionJournal}, which keeps a row per charging session in an embedded
+   * H2 database and writes the starts and stops in batches.
+   */
+  JDBC
+
+}
@@ -0,0 +1,646 @@
+package com.ajai.chargingsession.charging.journal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Append-only journal kept in memory-mapped segment files.
+ *
+ * <p>
+ * Every start and stop is appended as a compact binary record to the current segment. A segment
+ * is a file of a fixed size named after its index, and a new segment is started once the current
+ * one is full. A record is laid out as follows:
+ * <ol>
+ * <li>{@code int} the length of the body,</li>
+ * <li>{@code int} the CRC32 checksum of the body and</li>
+ * <li>the body: the {@code byte} type of the record, the id as two {@code long}s, the date-time as
+ * {@code long} nanoseconds since the epoch and, for a start, the stationId as an unsigned
+ * {@code short} length followed by its UTF-8 bytes.</li>
+ * </ol>
+ * The segments are zero-filled, so a zero length marks the end of the records in a segment. A
+ * record with a wrong checksum was torn by a crash and ends the segment as well.
+ * </p>
+ *
+ * <p>
+ * When the appends are forced to the storage device depends on the {@link FsyncPolicy}. The time
+ * waited for and holding the append lock, and waited for a group commit, are timed.
+ * </p>
+ *
+ * <p>
+ * A snapshot is written to a file named after the position it was taken at, next to the segments.
+ * It starts with a magic number and that position, followed by one entry per charging session: a
+ * {@code byte} marker, the id as two {@code long}s, the start and stop date-times as {@code long}
+ * nanoseconds since the epoch, the {@code byte} status and the stationId as an unsigned
+ * {@code short} length followed by its UTF-8 bytes. A zero marker ends the entries and is followed
+ * by their {@code long} count and the CRC32 checksum of everything before it. The snapshot is
+ * written to a temporary file, forced and then atomically renamed, after which the older snapshots
+ * and the segments before the one the position is in are deleted.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public class MappedChargingSessionJournal implements ChargingSessionJournal {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MappedChargingSessionJournal.class);
+
+  private static final String SEGMENT_PREFIX = "journal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+
+  private static final byte STARTED = 1;
+  private static final byte STOPPED = 2;
+
+  private static final int HEADER_LENGTH = 2 * Integer.BYTES;
+  private static final int STOPPED_LENGTH = 1 + 3 * Long.BYTES;
+  private static final int STARTED_FIXED_LENGTH = STOPPED_LENGTH + Short.BYTES;
+  private static final int MAX_STATION_ID_LENGTH = 0xFFFF;
+  private static final int MIN_SEGMENT_SIZE =
+      2 * (HEADER_LENGTH + STARTED_FIXED_LENGTH + MAX_STATION_ID_LENGTH);
+
+  // positions are the segment index followed by the offset within the segment
+  private static final int SEGMENT_INDEX_SHIFT = 40;
+  private static final long SEGMENT_OFFSET_MASK = (1L << SEGMENT_INDEX_SHIFT) - 1;
+
+  private static final int SNAPSHOT_MAGIC = 0x43534E50;
+  private static final byte SNAPSHOT_ENTRY = 1;
+  private static final byte SNAPSHOT_END = 0;
+  private static final int SNAPSHOT_BUFFER_SIZE = 1 << 16;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final FsyncPolicy fsyncPolicy;
+
+  private final Lock appendLock;
+  private final CRC32 appendChecksum;
+  private long segmentIndex;
+  private MappedByteBuffer segment;
+  private volatile boolean closed;
+
+  private final Object durabilityMonitor;
+  private long durablePosition;
+  private final ScheduledExecutorService flusher;
+
+  private final Timer lockWait;
+  private final Timer lockHold;
+  private final Timer durabilityWait;
+
+  /**
+   * Creates an instance of MappedChargingSessionJournal that appends after the last record of the
+   * existing segments in the given directory.
+   *
+   * @param directory the directory of the segments
+   * @param segmentSize the size of a segment in bytes
+   * @param fsyncPolicy the policy for forcing the appends
+   * @param groupCommitMillis the interval between forces for {@link FsyncPolicy#GROUP_COMMIT}
+   *
+   * @throws UncheckedIOException if the segments cannot be opened.
+   */
+  public MappedChargingSessionJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy,
+      long groupCommitMillis) {
+    this(directory, segmentSize, fsyncPolicy, groupCommitMillis, new CompositeMeterRegistry(),
+        Tags.empty());
+  }
+
+  /**
+   * Creates an instance of MappedChargingSessionJournal that appends after the last record of the
+   * existing segments in the given directory and times the appends in the given registry.
+   *
+   * @param directory the directory of the segments
+   * @param segmentSize the size of a segment in bytes
+   * @param fsyncPolicy the policy for forcing the appends
+   * @param groupCommitMillis the interval between forces for {@link FsyncPolicy#GROUP_COMMIT}
+   * @param meterRegistry the registry to register the timers of the appends in
+   * @param tags the tags of the timers
+   *
+   * @throws UncheckedIOException if the segments cannot be opened.
+   */
+  public MappedChargingSessionJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy,
+      long groupCommitMillis, MeterRegistry meterRegistry, Iterable<Tag> tags) {
+    Assert.isTrue(segmentSize >= MIN_SEGMENT_SIZE,
+        () -> "The segment size should be at least " + MIN_SEGMENT_SIZE + " bytes");
+    Assert.isTrue(fsyncPolicy != FsyncPolicy.GROUP_COMMIT || groupCommitMillis > 0,
+        () -> "Invalid group commit interval of [" + groupCommitMillis + "] ms");
+
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.fsyncPolicy = fsyncPolicy;
+    this.appendLock = new ReentrantLock();
+    this.appendChecksum = new CRC32();
+    this.durabilityMonitor = new Object();
+    this.lockWait = Timer.builder("charging.journal.lock.wait").tags(tags)
+        .description("Time waited for the append lock of the journal").publishPercentileHistogram()
+        .register(meterRegistry);
+    this.lockHold = Timer.builder("charging.journal.lock.hold").tags(tags)
+        .description("Time the append lock of the journal was held").publishPercentileHistogram()
+        .register(meterRegistry);
+    this.durabilityWait = Timer.builder("charging.journal.durability.wait").tags(tags)
+        .description("Time waited for a group commit to make the appends durable")
+        .publishPercentileHistogram().register(meterRegistry);
+
+    try {
+      Files.createDirectories(directory);
+      List<Long> segmentIndexes = segmentIndexes();
+      segmentIndex = segmentIndexes.isEmpty() ? 0 : segmentIndexes.get(segmentIndexes.size() - 1);
+      segment = map(segmentIndex);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open the journal in [" + directory + "]", e);
+    }
+
+    int endOfRecords = 0;
+    CRC32 checksum = new CRC32();
+    for (int next = 0; next >= 0; next = readRecord(segment, next, checksum, null)) {
+      endOfRecords = next;
+    }
+    if (endOfRecords + Integer.BYTES <= segment.limit() && segment.getInt(endOfRecords) != 0) {
+      LOGGER.warn("Discarding the torn tail of journal segment {} at offset {}", segmentIndex,
+          endOfRecords);
+      for (int offset = endOfRecords; offset < segment.limit(); offset++) {
+        segment.put(offset, (byte) 0);
+      }
+    }
+    segment.position(endOfRecords);
+    durablePosition = appendPosition();
+
+    if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+      flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+      flusher.scheduleWithFixedDelay(this::flush, groupCommitMillis, groupCommitMillis,
+          TimeUnit.MILLISECONDS);
+    } else {
+      flusher = null;
+    }
+  }
+
+  @Override
+  public void started(ChargingSession chargingSession) {
+    append(STARTED, Collections.singletonList(chargingSession));
+  }
+
+  @Override
+  public void stopped(ChargingSession chargingSession) {
+    append(STOPPED, Collections.singletonList(chargingSession));
+  }
+
+  @Override
+  public void startedAll(List<ChargingSession> chargingSessions) {
+    append(STARTED, chargingSessions);
+  }
+
+  @Override
+  public void stoppedAll(List<ChargingSession> chargingSessions) {
+    append(STOPPED, chargingSessions);
+  }
+
+  @Override
+  public long position() {
+    appendLock.lock();
+    try {
+      return appendPosition();
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  @Override
+  public synchronized void snapshot(long position, Iterable<ChargingSession> chargingSessions) {
+    Path snapshot = snapshotPath(position);
+    Path temporarySnapshot = directory.resolve(snapshot.getFileName() + TEMPORARY_SUFFIX);
+    try {
+      long count = writeSnapshot(temporarySnapshot, position, chargingSessions);
+      Files.move(temporarySnapshot, snapshot, StandardCopyOption.ATOMIC_MOVE);
+      LOGGER.info("Wrote a snapshot of {} charging sessions at journal position {}", count,
+          position);
+
+      for (Path olderSnapshot : snapshotPaths()) {
+        if (!olderSnapshot.equals(snapshot) && snapshotPosition(olderSnapshot) < position) {
+          Files.delete(olderSnapshot);
+        }
+      }
+      long snapshotSegmentIndex = position >>> SEGMENT_INDEX_SHIFT;
+      for (long index : segmentIndexes()) {
+        if (index < snapshotSegmentIndex) {
+          Files.delete(segmentPath(index));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write a snapshot to [" + directory + "]", e);
+    } finally {
+      try {
+        Files.deleteIfExists(temporarySnapshot);
+      } catch (IOException e) {
+        LOGGER.warn("Could not delete the temporary snapshot [{}]", temporarySnapshot, e);
+      }
+    }
+  }
+
+  @Override
+  public RecoveryStatistics recover(Replayer replayer) {
+    long startNanos = System.nanoTime();
+    long snapshotSessions = 0;
+    long records = 0;
+    try {
+      long position = 0;
+      List<Path> snapshots = snapshotPaths();
+      if (!snapshots.isEmpty()) {
+        Path snapshot = snapshots.get(snapshots.size() - 1);
+        // verified before anything is restored, so a corrupt snapshot is never partially applied
+        readSnapshot(snapshot, null);
+        snapshotSessions = readSnapshot(snapshot, replayer);
+        position = snapshotPosition(snapshot);
+      }
+
+      long snapshotSegmentIndex = position >>> SEGMENT_INDEX_SHIFT;
+      CRC32 checksum = new CRC32();
+      for (long index : segmentIndexes()) {
+        if (index < snapshotSegmentIndex) {
+          continue;
+        }
+        MappedByteBuffer segmentToReplay = map(index);
+        int offset =
+            index == snapshotSegmentIndex ? (int) (position & SEGMENT_OFFSET_MASK) : 0;
+        for (int next = readRecord(segmentToReplay, offset, checksum, replayer); next >= 0; next =
+            readRecord(segmentToReplay, next, checksum, replayer)) {
+          records++;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not recover from [" + directory + "]", e);
+    }
+    return new RecoveryStatistics(snapshotSessions, records, System.nanoTime() - startNanos);
+  }
+
+  @Override
+  public void close() {
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+    appendLock.lock();
+    try {
+      if (!closed && fsyncPolicy != FsyncPolicy.OS) {
+        segment.force();
+      }
+      closed = true;
+    } finally {
+      appendLock.unlock();
+    }
+    synchronized (durabilityMonitor) {
+      durabilityMonitor.notifyAll();
+    }
+  }
+
+  /**
+   * Appends the records of the given type under a single acquisition of the append lock, so they
+   * also share a single force or wait for the durability.
+   */
+  private void append(byte type, List<ChargingSession> chargingSessions) {
+
+    byte[][] stationIds = new byte[chargingSessions.size()][];
+    if (type == STARTED) {
+      for (int index = 0; index < stationIds.length; index++) {
+        byte[] stationId = chargingSessions.get(index).getStationId().getBytes(UTF_8);
+        Assert.isTrue(stationId.length <= MAX_STATION_ID_LENGTH,
+            () -> "The stationId should not be longer than " + MAX_STATION_ID_LENGTH + " bytes");
+        stationIds[index] = stationId;
+      }
+    }
+    long position;
+
+    long lockStartNanos = System.nanoTime();
+    appendLock.lock();
+    long lockedNanos = System.nanoTime();
+    try {
+      Assert.state(!closed, "The journal is closed");
+      for (int index = 0; index < stationIds.length; index++) {
+        ChargingSession chargingSession = chargingSessions.get(index);
+        appendRecord(type, chargingSession.getId(), type == STARTED
+            ? chargingSession.getStartedAt() : chargingSession.getStoppedAt(), stationIds[index]);
+      }
+
+      if (fsyncPolicy == FsyncPolicy.PER_WRITE) {
+        segment.force();
+      }
+      position = appendPosition();
+    } finally {
+      appendLock.unlock();
+      // recorded outside of the lock, so the timers do not add to the time it is held
+      long unlockedNanos = System.nanoTime();
+      lockWait.record(lockedNanos - lockStartNanos, TimeUnit.NANOSECONDS);
+      lockHold.record(unlockedNanos - lockedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+      long durabilityStartNanos = System.nanoTime();
+      awaitDurable(position);
+      durabilityWait.record(System.nanoTime() - durabilityStartNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void appendRecord(byte type, UUID id, LocalDateTime dateTime, byte[] stationId) {
+
+    int length = stationId == null ? STOPPED_LENGTH : STARTED_FIXED_LENGTH + stationId.length;
+    if (segment.remaining() < HEADER_LENGTH + length) {
+      roll();
+    }
+
+    int offset = segment.position();
+    segment.position(offset + HEADER_LENGTH);
+    segment.put(type).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+        .putLong(epochNanos(dateTime));
+    if (stationId != null) {
+      segment.putShort((short) stationId.length).put(stationId);
+    }
+
+    ByteBuffer body = segment.duplicate();
+    body.position(offset + HEADER_LENGTH).limit(offset + HEADER_LENGTH + length);
+    appendChecksum.reset();
+    appendChecksum.update(body);
+    segment.putInt(offset + Integer.BYTES, (int) appendChecksum.getValue());
+    segment.putInt(offset, length);
+  }
+
+  private void roll() {
+    if (fsyncPolicy != FsyncPolicy.OS) {
+      segment.force();
+    }
+    try {
+      segment = map(segmentIndex + 1);
+      segmentIndex++;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not start journal segment " + (segmentIndex + 1), e);
+    }
+  }
+
+  private void flush() {
+    MappedByteBuffer segmentToForce;
+    long position;
+    appendLock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      segmentToForce = segment;
+      position = appendPosition();
+    } finally {
+      appendLock.unlock();
+    }
+
+    segmentToForce.force();
+
+    synchronized (durabilityMonitor) {
+      if (position > durablePosition) {
+        durablePosition = position;
+        durabilityMonitor.notifyAll();
+      }
+    }
+  }
+
+  private void awaitDurable(long position) {
+    synchronized (durabilityMonitor) {
+      while (durablePosition < position) {
+        if (closed) {
+          // the final force on close covers this append
+          return;
+        }
+        try {
+          durabilityMonitor.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new UncheckedIOException(
+              new InterruptedIOException("Interrupted while waiting for the journal"));
+        }
+      }
+    }
+  }
+
+  private long appendPosition() {
+    return segmentIndex << SEGMENT_INDEX_SHIFT | segment.position();
+  }
+
+  private MappedByteBuffer map(long index) throws IOException {
+    try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = Math.max(segmentSize, channel.size());
+      return channel.map(MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  private Path segmentPath(long index) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+  }
+
+  private List<Long> segmentIndexes() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+          .map(name -> Long.valueOf(
+              name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+          .sorted().collect(Collectors.toList());
+    }
+  }
+
+  private Path snapshotPath(long position) {
+    return directory
+        .resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, position, SNAPSHOT_SUFFIX));
+  }
+
+  private static long snapshotPosition(Path snapshot) {
+    String name = snapshot.getFileName().toString();
+    return Long
+        .parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+  }
+
+  /**
+   * Returns the snapshots ordered on their position.
+   */
+  private List<Path> snapshotPaths() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.filter(path -> {
+        String name = path.getFileName().toString();
+        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+      }).sorted(Comparator.comparingLong(MappedChargingSessionJournal::snapshotPosition))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static long writeSnapshot(Path snapshot, long position,
+      Iterable<ChargingSession> chargingSessions) throws IOException {
+    try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      CheckedOutputStream checkedOutput = new CheckedOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel), SNAPSHOT_BUFFER_SIZE),
+          new CRC32());
+      DataOutputStream output = new DataOutputStream(checkedOutput);
+      output.writeInt(SNAPSHOT_MAGIC);
+      output.writeLong(position);
+      long count = 0;
+      for (ChargingSession chargingSession : chargingSessions) {
+        byte[] stationId = chargingSession.getStationId().getBytes(UTF_8);
+        output.writeByte(SNAPSHOT_ENTRY);
+        output.writeLong(chargingSession.getId().getMostSignificantBits());
+        output.writeLong(chargingSession.getId().getLeastSignificantBits());
+        output.writeLong(epochNanos(chargingSession.getStartedAt()));
+        output.writeLong(chargingSession.getStoppedAt() == null ? 0
+            : epochNanos(chargingSession.getStoppedAt()));
+        output.writeByte(chargingSession.getStatus().ordinal());
+        output.writeShort(stationId.length);
+        output.write(stationId);
+        count++;
+      }
+      output.writeByte(SNAPSHOT_END);
+      output.writeLong(count);
+      output.writeInt((int) checkedOutput.getChecksum().getValue());
+      output.flush();
+      channel.force(true);
+      return count;
+    }
+  }
+
+  /**
+   * Reads the snapshot and passes its charging sessions on to the replayer, if any.
+   *
+   * @return the number of charging sessions in the snapshot.
+   * @throws IOException if the snapshot cannot be read or is corrupt.
+   */
+  private static long readSnapshot(Path snapshot, Replayer replayer) throws IOException {
+    StatusEnum[] statuses = StatusEnum.values();
+    try (CheckedInputStream checkedInput = new CheckedInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshot), SNAPSHOT_BUFFER_SIZE),
+        new CRC32())) {
+      DataInputStream input = new DataInputStream(checkedInput);
+      if (input.readInt() != SNAPSHOT_MAGIC || input.readLong() != snapshotPosition(snapshot)) {
+        throw new IOException("Invalid snapshot [" + snapshot + "]");
+      }
+      long count = 0;
+      while (input.readByte() == SNAPSHOT_ENTRY) {
+        UUID id = new UUID(input.readLong(), input.readLong());
+        LocalDateTime startedAt = fromEpochNanos(input.readLong());
+        long stoppedAtNanos = input.readLong();
+        int ordinal = input.readUnsignedByte();
+        if (ordinal >= statuses.length) {
+          throw new IOException("Corrupt snapshot [" + snapshot + "]");
+        }
+        StatusEnum status = statuses[ordinal];
+        byte[] stationId = new byte[input.readUnsignedShort()];
+        input.readFully(stationId);
+        if (replayer != null) {
+          replayer.restored(new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+            chargingSessionBuilder.id = id;
+            chargingSessionBuilder.stationId = new String(stationId, UTF_8);
+            chargingSessionBuilder.startedAt = startedAt;
+            chargingSessionBuilder.stoppedAt =
+                status == StatusEnum.FINISHED ? fromEpochNanos(stoppedAtNanos) : null;
+            chargingSessionBuilder.status = status;
+          }).build());
+        }
+        count++;
+      }
+      boolean complete = input.readLong() == count;
+      int checksum = (int) checkedInput.getChecksum().getValue();
+      if (!complete || input.readInt() != checksum) {
+        throw new IOException("Corrupt snapshot [" + snapshot + "]");
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Reads the record at the given offset and passes it on to the replayer, if any.
+   *
+   * @return the offset of the next record or {@code -1} if there are no more valid records.
+   */
+  private static int readRecord(ByteBuffer segment, int offset, CRC32 checksum,
+      Replayer replayer) {
+    if (offset + HEADER_LENGTH > segment.limit()) {
+      return -1;
+    }
+    int length = segment.getInt(offset);
+    if (length < STOPPED_LENGTH || offset + HEADER_LENGTH + length > segment.limit()) {
+      return -1;
+    }
+
+    ByteBuffer body = segment.duplicate();
+    body.position(offset + HEADER_LENGTH).limit(offset + HEADER_LENGTH + length);
+    checksum.reset();
+    checksum.update(body.slice());
+    if ((int) checksum.getValue() != segment.getInt(offset + Integer.BYTES)) {
+      return -1;
+    }
+
+    if (replayer != null) {
+      byte type = body.get();
+      UUID id = new UUID(body.getLong(), body.getLong());
+      LocalDateTime dateTime = fromEpochNanos(body.getLong());
+      if (type == STARTED) {
+        byte[] stationId = new byte[body.getShort() & MAX_STATION_ID_LENGTH];
+        body.get(stationId);
+        replayer.restored(new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+          chargingSessionBuilder.id = id;
+          chargingSessionBuilder.stationId = new String(stationId, UTF_8);
+          chargingSessionBuilder.startedAt = dateTime;
+          chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+        }).build());
+      } else {
+        replayer.stopped(id, dateTime);
+      }
+    }
+    return offset + HEADER_LENGTH + length;
+  }
+
+  private static long epochNanos(LocalDateTime dateTime) {
+    return TimeUnit.SECONDS.toNanos(dateTime.toEpochSecond(ZoneOffset.UTC)) + dateTime.getNano();
+  }
+
+  private static LocalDateTime fromEpochNanos(long epochNanos) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+        (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+  }
+
+}
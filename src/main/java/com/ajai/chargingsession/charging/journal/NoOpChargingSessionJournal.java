@@ -0,0 +1,49 @@
+package com.ajai.chargingsession.charging.journal;
+
+import com.ajai.chargingsession.charging.session.ChargingSession;
+
+/**
+ * Journal used when durability is disabled. Nothing is appended, written or recovered.
+ *
+ * @author ajai
+ *
+ */
+public final class NoOpChargingSessionJournal implements ChargingSessionJournal {
+
+  public static final NoOpChargingSessionJournal INSTANCE = new NoOpChargingSessionJournal();
+
+  private NoOpChargingSessionJournal() {
+    super();
+  }
+
+  @Override
+  public void started(ChargingSession chargingSession) {
+    // EMPTY
+  }
+
+  @Override
+  public void stopped(ChargingSession chargingSession) {
+    // EMPTY
+  }
+
+  @Override
+  public long position() {
+    return 0;
+  }
+
+  @Override
+  public void snapshot(long position, Iterable<ChargingSession> chargingSessions) {
+    // EMPTY
+  }
+
+  @Override
+  public RecoveryStatistics recover(Replayer replayer) {
+    return RecoveryStatistics.NONE;
+  }
+
+  @Override
+  public void close() {
+    // EMPTY
+  }
+
+}
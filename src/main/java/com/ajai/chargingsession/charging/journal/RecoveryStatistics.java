@@ -0,0 +1,79 @@
+package com.ajai.chargingsession.charging.journal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the statistics of a recovery of the charging sessions.
+ *
+ * @author ajai
+ *
+ */
+public final class RecoveryStatistics {
+
+  public static final RecoveryStatistics NONE = new RecoveryStatistics(0, 0, 0);
+
+  private final long snapshotSessions;
+  private final long journalRecords;
+  private final long elapsedNanos;
+
+  /**
+   * Creates a new instance of RecoveryStatistics.
+   *
+   * @param snapshotSessions the number of charging sessions restored from the snapshot
+   * @param journalRecords the number of starts and stops replayed from the journal
+   * @param elapsedNanos the duration of the recovery in nanoseconds
+   */
+  public RecoveryStatistics(long snapshotSessions, long journalRecords, long elapsedNanos) {
+    this.snapshotSessions = snapshotSessions;
+    this.journalRecords = journalRecords;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Get the number of charging sessions restored from the snapshot.
+   *
+   * @return current snapshotSessions
+   */
+  public long getSnapshotSessions() {
+    return snapshotSessions;
+  }
+
+  /**
+   * Get the number of starts and stops replayed from the journal.
+   *
+   * @return current journalRecords
+   */
+  public long getJournalRecords() {
+    return journalRecords;
+  }
+
+  /**
+   * Get the duration of the recovery in nanoseconds.
+   *
+   * @return current elapsedNanos
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Get the number of charging sessions and journal records restored per second.
+   *
+   * @return the recovery throughput
+   */
+  public double getSessionsPerSecond() {
+    if (elapsedNanos == 0) {
+      return 0;
+    }
+    return (snapshotSessions + journalRecords) * (double) TimeUnit.SECONDS.toNanos(1)
+        / elapsedNanos;
+  }
+
+  public String toString() {
+    return new StringBuilder().append("snapshotSessions : ").append(snapshotSessions)
+        .append(" journalRecords : ").append(journalRecords).append(" elapsedMillis : ")
+        .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" sessionsPerSecond : ")
+        .append((long) getSessionsPerSecond()).toString();
+  }
+
+}
@@ -0,0 +1,31 @@
+package com.ajai.chargingsession.charging.journal;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps an {@link SQLException} of a journal backed by a database with an unchecked exception,
+ * like an {@link java.io.UncheckedIOException} wraps the failures of a journal kept in files.
+ *
+ * @author ajai
+ *
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Creates a new instance of UncheckedSQLException.
+   *
+   * @param message the detail message
+   * @param cause the SQLException
+   */
+  public UncheckedSQLException(String message, SQLException cause) {
+    super(message, cause);
+  }
+
+  @Override
+  public synchronized SQLException getCause() {
+    return (SQLException) super.getCause();
+  }
+
+}
@@ -0,0 +1,36 @@
+package com.ajai.chargingsession.charging.json;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Jackson module with the hand-written serializers of the charging sessions and their summaries.
+ * Spring Boot registers it with every ObjectMapper it configures, so it applies to the JSON and
+ * the CBOR responses of both web stacks.
+ *
+ * @author ajai
+ *
+ */
+@Component
+public class ChargingSessionJsonModule extends SimpleModule {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Creates an instance of ChargingSessionJsonModule.
+   *
+   * @param cacheSize the largest number of finished charging sessions whose JSON is cached, or 0
+   *        to cache none
+   */
+  public ChargingSessionJsonModule(@Value("${serialization.cache.size}") long cacheSize) {
+    super(ChargingSessionJsonModule.class.getSimpleName());
+    Assert.isTrue(cacheSize >= 0, () -> "Invalid serialization cache size [" + cacheSize + "]");
+    addSerializer(ChargingSession.class, new ChargingSessionSerializer(cacheSize));
+    addSerializer(ChargingSessionSummary.class, new ChargingSessionSummarySerializer());
+  }
+
+}
@@ -0,0 +1,268 @@
+package com.ajai.chargingsession.charging.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.UUID;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Serializer of a {@link ChargingSession} that writes the same document as the bean serializer
+ * did, with the date-times in the ISO format, without reflection or a {@link DateTimeFormatter}.
+ *
+ * <p>
+ * To a plain JSON generator the whole session is formatted into a character buffer of the thread
+ * and written as one raw value. The JSON of a finished session never changes, so it is kept in a
+ * bounded cache by the id of the session and written from there the next time. Any other
+ * generator, such as a CBOR or a pretty printing one, is written to field by field, with the
+ * session id as 16 bytes where the format has binary values.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+final class ChargingSessionSerializer extends StdSerializer<ChargingSession> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString STATION_ID = new SerializedString("stationId");
+  private static final SerializedString STARTED_AT = new SerializedString("startedAt");
+  private static final SerializedString STOPPED_AT = new SerializedString("stoppedAt");
+  private static final SerializedString STATUS = new SerializedString("status");
+  private static final SerializedString[] STATUSES = Arrays.stream(StatusEnum.values())
+      .map(status -> new SerializedString(status.name())).toArray(SerializedString[]::new);
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final int NANO_DIGITS = 9;
+
+  private static final ThreadLocal<CharBuffer> BUFFERS = ThreadLocal.withInitial(CharBuffer::new);
+
+  private final transient Cache<UUID, SerializableString> finishedChargingSessions;
+
+  ChargingSessionSerializer(long cacheSize) {
+    super(ChargingSession.class);
+    finishedChargingSessions =
+        cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).build() : null;
+  }
+
+  @Override
+  public void serialize(ChargingSession chargingSession, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    if (isPlainJson(generator)) {
+      writeJson(chargingSession, generator);
+    } else {
+      writeFields(chargingSession, generator);
+    }
+  }
+
+  // a raw value skips the pretty printer and the escaping options of the generator
+  private static boolean isPlainJson(JsonGenerator generator) {
+    return generator instanceof JsonGeneratorImpl && generator.getPrettyPrinter() == null
+        && generator.getCharacterEscapes() == null && generator.getHighestEscapedChar() == 0;
+  }
+
+  private void writeJson(ChargingSession chargingSession, JsonGenerator generator)
+      throws IOException {
+    boolean cacheable =
+        finishedChargingSessions != null && chargingSession.getStatus() == StatusEnum.FINISHED;
+    if (cacheable) {
+      SerializableString json = finishedChargingSessions.getIfPresent(chargingSession.getId());
+      if (json != null) {
+        generator.writeRawValue(json);
+        return;
+      }
+    }
+
+    CharBuffer buffer = BUFFERS.get().clear();
+    buffer.append("{\"id\":\"");
+    appendId(buffer, chargingSession.getId());
+    buffer.append("\",\"stationId\":");
+    appendString(buffer, chargingSession.getStationId());
+    buffer.append(",\"startedAt\":\"");
+    appendDateTime(buffer, chargingSession.getStartedAt());
+    if (chargingSession.getStoppedAt() != null) {
+      buffer.append("\",\"stoppedAt\":\"");
+      appendDateTime(buffer, chargingSession.getStoppedAt());
+    }
+    buffer.append("\",\"status\":");
+    if (chargingSession.getStatus() == null) {
+      buffer.append("null}");
+    } else {
+      buffer.append('"').append(chargingSession.getStatus().name()).append("\"}");
+    }
+
+    if (cacheable) {
+      SerializableString json = new SerializedString(buffer.toString());
+      finishedChargingSessions.put(chargingSession.getId(), json);
+      generator.writeRawValue(json);
+    } else {
+      generator.writeRawValue(buffer.chars, 0, buffer.length);
+    }
+  }
+
+  private static void writeFields(ChargingSession chargingSession, JsonGenerator generator)
+      throws IOException {
+    CharBuffer buffer = BUFFERS.get();
+    generator.writeStartObject(chargingSession);
+    generator.writeFieldName(ID);
+    // binary where the format has it, except into a token buffer, like the UUID serializer
+    if (generator.canWriteBinaryNatively() && !(generator instanceof TokenBuffer)) {
+      generator.writeBinary(ByteBuffer.allocate(16)
+          .putLong(chargingSession.getId().getMostSignificantBits())
+          .putLong(chargingSession.getId().getLeastSignificantBits()).array());
+    } else {
+      appendId(buffer.clear(), chargingSession.getId());
+      generator.writeString(buffer.chars, 0, buffer.length);
+    }
+    generator.writeFieldName(STATION_ID);
+    generator.writeString(chargingSession.getStationId());
+    generator.writeFieldName(STARTED_AT);
+    appendDateTime(buffer.clear(), chargingSession.getStartedAt());
+    generator.writeString(buffer.chars, 0, buffer.length);
+    if (chargingSession.getStoppedAt() != null) {
+      generator.writeFieldName(STOPPED_AT);
+      appendDateTime(buffer.clear(), chargingSession.getStoppedAt());
+      generator.writeString(buffer.chars, 0, buffer.length);
+    }
+    generator.writeFieldName(STATUS);
+    if (chargingSession.getStatus() == null) {
+      generator.writeNull();
+    } else {
+      generator.writeString(STATUSES[chargingSession.getStatus().ordinal()]);
+    }
+    generator.writeEndObject();
+  }
+
+  private static void appendId(CharBuffer buffer, UUID id) {
+    long mostSignificantBits = id.getMostSignificantBits();
+    long leastSignificantBits = id.getLeastSignificantBits();
+    appendHex(buffer, mostSignificantBits >>> 32, 8);
+    buffer.append('-');
+    appendHex(buffer, mostSignificantBits >>> 16, 4);
+    buffer.append('-');
+    appendHex(buffer, mostSignificantBits, 4);
+    buffer.append('-');
+    appendHex(buffer, leastSignificantBits >>> 48, 4);
+    buffer.append('-');
+    appendHex(buffer, leastSignificantBits, 12);
+  }
+
+  private static void appendHex(CharBuffer buffer, long value, int digits) {
+    for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+      buffer.append(HEX_DIGITS[(int) (value >>> shift) & 0xF]);
+    }
+  }
+
+  private static void appendString(CharBuffer buffer, String value) {
+    if (value == null) {
+      buffer.append("null");
+      return;
+    }
+    buffer.append('"');
+    for (int index = 0; index < value.length(); index++) {
+      char character = value.charAt(index);
+      if (character < ' ' || character == '"' || character == '\\') {
+        buffer.append(JsonStringEncoder.getInstance().quoteAsString(value)).append('"');
+        return;
+      }
+    }
+    buffer.append(value).append('"');
+  }
+
+  private static void appendDateTime(CharBuffer buffer, LocalDateTime dateTime) {
+    if (dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+      // signed years are rare enough to be left to the formatter
+      buffer.append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime));
+      return;
+    }
+    appendDigits(buffer, dateTime.getYear(), 4);
+    buffer.append('-');
+    appendDigits(buffer, dateTime.getMonthValue(), 2);
+    buffer.append('-');
+    appendDigits(buffer, dateTime.getDayOfMonth(), 2);
+    buffer.append('T');
+    appendDigits(buffer, dateTime.getHour(), 2);
+    buffer.append(':');
+    appendDigits(buffer, dateTime.getMinute(), 2);
+    buffer.append(':');
+    appendDigits(buffer, dateTime.getSecond(), 2);
+    int nano = dateTime.getNano();
+    if (nano > 0) {
+      // as short a fraction as the formatter writes
+      int digits = NANO_DIGITS;
+      while (nano % 10 == 0) {
+        nano /= 10;
+        digits--;
+      }
+      buffer.append('.');
+      appendDigits(buffer, nano, digits);
+    }
+  }
+
+  private static void appendDigits(CharBuffer buffer, int value, int digits) {
+    int end = buffer.reserve(digits);
+    for (int index = end - 1; index >= end - digits; index--) {
+      buffer.chars[index] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  /**
+   * Growable character buffer that a thread reuses for every session it serializes.
+   */
+  private static final class CharBuffer {
+
+    private char[] chars = new char[256];
+    private int length;
+
+    private CharBuffer clear() {
+      length = 0;
+      return this;
+    }
+
+    private int reserve(int count) {
+      if (length + count > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + count));
+      }
+      length += count;
+      return length;
+    }
+
+    private CharBuffer append(char character) {
+      chars[reserve(1) - 1] = character;
+      return this;
+    }
+
+    private CharBuffer append(String value) {
+      int end = reserve(value.length());
+      value.getChars(0, value.length(), chars, end - value.length());
+      return this;
+    }
+
+    private CharBuffer append(char[] value) {
+      int end = reserve(value.length);
+      System.arraycopy(value, 0, chars, end - value.length, value.length);
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return new String(chars, 0, length);
+    }
+  }
+
+}
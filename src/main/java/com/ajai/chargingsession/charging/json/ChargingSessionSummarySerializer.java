@@ -0,0 +1,63 @@
+package com.ajai.chargingsession.charging.json;
+
+import java.io.IOException;
+import com.ajai.chargingsession.charging.session.ChargingSessionDurations;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Serializer of a {@link ChargingSessionSummary} that writes its counts and durations under
+ * pre-encoded field names, in the order the bean serializer wrote them.
+ *
+ * @author ajai
+ *
+ */
+final class ChargingSessionSummarySerializer extends StdSerializer<ChargingSessionSummary> {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final SerializedString TOTAL_COUNT = new SerializedString("totalCount");
+  private static final SerializedString STARTED_COUNT = new SerializedString("startedCount");
+  private static final SerializedString STOPPED_COUNT = new SerializedString("stoppedCount");
+  private static final SerializedString DURATIONS = new SerializedString("durations");
+  private static final SerializedString MEAN_MILLIS = new SerializedString("meanMillis");
+  private static final SerializedString P50_MILLIS = new SerializedString("p50Millis");
+  private static final SerializedString P90_MILLIS = new SerializedString("p90Millis");
+  private static final SerializedString P99_MILLIS = new SerializedString("p99Millis");
+  private static final SerializedString MAX_MILLIS = new SerializedString("maxMillis");
+
+  ChargingSessionSummarySerializer() {
+    super(ChargingSessionSummary.class);
+  }
+
+  @Override
+  public void serialize(ChargingSessionSummary chargingSessionSummary, JsonGenerator generator,
+      SerializerProvider provider) throws IOException {
+    generator.writeStartObject(chargingSessionSummary);
+    generator.writeFieldName(TOTAL_COUNT);
+    generator.writeNumber(chargingSessionSummary.getTotalCount());
+    generator.writeFieldName(STARTED_COUNT);
+    generator.writeNumber(chargingSessionSummary.getStartedCount());
+    generator.writeFieldName(STOPPED_COUNT);
+    generator.writeNumber(chargingSessionSummary.getStoppedCount());
+    ChargingSessionDurations durations = chargingSessionSummary.getDurations();
+    generator.writeFieldName(DURATIONS);
+    generator.writeStartObject(durations);
+    generator.writeFieldName(MEAN_MILLIS);
+    generator.writeNumber(durations.getMeanMillis());
+    generator.writeFieldName(P50_MILLIS);
+    generator.writeNumber(durations.getP50Millis());
+    generator.writeFieldName(P90_MILLIS);
+    generator.writeNumber(durations.getP90Millis());
+    generator.writeFieldName(P99_MILLIS);
+    generator.writeNumber(durations.getP99Millis());
+    generator.writeFieldName(MAX_MILLIS);
+    generator.writeNumber(durations.getMaxMillis());
+    generator.writeEndObject();
+    generator.writeEndObject();
+  }
+
+}
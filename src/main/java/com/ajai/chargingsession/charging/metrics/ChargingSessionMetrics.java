@@ -0,0 +1,189 @@
+package com.ajai.chargingsession.charging.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import com.ajai.chargingsession.charging.journal.RecoveryStatistics;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Meters of the charging sessions of a tenant.
+ * 
+ * <p>
+ * The meters are tagged with the tenant, so the charging sessions of every tenant can be told
+ * apart. The following meters are registered:
+ * <ol>
+ * <li>{@code charging.sessions} gauges of the charging sessions per {@link StatusEnum},</li>
+ * <li>{@code charging.sessions.started} and {@code charging.sessions.stopped} counters of the
+ * starts and stops,</li>
+ * <li>{@code charging.sessions.summary} timer of the summaries,</li>
+ * <li>{@code charging.sessions.summary.cache} counters of the summaries per {@code result}, a
+ * {@code hit} when a cached or in-flight summary was reused, otherwise a {@code miss},</li>
+ * <li>{@code charging.sessions.lock.wait} and {@code charging.sessions.lock.hold} timers of the
+ * write locks of the session tables, taken by every start and stop,</li>
+ * <li>{@code charging.sessions.lock.retries} counter of the optimistic reads of the listings that
+ * were retried under the read lock of a session table, because a write intervened, and</li>
+ * <li>{@code charging.recovery.duration} and {@code charging.recovery.throughput} gauges of the
+ * recovery on startup.</li>
+ * </ol>
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+public class ChargingSessionMetrics {
+
+  public static final String TENANT_TAG = "tenant";
+
+  private static final String STATUS_TAG = "status";
+
+  private static final String RESULT_TAG = "result";
+
+  private final MeterRegistry meterRegistry;
+  private final Tags tags;
+  private final Counter started;
+  private final Counter stopped;
+  private final Timer summary;
+  private final Counter summaryCacheHits;
+  private final Counter summaryCacheMisses;
+  private final Timer lockWait;
+  private final Timer lockHold;
+  private final Counter lockRetries;
+
+  /**
+   * Creates an instance of ChargingSessionMetrics that registers the meters of a tenant.
+   * 
+   * @param meterRegistry the registry to register the meters in
+   * @param tenantId the id of the tenant
+   */
+  public ChargingSessionMetrics(MeterRegistry meterRegistry, String tenantId) {
+    this.meterRegistry = meterRegistry;
+    this.tags = Tags.of(TENANT_TAG, tenantId);
+    started = Counter.builder("charging.sessions.started").tags(tags)
+        .description("Charging sessions started").register(meterRegistry);
+    stopped = Counter.builder("charging.sessions.stopped").tags(tags)
+        .description("Charging sessions stopped").register(meterRegistry);
+    summary = Timer.builder("charging.sessions.summary").tags(tags)
+        .description("Time taken to summarize the charging sessions").publishPercentileHistogram()
+        .register(meterRegistry);
+    summaryCacheHits = summaryCacheCounter("hit");
+    summaryCacheMisses = summaryCacheCounter("miss");
+    lockWait = Timer.builder("charging.sessions.lock.wait").tags(tags)
+        .description("Time waited for the write lock of a session table")
+        .publishPercentileHistogram().register(meterRegistry);
+    lockHold = Timer.builder("charging.sessions.lock.hold").tags(tags)
+        .description("Time the write lock of a session table was held")
+        .publishPercentileHistogram().register(meterRegistry);
+    lockRetries = Counter.builder("charging.sessions.lock.retries").tags(tags)
+        .description("Optimistic reads of a session table retried under its read lock")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Creates an instance of ChargingSessionMetrics whose meters record nothing.
+   * 
+   * @return ChargingSessionMetrics meters that record nothing.
+   */
+  public static ChargingSessionMetrics noOp() {
+    return new ChargingSessionMetrics(new CompositeMeterRegistry(), "none");
+  }
+
+  /**
+   * Registers the gauge of the charging sessions with the given status.
+   * 
+   * @param <T> the type of the object the gauge reads from
+   * @param status the status of the charging sessions
+   * @param object the object the gauge reads from, which is only weakly referenced
+   * @param count the function that returns the number of charging sessions with the status
+   */
+  public <T> void gaugeChargingSessions(StatusEnum status, T object, ToDoubleFunction<T> count) {
+    Gauge.builder("charging.sessions", object, count).tags(tags).tag(STATUS_TAG, status.name())
+        .description("Charging sessions").register(meterRegistry);
+  }
+
+  /**
+   * Registers the gauges of the duration and the throughput of the recovery on startup.
+   * 
+   * @param recoveryStatistics the statistics of the recovery, which are only weakly referenced
+   */
+  public void gaugeRecovery(RecoveryStatistics recoveryStatistics) {
+    TimeGauge.builder("charging.recovery.duration", recoveryStatistics, TimeUnit.NANOSECONDS,
+        RecoveryStatistics::getElapsedNanos).tags(tags)
+        .description("Time taken to recover the charging sessions on startup")
+        .register(meterRegistry);
+    Gauge.builder("charging.recovery.throughput", recoveryStatistics,
+        RecoveryStatistics::getSessionsPerSecond).tags(tags).baseUnit("sessions/s")
+        .description("Charging sessions and journal records recovered per second on startup")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Counts started charging sessions.
+   * 
+   * @param chargingSessions the number of started charging sessions
+   */
+  public void started(int chargingSessions) {
+    started.increment(chargingSessions);
+  }
+
+  /**
+   * Counts stopped charging sessions.
+   * 
+   * @param chargingSessions the number of stopped charging sessions
+   */
+  public void stopped(int chargingSessions) {
+    stopped.increment(chargingSessions);
+  }
+
+  /**
+   * Times a summary of the charging sessions.
+   * 
+   * @param <T> the type of the summary
+   * @param summarizer the function that summarizes the charging sessions
+   * @return the summary
+   */
+  public <T> T timeSummary(Supplier<T> summarizer) {
+    return summary.record(summarizer);
+  }
+
+  /**
+   * Counts a summary requested from the summary cache.
+   * 
+   * @param hit whether a cached or in-flight summary was reused
+   */
+  public void summaryCache(boolean hit) {
+    (hit ? summaryCacheHits : summaryCacheMisses).increment();
+  }
+
+  /**
+   * Times a write lock of a session table. It is recorded after the lock is released, so the
+   * timers do not add to the time it is held.
+   * 
+   * @param waitNanos the nanoseconds waited for the lock
+   * @param holdNanos the nanoseconds the lock was held
+   */
+  public void tableLocked(long waitNanos, long holdNanos) {
+    lockWait.record(waitNanos, TimeUnit.NANOSECONDS);
+    lockHold.record(holdNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Counts an optimistic read of a session table that was retried under its read lock.
+   */
+  public void tableReadRetried() {
+    lockRetries.increment();
+  }
+
+  private Counter summaryCacheCounter(String result) {
+    return Counter.builder("charging.sessions.summary.cache").tags(tags).tag(RESULT_TAG, result)
+        .description("Summaries requested from the summary cache").register(meterRegistry);
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.ajai.chargingsession.charging.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * The {@code http.server.serialization} timers of a wire format, one per type of serialized
+ * object.
+ * 
+ * @author ajai
+ *
+ */
+final class SerializationTimers {
+
+  private static final String TIMER_NAME = "http.server.serialization";
+
+  private final MeterRegistry meterRegistry;
+  private final String format;
+  private final ConcurrentMap<Class<?>, Timer> timers;
+
+  SerializationTimers(MeterRegistry meterRegistry, String format) {
+    this.meterRegistry = meterRegistry;
+    this.format = format;
+    this.timers = new ConcurrentHashMap<>();
+  }
+
+  void record(Class<?> objectClass, long startNanos) {
+    timers.computeIfAbsent(objectClass, this::newTimer).record(System.nanoTime() - startNanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  private Timer newTimer(Class<?> objectClass) {
+    return Timer.builder(TIMER_NAME).tag("type", objectClass.getSimpleName()).tag("format", format)
+        .description("Time taken to serialize the responses").register(meterRegistry);
+  }
+
+}
@@ -0,0 +1,46 @@
+package com.ajai.chargingsession.charging.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Jackson CBOR converter that times the serialization of the responses into the
+ * {@code http.server.serialization} timer, tagged with the type of the serialized object.
+ * 
+ * @author ajai
+ *
+ */
+public class TimedMappingJackson2CborHttpMessageConverter
+    extends MappingJackson2CborHttpMessageConverter {
+
+  private final SerializationTimers timers;
+
+  /**
+   * Creates an instance of TimedMappingJackson2CborHttpMessageConverter.
+   * 
+   * @param objectMapper the ObjectMapper with a CBOR factory to serialize with
+   * @param meterRegistry the registry to register the timers in
+   */
+  public TimedMappingJackson2CborHttpMessageConverter(ObjectMapper objectMapper,
+      MeterRegistry meterRegistry) {
+    super(objectMapper);
+    this.timers = new SerializationTimers(meterRegistry, "cbor");
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+      throws IOException, HttpMessageNotWritableException {
+    long startNanos = System.nanoTime();
+    try {
+      super.writeInternal(object, type, outputMessage);
+    } finally {
+      timers.record(object.getClass(), startNanos);
+    }
+  }
+
+}
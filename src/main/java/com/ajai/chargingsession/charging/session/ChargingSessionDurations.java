@@ -0,0 +1,111 @@
+package com.ajai.chargingsession.charging.session;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Represents the distribution of the durations of the stopped charging sessions of a summary, in
+ * milliseconds.
+ * <p>
+ * The percentiles are read from histograms, so they are accurate to within 4% of their value. The
+ * mean and the longest duration are exact.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+@ApiModel(description = "Durations of the stopped charging sessions of a summary.")
+public class ChargingSessionDurations {
+
+  /**
+   * The durations of a summary without stopped charging sessions.
+   */
+  public static final ChargingSessionDurations EMPTY = new ChargingSessionDurations(0, 0, 0, 0, 0);
+
+  @ApiModelProperty(notes = "The mean duration in milliseconds.")
+  private final long meanMillis;
+
+  @ApiModelProperty(notes = "The median duration in milliseconds.")
+  private final long p50Millis;
+
+  @ApiModelProperty(notes = "The 90th percentile of the durations in milliseconds.")
+  private final long p90Millis;
+
+  @ApiModelProperty(notes = "The 99th percentile of the durations in milliseconds.")
+  private final long p99Millis;
+
+  @ApiModelProperty(notes = "The longest duration in milliseconds.")
+  private final long maxMillis;
+
+  /**
+   * Creates a new instance of a ChargingSessionDurations.
+   *
+   * @param meanMillis the mean duration in milliseconds
+   * @param p50Millis the median duration in milliseconds
+   * @param p90Millis the 90th percentile of the durations in milliseconds
+   * @param p99Millis the 99th percentile of the durations in milliseconds
+   * @param maxMillis the longest duration in milliseconds
+   */
+  public ChargingSessionDurations(long meanMillis, long p50Millis, long p90Millis, long p99Millis,
+      long maxMillis) {
+    this.meanMillis = meanMillis;
+    this.p50Millis = p50Millis;
+    this.p90Millis = p90Millis;
+    this.p99Millis = p99Millis;
+    this.maxMillis = maxMillis;
+  }
+
+  /**
+   * Get meanMillis on this object.
+   *
+   * @return current meanMillis
+   */
+  public long getMeanMillis() {
+    return meanMillis;
+  }
+
+  /**
+   * Get p50Millis on this object.
+   *
+   * @return current p50Millis
+   */
+  public long getP50Millis() {
+    return p50Millis;
+  }
+
+  /**
+   * Get p90Millis on this object.
+   *
+   * @return current p90Millis
+   */
+  public long getP90Millis() {
+    return p90Millis;
+  }
+
+  /**
+   * Get p99Millis on this object.
+   *
+   * @return current p99Millis
+   */
+  public long getP99Millis() {
+    return p99Millis;
+  }
+
+  /**
+   * Get maxMillis on this object.
+   *
+   * @return current maxMillis
+   */
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder().append("meanMillis : ").append(meanMillis)
+        .append(" p50Millis : ").append(p50Millis).append(" p90Millis : ").append(p90Millis)
+        .append(" p99Millis : ").append(p99Millis).append(" maxMillis : ").append(maxMillis)
+        .toString();
+  }
+
+}
@@ -0,0 +1,59 @@
+package com.ajai.chargingsession.charging.session;
+
+import java.util.List;
+import org.springframework.util.Assert;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Represents a page of charging sessions ordered on their start time.
+ * <p>
+ * Every page except the last one carries the cursor from which the next page can be fetched.
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+@ApiModel(description = "A page of charging sessions.")
+public class ChargingSessionPage {
+
+  @ApiModelProperty(notes = "The charging sessions on this page.")
+  private final List<ChargingSession> chargingSessions;
+
+  @ApiModelProperty(notes = "Cursor of the next page. Absent on the last page.")
+  @JsonInclude(Include.NON_NULL)
+  private final String nextCursor;
+
+  /**
+   * Creates a new instance of a ChargingSessionPage.
+   * 
+   * @param chargingSessions the charging sessions on this page
+   * @param nextCursor the cursor of the next page or {@code null} if this is the last page
+   */
+  public ChargingSessionPage(List<ChargingSession> chargingSessions, String nextCursor) {
+    Assert.notNull(chargingSessions, "Expected a valid list of charging sessions.");
+    this.chargingSessions = chargingSessions;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Get the charging sessions on this page.
+   * 
+   * @return current chargingSessions
+   */
+  public List<ChargingSession> getChargingSessions() {
+    return chargingSessions;
+  }
+
+  /**
+   * Get the cursor of the next page.
+   * 
+   * @return current nextCursor or {@code null} if this is the last page
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+}
@@ -0,0 +1,90 @@
+package com.ajai.chargingsession.charging.session;
+
+import org.springframework.http.HttpStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Represents the result of starting or stopping a single charging session of a batch.
+ * <p>
+ * A result carries either the started or stopped charging session, or the error for which the
+ * charging session could not be started or stopped. Its status is the one the equivalent single
+ * request would have been answered with.
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+@ApiModel(description = "Result of starting or stopping a charging session of a batch.")
+@JsonInclude(Include.NON_NULL)
+public class ChargingSessionResult {
+
+  @ApiModelProperty(notes = "HTTP status of this item.")
+  private final int status;
+
+  @ApiModelProperty(notes = "The started or stopped charging session. Absent on an error.")
+  private final ChargingSession chargingSession;
+
+  @ApiModelProperty(notes = "The reason this item failed. Absent on a success.")
+  private final String error;
+
+  private ChargingSessionResult(HttpStatus status, ChargingSession chargingSession,
+      String error) {
+    this.status = status.value();
+    this.chargingSession = chargingSession;
+    this.error = error;
+  }
+
+  /**
+   * Creates a result for a charging session that was started or stopped.
+   * 
+   * @param status the status of the item
+   * @param chargingSession the started or stopped charging session
+   * @return ChargingSessionResult the result of the item.
+   */
+  public static ChargingSessionResult success(HttpStatus status,
+      ChargingSession chargingSession) {
+    return new ChargingSessionResult(status, chargingSession, null);
+  }
+
+  /**
+   * Creates a result for a charging session that could not be started or stopped.
+   * 
+   * @param status the status of the item
+   * @param error the reason the item failed
+   * @return ChargingSessionResult the result of the item.
+   */
+  public static ChargingSessionResult error(HttpStatus status, String error) {
+    return new ChargingSessionResult(status, null, error);
+  }
+
+  /**
+   * Get the HTTP status of this item.
+   * 
+   * @return current status
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Get the started or stopped charging session.
+   * 
+   * @return current chargingSession or {@code null} on an error
+   */
+  public ChargingSession getChargingSession() {
+    return chargingSession;
+  }
+
+  /**
+   * Get the reason this item failed.
+   * 
+   * @return current error or {@code null} on a success
+   */
+  public String getError() {
+    return error;
+  }
+
+}
@@ -9,7 +9,8 @@ import io.swagger.annotations.ApiModelProperty;
 /**
  * Represents a charging session summary.
  * <p>
- * Every object of this type receives the required information in form of a {@link Map}.
+ * Every object of this type receives the required information in form of a {@link Map}, along
+ * with the {@link ChargingSessionDurations} of the stopped charging sessions.
  * </p>
  * 
  * @author ajai
@@ -27,18 +28,34 @@ public class ChargingSessionSummary {
   @ApiModelProperty(notes = "The number of charging sessions terminated.")
   private final long stoppedCount;
 
+  @ApiModelProperty(notes = "The durations of the charging sessions terminated.")
+  private final ChargingSessionDurations durations;
+
   /**
-   * Creates a new instance of a ChargingSessionSummary.
+   * Creates a new instance of a ChargingSessionSummary without durations.
    * 
    * @param summaryMap map with charging session summary information
    */
   public ChargingSessionSummary(Map<StatusEnum, Long> summaryMap) {
+    this(summaryMap, ChargingSessionDurations.EMPTY);
+  }
+
+  /**
+   * Creates a new instance of a ChargingSessionSummary.
+   * 
+   * @param summaryMap map with charging session summary information
+   * @param durations the durations of the stopped charging sessions
+   */
+  public ChargingSessionSummary(Map<StatusEnum, Long> summaryMap,
+      ChargingSessionDurations durations) {
     Assert.notNull(summaryMap, "Expected a valid summary map.");
+    Assert.notNull(durations, "Expected valid durations.");
     this.startedCount =
         summaryMap.get(StatusEnum.IN_PROGRESS) == null ? 0 : summaryMap.get(StatusEnum.IN_PROGRESS);
     this.stoppedCount =
         summaryMap.get(StatusEnum.FINISHED) == null ? 0 : summaryMap.get(StatusEnum.FINISHED);
     this.totalCount = startedCount + stoppedCount;
+    this.durations = durations;
   }
 
   /**
@@ -68,10 +85,19 @@ public class ChargingSessionSummary {
     return stoppedCount;
   }
 
+  /**
+   * Get durations on this object
+   * 
+   * @return current durations
+   */
+  public ChargingSessionDurations getDurations() {
+    return durations;
+  }
+
   public String toString() {
     return new StringBuilder().append("totalCount : ").append(totalCount).append(" this.startedCount : ")
         .append(this.startedCount).append(" this.stoppedCount : ").append(this.stoppedCount)
-        .toString();
+        .append(" this.durations : ").append(this.durations).toString();
   }
 
 }
@@ -0,0 +1,160 @@
+package com.ajai.chargingsession.charging.session;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.util.Assert;
+
+/**
+ * Generator of time-ordered charging session ids, laid out like version 7 UUIDs.
+ *
+ * <p>
+ * The most significant bits of an id are the start date-time of its session in milliseconds since
+ * the epoch, as if the local date-time were in UTC like the store keeps it, the version and a
+ * counter of the ids of the millisecond. The least significant bits are the variant, a number of
+ * the generating thread, the number of the node of the cluster that generated it, a hash of the
+ * stationId of its session and random bits. As a result the ids sort, like {@link UUID}s, in the
+ * order their sessions were started to the millisecond, so they can be used as the ordering key of
+ * the sessions, and both the node and the shard of the store that keep a session can be told from
+ * its id alone.
+ * </p>
+ *
+ * <p>
+ * Every thread keeps its own millisecond and counter, so ids are generated without contention,
+ * unlike {@link UUID#randomUUID()} which draws from a shared {@code SecureRandom}. The ids of a
+ * thread always increase: when the date-time goes backwards or the counter of a millisecond runs
+ * out, the millisecond of the thread is carried forward instead. Together with the number of the
+ * thread that keeps the ids unique.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public final class SessionIdGenerator {
+
+  private static final long VERSION = 0x7000L;
+  private static final long VARIANT = 0x8000_0000_0000_0000L;
+  private static final long COUNTER_LIMIT = 0x0FFFL;
+  private static final int THREAD_SHIFT = 40;
+  private static final long THREAD_MASK = (1L << 22) - 1;
+  private static final int NODE_SHIFT = 32;
+  private static final int STATION_SHIFT = 16;
+  private static final long RANDOM_MASK = (1L << STATION_SHIFT) - 1;
+  private static final long MILLIS_PER_SECOND = 1_000L;
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+
+  /**
+   * The largest number of nodes whose ids can be told apart.
+   */
+  public static final int MAX_NODES = 256;
+
+  /**
+   * The number of distinct hashes of the stationIds the ids carry.
+   */
+  public static final int STATION_HASHES = 1 << 16;
+
+  private static final AtomicInteger THREADS = new AtomicInteger();
+  private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+  private static volatile long node;
+
+  private SessionIdGenerator() {
+    // EMPTY
+  }
+
+  /**
+   * Generates the id of a charging session of the given station started at the given date-time.
+   *
+   * @param startedAt the start date-time of the charging session
+   * @param stationId the id of the station of the charging session
+   * @return UUID the time-ordered id.
+   */
+  public static UUID next(LocalDateTime startedAt, String stationId) {
+    return next(startedAt.toEpochSecond(ZoneOffset.UTC) * MILLIS_PER_SECOND
+        + startedAt.getNano() / NANOS_PER_MILLI, stationId);
+  }
+
+  /**
+   * Generates the id of a charging session of the given station started at the given number of
+   * milliseconds since the epoch.
+   *
+   * @param epochMillis the start date-time of the charging session in milliseconds
+   * @param stationId the id of the station of the charging session
+   * @return UUID the time-ordered id.
+   */
+  public static UUID next(long epochMillis, String stationId) {
+    State state = STATE.get();
+    if (epochMillis > state.millis) {
+      state.millis = epochMillis;
+      state.counter = 0;
+    } else if (state.counter < COUNTER_LIMIT) {
+      state.counter++;
+    } else {
+      state.millis++;
+      state.counter = 0;
+    }
+    return new UUID(state.millis << 16 | VERSION | state.counter,
+        VARIANT | state.thread << THREAD_SHIFT | node << NODE_SHIFT
+            | (long) stationHash(stationId) << STATION_SHIFT
+            | ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+  }
+
+  /**
+   * Sets the number of the node of the cluster that the ids are generated on. It is {@code 0}
+   * unless the application runs in a cluster.
+   *
+   * @param nodeNumber the number of the node
+   *
+   * @throws IllegalArgumentException if the number is negative or not below {@link #MAX_NODES}.
+   */
+  public static void setNode(int nodeNumber) {
+    Assert.isTrue(nodeNumber >= 0 && nodeNumber < MAX_NODES,
+        () -> "The node number should be between 0 and " + (MAX_NODES - 1));
+    node = nodeNumber;
+  }
+
+  /**
+   * Returns the number of the node of the cluster that generated the given id.
+   *
+   * @param id the id of a charging session
+   * @return the number of the node.
+   */
+  public static int nodeOf(UUID id) {
+    return (int) (id.getLeastSignificantBits() >>> NODE_SHIFT & MAX_NODES - 1);
+  }
+
+  /**
+   * Returns the hash of the given stationId that the ids of its charging sessions carry.
+   *
+   * @param stationId the id of a station
+   * @return the hash, between 0 and {@link #STATION_HASHES}, exclusive.
+   */
+  public static int stationHash(String stationId) {
+    int hash = stationId.hashCode();
+    return (hash ^ hash >>> 16) & STATION_HASHES - 1;
+  }
+
+  /**
+   * Returns the hash of the stationId that the given id carries. An id that was not generated here,
+   * such as a random one, still always carries the same hash.
+   *
+   * @param id the id of a charging session
+   * @return the hash, between 0 and {@link #STATION_HASHES}, exclusive.
+   */
+  public static int stationHashOf(UUID id) {
+    return (int) (id.getLeastSignificantBits() >>> STATION_SHIFT & STATION_HASHES - 1);
+  }
+
+  /**
+   * The millisecond and counter of the last id of a thread.
+   */
+  private static final class State {
+
+    private final long thread = THREADS.getAndIncrement() & THREAD_MASK;
+    private long millis = Long.MIN_VALUE;
+    private long counter;
+  }
+
+}
@@ -0,0 +1,627 @@
+package com.ajai.chargingsession.charging.store;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.NoOpChargingSessionJournal;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionDurations;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Compact store for charging sessions.
+ *
+ * <p>
+ * The sessions are not kept as {@link ChargingSession} objects but as rows of primitives in a
+ * struct-of-arrays {@link SessionTable}, with the station ids encoded by a shared
+ * {@link StationDictionary}. The rows are ordered on the time-ordered id of their session, so they
+ * are listed in start order without a separate index, and they are found by id through an index of
+ * row numbers. The {@link ChargingSession} objects are only built when the sessions are read, and
+ * every read returns a consistent copy, so the callers never see a session change. A
+ * {@link StationIndex} keeps the ids of the sessions of every station, so they are found without
+ * scanning the other sessions.
+ * </p>
+ *
+ * <p>
+ * The sessions are partitioned into shards on the hash of their stationId, so starts and stops of
+ * sessions of different stations rarely contend. The ids generated by {@link SessionIdGenerator}
+ * carry that hash, so the shard of a session is found from its id alone, without an index shared
+ * by the shards. An id that was not generated for its station, such as a random one, still always
+ * leads to the same shard. Every shard has its own table, guarded by its own lock, and its own
+ * per-second {@link SessionCounters}, so starts and stops in different shards do not contend with
+ * each other. Listings and summaries fan out
+ * across the shards and merge their results. The durations of the stopped sessions are counted in
+ * {@link SessionDurations} shared by the shards, since a stop only increments one of their
+ * counters.
+ * </p>
+ *
+ * <p>
+ * Every shard counts the sessions added to and stopped in it, and their sum is the version of the
+ * store, so a cached summary can tell whether the store has changed since it was computed.
+ * </p>
+ *
+ * <p>
+ * Every start and stop is appended to the {@link ChargingSessionJournal} before it is applied, so
+ * no reader sees a change that is not durable yet, and a change whose append fails leaves the store
+ * unchanged. A stop is only appended by the caller that reserved the session, so a session is
+ * stopped at most once and a concurrent stop of it waits for the outcome of the reserved one.
+ * Every shard holds a lock in read mode from the append of a change to its application, and a
+ * snapshot takes the journal position while holding all of them in write mode. As a result every
+ * start and stop appended before that position is already reflected in the store, so the snapshot
+ * only needs the journal tail after it and can be written while the writers go on. The
+ * {@code restore} methods apply the recovered charging sessions and stops without appending them
+ * again and ignore the ones that have already been applied.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public class ChargingSessionStore {
+
+  private static final Comparator<ChargingSession> ID_ORDER =
+      Comparator.comparing(ChargingSession::getId);
+
+  private static final Consumer<ChargingSession> NO_CALLBACK = stopped -> {
+    // EMPTY
+  };
+
+  private final StationDictionary stationDictionary;
+  private final StationIndex stationIndex;
+  private final Shard[] shards;
+  private final SessionDurations sessionDurations;
+  private final LongAdder inProgressCount;
+  private final ChargingSessionJournal journal;
+
+  /**
+   * Creates a new empty instance of ChargingSessionStore with a single shard.
+   *
+   * @param summarySeconds the longest summary window in seconds
+   */
+  public ChargingSessionStore(long summarySeconds) {
+    this(summarySeconds, 1);
+  }
+
+  /**
+   * Creates a new empty instance of ChargingSessionStore.
+   *
+   * @param summarySeconds the longest summary window in seconds
+   * @param shardCount the number of shards to partition the sessions into
+   */
+  public ChargingSessionStore(long summarySeconds, int shardCount) {
+    this(summarySeconds, shardCount, NoOpChargingSessionJournal.INSTANCE);
+  }
+
+  /**
+   * Creates a new empty instance of ChargingSessionStore that appends to the given journal.
+   *
+   * @param summarySeconds the longest summary window in seconds
+   * @param shardCount the number of shards to partition the sessions into
+   * @param journal the journal to append the starts and stops to
+   */
+  public ChargingSessionStore(long summarySeconds, int shardCount,
+      ChargingSessionJournal journal) {
+    this(summarySeconds, shardCount, journal, ChargingSessionMetrics.noOp());
+  }
+
+  /**
+   * Creates a new empty instance of ChargingSessionStore that appends to the given journal and
+   * records the locking of its shards in the given meters.
+   *
+   * @param summarySeconds the longest summary window in seconds
+   * @param shardCount the number of shards to partition the sessions into
+   * @param journal the journal to append the starts and stops to
+   * @param metrics the meters of the charging sessions
+   */
+  public ChargingSessionStore(long summarySeconds, int shardCount,
+      ChargingSessionJournal journal, ChargingSessionMetrics metrics) {
+    Assert.isTrue(shardCount > 0, () -> "Invalid number of shards [" + shardCount + "]");
+    stationDictionary = new StationDictionary();
+    stationIndex = new StationIndex();
+    shards = new Shard[shardCount];
+    Arrays.setAll(shards, index -> new Shard(summarySeconds, stationDictionary, metrics));
+    sessionDurations = new SessionDurations(summarySeconds);
+    inProgressCount = new LongAdder();
+    this.journal = journal;
+  }
+
+  /**
+   * Adds a newly started charging session to the store.
+   *
+   * @param chargingSession the charging session to add
+   * @return the added charging session
+   */
+  public ChargingSession add(ChargingSession chargingSession) {
+    Shard shard = shardOf(chargingSession.getId());
+    long stamp = shard.appendLock.readLock();
+    try {
+      journal.started(chargingSession);
+      put(chargingSession);
+    } finally {
+      shard.appendLock.unlockRead(stamp);
+    }
+    return chargingSession;
+  }
+
+  /**
+   * Adds several newly started charging sessions to the store. Their starts are appended to the
+   * journal together, so they share the cost of making them durable.
+   *
+   * @param chargingSessions the charging sessions to add
+   * @return the added charging sessions
+   */
+  public List<ChargingSession> addAll(List<ChargingSession> chargingSessions) {
+    long[] stamps = readLockAll();
+    try {
+      journal.startedAll(chargingSessions);
+      // in id order the rows are appended rather than inserted between the others
+      chargingSessions.stream().sorted(ID_ORDER).forEach(this::put);
+    } finally {
+      unlockReadAll(stamps);
+    }
+    return chargingSessions;
+  }
+
+  /**
+   * Adds a charging session restored from a snapshot or replayed from the journal to the store
+   * without appending it to the journal again. A charging session that is already present is left
+   * unchanged.
+   *
+   * @param chargingSession the charging session to add
+   * @return the charging session in the store
+   */
+  public ChargingSession restore(ChargingSession chargingSession) {
+    return put(chargingSession) ? chargingSession : get(chargingSession.getId());
+  }
+
+  private boolean put(ChargingSession chargingSession) {
+    Shard shard = shardOf(chargingSession.getId());
+    int stationCode = stationDictionary.encode(chargingSession.getStationId());
+    if (!shard.sessionTable.insert(chargingSession, stationCode)) {
+      return false;
+    }
+    stationIndex.add(stationCode, chargingSession.getId());
+    long startNanos = SessionTable.epochNanos(chargingSession.getStartedAt());
+    shard.sessionCounters.started(startNanos);
+    if (chargingSession.getStatus() == StatusEnum.FINISHED) {
+      shard.sessionCounters.stopped(startNanos);
+      sessionDurations.stopped(epochSecond(chargingSession.getStartedAt()),
+          durationMillis(chargingSession));
+    } else {
+      inProgressCount.increment();
+    }
+    // counted after the counters, so a summary of a version reflects at least its changes
+    shard.version.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Returns the charging session with the given id.
+   *
+   * @param chargingSessionId id of the charging session
+   * @return the charging session or {@code null} if no charging session exists for this id.
+   */
+  public ChargingSession get(UUID chargingSessionId) {
+    return shardOf(chargingSessionId).sessionTable.get(chargingSessionId);
+  }
+
+  /**
+   * Atomically stops the charging session with the given id. Stopping a session that is already
+   * {@link StatusEnum#FINISHED} leaves it unchanged.
+   *
+   * @param chargingSessionId id of the charging session to stop
+   * @param stoppedAt the date-time of stoppage
+   * @return the stopped charging session or {@code null} if no charging session exists for this id.
+   */
+  public ChargingSession stop(UUID chargingSessionId, LocalDateTime stoppedAt) {
+    return stop(chargingSessionId, stoppedAt, NO_CALLBACK);
+  }
+
+  /**
+   * Atomically stops the charging session with the given id and passes it to the callback if this
+   * call actually stopped it. Stopping a session that is already {@link StatusEnum#FINISHED} leaves
+   * it unchanged and does not call the callback.
+   *
+   * @param chargingSessionId id of the charging session to stop
+   * @param stoppedAt the date-time of stoppage
+   * @param onStopped the callback to pass the charging session stopped by this call to
+   * @return the stopped charging session or {@code null} if no charging session exists for this id.
+   */
+  public ChargingSession stop(UUID chargingSessionId, LocalDateTime stoppedAt,
+      Consumer<ChargingSession> onStopped) {
+    Shard shard = shardOf(chargingSessionId);
+    ChargingSession chargingSession = reserveStop(shard, chargingSessionId);
+    if (chargingSession == null || chargingSession.getStatus() == StatusEnum.FINISHED) {
+      return chargingSession;
+    }
+    try {
+      finish(chargingSession, stoppedAt);
+      // appended outside of the table's lock, only by the caller that reserved the session
+      long stamp = shard.appendLock.readLock();
+      try {
+        journal.stopped(chargingSession);
+        return applyStop(chargingSessionId, stoppedAt, onStopped);
+      } finally {
+        shard.appendLock.unlockRead(stamp);
+      }
+    } finally {
+      shard.releaseStop(chargingSessionId);
+    }
+  }
+
+  /**
+   * Atomically stops each of the charging sessions with the given ids. The stops are appended to
+   * the journal together, so they share the cost of making them durable.
+   *
+   * @param chargingSessionIds ids of the charging sessions to stop
+   * @param stoppedAt the date-time of stoppage
+   * @return for every id, the stopped charging session or {@code null} if no charging session
+   *         exists for it.
+   */
+  public List<ChargingSession> stopAll(List<UUID> chargingSessionIds, LocalDateTime stoppedAt) {
+    return stopAll(chargingSessionIds, stoppedAt, NO_CALLBACK);
+  }
+
+  /**
+   * Atomically stops each of the charging sessions with the given ids and passes the ones this call
+   * actually stopped to the callback. The stops are appended to the journal together, so they share
+   * the cost of making them durable.
+   *
+   * @param chargingSessionIds ids of the charging sessions to stop
+   * @param stoppedAt the date-time of stoppage
+   * @param onStopped the callback to pass every charging session stopped by this call to
+   * @return for every id, the stopped charging session or {@code null} if no charging session
+   *         exists for it.
+   */
+  public List<ChargingSession> stopAll(List<UUID> chargingSessionIds, LocalDateTime stoppedAt,
+      Consumer<ChargingSession> onStopped) {
+    Map<UUID, ChargingSession> reserved = new TreeMap<>();
+    Map<UUID, ChargingSession> unchanged = new HashMap<>();
+    try {
+      // reserved in id order, so two batches never wait for each other's reservations in a cycle
+      for (UUID chargingSessionId : new TreeSet<>(chargingSessionIds)) {
+        ChargingSession chargingSession =
+            reserveStop(shardOf(chargingSessionId), chargingSessionId);
+        if (chargingSession == null || chargingSession.getStatus() == StatusEnum.FINISHED) {
+          unchanged.put(chargingSessionId, chargingSession);
+        } else {
+          reserved.put(chargingSessionId, finish(chargingSession, stoppedAt));
+        }
+      }
+      if (!reserved.isEmpty()) {
+        long[] stamps = readLockAll();
+        try {
+          journal.stoppedAll(new ArrayList<>(reserved.values()));
+          for (Map.Entry<UUID, ChargingSession> entry : reserved.entrySet()) {
+            entry.setValue(applyStop(entry.getKey(), stoppedAt, onStopped));
+          }
+        } finally {
+          unlockReadAll(stamps);
+        }
+      }
+    } finally {
+      reserved.keySet().forEach(chargingSessionId -> shardOf(chargingSessionId)
+          .releaseStop(chargingSessionId));
+    }
+    List<ChargingSession> chargingSessions = new ArrayList<>(chargingSessionIds.size());
+    for (UUID chargingSessionId : chargingSessionIds) {
+      ChargingSession chargingSession = reserved.get(chargingSessionId);
+      chargingSessions.add(
+          chargingSession != null ? chargingSession : unchanged.get(chargingSessionId));
+    }
+    return chargingSessions;
+  }
+
+  /**
+   * Stops a charging session replayed from the journal without appending the stop to the journal
+   * again.
+   *
+   * @param chargingSessionId id of the charging session to stop
+   * @param stoppedAt the date-time of stoppage
+   * @return the stopped charging session or {@code null} if no charging session exists for this id.
+   */
+  public ChargingSession restoreStopped(UUID chargingSessionId, LocalDateTime stoppedAt) {
+    return applyStop(chargingSessionId, stoppedAt, NO_CALLBACK);
+  }
+
+  /**
+   * Reserves the stop of the charging session with the given id, waiting for a concurrent stop of
+   * it to either complete or fail first. Nothing is reserved if the charging session does not exist
+   * or is already {@link StatusEnum#FINISHED}.
+   *
+   * @return the charging session as it is before the stop or {@code null} if it does not exist.
+   */
+  private ChargingSession reserveStop(Shard shard, UUID chargingSessionId) {
+    while (true) {
+      ChargingSession chargingSession = shard.sessionTable.get(chargingSessionId);
+      if (chargingSession == null || chargingSession.getStatus() == StatusEnum.FINISHED) {
+        return chargingSession;
+      }
+      CountDownLatch pending = shard.stopping.putIfAbsent(chargingSessionId, new CountDownLatch(1));
+      if (pending == null) {
+        // read again, since the previous reservation may have stopped it just before
+        chargingSession = shard.sessionTable.get(chargingSessionId);
+        if (chargingSession.getStatus() == StatusEnum.FINISHED) {
+          shard.releaseStop(chargingSessionId);
+        }
+        return chargingSession;
+      }
+      Uninterruptibles.awaitUninterruptibly(pending);
+    }
+  }
+
+  private static ChargingSession finish(ChargingSession chargingSession, LocalDateTime stoppedAt) {
+    chargingSession.setStoppedAt(stoppedAt);
+    chargingSession.setStatus(StatusEnum.FINISHED);
+    return chargingSession;
+  }
+
+  private ChargingSession applyStop(UUID chargingSessionId, LocalDateTime stoppedAt,
+      Consumer<ChargingSession> onStopped) {
+    Shard shard = shardOf(chargingSessionId);
+    return shard.sessionTable.stop(chargingSessionId, stoppedAt, stoppedChargingSession -> {
+      shard.sessionCounters.stopped(SessionTable.epochNanos(stoppedChargingSession.getStartedAt()));
+      sessionDurations.stopped(epochSecond(stoppedChargingSession.getStartedAt()),
+          durationMillis(stoppedChargingSession));
+      inProgressCount.decrement();
+      shard.version.incrementAndGet();
+      onStopped.accept(stoppedChargingSession);
+    });
+  }
+
+  /**
+   * Writes a snapshot of the charging sessions to the journal. The writers are only paused while
+   * the journal position is taken: the weakly consistent view of the charging sessions that is
+   * iterated afterwards reflects at least every start and stop appended before it.
+   */
+  public void snapshot() {
+    long[] stamps = new long[shards.length];
+    for (int index = 0; index < shards.length; index++) {
+      stamps[index] = shards[index].appendLock.writeLock();
+    }
+    long position;
+    try {
+      // no change is between its append and its application while all the locks are held
+      position = journal.position();
+    } finally {
+      for (int index = 0; index < shards.length; index++) {
+        shards[index].appendLock.unlockWrite(stamps[index]);
+      }
+    }
+    journal.snapshot(position, getChargingSessions());
+  }
+
+  /**
+   * Returns a weakly consistent view of all the charging sessions ordered on their id.
+   *
+   * @return Iterable of charging sessions.
+   */
+  public Iterable<ChargingSession> getChargingSessions() {
+    return getChargingSessions(null);
+  }
+
+  /**
+   * Returns a weakly consistent view of the charging sessions that come after the given cursor,
+   * ordered on their id. Nothing is copied, so the sessions can be paged through or
+   * streamed without materializing all of them.
+   *
+   * @param after the cursor to start after or {@code null} to start from the first session
+   * @return Iterable of charging sessions.
+   */
+  public Iterable<ChargingSession> getChargingSessions(SessionCursor after) {
+    if (shards.length == 1) {
+      return shards[0].sessionTable.getChargingSessions(after);
+    }
+    return Iterables.mergeSorted(Iterables.transform(Arrays.asList(shards),
+        shard -> shard.sessionTable.getChargingSessions(after)), ID_ORDER);
+  }
+
+  /**
+   * Returns the charging sessions of a station ordered on their id. The sessions are found
+   * through the index of the station, so the cost depends on the number of sessions of the station
+   * only. A session added while the station is looked up may be left out.
+   *
+   * @param stationId the id of the station
+   * @param status the status of the charging sessions to return or {@code null} for all of them
+   * @return {@code List<ChargingSession>} the charging sessions of the station.
+   */
+  public List<ChargingSession> getChargingSessions(String stationId, StatusEnum status) {
+    int stationCode = stationDictionary.find(stationId);
+    if (stationCode < 0) {
+      return Collections.emptyList();
+    }
+    UUID[] chargingSessionIds = stationIndex.get(stationCode);
+    List<ChargingSession> chargingSessions = new ArrayList<>(chargingSessionIds.length);
+    for (UUID chargingSessionId : chargingSessionIds) {
+      ChargingSession chargingSession = get(chargingSessionId);
+      // a session is indexed just after its row is inserted, so it is always found
+      if (status == null || chargingSession.getStatus() == status) {
+        chargingSessions.add(chargingSession);
+      }
+    }
+    chargingSessions.sort(ID_ORDER);
+    return chargingSessions;
+  }
+
+  /**
+   * Returns a summary of the charging sessions started from the given number of seconds ago
+   * categorized according to the charging status. The window starts exactly that many seconds
+   * before the given date-time and ends just before it. The cost of a summary does not depend on
+   * the number of charging sessions, only on the number started and stopped in its oldest and
+   * current second, see {@link SessionCounters}.
+   *
+   * @param now the current date-time
+   * @param seconds the number of seconds ago
+   * @return {@code Map<StatusEnum, Long>} summary of the charging sessions
+   */
+  public Map<StatusEnum, Long> getSummary(LocalDateTime now, long seconds) {
+    return getSummary(SessionTable.epochNanos(now), seconds);
+  }
+
+  /**
+   * Returns a summary of the charging sessions started from the given number of seconds ago
+   * categorized according to the charging status.
+   *
+   * @param nowNanos the current date-time in nanoseconds since the epoch
+   * @param seconds the number of seconds ago
+   * @return {@code Map<StatusEnum, Long>} summary of the charging sessions
+   */
+  public Map<StatusEnum, Long> getSummary(long nowNanos, long seconds) {
+    long[] counts = new long[StatusEnum.values().length];
+    for (Shard shard : shards) {
+      shard.sessionCounters.accumulate(nowNanos, seconds, counts);
+    }
+    return SessionCounters.toSummary(counts);
+  }
+
+  /**
+   * Returns the distribution of the durations of the charging sessions started from the given
+   * number of seconds ago that have been stopped. Its cost does not depend on the number of
+   * charging sessions.
+   *
+   * @param nowEpochSecond the current date-time in seconds since the epoch
+   * @param seconds the number of seconds ago
+   * @return ChargingSessionDurations the durations of the stopped charging sessions
+   */
+  public ChargingSessionDurations getDurations(long nowEpochSecond, long seconds) {
+    return sessionDurations.summarize(nowEpochSecond, seconds);
+  }
+
+  /**
+   * Returns the version of the store, the number of charging sessions that have been added to or
+   * stopped in it. The summaries computed after reading a version reflect at least the changes it
+   * counts, so a summary can be reused as long as the version has not changed.
+   *
+   * @return version of the store.
+   */
+  public long getVersion() {
+    long version = 0;
+    for (Shard shard : shards) {
+      version += shard.version.get();
+    }
+    return version;
+  }
+
+  /**
+   * Returns the number of charging sessions in the store.
+   *
+   * @return number of charging sessions.
+   */
+  public int size() {
+    int size = 0;
+    for (Shard shard : shards) {
+      size += shard.sessionTable.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of charging sessions in the store that are {@link StatusEnum#IN_PROGRESS}.
+   *
+   * @return number of charging sessions in progress.
+   */
+  public long getInProgressCount() {
+    return inProgressCount.sum();
+  }
+
+  /**
+   * Returns an estimate of the memory retained by the charging sessions in the store.
+   *
+   * @return estimated number of bytes.
+   */
+  public long getEstimatedMemoryBytes() {
+    long estimatedMemoryBytes =
+        stationDictionary.getEstimatedMemoryBytes() + stationIndex.getEstimatedMemoryBytes()
+            + sessionDurations.getEstimatedMemoryBytes();
+    for (Shard shard : shards) {
+      estimatedMemoryBytes += shard.sessionTable.getEstimatedMemoryBytes();
+    }
+    return estimatedMemoryBytes;
+  }
+
+  /**
+   * Returns the number of shards the sessions are partitioned into.
+   *
+   * @return number of shards.
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  /**
+   * Locks the shards in read mode in the order the snapshots lock them in write mode, for a batch
+   * that may change sessions in any of them.
+   */
+  private long[] readLockAll() {
+    long[] stamps = new long[shards.length];
+    for (int index = 0; index < shards.length; index++) {
+      stamps[index] = shards[index].appendLock.readLock();
+    }
+    return stamps;
+  }
+
+  private void unlockReadAll(long[] stamps) {
+    for (int index = 0; index < shards.length; index++) {
+      shards[index].appendLock.unlockRead(stamps[index]);
+    }
+  }
+
+  private Shard shardOf(UUID chargingSessionId) {
+    return shards[SessionIdGenerator.stationHashOf(chargingSessionId) % shards.length];
+  }
+
+  private static long epochSecond(LocalDateTime dateTime) {
+    return dateTime.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  private static long durationMillis(ChargingSession chargingSession) {
+    return Duration.between(chargingSession.getStartedAt(), chargingSession.getStoppedAt())
+        .toMillis();
+  }
+
+  /**
+   * A partition of the sessions with its own table, counters and version.
+   */
+  private static final class Shard {
+
+    private final SessionTable sessionTable;
+    private final SessionCounters sessionCounters;
+    private final AtomicLong version = new AtomicLong();
+    // held in read mode from the append of a change to its application
+    private final StampedLock appendLock = new StampedLock();
+    // the sessions whose stop is being appended, with the latch their other stops wait on
+    private final Map<UUID, CountDownLatch> stopping = new ConcurrentHashMap<>();
+
+    private Shard(long summarySeconds, StationDictionary stationDictionary,
+        ChargingSessionMetrics metrics) {
+      sessionTable = new SessionTable(stationDictionary, metrics);
+      sessionCounters = new SessionCounters(summarySeconds);
+    }
+
+    private void releaseStop(UUID chargingSessionId) {
+      stopping.remove(chargingSessionId).countDown();
+    }
+  }
+
+}
@@ -0,0 +1,245 @@
+package com.ajai.chargingsession.charging.store;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Per-second counters of the charging sessions categorized according to the charging status.
+ *
+ * <p>
+ * The counters are kept in a ring of buckets, one bucket per second of start time, that is sized
+ * to the longest summary window. A bucket is recycled once its second falls out of that window, so
+ * the number of buckets and the cost of adding up the whole seconds of a summary stay fixed
+ * regardless of the number of sessions.
+ * </p>
+ *
+ * <p>
+ * A summary over the last {@code n} seconds covers the sessions started from exactly {@code n}
+ * seconds before the current date-time, inclusive, up to the current date-time, exclusive, like a
+ * sub map of the start date-times would. The seconds in between are added up from their counts.
+ * The window only covers part of the oldest second and of the current second, unless it starts on
+ * a whole second, so every bucket also keeps the nanosecond of the second of its starts and stops,
+ * and those two buckets are counted exactly from them.
+ * </p>
+ *
+ * <p>
+ * That exactness has a cost that grows with the rate of the sessions rather than with their
+ * number. A bucket keeps an {@code int} for every start and stop of its second, so the memory of
+ * the ring grows with the number of sessions per second, and a summary scans the nanoseconds of
+ * the oldest and the current second, so its cost does too. Every start and stop also takes the
+ * monitor of the bucket of its second to record its nanosecond, so the starts and stops of a
+ * second in the same {@link ChargingSessionStore} shard briefly contend on it. Counting the
+ * partial seconds from fixed sub-buckets, for example per millisecond, would make both fixed, but
+ * would round the ends of the window to those sub-buckets.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public class SessionCounters {
+
+  private static final int NANOS_PER_SECOND = 1_000_000_000;
+
+  private final long maxSeconds;
+  private final AtomicReferenceArray<Bucket> buckets;
+
+  /**
+   * Creates a new instance of SessionCounters able to summarize up to the given number of seconds.
+   *
+   * @param maxSeconds the longest summary window in seconds
+   */
+  public SessionCounters(long maxSeconds) {
+    Assert.isTrue(maxSeconds > 0 && maxSeconds < Integer.MAX_VALUE - 2,
+        () -> "Invalid summary window of [" + maxSeconds + "] seconds");
+    this.maxSeconds = maxSeconds;
+    // the window plus the current second and one spare bucket that can be recycled while a summary
+    // of the full window is being read
+    this.buckets = new AtomicReferenceArray<>((int) maxSeconds + 2);
+  }
+
+  /**
+   * Counts a charging session started at the given date-time.
+   *
+   * @param startNanos the date-time the charging session was started at in nanoseconds since the
+   *        epoch
+   */
+  public void started(long startNanos) {
+    Bucket bucket = bucketOf(Math.floorDiv(startNanos, NANOS_PER_SECOND), true);
+    if (bucket != null) {
+      bucket.started(nanoOfSecond(startNanos));
+    }
+  }
+
+  /**
+   * Moves a charging session started at the given date-time from the
+   * {@link StatusEnum#IN_PROGRESS} to the {@link StatusEnum#FINISHED} count. Sessions that were
+   * started before the longest summary window are no longer counted.
+   *
+   * @param startNanos the date-time the charging session was started at in nanoseconds since the
+   *        epoch
+   */
+  public void stopped(long startNanos) {
+    Bucket bucket = bucketOf(Math.floorDiv(startNanos, NANOS_PER_SECOND), false);
+    if (bucket != null) {
+      bucket.stopped(nanoOfSecond(startNanos));
+    }
+  }
+
+  /**
+   * Returns the counts of the charging sessions started from the given number of seconds ago.
+   *
+   * @param nowNanos the current date-time in nanoseconds since the epoch
+   * @param seconds the number of seconds ago
+   * @return {@code Map<StatusEnum, Long>} with the non-zero counts
+   */
+  public Map<StatusEnum, Long> summarize(long nowNanos, long seconds) {
+    long[] counts = new long[StatusEnum.values().length];
+    accumulate(nowNanos, seconds, counts);
+    return toSummary(counts);
+  }
+
+  /**
+   * Adds the counts of the charging sessions started from the given number of seconds ago to the
+   * given array, which is indexed on the {@link StatusEnum#ordinal()}. This allows the counts of
+   * several instances to be merged without intermediate maps.
+   *
+   * @param nowNanos the current date-time in nanoseconds since the epoch
+   * @param seconds the number of seconds ago
+   * @param counts the counts to add to
+   */
+  public void accumulate(long nowNanos, long seconds, long[] counts) {
+    Assert.isTrue(seconds > 0 && seconds <= maxSeconds,
+        () -> "Cannot summarize [" + seconds + "] seconds, only 1 to [" + maxSeconds + "]");
+
+    long nowEpochSecond = Math.floorDiv(nowNanos, NANOS_PER_SECOND);
+    int nanoOfSecond = nanoOfSecond(nowNanos);
+    // the oldest second from the nanosecond of now on, the whole seconds after it and the current
+    // second up to the nanosecond of now
+    accumulate(nowEpochSecond - seconds, nanoOfSecond, NANOS_PER_SECOND, counts);
+    for (long second = nowEpochSecond - seconds + 1; second < nowEpochSecond; second++) {
+      accumulate(second, 0, NANOS_PER_SECOND, counts);
+    }
+    accumulate(nowEpochSecond, 0, nanoOfSecond, counts);
+  }
+
+  private void accumulate(long epochSecond, int fromNanoOfSecond, int toNanoOfSecond,
+      long[] counts) {
+    if (fromNanoOfSecond == toNanoOfSecond) {
+      return;
+    }
+    Bucket bucket = bucketOf(epochSecond, false);
+    if (bucket == null) {
+      return;
+    }
+    if (fromNanoOfSecond == 0 && toNanoOfSecond == NANOS_PER_SECOND) {
+      counts[StatusEnum.IN_PROGRESS.ordinal()] += bucket.inProgress.sum();
+      counts[StatusEnum.FINISHED.ordinal()] += bucket.finished.sum();
+    } else {
+      bucket.accumulate(fromNanoOfSecond, toNanoOfSecond, counts);
+    }
+  }
+
+  /**
+   * Converts the counts indexed on the {@link StatusEnum#ordinal()} to a summary.
+   *
+   * @param counts the counts per status
+   * @return {@code Map<StatusEnum, Long>} with the non-zero counts
+   */
+  public static Map<StatusEnum, Long> toSummary(long[] counts) {
+    Map<StatusEnum, Long> summary = new EnumMap<>(StatusEnum.class);
+    for (StatusEnum status : StatusEnum.values()) {
+      if (counts[status.ordinal()] > 0) {
+        summary.put(status, counts[status.ordinal()]);
+      }
+    }
+    return ImmutableMap.copyOf(summary);
+  }
+
+  private Bucket bucketOf(long epochSecond, boolean create) {
+    int index = (int) Math.floorMod(epochSecond, (long) buckets.length());
+    while (true) {
+      Bucket bucket = buckets.get(index);
+      if (bucket != null && bucket.epochSecond == epochSecond) {
+        return bucket;
+      }
+      if (!create || (bucket != null && bucket.epochSecond > epochSecond)) {
+        // either only looking up or the second has already been recycled
+        return null;
+      }
+      Bucket newBucket = new Bucket(epochSecond);
+      if (buckets.compareAndSet(index, bucket, newBucket)) {
+        return newBucket;
+      }
+    }
+  }
+
+  private static int nanoOfSecond(long epochNanos) {
+    return (int) Math.floorMod(epochNanos, NANOS_PER_SECOND);
+  }
+
+  /**
+   * The counts of a second, along with the nanosecond of the second every session counted in it
+   * was started at, once for its start and once for its stop.
+   */
+  private static final class Bucket {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long epochSecond;
+    private final LongAdder inProgress = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+
+    // guarded by the bucket
+    private int[] startNanos = new int[INITIAL_CAPACITY];
+    private int starts;
+    private int[] stopNanos = new int[INITIAL_CAPACITY];
+    private int stops;
+
+    private Bucket(long epochSecond) {
+      this.epochSecond = epochSecond;
+    }
+
+    private synchronized void started(int nanoOfSecond) {
+      if (starts == startNanos.length) {
+        startNanos = Arrays.copyOf(startNanos, starts << 1);
+      }
+      startNanos[starts++] = nanoOfSecond;
+      inProgress.increment();
+    }
+
+    private synchronized void stopped(int nanoOfSecond) {
+      if (stops == stopNanos.length) {
+        stopNanos = Arrays.copyOf(stopNanos, stops << 1);
+      }
+      stopNanos[stops++] = nanoOfSecond;
+      finished.increment();
+      inProgress.decrement();
+    }
+
+    // counts the sessions started from the first nanosecond of the second up to the second one
+    private synchronized void accumulate(int fromNanoOfSecond, int toNanoOfSecond,
+        long[] counts) {
+      long started = count(startNanos, starts, fromNanoOfSecond, toNanoOfSecond);
+      long stopped = count(stopNanos, stops, fromNanoOfSecond, toNanoOfSecond);
+      counts[StatusEnum.IN_PROGRESS.ordinal()] += started - stopped;
+      counts[StatusEnum.FINISHED.ordinal()] += stopped;
+    }
+
+    private static long count(int[] nanos, int size, int fromNanoOfSecond, int toNanoOfSecond) {
+      long count = 0;
+      for (int index = 0; index < size; index++) {
+        if (nanos[index] >= fromNanoOfSecond && nanos[index] < toNanoOfSecond) {
+          count++;
+        }
+      }
+      return count;
+    }
+  }
+
+}
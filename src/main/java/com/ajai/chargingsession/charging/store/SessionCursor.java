@@ -0,0 +1,65 @@
+package com.ajai.chargingsession.charging.store;
+
+import java.util.UUID;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+
+/**
+ * Represents a position in the id ordered charging sessions.
+ *
+ * <p>
+ * The ids of the charging sessions are time-ordered, so the id of a charging session alone
+ * identifies its position. The string form of a cursor is the id.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public final class SessionCursor {
+
+  private final UUID id;
+
+  private SessionCursor(UUID id) {
+    this.id = id;
+  }
+
+  /**
+   * Creates a cursor positioned at the given charging session.
+   *
+   * @param chargingSession the charging session
+   * @return SessionCursor positioned at the charging session.
+   */
+  public static SessionCursor of(ChargingSession chargingSession) {
+    return new SessionCursor(chargingSession.getId());
+  }
+
+  /**
+   * Parses a cursor from its string form.
+   *
+   * @param cursor the string form of the cursor
+   * @return SessionCursor parsed from the string.
+   *
+   * @throws IllegalArgumentException if the string is not a valid cursor.
+   */
+  public static SessionCursor parse(String cursor) {
+    try {
+      return new SessionCursor(UUID.fromString(cursor));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor [" + cursor + "] received", e);
+    }
+  }
+
+  /**
+   * Gets the id of the charging session this cursor is positioned at.
+   *
+   * @return current id
+   */
+  public UUID getId() {
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    return id.toString();
+  }
+
+}
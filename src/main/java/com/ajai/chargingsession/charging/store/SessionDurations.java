@@ -0,0 +1,195 @@
+package com.ajai.chargingsession.charging.store;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.session.ChargingSessionDurations;
+
+/**
+ * Per-second histograms of the durations of the stopped charging sessions.
+ *
+ * <p>
+ * Like the {@link SessionCounters}, the histograms are kept in a ring of buckets, one bucket per
+ * second of start time, that is sized to the longest summary window, so a duration is counted in
+ * the bucket of the second its session was started in. A bucket is only created once a session
+ * started in its second is stopped, and is recycled once its second falls out of the window.
+ * </p>
+ *
+ * <p>
+ * Every bucket holds a log-linear histogram of a fixed number of counters, like HdrHistogram does:
+ * the durations up to 64 milliseconds have a counter each, and every following power of two is
+ * split into 32 counters, so the durations are counted to within 1/32 of their value. Durations of
+ * more than 2^40 milliseconds, some 35 years, are counted as 2^40 milliseconds. Next to the
+ * histogram a bucket keeps the exact sum and maximum of its durations. A summary merges the
+ * histograms of the buckets of its window, so its cost does not depend on the number of sessions.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public class SessionDurations {
+
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+  private static final int MAX_MAGNITUDE = 40;
+  private static final long MAX_DURATION_MILLIS = (1L << MAX_MAGNITUDE) - 1;
+  private static final int COUNTER_COUNT =
+      SUB_BUCKET_COUNT + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+  // approximate retained size of a bucket: the counters, the adder, the accumulator and headers
+  private static final long BYTES_PER_BUCKET = 8L * COUNTER_COUNT + 128;
+
+  private final long maxSeconds;
+  private final AtomicReferenceArray<Bucket> buckets;
+
+  /**
+   * Creates a new instance of SessionDurations able to summarize up to the given number of seconds.
+   *
+   * @param maxSeconds the longest summary window in seconds
+   */
+  public SessionDurations(long maxSeconds) {
+    Assert.isTrue(maxSeconds > 0 && maxSeconds < Integer.MAX_VALUE - 2,
+        () -> "Invalid summary window of [" + maxSeconds + "] seconds");
+    this.maxSeconds = maxSeconds;
+    // the window plus the current second and one spare bucket, like the counters
+    this.buckets = new AtomicReferenceArray<>((int) maxSeconds + 2);
+  }
+
+  /**
+   * Counts the duration of a charging session started in the given second that has been stopped.
+   * Sessions that were started before the longest summary window are no longer counted.
+   *
+   * @param startEpochSecond the second in which the charging session was started
+   * @param durationMillis the duration of the charging session in milliseconds
+   */
+  public void stopped(long startEpochSecond, long durationMillis) {
+    Bucket bucket = bucketOf(startEpochSecond, true);
+    if (bucket != null) {
+      long duration = Math.min(Math.max(durationMillis, 0), MAX_DURATION_MILLIS);
+      bucket.counts.incrementAndGet(indexOf(duration));
+      bucket.totalMillis.add(duration);
+      bucket.maxMillis.accumulate(duration);
+    }
+  }
+
+  /**
+   * Returns the distribution of the durations of the charging sessions started from the given
+   * number of seconds ago that have been stopped.
+   *
+   * @param nowEpochSecond the current second
+   * @param seconds the number of seconds ago
+   * @return ChargingSessionDurations the durations, {@link ChargingSessionDurations#EMPTY} if none
+   *         of the charging sessions has been stopped.
+   */
+  public ChargingSessionDurations summarize(long nowEpochSecond, long seconds) {
+    Assert.isTrue(seconds <= maxSeconds,
+        () -> "Cannot summarize more than [" + maxSeconds + "] seconds");
+
+    long[] counts = new long[COUNTER_COUNT];
+    long count = 0;
+    long totalMillis = 0;
+    long maxMillis = 0;
+    for (long second = nowEpochSecond - seconds; second <= nowEpochSecond; second++) {
+      Bucket bucket = bucketOf(second, false);
+      if (bucket != null) {
+        for (int index = 0; index < COUNTER_COUNT; index++) {
+          long bucketCount = bucket.counts.get(index);
+          counts[index] += bucketCount;
+          count += bucketCount;
+        }
+        totalMillis += bucket.totalMillis.sum();
+        maxMillis = Math.max(maxMillis, bucket.maxMillis.get());
+      }
+    }
+    if (count == 0) {
+      return ChargingSessionDurations.EMPTY;
+    }
+    return new ChargingSessionDurations(totalMillis / count,
+        valueAtPercentile(counts, count, 50, maxMillis),
+        valueAtPercentile(counts, count, 90, maxMillis),
+        valueAtPercentile(counts, count, 99, maxMillis), maxMillis);
+  }
+
+  /**
+   * Returns an estimate of the memory retained by the histograms.
+   *
+   * @return estimated number of bytes.
+   */
+  public long getEstimatedMemoryBytes() {
+    long estimatedMemoryBytes = 4L * buckets.length();
+    for (int index = 0; index < buckets.length(); index++) {
+      if (buckets.get(index) != null) {
+        estimatedMemoryBytes += BYTES_PER_BUCKET;
+      }
+    }
+    return estimatedMemoryBytes;
+  }
+
+  private static long valueAtPercentile(long[] counts, long count, int percentile,
+      long maxMillis) {
+    // the smallest duration that at least the given percentage of the durations do not exceed
+    long rank = Math.max(1, (count * percentile + 99) / 100);
+    long cumulativeCount = 0;
+    for (int index = 0; index < COUNTER_COUNT; index++) {
+      cumulativeCount += counts[index];
+      if (cumulativeCount >= rank) {
+        return Math.min(highestValueOf(index), maxMillis);
+      }
+    }
+    return maxMillis;
+  }
+
+  private static int indexOf(long durationMillis) {
+    if (durationMillis < SUB_BUCKET_COUNT) {
+      return (int) durationMillis;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(durationMillis);
+    int shift = magnitude - SUB_BUCKET_BITS + 1;
+    return SUB_BUCKET_COUNT + (magnitude - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT
+        + (int) (durationMillis >>> shift) - SUB_BUCKET_HALF_COUNT;
+  }
+
+  private static long highestValueOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int magnitude = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + SUB_BUCKET_BITS;
+    int shift = magnitude - SUB_BUCKET_BITS + 1;
+    long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  private Bucket bucketOf(long epochSecond, boolean create) {
+    int index = (int) Math.floorMod(epochSecond, (long) buckets.length());
+    while (true) {
+      Bucket bucket = buckets.get(index);
+      if (bucket != null && bucket.epochSecond == epochSecond) {
+        return bucket;
+      }
+      if (!create || (bucket != null && bucket.epochSecond > epochSecond)) {
+        // either only looking up or the second has already been recycled
+        return null;
+      }
+      Bucket newBucket = new Bucket(epochSecond);
+      if (buckets.compareAndSet(index, bucket, newBucket)) {
+        return newBucket;
+      }
+    }
+  }
+
+  private static final class Bucket {
+
+    private final long epochSecond;
+    private final AtomicLongArray counts = new AtomicLongArray(COUNTER_COUNT);
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+
+    private Bucket(long epochSecond) {
+      this.epochSecond = epochSecond;
+    }
+  }
+
+}
@@ -0,0 +1,481 @@
+package com.ajai.chargingsession.charging.store;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+
+/**
+ * Struct-of-arrays table of charging sessions.
+ *
+ * <p>
+ * Every session is a row spread over primitive columns: the id as its two halves, the start and
+ * stop date-times as nanoseconds since the epoch, the station id as its {@link StationDictionary}
+ * code and the status as its ordinal. The columns are allocated in fixed size pages, so the table
+ * grows without copying the rows. A session takes 37 bytes of columns and, on average, 12 bytes
+ * of the id index, instead of the hundreds of bytes of a {@link ChargingSession} with its
+ * {@link UUID} and {@link LocalDateTime} objects and the map entries that hold it. The
+ * {@link ChargingSession} objects are only built when a session is read.
+ * </p>
+ *
+ * <p>
+ * The rows are kept ordered on the id of their session. The ids are time-ordered, see
+ * {@link com.ajai.chargingsession.charging.session.SessionIdGenerator}, so that is the order the
+ * sessions were started in, and the sessions can be listed from any position with a binary search
+ * on the id alone. Sessions are almost always added in that order, so a new row is nearly always
+ * appended, and otherwise only the few rows after it are shifted. A row is only cheap to insert in
+ * id order: a session whose id sorts before most of the rows, such as one with a random
+ * {@link UUID} restored from a journal written before the ids were time-ordered, shifts every row
+ * after it, so adding such sessions takes time quadratic in their number. An open addressing index
+ * of row numbers, probed on the hash of the id, finds the row of a session that has to be
+ * stopped.
+ * </p>
+ *
+ * <p>
+ * The rows are written under the write lock of a {@link StampedLock}. Listings read the rows with
+ * an optimistic read that is validated after the primitives are copied out and only retried under
+ * the read lock if a write intervened, so they hardly ever hold up the writers. The time waited
+ * for and holding the write lock and the reads that had to be retried are recorded in the
+ * {@link ChargingSessionMetrics}, so contention on the lock shows up in the meters.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+final class SessionTable {
+
+  private static final int PAGE_SHIFT = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+  private static final long PAGE_BYTES = 37L * PAGE_SIZE;
+
+  private static final int INITIAL_INDEX_CAPACITY = 1 << 8;
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final StatusEnum[] STATUSES = StatusEnum.values();
+
+  private final StationDictionary stationDictionary;
+  private final StampedLock lock;
+  private final ChargingSessionMetrics metrics;
+
+  // both are published after the rows they cover are written
+  private volatile Page[] pages;
+  private volatile int size;
+  // row number + 1 of the session in every slot, 0 for an empty slot
+  private int[] index;
+  private int indexShift;
+
+  SessionTable(StationDictionary stationDictionary, ChargingSessionMetrics metrics) {
+    this.stationDictionary = stationDictionary;
+    this.metrics = metrics;
+    lock = new StampedLock();
+    pages = new Page[0];
+    index = new int[INITIAL_INDEX_CAPACITY];
+    indexShift = Integer.SIZE - Integer.numberOfTrailingZeros(INITIAL_INDEX_CAPACITY);
+  }
+
+  /**
+   * Adds a charging session to the table unless a session with the same id is present. The rows
+   * after its id are shifted, so this is only cheap for a session whose id sorts after nearly all
+   * of the rows.
+   *
+   * @param chargingSession the charging session to add
+   * @param stationCode the dictionary code of the station id of the session
+   * @return {@code true} if the session was added.
+   */
+  boolean insert(ChargingSession chargingSession, int stationCode) {
+    UUID id = chargingSession.getId();
+    long mostSignificantBits = id.getMostSignificantBits();
+    long leastSignificantBits = id.getLeastSignificantBits();
+    long startNanos = epochNanos(chargingSession.getStartedAt());
+    long stopNanos = chargingSession.getStoppedAt() == null ? 0
+        : epochNanos(chargingSession.getStoppedAt());
+    byte status = (byte) chargingSession.getStatus().ordinal();
+
+    long lockStartNanos = System.nanoTime();
+    long stamp = lock.writeLock();
+    long lockedNanos = System.nanoTime();
+    try {
+      if (find(mostSignificantBits, leastSignificantBits) >= 0) {
+        return false;
+      }
+      int currentSize = size;
+      if (currentSize + 1 > index.length >>> 1) {
+        rehash(index.length << 1);
+      }
+      Page[] currentPages = pages;
+      if (currentSize == currentPages.length << PAGE_SHIFT) {
+        currentPages = Arrays.copyOf(currentPages, currentPages.length + 1);
+        currentPages[currentPages.length - 1] = new Page();
+        pages = currentPages;
+      }
+      int row = currentSize;
+      if (row > 0
+          && compare(currentPages, row - 1, mostSignificantBits, leastSignificantBits) > 0) {
+        row = upperBound(currentPages, currentSize, mostSignificantBits, leastSignificantBits);
+        for (int from = currentSize - 1; from >= row; from--) {
+          copy(from, from + 1);
+          reindex(from, from + 1);
+        }
+      }
+      write(row, mostSignificantBits, leastSignificantBits, startNanos, stopNanos, stationCode,
+          status);
+      index[freeSlot(mostSignificantBits, leastSignificantBits)] = row + 1;
+      size = currentSize + 1;
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+      // recorded outside of the lock, so the timers do not add to the time it is held
+      metrics.tableLocked(lockedNanos - lockStartNanos, System.nanoTime() - lockedNanos);
+    }
+  }
+
+  /**
+   * Returns the charging session with the given id.
+   *
+   * @param id id of the charging session
+   * @return the charging session or {@code null} if no charging session exists for this id.
+   */
+  ChargingSession get(UUID id) {
+    long stamp = lock.readLock();
+    try {
+      int row = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+      return row < 0 ? null : read(row);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Atomically stops the charging session with the given id. Stopping a session that is already
+   * {@link StatusEnum#FINISHED} leaves it unchanged.
+   *
+   * @param id id of the charging session to stop
+   * @param stoppedAt the date-time of stoppage
+   * @param onStopped called with the stopped session while the row is locked, only if the session
+   *        was in progress
+   * @return the stopped charging session or {@code null} if no charging session exists for this id.
+   */
+  ChargingSession stop(UUID id, LocalDateTime stoppedAt, Consumer<ChargingSession> onStopped) {
+    long stopNanos = epochNanos(stoppedAt);
+    long lockStartNanos = System.nanoTime();
+    long stamp = lock.writeLock();
+    long lockedNanos = System.nanoTime();
+    try {
+      int row = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+      if (row < 0) {
+        return null;
+      }
+      Page page = pages[row >>> PAGE_SHIFT];
+      int offset = row & PAGE_MASK;
+      if (page.statuses[offset] == StatusEnum.FINISHED.ordinal()) {
+        return read(row);
+      }
+      page.stopNanos[offset] = stopNanos;
+      page.statuses[offset] = (byte) StatusEnum.FINISHED.ordinal();
+      ChargingSession chargingSession = read(row);
+      onStopped.accept(chargingSession);
+      return chargingSession;
+    } finally {
+      lock.unlockWrite(stamp);
+      // recorded outside of the lock, so the timers do not add to the time it is held
+      metrics.tableLocked(lockedNanos - lockStartNanos, System.nanoTime() - lockedNanos);
+    }
+  }
+
+  /**
+   * Returns a weakly consistent view of the charging sessions that come after the given cursor,
+   * ordered on their id.
+   *
+   * @param after the cursor to start after or {@code null} to start from the first session
+   * @return Iterable of charging sessions.
+   */
+  Iterable<ChargingSession> getChargingSessions(SessionCursor after) {
+    return () -> after == null ? new RowIterator() : new RowIterator(after.getId());
+  }
+
+  /**
+   * Returns the number of charging sessions in the table.
+   *
+   * @return number of charging sessions.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns an estimate of the memory retained by the columns and the index of the table.
+   *
+   * @return estimated number of bytes.
+   */
+  long getEstimatedMemoryBytes() {
+    long stamp = lock.readLock();
+    try {
+      return PAGE_BYTES * pages.length + 4L * index.length;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private int find(long mostSignificantBits, long leastSignificantBits) {
+    int mask = index.length - 1;
+    for (int slot = slotOf(mostSignificantBits, leastSignificantBits);; slot = (slot + 1) & mask) {
+      int row = index[slot] - 1;
+      if (row < 0) {
+        return -1;
+      }
+      Page page = pages[row >>> PAGE_SHIFT];
+      int offset = row & PAGE_MASK;
+      if (page.mostSignificantBits[offset] == mostSignificantBits
+          && page.leastSignificantBits[offset] == leastSignificantBits) {
+        return row;
+      }
+    }
+  }
+
+  private int freeSlot(long mostSignificantBits, long leastSignificantBits) {
+    int mask = index.length - 1;
+    int slot = slotOf(mostSignificantBits, leastSignificantBits);
+    while (index[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  // points the slot of the session that moved from one row to another at its new row
+  private void reindex(int from, int to) {
+    Page page = pages[to >>> PAGE_SHIFT];
+    int offset = to & PAGE_MASK;
+    int mask = index.length - 1;
+    int slot = slotOf(page.mostSignificantBits[offset], page.leastSignificantBits[offset]);
+    while (index[slot] != from + 1) {
+      slot = (slot + 1) & mask;
+    }
+    index[slot] = to + 1;
+  }
+
+  private void rehash(int capacity) {
+    index = new int[capacity];
+    indexShift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+    for (int row = 0; row < size; row++) {
+      Page page = pages[row >>> PAGE_SHIFT];
+      int offset = row & PAGE_MASK;
+      index[freeSlot(page.mostSignificantBits[offset], page.leastSignificantBits[offset])] =
+          row + 1;
+    }
+  }
+
+  private int slotOf(long mostSignificantBits, long leastSignificantBits) {
+    long hash = (mostSignificantBits ^ leastSignificantBits) * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> (Long.SIZE - Integer.SIZE)) >>> indexShift;
+  }
+
+  // the first of the given number of rows that comes after the given key
+  private static int upperBound(Page[] pages, int rows, long mostSignificantBits,
+      long leastSignificantBits) {
+    int low = 0;
+    int high = rows;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compare(pages, middle, mostSignificantBits, leastSignificantBits) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // orders like the ids of the sessions do
+  private static int compare(Page[] pages, int row, long mostSignificantBits,
+      long leastSignificantBits) {
+    Page page = pages[row >>> PAGE_SHIFT];
+    int offset = row & PAGE_MASK;
+    int comparison = Long.compare(page.mostSignificantBits[offset], mostSignificantBits);
+    if (comparison == 0) {
+      comparison = Long.compare(page.leastSignificantBits[offset], leastSignificantBits);
+    }
+    return comparison;
+  }
+
+  private void write(int row, long mostSignificantBits, long leastSignificantBits,
+      long startNanos, long stopNanos, int stationCode, byte status) {
+    Page page = pages[row >>> PAGE_SHIFT];
+    int offset = row & PAGE_MASK;
+    page.mostSignificantBits[offset] = mostSignificantBits;
+    page.leastSignificantBits[offset] = leastSignificantBits;
+    page.startNanos[offset] = startNanos;
+    page.stopNanos[offset] = stopNanos;
+    page.stationCodes[offset] = stationCode;
+    page.statuses[offset] = status;
+  }
+
+  private void copy(int from, int to) {
+    Page page = pages[from >>> PAGE_SHIFT];
+    int offset = from & PAGE_MASK;
+    write(to, page.mostSignificantBits[offset], page.leastSignificantBits[offset],
+        page.startNanos[offset], page.stopNanos[offset], page.stationCodes[offset],
+        page.statuses[offset]);
+  }
+
+  private ChargingSession read(int row) {
+    Page page = pages[row >>> PAGE_SHIFT];
+    int offset = row & PAGE_MASK;
+    return toChargingSession(page.mostSignificantBits[offset], page.leastSignificantBits[offset],
+        page.startNanos[offset], page.stopNanos[offset], page.stationCodes[offset],
+        page.statuses[offset]);
+  }
+
+  private ChargingSession toChargingSession(long mostSignificantBits, long leastSignificantBits,
+      long startNanos, long stopNanos, int stationCode, byte status) {
+    StatusEnum chargingStatus = STATUSES[status];
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = new UUID(mostSignificantBits, leastSignificantBits);
+      chargingSessionBuilder.stationId = stationDictionary.decode(stationCode);
+      chargingSessionBuilder.startedAt = fromEpochNanos(startNanos);
+      chargingSessionBuilder.stoppedAt =
+          chargingStatus == StatusEnum.FINISHED ? fromEpochNanos(stopNanos) : null;
+      chargingSessionBuilder.status = chargingStatus;
+    }).build();
+  }
+
+  // date-times out of range are kept as the earliest or latest date-time
+  static long epochNanos(LocalDateTime dateTime) {
+    long epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
+    try {
+      return Math.addExact(Math.multiplyExact(epochSecond, NANOS_PER_SECOND), dateTime.getNano());
+    } catch (ArithmeticException e) {
+      return epochSecond < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+  }
+
+  private static LocalDateTime fromEpochNanos(long epochNanos) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+        (int) Math.floorMod(epochNanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+  }
+
+  /**
+   * A fixed size page of every column.
+   */
+  private static final class Page {
+
+    private final long[] mostSignificantBits = new long[PAGE_SIZE];
+    private final long[] leastSignificantBits = new long[PAGE_SIZE];
+    private final long[] startNanos = new long[PAGE_SIZE];
+    private final long[] stopNanos = new long[PAGE_SIZE];
+    private final int[] stationCodes = new int[PAGE_SIZE];
+    private final byte[] statuses = new byte[PAGE_SIZE];
+  }
+
+  /**
+   * Iterates over the rows after a key. The key of the last row read is kept instead of its row
+   * number, since rows can shift while iterating; the row after it is only searched for again if
+   * the row before the next row number no longer holds that key.
+   */
+  private final class RowIterator implements Iterator<ChargingSession> {
+
+    private boolean started;
+    private long mostSignificantBits;
+    private long leastSignificantBits;
+    private int nextRow;
+
+    // the row read last, only kept once the read has been validated
+    private int readRow;
+    private long readStartNanos;
+    private long readMostSignificantBits;
+    private long readLeastSignificantBits;
+    private long readStopNanos;
+    private int readStationCode;
+    private byte readStatus;
+
+    private ChargingSession next;
+
+    private RowIterator() {
+      // starts from the first row
+    }
+
+    private RowIterator(UUID id) {
+      started = true;
+      mostSignificantBits = id.getMostSignificantBits();
+      leastSignificantBits = id.getLeastSignificantBits();
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = advance();
+      }
+      return next != null;
+    }
+
+    @Override
+    public ChargingSession next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ChargingSession chargingSession = next;
+      next = null;
+      return chargingSession;
+    }
+
+    private ChargingSession advance() {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp == 0 || !read() || !lock.validate(stamp)) {
+        metrics.tableReadRetried();
+        stamp = lock.readLock();
+        try {
+          read();
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+      if (readRow < 0) {
+        return null;
+      }
+      started = true;
+      mostSignificantBits = readMostSignificantBits;
+      leastSignificantBits = readLeastSignificantBits;
+      nextRow = readRow + 1;
+      return toChargingSession(readMostSignificantBits, readLeastSignificantBits, readStartNanos,
+          readStopNanos, readStationCode, readStatus);
+    }
+
+    /**
+     * Copies the row after the current key, or -1 if there is none, into the {@code read} fields.
+     * Without a lock the rows can change halfway, so every access is bounds checked and
+     * {@code false} is returned when the copy cannot be trusted.
+     */
+    private boolean read() {
+      Page[] currentPages = pages;
+      int rows = Math.min(size, currentPages.length << PAGE_SHIFT);
+      int row = 0;
+      if (started) {
+        row = nextRow > 0 && nextRow <= rows && compare(currentPages, nextRow - 1,
+            mostSignificantBits, leastSignificantBits) == 0 ? nextRow
+                : upperBound(currentPages, rows, mostSignificantBits, leastSignificantBits);
+      }
+      if (row >= rows) {
+        readRow = -1;
+        return true;
+      }
+      Page page = currentPages[row >>> PAGE_SHIFT];
+      int offset = row & PAGE_MASK;
+      readRow = row;
+      readStartNanos = page.startNanos[offset];
+      readMostSignificantBits = page.mostSignificantBits[offset];
+      readLeastSignificantBits = page.leastSignificantBits[offset];
+      readStopNanos = page.stopNanos[offset];
+      readStationCode = page.stationCodes[offset];
+      readStatus = page.statuses[offset];
+      return readStatus >= 0 && readStatus < STATUSES.length;
+    }
+  }
+
+}
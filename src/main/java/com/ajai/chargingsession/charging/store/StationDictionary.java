@@ -0,0 +1,95 @@
+package com.ajai.chargingsession.charging.store;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dictionary encoding of the station ids.
+ *
+ * <p>
+ * Every distinct station id is stored once and is given an {@code int} code in the order the
+ * station ids are first seen, so the sessions only need to keep the code. Codes are never
+ * reassigned. Looking up a known station id or the station id of a code does not lock; only adding
+ * a new station id does.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+final class StationDictionary {
+
+  // approximate retained size of a station id entry on a 64-bit JVM with compressed oops: the
+  // String and its char[] header, the map node and the boxed code, excluding the characters
+  private static final long BYTES_PER_STATION = 96;
+
+  private final ConcurrentMap<String, Integer> codes;
+  private volatile String[] stationIds;
+  private int size;
+  private long characters;
+
+  StationDictionary() {
+    codes = new ConcurrentHashMap<>();
+    stationIds = new String[16];
+  }
+
+  /**
+   * Returns the code of the given station id, adding it to the dictionary if it is new.
+   *
+   * @param stationId the station id
+   * @return the code of the station id.
+   */
+  int encode(String stationId) {
+    Integer code = codes.get(stationId);
+    return code != null ? code : add(stationId);
+  }
+
+  /**
+   * Returns the code of the given station id without adding it to the dictionary.
+   *
+   * @param stationId the station id
+   * @return the code of the station id or {@code -1} if the station id is unknown.
+   */
+  int find(String stationId) {
+    Integer code = codes.get(stationId);
+    return code != null ? code : -1;
+  }
+
+  private synchronized int add(String stationId) {
+    Integer code = codes.get(stationId);
+    if (code != null) {
+      return code;
+    }
+    String[] currentStationIds = stationIds;
+    if (size == currentStationIds.length) {
+      currentStationIds = Arrays.copyOf(currentStationIds, size * 2);
+    }
+    currentStationIds[size] = stationId;
+    // published before the code, so whoever sees the code also sees the station id
+    stationIds = currentStationIds;
+    characters += stationId.length();
+    codes.put(stationId, size);
+    return size++;
+  }
+
+  /**
+   * Returns the station id of the given code.
+   *
+   * @param code the code of the station id
+   * @return the station id or {@code null} if the code is unknown.
+   */
+  String decode(int code) {
+    String[] currentStationIds = stationIds;
+    return code >= 0 && code < currentStationIds.length ? currentStationIds[code] : null;
+  }
+
+  /**
+   * Returns an estimate of the memory retained by the dictionary.
+   *
+   * @return estimated number of bytes.
+   */
+  synchronized long getEstimatedMemoryBytes() {
+    return 4L * stationIds.length + BYTES_PER_STATION * size + 2 * characters;
+  }
+
+}
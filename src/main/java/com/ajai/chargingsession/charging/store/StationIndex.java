@@ -0,0 +1,130 @@
+package com.ajai.chargingsession.charging.store;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Secondary index of the sessions of every station.
+ *
+ * <p>
+ * The ids of the sessions of a station are appended, as their two halves, to a growable array of
+ * its own, found by the {@link StationDictionary} code of the station. Looking up the sessions of
+ * a station therefore costs as much as the number of its sessions, whatever the number of sessions
+ * of the other stations. A session never changes station, so the index is only written when a
+ * session is added; its status is read from the table when the session is looked up.
+ * </p>
+ *
+ * <p>
+ * Every station has its own lock, so sessions of different stations are indexed without
+ * contention. Only the first session of a station takes the lock of the whole index.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+final class StationIndex {
+
+  // approximate retained size of the ids of a station besides the ids: the object and array
+  // headers, the size and the reference from the index
+  private static final long BYTES_PER_STATION = 48;
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private volatile StationSessions[] stations;
+
+  StationIndex() {
+    stations = new StationSessions[16];
+  }
+
+  /**
+   * Adds the id of a session to the ids of its station.
+   *
+   * @param stationCode the dictionary code of the station of the session
+   * @param chargingSessionId the id of the session
+   */
+  void add(int stationCode, UUID chargingSessionId) {
+    StationSessions[] currentStations = stations;
+    StationSessions stationSessions =
+        stationCode < currentStations.length ? currentStations[stationCode] : null;
+    if (stationSessions == null) {
+      stationSessions = addStation(stationCode);
+    }
+    stationSessions.add(chargingSessionId.getMostSignificantBits(),
+        chargingSessionId.getLeastSignificantBits());
+  }
+
+  private synchronized StationSessions addStation(int stationCode) {
+    StationSessions[] currentStations = stations;
+    if (stationCode >= currentStations.length) {
+      currentStations = Arrays.copyOf(currentStations,
+          Math.max(currentStations.length * 2, stationCode + 1));
+    } else if (currentStations[stationCode] != null) {
+      return currentStations[stationCode];
+    }
+    StationSessions stationSessions = new StationSessions();
+    currentStations[stationCode] = stationSessions;
+    // republished even if the array did not grow, so whoever sees the array sees the new station
+    stations = currentStations;
+    return stationSessions;
+  }
+
+  /**
+   * Returns the ids of the sessions of a station in the order they were added.
+   *
+   * @param stationCode the dictionary code of the station
+   * @return array of ids, empty if the station has no sessions.
+   */
+  UUID[] get(int stationCode) {
+    StationSessions[] currentStations = stations;
+    StationSessions stationSessions =
+        stationCode >= 0 && stationCode < currentStations.length ? currentStations[stationCode]
+            : null;
+    return stationSessions == null ? new UUID[0] : stationSessions.toIds();
+  }
+
+  /**
+   * Returns an estimate of the memory retained by the index.
+   *
+   * @return estimated number of bytes.
+   */
+  synchronized long getEstimatedMemoryBytes() {
+    long estimatedMemoryBytes = 4L * stations.length;
+    for (StationSessions stationSessions : stations) {
+      if (stationSessions != null) {
+        estimatedMemoryBytes += BYTES_PER_STATION + stationSessions.getCapacityBytes();
+      }
+    }
+    return estimatedMemoryBytes;
+  }
+
+  /**
+   * The ids of the sessions of a station, as pairs of their most and least significant bits.
+   */
+  private static final class StationSessions {
+
+    private long[] ids = new long[2 * INITIAL_CAPACITY];
+    private int size;
+
+    private synchronized void add(long mostSignificantBits, long leastSignificantBits) {
+      if (2 * size == ids.length) {
+        ids = Arrays.copyOf(ids, ids.length * 2);
+      }
+      ids[2 * size] = mostSignificantBits;
+      ids[2 * size + 1] = leastSignificantBits;
+      size++;
+    }
+
+    private synchronized UUID[] toIds() {
+      UUID[] chargingSessionIds = new UUID[size];
+      for (int index = 0; index < size; index++) {
+        chargingSessionIds[index] = new UUID(ids[2 * index], ids[2 * index + 1]);
+      }
+      return chargingSessionIds;
+    }
+
+    private synchronized long getCapacityBytes() {
+      return 8L * ids.length;
+    }
+  }
+
+}
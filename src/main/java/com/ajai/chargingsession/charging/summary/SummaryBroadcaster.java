@@ -0,0 +1,96 @@
+package com.ajai.chargingsession.charging.summary;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Broadcaster of live summaries of the charging sessions.
+ *
+ * <p>
+ * Every window of every handler that has subscribers is summarized once per tick, on a single
+ * ticker thread, and the same {@link ChargingSessionSummary} is fanned out to all of its
+ * subscribers, so the cost of a tick does not depend on the number of subscribers. A new
+ * subscriber first gets the latest summary of its window. A window is only summarized while it has
+ * subscribers.
+ * </p>
+ *
+ * <p>
+ * Every subscriber has a bounded buffer of its own. When a slow subscriber falls behind by more
+ * than the buffer, its oldest summaries are dropped, since only the latest ones matter, and the
+ * other subscribers are not held up.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+@Component
+public class SummaryBroadcaster {
+
+  private final Duration tick;
+  private final int bufferSize;
+  private final Scheduler ticker;
+  private final ConcurrentMap<ChargingSessionsHandler,
+      ConcurrentMap<Long, Flux<ChargingSessionSummary>>> summaries;
+
+  /**
+   * Creates an instance of SummaryBroadcaster.
+   *
+   * @param tickMillis the interval between two summaries of a window in milliseconds
+   * @param bufferSize the largest number of summaries buffered for a subscriber
+   */
+  public SummaryBroadcaster(@Value("${summary.stream.tick.millis}") long tickMillis,
+      @Value("${summary.stream.buffer.size}") int bufferSize) {
+    Assert.isTrue(tickMillis > 0, () -> "Invalid summary tick [" + tickMillis + "]");
+    Assert.isTrue(bufferSize > 0, () -> "Invalid summary buffer size [" + bufferSize + "]");
+    this.tick = Duration.ofMillis(tickMillis);
+    this.bufferSize = bufferSize;
+    ticker = Schedulers.newSingle("summary-ticker", true);
+    summaries = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Subscribes to the summaries of the charging sessions of a handler over the given number of
+   * seconds, one per tick.
+   *
+   * @param handler the handler of the charging sessions
+   * @param seconds the number of seconds ago
+   * @return {@code Flux<ChargingSessionSummary>} the live summaries.
+   *
+   * @throws IllegalArgumentException if the number of seconds is out of range.
+   */
+  public Flux<ChargingSessionSummary> subscribe(ChargingSessionsHandler handler, long seconds) {
+    handler.checkSummarySeconds(seconds);
+    return summaries.computeIfAbsent(handler, key -> new ConcurrentHashMap<>())
+        .computeIfAbsent(seconds, key -> summarize(handler, seconds))
+        .onBackpressureBuffer(bufferSize, dropped -> {
+          // EMPTY
+        }, BufferOverflowStrategy.DROP_OLDEST);
+  }
+
+  private Flux<ChargingSessionSummary> summarize(ChargingSessionsHandler handler, long seconds) {
+    // an interval fails rather than waits when its ticks are not requested, so they are dropped
+    return Flux.interval(Duration.ZERO, tick, ticker).onBackpressureDrop()
+        .map(count -> handler.summarize(seconds))
+        .replay(1).refCount();
+  }
+
+  /**
+   * Stops the ticker along with the application context.
+   */
+  @PreDestroy
+  public void close() {
+    ticker.dispose();
+  }
+
+}
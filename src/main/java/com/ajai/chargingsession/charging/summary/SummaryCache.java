@@ -0,0 +1,131 @@
+package com.ajai.chargingsession.charging.summary;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+
+/**
+ * Single-flight cache of the summaries of the charging sessions of a handler, keyed on the number
+ * of seconds they cover.
+ *
+ * <p>
+ * A summary is computed for a second of the clock and a version of the store. It is reused by the
+ * requests in the same second as long as the store is still at that version, in which case it
+ * differs from the summary they would have computed at most by the sessions that have left the
+ * start of its window since, or for up to {@code summary.cache.millis} after it was computed while
+ * the store keeps changing, so dashboards polling a busy store share it too.
+ * Requests that arrive while a summary is being computed wait for it rather than computing it
+ * again, so any number of simultaneous polls of a window cost a single computation. A failed
+ * computation is not cached.
+ * </p>
+ *
+ * <p>
+ * There is at most one summary per number of seconds, so the size of the cache is bounded by the
+ * longest summary window.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+public final class SummaryCache {
+
+  private final long ttlNanos;
+  private final ChargingSessionMetrics metrics;
+  private final ConcurrentMap<Long, Entry> entries;
+
+  /**
+   * Creates a new empty instance of SummaryCache.
+   *
+   * @param ttlMillis the number of milliseconds a summary is reused for while the store changes
+   * @param metrics the meters to count the hits and misses of the cache in
+   */
+  public SummaryCache(long ttlMillis, ChargingSessionMetrics metrics) {
+    Assert.isTrue(ttlMillis >= 0, () -> "Invalid summary cache expiry of [" + ttlMillis + "] ms");
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.metrics = metrics;
+    this.entries = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the summary over the given number of seconds, computing it only if there is no summary
+   * of the same second that is still fresh or being computed.
+   *
+   * @param seconds the number of seconds ago
+   * @param epochSecond the current second of the clock
+   * @param version the version of the store, read before the summary is computed
+   * @param summarizer the function that computes the summary
+   * @return ChargingSessionSummary the summary.
+   */
+  public ChargingSessionSummary get(long seconds, long epochSecond, long version,
+      Supplier<ChargingSessionSummary> summarizer) {
+    long nowNanos = System.nanoTime();
+    Entry entry = entries.get(seconds);
+    if (entry == null || !entry.isFresh(epochSecond, version, nowNanos, ttlNanos)) {
+      Entry newEntry = new Entry(epochSecond, version, nowNanos);
+      entry = entries.compute(seconds,
+          (key, current) -> current != null
+              && current.isFresh(epochSecond, version, nowNanos, ttlNanos) ? current : newEntry);
+      if (entry == newEntry) {
+        metrics.summaryCache(false);
+        return newEntry.compute(summarizer, () -> entries.remove(seconds, newEntry));
+      }
+    }
+    metrics.summaryCache(true);
+    return entry.await();
+  }
+
+  /**
+   * A summary of a second and a version of the store that is computed or being computed.
+   */
+  private static final class Entry {
+
+    private final long epochSecond;
+    private final long version;
+    private final long createdNanos;
+    private final CompletableFuture<ChargingSessionSummary> summary;
+
+    private Entry(long epochSecond, long version, long createdNanos) {
+      this.epochSecond = epochSecond;
+      this.version = version;
+      this.createdNanos = createdNanos;
+      this.summary = new CompletableFuture<>();
+    }
+
+    private boolean isFresh(long epochSecond, long version, long nowNanos, long ttlNanos) {
+      return this.epochSecond == epochSecond
+          && (this.version == version || nowNanos - createdNanos < ttlNanos);
+    }
+
+    private ChargingSessionSummary compute(Supplier<ChargingSessionSummary> summarizer,
+        Runnable onFailure) {
+      try {
+        ChargingSessionSummary chargingSessionSummary = summarizer.get();
+        summary.complete(chargingSessionSummary);
+        return chargingSessionSummary;
+      } catch (RuntimeException | Error ex) {
+        // the waiting requests fail along with it and the next request computes it again
+        onFailure.run();
+        summary.completeExceptionally(ex);
+        throw ex;
+      }
+    }
+
+    private ChargingSessionSummary await() {
+      try {
+        return summary.join();
+      } catch (CompletionException ex) {
+        if (ex.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) ex.getCause();
+        }
+        throw ex;
+      }
+    }
+  }
+
+}
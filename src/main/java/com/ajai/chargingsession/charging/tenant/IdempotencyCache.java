@@ -0,0 +1,108 @@
+package com.ajai.chargingsession.charging.tenant;
+
+import static com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics.TENANT_TAG;
+import static com.ajai.chargingsession.constants.Constants.IDEMPOTENCY_KEY_HEADER;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.util.Assert;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+/**
+ * Bounded, expiring cache of the charging sessions returned to the requests of a tenant with an
+ * {@code Idempotency-Key} header.
+ *
+ * <p>
+ * A request whose key is already in the cache gets the charging session of the first request with
+ * that key without reaching the store, so a charger that retries a start does not start a second
+ * session. Concurrent requests with the same key wait for the first one, which is the only one
+ * applied. A request that fails is not cached, so its retry is applied again. A key may only be
+ * reused for the same request, since a client that reuses it for another one would otherwise get a
+ * charging session it did not ask for.
+ * </p>
+ *
+ * <p>
+ * The cache holds up to {@code idempotency.cache.size} keys, each for
+ * {@code idempotency.expiry.seconds} after its first request. Its hits, misses and evictions are
+ * published as the {@code cache.*} meters of the {@code charging.idempotency} cache of the tenant.
+ * </p>
+ *
+ * @author ajai
+ *
+ */
+final class IdempotencyCache {
+
+  private static final String CACHE_NAME = "charging.idempotency";
+
+  private static final int KEY_LENGTH_LIMIT = 255;
+
+  private final Cache<String, Response> responses;
+
+  IdempotencyCache(long size, long expirySeconds, MeterRegistry meterRegistry, String tenantId) {
+    Assert.isTrue(size > 0, () -> "Invalid idempotency cache size [" + size + "]");
+    Assert.isTrue(expirySeconds > 0,
+        () -> "Invalid idempotency key expiry of [" + expirySeconds + "] seconds");
+    responses = CacheBuilder.newBuilder().maximumSize(size)
+        .expireAfterWrite(expirySeconds, TimeUnit.SECONDS).recordStats().build();
+    GuavaCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME, Tags.of(TENANT_TAG, tenantId));
+  }
+
+  /**
+   * Applies a request once per idempotency key.
+   *
+   * @param idempotencyKey the idempotency key of the request or {@code null} if it has none
+   * @param request a description of the request that tells it apart from any other request
+   * @param operation the operation that applies the request
+   * @return ChargingSession the charging session of the first request with the key.
+   *
+   * @throws IllegalArgumentException if the key is invalid or was used for another request.
+   */
+  ChargingSession apply(String idempotencyKey, String request,
+      Supplier<ChargingSession> operation) {
+    if (idempotencyKey == null) {
+      return operation.get();
+    }
+    Assert.isTrue(!idempotencyKey.isEmpty() && idempotencyKey.length() <= KEY_LENGTH_LIMIT,
+        () -> "The " + IDEMPOTENCY_KEY_HEADER + " should have between 1 and " + KEY_LENGTH_LIMIT
+            + " characters");
+
+    Response response;
+    try {
+      response = responses.get(idempotencyKey, () -> new Response(request, operation.get()));
+    } catch (UncheckedExecutionException ex) {
+      // the exceptions of the operation, such as a rejected start, reach the caller unchanged
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    } catch (ExecutionException ex) {
+      // the operation throws no checked exceptions
+      throw new UncheckedExecutionException(ex.getCause());
+    }
+    Assert.isTrue(response.request.equals(request),
+        () -> "The " + IDEMPOTENCY_KEY_HEADER + " [" + idempotencyKey
+            + "] was already used for another request");
+    return response.chargingSession;
+  }
+
+  /**
+   * The charging session returned to the first request with a key.
+   */
+  private static final class Response {
+
+    private final String request;
+    private final ChargingSession chargingSession;
+
+    private Response(String request, ChargingSession chargingSession) {
+      this.request = request;
+      this.chargingSession = chargingSession;
+    }
+  }
+
+}
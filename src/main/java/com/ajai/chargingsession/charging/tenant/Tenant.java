@@ -0,0 +1,225 @@
+package com.ajai.chargingsession.charging.tenant;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionResult;
+import com.ajai.chargingsession.handlers.TooManyRequestsException;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Represents a charge-point operator sharing the deployment with other operators.
+ * 
+ * <p>
+ * Every tenant has its own {@link ChargingSessionsHandler}, and therefore its own store and
+ * journal, so the charging sessions of one tenant never contend with those of another. The request
+ * rate and the number of charging sessions in progress of a tenant can be limited, so a noisy
+ * tenant is rejected with {@link TooManyRequestsException} instead of slowing down the others.
+ * Every valid item of a batch is charged like a request of its own, so batching does not get
+ * around the limits.
+ * </p>
+ * 
+ * <p>
+ * A start or stop with an idempotency key is applied once per key, and its retries get the
+ * charging session of the first request from the {@link IdempotencyCache} of the tenant.
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+public class Tenant {
+
+  private final String id;
+  private final ChargingSessionsHandler handler;
+  private final ChargingSessionJournal journal;
+  private final long liveSessionLimit;
+  private final RateLimiter rateLimiter;
+  private final LongAdder rejectedRequests;
+  private final LongAdder rejectedChargingSessions;
+  private final IdempotencyCache idempotencyCache;
+
+  /**
+   * Creates a new instance of Tenant.
+   * 
+   * @param id the id of the tenant
+   * @param handler the handler of the charging sessions of the tenant
+   * @param journal the journal of the tenant that is closed along with it
+   * @param liveSessionLimit the largest number of charging sessions in progress or {@code 0} for no
+   *        limit
+   * @param requestsPerSecond the largest number of requests per second or {@code 0} for no limit
+   * @param idempotencyCache the cache of the charging sessions returned to requests with an
+   *        idempotency key
+   */
+  Tenant(String id, ChargingSessionsHandler handler, ChargingSessionJournal journal,
+      long liveSessionLimit, double requestsPerSecond, IdempotencyCache idempotencyCache) {
+    this.id = id;
+    this.handler = handler;
+    this.journal = journal;
+    this.liveSessionLimit = liveSessionLimit;
+    this.rateLimiter = requestsPerSecond > 0 ? RateLimiter.create(requestsPerSecond) : null;
+    this.rejectedRequests = new LongAdder();
+    this.rejectedChargingSessions = new LongAdder();
+    this.idempotencyCache = idempotencyCache;
+  }
+
+  /**
+   * Get the id of the tenant.
+   * 
+   * @return current id
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Get the handler of the charging sessions of the tenant.
+   * 
+   * @return current handler
+   */
+  public ChargingSessionsHandler getHandler() {
+    return handler;
+  }
+
+  /**
+   * Takes a permit for a request of the tenant without waiting for one.
+   * 
+   * @throws TooManyRequestsException if the tenant exceeded its request rate.
+   */
+  public void acquireRequest() {
+    acquireRequests(1);
+  }
+
+  /**
+   * Takes the permits for the items of a batch without waiting for them. The permit taken for the
+   * request of the batch covers its first item.
+   * 
+   * @param items the number of valid items of the batch
+   * 
+   * @throws TooManyRequestsException if the tenant exceeded its request rate.
+   */
+  public void acquireBatch(int items) {
+    if (items > 1) {
+      acquireRequests(items - 1);
+    }
+  }
+
+  private void acquireRequests(int permits) {
+    if (rateLimiter != null && !rateLimiter.tryAcquire(permits)) {
+      rejectedRequests.increment();
+      throw new TooManyRequestsException("Tenant [" + id + "] exceeded its limit of "
+          + rateLimiter.getRate() + " requests per second");
+    }
+  }
+
+  /**
+   * Checks that the given number of charging sessions can be started without exceeding the number
+   * of charging sessions in progress of the tenant. The limit is checked but not reserved, so
+   * concurrent starts may exceed it by the number of starts in flight.
+   * 
+   * @param chargingSessions the number of charging sessions to start
+   * 
+   * @throws TooManyRequestsException if the charging sessions would exceed the limit.
+   */
+  public void checkLiveSessionLimit(int chargingSessions) {
+    if (liveSessionLimit > 0
+        && handler.getInProgressCount() + chargingSessions > liveSessionLimit) {
+      rejectedChargingSessions.add(chargingSessions);
+      throw new TooManyRequestsException("Tenant [" + id + "] exceeded its limit of "
+          + liveSessionLimit + " charging sessions in progress");
+    }
+  }
+
+  /**
+   * Starts a charging session within the limit of charging sessions in progress of the tenant,
+   * once per idempotency key.
+   * 
+   * @param idempotencyKey the idempotency key of the request or {@code null} if it has none
+   * @param chargingStationDTO the charging station to start the charging session at
+   * @return ChargingSession the started charging session, or the one started by the first request
+   *         with the idempotency key.
+   * 
+   * @throws TooManyRequestsException if the charging session would exceed the limit.
+   * @throws IllegalArgumentException if the idempotency key was used for another request.
+   */
+  public ChargingSession startChargingSession(String idempotencyKey,
+      ChargingStationDTO chargingStationDTO) {
+    return idempotencyCache.apply(idempotencyKey, "start " + chargingStationDTO.getStationId(),
+        () -> {
+          checkLiveSessionLimit(1);
+          return handler.startChargingSession(chargingStationDTO);
+        });
+  }
+
+  /**
+   * Starts a batch of charging sessions within the limits of the tenant. Only the DTOs that pass
+   * the validator are charged to the request rate and to the limit of charging sessions in
+   * progress, and the whole batch is rejected if they exceed either.
+   * 
+   * @param chargingStationDTOs the charging stations to start the charging sessions at
+   * @param validator the function that returns why a DTO is invalid or {@code null} if it is valid
+   * @return {@code List<ChargingSessionResult>} the result for every DTO, in the same order.
+   * 
+   * @throws TooManyRequestsException if the charging sessions would exceed a limit.
+   * @throws IllegalArgumentException if the size of the batch is out of range.
+   */
+  public List<ChargingSessionResult> startChargingSessions(
+      List<ChargingStationDTO> chargingStationDTOs,
+      Function<ChargingStationDTO, String> validator) {
+    return handler.startChargingSessions(chargingStationDTOs, validator, chargingSessions -> {
+      acquireBatch(chargingSessions);
+      checkLiveSessionLimit(chargingSessions);
+    });
+  }
+
+  /**
+   * Stops a batch of charging sessions of the tenant. Every non-null id is charged to the request
+   * rate, and the whole batch is rejected if they exceed it.
+   * 
+   * @param chargingSessionIds the ids of the charging sessions
+   * @return {@code List<ChargingSessionResult>} the result for every id, in the same order.
+   * 
+   * @throws TooManyRequestsException if the tenant exceeded its request rate.
+   * @throws IllegalArgumentException if the size of the batch is out of range.
+   */
+  public List<ChargingSessionResult> stopChargingSessions(List<UUID> chargingSessionIds) {
+    return handler.stopChargingSessions(chargingSessionIds, this::acquireBatch);
+  }
+
+  /**
+   * Stops a charging session of the tenant, once per idempotency key.
+   * 
+   * @param idempotencyKey the idempotency key of the request or {@code null} if it has none
+   * @param chargingSessionId the id of the charging session
+   * @return ChargingSession the stopped charging session, or the one returned to the first request
+   *         with the idempotency key.
+   * 
+   * @throws IllegalStateException if the charging session does not exist.
+   * @throws IllegalArgumentException if the idempotency key was used for another request.
+   */
+  public ChargingSession stopChargingSession(String idempotencyKey, UUID chargingSessionId) {
+    return idempotencyCache.apply(idempotencyKey, "stop " + chargingSessionId,
+        () -> handler.stopChargingSession(chargingSessionId));
+  }
+
+  /**
+   * Returns the statistics of the tenant.
+   * 
+   * @return TenantStatistics statistics of the tenant.
+   */
+  public TenantStatistics getStatistics() {
+    long chargingSessions = handler.getChargingSessionCount();
+    long inProgress = handler.getInProgressCount();
+    return new TenantStatistics(id, chargingSessions, inProgress,
+        handler.getEstimatedMemoryBytes(), rejectedRequests.sum(), rejectedChargingSessions.sum());
+  }
+
+  void close() {
+    journal.close();
+  }
+
+}
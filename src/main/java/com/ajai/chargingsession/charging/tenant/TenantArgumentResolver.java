@@ -0,0 +1,52 @@
+package com.ajai.chargingsession.charging.tenant;
+
+import static com.ajai.chargingsession.constants.Constants.TENANT_ID;
+import static com.ajai.chargingsession.constants.Constants.TENANT_ID_HEADER;
+import java.util.Map;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Resolves the {@link Tenant} of a request from the {@code /tenants/{tenant-id}} path prefix or
+ * the {@code X-Tenant-Id} header, falling back to the default tenant. A request permit of the
+ * tenant is taken while resolving it, see {@link TenantRegistry#resolveTenant(String, String)}.
+ * 
+ * @author ajai
+ *
+ */
+public class TenantArgumentResolver implements HandlerMethodArgumentResolver {
+
+  private final TenantRegistry tenantRegistry;
+
+  /**
+   * Creates an instance of TenantArgumentResolver.
+   * 
+   * @param tenantRegistry the registry of the tenants
+   */
+  public TenantArgumentResolver(TenantRegistry tenantRegistry) {
+    this.tenantRegistry = tenantRegistry;
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return Tenant.class.equals(parameter.getParameterType());
+  }
+
+  @Override
+  public Tenant resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> uriTemplateVariables = (Map<String, String>) webRequest.getAttribute(
+        HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    String pathTenantId = uriTemplateVariables == null ? null : uriTemplateVariables.get(TENANT_ID);
+
+    return tenantRegistry.resolveTenant(pathTenantId, webRequest.getHeader(TENANT_ID_HEADER));
+  }
+
+}
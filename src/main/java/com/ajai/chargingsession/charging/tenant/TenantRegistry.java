@@ -0,0 +1,264 @@
+package com.ajai.chargingsession.charging.tenant;
+
+import static com.ajai.chargingsession.constants.Constants.DEFAULT_TENANT_ID;
+import static com.ajai.chargingsession.constants.Constants.TENANT_ID_HEADER;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import com.ajai.chargingsession.charging.clock.SessionClock;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournalFactory;
+import com.ajai.chargingsession.charging.journal.NoOpChargingSessionJournal;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.handlers.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Registry of the tenants of the deployment.
+ * 
+ * <p>
+ * Requests without a tenant are served by the default tenant, whose handler is the
+ * {@link ChargingSessionsHandler} bean. The other tenants are the ones listed in {@code tenants}
+ * and the ones registered later on, up to {@code tenants.limit} tenants, each with its own handler
+ * and journal configured like the default one. A request for any other tenant is rejected, so
+ * requests cannot create tenants and use up the limit.
+ * </p>
+ * 
+ * @author ajai
+ *
+ */
+@Component
+public class TenantRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TenantRegistry.class);
+
+  // tenant ids are used as directory names of their journals
+  private static final Pattern TENANT_ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+  private final ConcurrentMap<String, Tenant> tenants;
+  // registrations open journals, so they are serialized on this lock rather than in the map
+  private final Object registrationLock = new Object();
+  private final ChargingSessionJournalFactory journalFactory;
+  private final MeterRegistry meterRegistry;
+  private final SessionClock clock;
+
+  private final long secondsLowerLimit;
+  private final long secondsHigherLimit;
+  private final int shards;
+  private final int pageSizeLimit;
+  private final int batchSizeLimit;
+  private final long summaryCacheMillis;
+
+  private final int tenantLimit;
+  private final long liveSessionLimit;
+  private final double requestsPerSecond;
+  private final long idempotencyCacheSize;
+  private final long idempotencyExpirySeconds;
+
+  /**
+   * Creates an instance of TenantRegistry with the default tenant.
+   * 
+   * @param defaultHandler the handler of the default tenant
+   * @param journalFactory the factory of the journals of the other tenants
+   * @param meterRegistry the registry to register the meters of the other tenants in
+   * @param clock the clock shared by the tenants
+   * @param secondsLowerLimit the shortest summary window in seconds
+   * @param secondsHigherLimit the longest summary window in seconds
+   * @param shards the number of shards the sessions are partitioned into on their stationId
+   * @param pageSizeLimit the largest number of charging sessions on a page
+   * @param batchSizeLimit the largest number of charging sessions started or stopped in a batch
+   * @param summaryCacheMillis the number of milliseconds a summary is reused for while the
+   *        charging sessions change
+   * @param tenantLimit the largest number of tenants
+   * @param liveSessionLimit the largest number of charging sessions in progress per tenant or
+   *        {@code 0} for no limit
+   * @param requestsPerSecond the largest number of requests per second per tenant or {@code 0} for
+   *        no limit
+   * @param idempotencyCacheSize the largest number of idempotency keys cached per tenant
+   * @param idempotencyExpirySeconds the number of seconds an idempotency key is cached for
+   * @param tenantIds the comma-separated ids of the tenants to register on startup
+   */
+  public TenantRegistry(ChargingSessionsHandler defaultHandler,
+      ChargingSessionJournalFactory journalFactory, MeterRegistry meterRegistry,
+      SessionClock clock,
+      @Value("${seconds.lower.limit}") long secondsLowerLimit,
+      @Value("${seconds.higher.limit}") long secondsHigherLimit,
+      @Value("${sessions.shards}") int shards, @Value("${page.size.limit}") int pageSizeLimit,
+      @Value("${batch.size.limit}") int batchSizeLimit,
+      @Value("${summary.cache.millis}") long summaryCacheMillis,
+      @Value("${tenants.limit}") int tenantLimit,
+      @Value("${tenant.live.sessions.limit}") long liveSessionLimit,
+      @Value("${tenant.requests.per.second}") double requestsPerSecond,
+      @Value("${idempotency.cache.size}") long idempotencyCacheSize,
+      @Value("${idempotency.expiry.seconds}") long idempotencyExpirySeconds,
+      @Value("${tenants}") String tenantIds) {
+    this.journalFactory = journalFactory;
+    this.meterRegistry = meterRegistry;
+    this.clock = clock;
+    this.secondsLowerLimit = secondsLowerLimit;
+    this.secondsHigherLimit = secondsHigherLimit;
+    this.shards = shards;
+    this.pageSizeLimit = pageSizeLimit;
+    this.batchSizeLimit = batchSizeLimit;
+    this.summaryCacheMillis = summaryCacheMillis;
+    this.tenantLimit = tenantLimit;
+    this.liveSessionLimit = liveSessionLimit;
+    this.requestsPerSecond = requestsPerSecond;
+    this.idempotencyCacheSize = idempotencyCacheSize;
+    this.idempotencyExpirySeconds = idempotencyExpirySeconds;
+
+    tenants = new ConcurrentHashMap<>();
+    // the journal of the default tenant is a bean of its own and is closed along with it
+    tenants.put(DEFAULT_TENANT_ID, new Tenant(DEFAULT_TENANT_ID, defaultHandler,
+        NoOpChargingSessionJournal.INSTANCE, liveSessionLimit, requestsPerSecond,
+        newIdempotencyCache(DEFAULT_TENANT_ID)));
+    for (String tenantId : StringUtils.tokenizeToStringArray(tenantIds, ",")) {
+      registerTenant(tenantId);
+    }
+  }
+
+  /**
+   * Returns the registered tenant with the given id.
+   * 
+   * @param tenantId the id of the tenant or {@code null} for the default tenant
+   * @return Tenant the tenant.
+   * 
+   * @throws IllegalArgumentException if the tenant id is invalid.
+   * @throws IllegalStateException if no tenant is registered for this id.
+   */
+  public Tenant getTenant(String tenantId) {
+    if (tenantId == null) {
+      return tenants.get(DEFAULT_TENANT_ID);
+    }
+    Tenant tenant = tenants.get(tenantId);
+    if (tenant != null) {
+      return tenant;
+    }
+    assertValid(tenantId);
+    throw new IllegalStateException("Unknown tenant id [" + tenantId + "] received");
+  }
+
+  /**
+   * Registers the tenant with the given id with its own handler and journal, unless it is already
+   * registered. The journal is opened outside of the map of the tenants, so the requests of the
+   * other tenants are not held up by it.
+   * 
+   * @param tenantId the id of the tenant
+   * @return Tenant the registered tenant.
+   * 
+   * @throws IllegalArgumentException if the tenant id is invalid.
+   * @throws TooManyRequestsException if there are too many tenants.
+   */
+  public Tenant registerTenant(String tenantId) {
+    Tenant tenant = tenants.get(tenantId);
+    if (tenant != null) {
+      return tenant;
+    }
+    assertValid(tenantId);
+    synchronized (registrationLock) {
+      tenant = tenants.get(tenantId);
+      if (tenant == null) {
+        tenant = newTenant(tenantId);
+        tenants.put(tenantId, tenant);
+      }
+      return tenant;
+    }
+  }
+
+  /**
+   * Returns the tenant of a request, which is selected by the tenant id of its path or of its
+   * {@code X-Tenant-Id} header, or the default tenant if it has neither. A request permit of the
+   * tenant is taken, so requests over the rate of the tenant are rejected before they reach its
+   * handler.
+   * 
+   * @param pathTenantId the tenant id of the path or {@code null}
+   * @param headerTenantId the tenant id of the header or {@code null}
+   * @return Tenant the tenant of the request.
+   * 
+   * @throws IllegalArgumentException if the tenant ids differ or are invalid.
+   * @throws IllegalStateException if no tenant is registered for the tenant id.
+   * @throws TooManyRequestsException if the tenant exceeded its request rate.
+   */
+  public Tenant resolveTenant(String pathTenantId, String headerTenantId) {
+    Assert.isTrue(pathTenantId == null || headerTenantId == null
+        || pathTenantId.equals(headerTenantId),
+        () -> "The tenant id of the path [" + pathTenantId + "] and of the " + TENANT_ID_HEADER
+            + " header [" + headerTenantId + "] differ");
+
+    Tenant tenant = getTenant(pathTenantId != null ? pathTenantId : headerTenantId);
+    tenant.acquireRequest();
+    return tenant;
+  }
+
+  /**
+   * Returns the existing tenant with the given id.
+   * 
+   * @param tenantId the id of the tenant
+   * @return Tenant the tenant.
+   * 
+   * @throws IllegalStateException if no tenant exists for this id.
+   */
+  public Tenant findTenant(String tenantId) {
+    Tenant tenant = tenants.get(tenantId);
+    Assert.state(tenant != null, () -> "Invalid tenant id [" + tenantId + "] received");
+    return tenant;
+  }
+
+  /**
+   * Returns all the tenants.
+   * 
+   * @return Collection of tenants.
+   */
+  public Collection<Tenant> getTenants() {
+    return tenants.values();
+  }
+
+  /**
+   * Writes a snapshot of the charging sessions of every tenant.
+   */
+  public void writeSnapshots() {
+    tenants.values().forEach(tenant -> tenant.getHandler().writeSnapshot());
+  }
+
+  /**
+   * Closes the journals of the tenants.
+   */
+  @PreDestroy
+  public void close() {
+    tenants.values().forEach(Tenant::close);
+  }
+
+  private Tenant newTenant(String tenantId) {
+    if (tenants.size() >= tenantLimit) {
+      throw new TooManyRequestsException(
+          "The number of tenants cannot exceed " + tenantLimit);
+    }
+    ChargingSessionJournal journal = journalFactory.open(tenantId);
+    ChargingSessionsHandler handler = new ChargingSessionsHandler(secondsLowerLimit,
+        secondsHigherLimit, shards, pageSizeLimit, batchSizeLimit, summaryCacheMillis, journal,
+        new ChargingSessionMetrics(meterRegistry, tenantId), clock);
+    LOGGER.info("Created tenant {}", tenantId);
+    return new Tenant(tenantId, handler, journal, liveSessionLimit, requestsPerSecond,
+        newIdempotencyCache(tenantId));
+  }
+
+  private static void assertValid(String tenantId) {
+    Assert.isTrue(TENANT_ID_PATTERN.matcher(tenantId).matches(),
+        () -> "Invalid tenant id [" + tenantId + "] received");
+  }
+
+  private IdempotencyCache newIdempotencyCache(String tenantId) {
+    return new IdempotencyCache(idempotencyCacheSize, idempotencyExpirySeconds, meterRegistry,
+        tenantId);
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.ajai.chargingsession.charging.tenant;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Represents the statistics of a tenant.
+ * 
+ * @author ajai
+ *
+ */
+@ApiModel(description = "Statistics of a tenant.")
+public class TenantStatistics {
+
+  @ApiModelProperty(notes = "Id of the tenant.")
+  private final String tenantId;
+
+  @ApiModelProperty(notes = "The number of charging sessions of the tenant.")
+  private final long chargingSessions;
+
+  @ApiModelProperty(notes = "The number of charging sessions of the tenant in progress.")
+  private final long inProgress;
+
+  @ApiModelProperty(notes = "Estimate of the memory retained by the charging sessions in bytes.")
+  private final long estimatedMemoryBytes;
+
+  @ApiModelProperty(notes = "The number of requests rejected for exceeding the request rate.")
+  private final long rejectedRequests;
+
+  @ApiModelProperty(
+      notes = "The number of charging sessions rejected for exceeding the sessions in progress.")
+  private final long rejectedChargingSessions;
+
+  /**
+   * Creates a new instance of TenantStatistics.
+   * 
+   * @param tenantId the id of the tenant
+   * @param chargingSessions the number of charging sessions
+   * @param inProgress the number of charging sessions in progress
+   * @param estimatedMemoryBytes the estimated memory retained by the charging sessions
+   * @param rejectedRequests the number of requests rejected for exceeding the request rate
+   * @param rejectedChargingSessions the number of charging sessions rejected for exceeding the
+   *        sessions in progress
+   */
+  public TenantStatistics(String tenantId, long chargingSessions, long inProgress,
+      long estimatedMemoryBytes, long rejectedRequests, long rejectedChargingSessions) {
+    this.tenantId = tenantId;
+    this.chargingSessions = chargingSessions;
+    this.inProgress = inProgress;
+    this.estimatedMemoryBytes = estimatedMemoryBytes;
+    this.rejectedRequests = rejectedRequests;
+    this.rejectedChargingSessions = rejectedChargingSessions;
+  }
+
+  /**
+   * Get the id of the tenant.
+   * 
+   * @return current tenantId
+   */
+  public String getTenantId() {
+    return tenantId;
+  }
+
+  /**
+   * Get the number of charging sessions.
+   * 
+   * @return current chargingSessions
+   */
+  public long getChargingSessions() {
+    return chargingSessions;
+  }
+
+  /**
+   * Get the number of charging sessions in progress.
+   * 
+   * @return current inProgress
+   */
+  public long getInProgress() {
+    return inProgress;
+  }
+
+  /**
+   * Get the estimated memory retained by the charging sessions in bytes.
+   * 
+   * @return current estimatedMemoryBytes
+   */
+  public long getEstimatedMemoryBytes() {
+    return estimatedMemoryBytes;
+  }
+
+  /**
+   * Get the number of requests rejected for exceeding the request rate.
+   * 
+   * @return current rejectedRequests
+   */
+  public long getRejectedRequests() {
+    return rejectedRequests;
+  }
+
+  /**
+   * Get the number of charging sessions rejected for exceeding the sessions in progress.
+   * 
+   * @return current rejectedChargingSessions
+   */
+  public long getRejectedChargingSessions() {
+    return rejectedChargingSessions;
+  }
+
+}
@@ -0,0 +1,29 @@
+package com.ajai.chargingsession.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.ajai.chargingsession.charging.clock.CoarseSessionClock;
+import com.ajai.chargingsession.charging.clock.SessionClock;
+import com.ajai.chargingsession.charging.clock.SystemSessionClock;
+
+/**
+ * Configuration bean that provides the clock the charging sessions are started, stopped and
+ * summarized on. The system clock is read on every call unless {@code clock.tick.millis} is set,
+ * in which case it is read by a background ticker at that rate. A coarse clock is stopped along
+ * with the application context.
+ * 
+ * @author ajai
+ *
+ */
+@Configuration
+public class ClockConfiguration {
+
+  @Bean
+  public SessionClock sessionClock(@Value("${clock.tick.millis}") long tickMillis) {
+    if (tickMillis <= 0) {
+      return new SystemSessionClock();
+    }
+    return new CoarseSessionClock(new SystemSessionClock(), tickMillis);
+  }
+}
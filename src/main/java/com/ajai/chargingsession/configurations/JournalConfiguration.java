@@ -0,0 +1,85 @@
+package com.ajai.chargingsession.configurations;
+
+import static com.ajai.chargingsession.constants.Constants.DEFAULT_TENANT_ID;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournalFactory;
+import com.ajai.chargingsession.charging.journal.FsyncPolicy;
+import com.ajai.chargingsession.charging.journal.JdbcChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.JournalType;
+import com.ajai.chargingsession.charging.journal.MappedChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.NoOpChargingSessionJournal;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Configuration bean that provides the journals of the charging sessions. The sessions are only
+ * journaled when {@code journal.enabled} is set, to memory-mapped segment files or an embedded H2
+ * database depending on {@code journal.type}. Every tenant other than the default one journals
+ * to its own sub-directory.
+ * 
+ * @author ajai
+ *
+ */
+@Configuration
+public class JournalConfiguration {
+
+  private static final String TENANTS_DIRECTORY = "tenants";
+
+  private static final String H2_DATABASE = "sessions";
+
+  @Bean
+  public ChargingSessionJournalFactory chargingSessionJournalFactory(
+      @Value("${journal.enabled}") boolean enabled,
+      @Value("${journal.type}") JournalType type,
+      @Value("${journal.directory}") String directory,
+      @Value("${journal.segment.size}") int segmentSize,
+      @Value("${journal.fsync.policy}") FsyncPolicy fsyncPolicy,
+      @Value("${journal.group.commit.millis}") long groupCommitMillis,
+      MeterRegistry meterRegistry) {
+    Path tenantsDirectory = Paths.get(directory, TENANTS_DIRECTORY);
+    return tenantId -> {
+      if (!enabled) {
+        return NoOpChargingSessionJournal.INSTANCE;
+      }
+      return open(type, tenantsDirectory.resolve(tenantId), segmentSize, fsyncPolicy,
+          groupCommitMillis, meterRegistry, tenantId);
+    };
+  }
+
+  @Bean(destroyMethod = "close")
+  public ChargingSessionJournal chargingSessionJournal(
+      @Value("${journal.enabled}") boolean enabled,
+      @Value("${journal.type}") JournalType type,
+      @Value("${journal.directory}") String directory,
+      @Value("${journal.segment.size}") int segmentSize,
+      @Value("${journal.fsync.policy}") FsyncPolicy fsyncPolicy,
+      @Value("${journal.group.commit.millis}") long groupCommitMillis,
+      MeterRegistry meterRegistry) {
+    if (!enabled) {
+      return NoOpChargingSessionJournal.INSTANCE;
+    }
+    return open(type, Paths.get(directory), segmentSize, fsyncPolicy, groupCommitMillis,
+        meterRegistry, DEFAULT_TENANT_ID);
+  }
+
+  private static ChargingSessionJournal open(JournalType type, Path directory, int segmentSize,
+      FsyncPolicy fsyncPolicy, long groupCommitMillis, MeterRegistry meterRegistry,
+      String tenantId) {
+    Tags tags = Tags.of(ChargingSessionMetrics.TENANT_TAG, tenantId);
+    if (type == JournalType.JDBC) {
+      // the journal is closed with the tenant, not when the JVM shuts down
+      String url = "jdbc:h2:file:" + directory.toAbsolutePath().resolve(H2_DATABASE)
+          + ";DB_CLOSE_ON_EXIT=FALSE";
+      return new JdbcChargingSessionJournal(url, fsyncPolicy, groupCommitMillis, meterRegistry,
+          tags);
+    }
+    return new MappedChargingSessionJournal(directory, segmentSize, fsyncPolicy,
+        groupCommitMillis, meterRegistry, tags);
+  }
+}
@@ -0,0 +1,45 @@
+package com.ajai.chargingsession.configurations;
+
+import static com.ajai.chargingsession.constants.Constants.DEFAULT_TENANT_ID;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.metrics.TimedMappingJackson2CborHttpMessageConverter;
+import com.ajai.chargingsession.charging.metrics.TimedMappingJackson2HttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration bean that provides the meters of the charging sessions of the default tenant and
+ * the JSON and CBOR Jackson converters that time the serialization of the responses. The CBOR
+ * converter is configured like the JSON one by the same builder, only with a CBOR factory. The
+ * meters are exposed through the {@code /actuator/metrics} endpoint.
+ * 
+ * @author ajai
+ *
+ */
+@Configuration
+public class MetricsConfiguration {
+
+  @Bean
+  public ChargingSessionMetrics chargingSessionMetrics(MeterRegistry meterRegistry) {
+    return new ChargingSessionMetrics(meterRegistry, DEFAULT_TENANT_ID);
+  }
+
+  @Bean
+  public TimedMappingJackson2HttpMessageConverter timedMappingJackson2HttpMessageConverter(
+      ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+    return new TimedMappingJackson2HttpMessageConverter(objectMapper, meterRegistry);
+  }
+
+  @Bean
+  public TimedMappingJackson2CborHttpMessageConverter timedMappingJackson2CborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder objectMapperBuilder, MeterRegistry meterRegistry) {
+    // the builder is shared, so it configures a CBOR ObjectMapper rather than being changed
+    ObjectMapper cborObjectMapper = new ObjectMapper(new CBORFactory());
+    objectMapperBuilder.configure(cborObjectMapper);
+    return new TimedMappingJackson2CborHttpMessageConverter(cborObjectMapper, meterRegistry);
+  }
+}
@@ -0,0 +1,154 @@
+package com.ajai.chargingsession.configurations;
+
+import static com.ajai.chargingsession.constants.Constants.LIMIT;
+import static com.ajai.chargingsession.constants.Constants.STATION_ID;
+import static com.ajai.chargingsession.constants.UrlConstants.*;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import java.util.Collections;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RequestPredicate;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import com.ajai.chargingsession.charging.handlers.ReactiveChargingSessionsHandler;
+import com.ajai.chargingsession.handlers.ApiError;
+import com.ajai.chargingsession.handlers.NodeUnavailableException;
+import com.ajai.chargingsession.handlers.TooManyRequestsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Configuration bean that routes the charging session URLs to the
+ * {@link ReactiveChargingSessionsHandler} and serves them with Netty when the application runs on
+ * WebFlux, which it does with the {@code reactive} profile. The bodies are read and written as JSON
+ * or CBOR, like on the servlet stack. The exceptions are mapped to the same responses as the
+ * GlobalExceptionHandler maps them to on the servlet stack.
+ *
+ * @author ajai
+ *
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveRouterConfiguration {
+
+  // Tomcat is on the classpath for the servlet stack and would otherwise be preferred over Netty
+  @Bean
+  public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+    return new NettyReactiveWebServerFactory();
+  }
+
+  // WebFlux does not register the CBOR codecs by default, and its CBOR codecs made with a mapper
+  // claim the JSON media types unless given the CBOR one
+  @Bean
+  public WebFluxConfigurer cborCodecConfigurer(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+    ObjectMapper cborObjectMapper = new ObjectMapper(new CBORFactory());
+    objectMapperBuilder.configure(cborObjectMapper);
+    return new WebFluxConfigurer() {
+      @Override
+      public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(
+            new Jackson2CborDecoder(cborObjectMapper, APPLICATION_CBOR));
+        configurer.customCodecs().register(new ValueCborEncoder(cborObjectMapper));
+      }
+    };
+  }
+
+  @Bean
+  public RouterFunction<ServerResponse> chargingSessionRoutes(
+      ReactiveChargingSessionsHandler handler) {
+    // the batch URLs come before the charging session URL, which would match them as well
+    return route(GET(URL_CHARGING_SESSIONS_STREAM).or(GET(URL_TENANT_CHARGING_SESSIONS_STREAM)),
+        handler::streamChargingSessions)
+            .andRoute(GET(URL_CHARGING_SESSIONS_SUMMARY_STREAM)
+                .or(GET(URL_TENANT_CHARGING_SESSIONS_SUMMARY_STREAM)),
+                handler::streamChargingSessionSummary)
+            .andRoute(GET(URL_CHARGING_SESSIONS_SUMMARY)
+                .or(GET(URL_TENANT_CHARGING_SESSIONS_SUMMARY)),
+                handler::getChargingSessionSummary)
+            .andRoute(GET(URL_CHARGING_SESSIONS).or(GET(URL_TENANT_CHARGING_SESSIONS))
+                .and(queryParam(LIMIT, limit -> true)), handler::getChargingSessions)
+            .andRoute(GET(URL_CHARGING_SESSIONS).or(GET(URL_TENANT_CHARGING_SESSIONS))
+                .and(queryParam(STATION_ID, stationId -> true)),
+                handler::getChargingSessionsOfStation)
+            .andRoute(GET(URL_CHARGING_SESSIONS).or(GET(URL_TENANT_CHARGING_SESSIONS)),
+                handler::getAllChargingSessions)
+            .andRoute(withBody(POST(URL_CHARGING_SESSIONS_BATCH)
+                .or(POST(URL_TENANT_CHARGING_SESSIONS_BATCH))), handler::startChargingSessions)
+            .andRoute(withBody(PUT(URL_CHARGING_SESSIONS_BATCH)
+                .or(PUT(URL_TENANT_CHARGING_SESSIONS_BATCH))), handler::stopChargingSessions)
+            .andRoute(withBody(POST(URL_CHARGING_SESSIONS).or(POST(URL_TENANT_CHARGING_SESSIONS))),
+                handler::startChargingSession)
+            .andRoute(withBody(PUT(URL_CHARGING_SESSION).or(PUT(URL_TENANT_CHARGING_SESSION))),
+                handler::stopChargingSession)
+            .filter(ReactiveRouterConfiguration::handleExceptions);
+  }
+
+  private static RequestPredicate withBody(RequestPredicate requestPredicate) {
+    return requestPredicate.and(contentType(APPLICATION_JSON, APPLICATION_CBOR));
+  }
+
+  private static Mono<ServerResponse> handleExceptions(ServerRequest request,
+      HandlerFunction<ServerResponse> next) {
+    // the handler functions resolve the tenant and parse the request before returning a Mono
+    return Mono.defer(() -> next.handle(request))
+        .onErrorResume(IllegalStateException.class,
+            ex -> toResponse(HttpStatus.NOT_FOUND, ex))
+        .onErrorResume(IllegalArgumentException.class,
+            ex -> toResponse(HttpStatus.BAD_REQUEST, ex))
+        .onErrorResume(TooManyRequestsException.class,
+            ex -> toResponse(HttpStatus.TOO_MANY_REQUESTS, ex))
+        .onErrorResume(NodeUnavailableException.class,
+            ex -> toResponse(HttpStatus.SERVICE_UNAVAILABLE, ex));
+  }
+
+  private static Mono<ServerResponse> toResponse(HttpStatus status, Exception ex) {
+    return ServerResponse.status(status).contentType(APPLICATION_JSON)
+        .bodyValue(new ApiError(Collections.singletonList(ex.getMessage())));
+  }
+
+  /**
+   * CBOR encoder that encodes every value of a stream on its own. The CBOR encoder of WebFlux only
+   * encodes values through {@code encodeValue}, which its message writer does not call even for a
+   * single value.
+   */
+  private static final class ValueCborEncoder extends Jackson2CborEncoder {
+
+    private ValueCborEncoder(ObjectMapper cborObjectMapper) {
+      super(cborObjectMapper, APPLICATION_CBOR);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+        ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+      return Flux.from(inputStream)
+          .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+    }
+  }
+
+}
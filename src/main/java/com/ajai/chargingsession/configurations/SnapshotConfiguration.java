@@ -0,0 +1,32 @@
+package com.ajai.chargingsession.configurations;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import com.ajai.chargingsession.charging.tenant.TenantRegistry;
+
+/**
+ * Configuration bean that periodically writes a snapshot of the charging sessions of every tenant
+ * in the background. Snapshots are only written when {@code journal.enabled} is set.
+ * 
+ * @author ajai
+ *
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "journal.enabled", havingValue = "true")
+public class SnapshotConfiguration {
+
+  private final TenantRegistry tenantRegistry;
+
+  public SnapshotConfiguration(TenantRegistry tenantRegistry) {
+    this.tenantRegistry = tenantRegistry;
+  }
+
+  @Scheduled(initialDelayString = "${journal.snapshot.interval.millis}",
+      fixedDelayString = "${journal.snapshot.interval.millis}")
+  public void writeSnapshot() {
+    tenantRegistry.writeSnapshots();
+  }
+}
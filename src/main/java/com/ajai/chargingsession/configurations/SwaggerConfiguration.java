@@ -1,5 +1,7 @@
 package com.ajai.chargingsession.configurations;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -10,12 +12,14 @@ import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 /**
- * Configuration bean to enable the swagger2 functionality.
+ * Configuration bean to enable the swagger2 functionality. Springfox only documents the servlet
+ * stack, so it is left out when the application runs on WebFlux.
  * 
  * @author ajai
  *
  */
 @Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @EnableSwagger2
 public class SwaggerConfiguration {
 
@@ -0,0 +1,32 @@
+package com.ajai.chargingsession.configurations;
+
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import com.ajai.chargingsession.charging.tenant.TenantArgumentResolver;
+import com.ajai.chargingsession.charging.tenant.TenantRegistry;
+
+/**
+ * Configuration bean that resolves the tenant of the requests to the charging sessions.
+ * 
+ * @author ajai
+ *
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class TenantConfiguration implements WebMvcConfigurer {
+
+  private final TenantRegistry tenantRegistry;
+
+  public TenantConfiguration(TenantRegistry tenantRegistry) {
+    this.tenantRegistry = tenantRegistry;
+  }
+
+  @Override
+  public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+    resolvers.add(new TenantArgumentResolver(tenantRegistry));
+  }
+}
@@ -16,5 +16,27 @@ public final class Constants {
   public static final String CHARGING_SESSION_ID = "charging-session-id";
   
   public static final String SECONDS = "seconds";
+
+  public static final String LIMIT = "limit";
+
+  public static final String CURSOR = "cursor";
+
+  public static final String STATION_ID = "stationId";
+
+  public static final String STATUS = "status";
+
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+  public static final String TENANT_ID = "tenant-id";
+
+  public static final String TENANT_ID_HEADER = "X-Tenant-Id";
+
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+  public static final String CLUSTER_FORWARDED_HEADER = "X-Cluster-Forwarded";
+
+  public static final String DEFAULT_TENANT_ID = "default";
+
+  public static final String REACTIVE_PROFILE = "reactive";
   
 }
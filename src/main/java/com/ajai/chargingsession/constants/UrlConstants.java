@@ -1,6 +1,7 @@
 package com.ajai.chargingsession.constants;
 
 import static com.ajai.chargingsession.constants.Constants.CHARGING_SESSION_ID;
+import static com.ajai.chargingsession.constants.Constants.TENANT_ID;
 
 /**
  * Represents a utility class that contains all the URLs.
@@ -16,6 +17,10 @@ public final class UrlConstants {
 
   private static final String URL_SUMMARY = "/summary";
 
+  private static final String URL_STREAM = "/stream";
+
+  private static final String URL_BATCH = "/batch";
+
   public static final String URL_CHARGING_SESSIONS = "/chargingSessions";
 
   public static final String URL_CHARGING_SESSION =
@@ -23,4 +28,31 @@ public final class UrlConstants {
 
   public static final String URL_CHARGING_SESSIONS_SUMMARY = URL_CHARGING_SESSIONS + URL_SUMMARY;
 
+  public static final String URL_CHARGING_SESSIONS_STREAM = URL_CHARGING_SESSIONS + URL_STREAM;
+
+  public static final String URL_CHARGING_SESSIONS_SUMMARY_STREAM =
+      URL_CHARGING_SESSIONS_SUMMARY + URL_STREAM;
+
+  public static final String URL_CHARGING_SESSIONS_BATCH = URL_CHARGING_SESSIONS + URL_BATCH;
+
+  public static final String URL_TENANTS = "/tenants";
+
+  public static final String URL_TENANT = URL_TENANTS + "/" + "{" + TENANT_ID + "}";
+
+  public static final String URL_TENANT_CHARGING_SESSIONS = URL_TENANT + URL_CHARGING_SESSIONS;
+
+  public static final String URL_TENANT_CHARGING_SESSION = URL_TENANT + URL_CHARGING_SESSION;
+
+  public static final String URL_TENANT_CHARGING_SESSIONS_SUMMARY =
+      URL_TENANT + URL_CHARGING_SESSIONS_SUMMARY;
+
+  public static final String URL_TENANT_CHARGING_SESSIONS_STREAM =
+      URL_TENANT + URL_CHARGING_SESSIONS_STREAM;
+
+  public static final String URL_TENANT_CHARGING_SESSIONS_SUMMARY_STREAM =
+      URL_TENANT + URL_CHARGING_SESSIONS_SUMMARY_STREAM;
+
+  public static final String URL_TENANT_CHARGING_SESSIONS_BATCH =
+      URL_TENANT + URL_CHARGING_SESSIONS_BATCH;
+
 }
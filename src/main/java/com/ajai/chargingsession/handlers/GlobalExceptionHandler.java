@@ -44,5 +44,28 @@ public class GlobalExceptionHandler {
     return new ResponseEntity<>(new ApiError(Collections.singletonList(ex.getMessage())),
         new HttpHeaders(), HttpStatus.BAD_REQUEST);
   }
-}
 
+  /**
+   * Provides custom handling of {@link TooManyRequestsException}.
+   * 
+   * @param ex Instance of TooManyRequestsException
+   * @return ResponseEntity with the captured exception message.
+   */
+  @ExceptionHandler(TooManyRequestsException.class)
+  public final ResponseEntity<ApiError> handleTooManyRequestsException(Exception ex) {
+    return new ResponseEntity<>(new ApiError(Collections.singletonList(ex.getMessage())),
+        new HttpHeaders(), HttpStatus.TOO_MANY_REQUESTS);
+  }
+
+  /**
+   * Provides custom handling of {@link NodeUnavailableException}.
+   * 
+   * @param ex Instance of NodeUnavailableException
+   * @return ResponseEntity with the captured exception message.
+   */
+  @ExceptionHandler(NodeUnavailableException.class)
+  public final ResponseEntity<ApiError> handleNodeUnavailableException(Exception ex) {
+    return new ResponseEntity<>(new ApiError(Collections.singletonList(ex.getMessage())),
+        new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE);
+  }
+}
@@ -0,0 +1,25 @@
+package com.ajai.chargingsession.handlers;
+
+/**
+ * 
+ * Exception thrown when a request has to be forwarded to another node of the cluster, or a summary
+ * has to be gathered from it, and the node does not answer in time.
+ * 
+ * @author ajai
+ *
+ */
+public class NodeUnavailableException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Creates an instance of NodeUnavailableException with a message and a cause.
+   * 
+   * @param message the node that is unavailable
+   * @param cause the failure of the request to the node
+   */
+  public NodeUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
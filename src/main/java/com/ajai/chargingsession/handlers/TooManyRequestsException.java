@@ -0,0 +1,24 @@
+package com.ajai.chargingsession.handlers;
+
+/**
+ * 
+ * Exception thrown when a request exceeds one of the limits of its tenant, such as the request
+ * rate or the number of charging sessions in progress.
+ * 
+ * @author ajai
+ *
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Creates an instance of TooManyRequestsException with a message.
+   * 
+   * @param message the limit that was exceeded
+   */
+  public TooManyRequestsException(String message) {
+    super(message);
+  }
+
+}
@@ -1,15 +1,30 @@
 package com.ajai.chargingsession.test.charging.controller;
 
+import static com.ajai.chargingsession.constants.Constants.APPLICATION_NDJSON_VALUE;
+import static com.ajai.chargingsession.constants.Constants.CURSOR;
+import static com.ajai.chargingsession.constants.Constants.LIMIT;
 import static com.ajai.chargingsession.constants.Constants.SECONDS;
+import static com.ajai.chargingsession.constants.Constants.STATION_ID;
+import static com.ajai.chargingsession.constants.Constants.STATUS;
+import static com.ajai.chargingsession.constants.Constants.TENANT_ID_HEADER;
 import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS_STREAM;
 import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS_SUMMARY;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS;
+import static com.jayway.jsonpath.JsonPath.read;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
@@ -23,14 +38,24 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import com.ajai.chargingsession.charging.cluster.Cluster;
 import com.ajai.chargingsession.charging.controller.ChargingSessionController;
 import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
 import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
 import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionDurations;
+import com.ajai.chargingsession.charging.session.ChargingSessionPage;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
 import com.ajai.chargingsession.charging.session.StatusEnum;
 import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.summary.SummaryBroadcaster;
+import com.ajai.chargingsession.charging.tenant.TenantRegistry;
+import com.ajai.chargingsession.configurations.ClockConfiguration;
+import com.ajai.chargingsession.configurations.JournalConfiguration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 /**
  * 
@@ -43,8 +68,9 @@ import com.google.common.collect.Maps;
  * @author ajai
  *
  */
-@WebMvcTest(controllers = ChargingSessionController.class)
-@Import(ChargingSessionsHandler.class)
+@WebMvcTest(controllers = ChargingSessionController.class, properties = "tenants=acme")
+@Import({ChargingSessionsHandler.class, TenantRegistry.class, JournalConfiguration.class,
+    ClockConfiguration.class, SummaryBroadcaster.class, SimpleMeterRegistry.class, Cluster.class})
 class ChargingSessionControllerTest {
 
   private final Random random = new Random();
@@ -113,6 +139,41 @@ class ChargingSessionControllerTest {
         .andExpect((jsonPath("$.[0].status", equalTo("IN_PROGRESS")))).andExpect(status().isOk());
   }
 
+  @Test
+  @DirtiesContext
+  void testTenantsAreIsolated() throws Exception {
+
+    this.mockMvc
+        .perform(post(URL_TENANT_CHARGING_SESSIONS, "acme").contentType(APPLICATION_JSON_VALUE)
+            .content(objectMapper.writeValueAsString(new ChargingStationDTO("ABC-1"))))
+        .andExpect(status().isCreated());
+
+    this.mockMvc
+        .perform(get(URL_CHARGING_SESSIONS).header(TENANT_ID_HEADER, "acme")
+            .accept(APPLICATION_JSON_VALUE))
+        .andExpect(status().isOk()).andExpect(jsonPath("$.length()", equalTo(1)))
+        .andExpect(jsonPath("$.[0].stationId", equalTo("ABC-1")));
+
+    this.mockMvc.perform(get(URL_TENANT, "acme").accept(APPLICATION_JSON_VALUE))
+        .andExpect(status().isOk()).andExpect(jsonPath("$.chargingSessions", equalTo(1)))
+        .andExpect(jsonPath("$.inProgress", equalTo(1)));
+
+    Mockito.verifyNoInteractions(handler);
+
+    this.mockMvc
+        .perform(get(URL_TENANT_CHARGING_SESSIONS, "acme").header(TENANT_ID_HEADER, "other")
+            .accept(APPLICATION_JSON_VALUE))
+        .andExpect(status().isBadRequest());
+
+    this.mockMvc
+        .perform(get(URL_TENANT_CHARGING_SESSIONS, "not$valid").accept(APPLICATION_JSON_VALUE))
+        .andExpect(status().isBadRequest());
+
+    this.mockMvc
+        .perform(get(URL_TENANT_CHARGING_SESSIONS, "unknown").accept(APPLICATION_JSON_VALUE))
+        .andExpect(status().isNotFound());
+  }
+
   @Test
   @DirtiesContext
   public void testStartChargingSessionWithEmptyStationId() throws Exception {
@@ -166,25 +227,102 @@ class ChargingSessionControllerTest {
     summaryMap.put(StatusEnum.IN_PROGRESS, 1L);
     summaryMap.put(StatusEnum.FINISHED, 1L);
 
-    Mockito.when(handler.getChargingSessionSummary(1)).thenReturn(summaryMap);
+    Mockito.when(handler.summarize(1)).thenReturn(new ChargingSessionSummary(summaryMap,
+        new ChargingSessionDurations(1500, 1000, 2000, 2000, 2000)));
 
     this.mockMvc
         .perform(get(URL_CHARGING_SESSIONS_SUMMARY).queryParam(SECONDS, "1")
             .accept(APPLICATION_JSON_VALUE))
         .andExpect((jsonPath("$.totalCount", equalTo(2))))
         .andExpect((jsonPath("$.startedCount", equalTo(1))))
-        .andExpect((jsonPath("$.stoppedCount", equalTo(1)))).andExpect(status().isOk());
+        .andExpect((jsonPath("$.stoppedCount", equalTo(1))))
+        .andExpect((jsonPath("$.durations.meanMillis", equalTo(1500))))
+        .andExpect((jsonPath("$.durations.p50Millis", equalTo(1000))))
+        .andExpect((jsonPath("$.durations.maxMillis", equalTo(2000)))).andExpect(status().isOk());
   }
 
   @Test
   @DirtiesContext
   public void testGetSummaryWhenNoChargingSessionsExist() throws Exception {
+    Mockito.when(handler.summarize(Mockito.anyLong()))
+        .thenReturn(new ChargingSessionSummary(Collections.emptyMap()));
+
     this.mockMvc.perform(get(URL_CHARGING_SESSIONS_SUMMARY).accept(APPLICATION_JSON_VALUE))
         .andExpect((jsonPath("$.totalCount", equalTo(0))))
         .andExpect((jsonPath("$.startedCount", equalTo(0))))
         .andExpect((jsonPath("$.stoppedCount", equalTo(0)))).andExpect(status().isOk());
   }
 
+  @Test
+  @DirtiesContext
+  void testGetChargingSessionsPage() throws Exception {
+
+    ChargingSession chargingSession = getStartedChargingSession.apply("ABC-" + random.nextInt());
+
+    Mockito.when(handler.getChargingSessions(null, 1)).thenReturn(
+        new ChargingSessionPage(Collections.singletonList(chargingSession), "next-cursor"));
+
+    Mockito.when(handler.getChargingSessions("next-cursor", 1))
+        .thenReturn(new ChargingSessionPage(Collections.emptyList(), null));
+
+    this.mockMvc.perform(get(URL_CHARGING_SESSIONS).queryParam(LIMIT, "1")
+        .accept(APPLICATION_JSON_VALUE))
+        .andExpect(jsonPath("$.chargingSessions.length()", equalTo(1)))
+        .andExpect(jsonPath("$.chargingSessions[0].id", equalTo(chargingSession.getId().toString())))
+        .andExpect(jsonPath("$.nextCursor", equalTo("next-cursor"))).andExpect(status().isOk());
+
+    this.mockMvc.perform(get(URL_CHARGING_SESSIONS).queryParam(LIMIT, "1")
+        .queryParam(CURSOR, "next-cursor").accept(APPLICATION_JSON_VALUE))
+        .andExpect(jsonPath("$.chargingSessions.length()", equalTo(0)))
+        .andExpect(jsonPath("$.nextCursor").doesNotExist()).andExpect(status().isOk());
+  }
+
+  @Test
+  @DirtiesContext
+  void testGetChargingSessionsOfStation() throws Exception {
+
+    ChargingSession chargingSession = getStartedChargingSession.apply("ABC-1");
+
+    Mockito.when(handler.getChargingSessionsOfStation("ABC-1", StatusEnum.IN_PROGRESS))
+        .thenReturn(Collections.singletonList(chargingSession));
+
+    this.mockMvc.perform(get(URL_CHARGING_SESSIONS).queryParam(STATION_ID, "ABC-1")
+        .queryParam(STATUS, StatusEnum.IN_PROGRESS.getStatus()).accept(APPLICATION_JSON_VALUE))
+        .andExpect(jsonPath("$.length()", equalTo(1)))
+        .andExpect(jsonPath("$[0].id", equalTo(chargingSession.getId().toString())))
+        .andExpect(status().isOk());
+
+    this.mockMvc.perform(get(URL_CHARGING_SESSIONS).queryParam(STATION_ID, "ABC-1")
+        .queryParam(STATUS, "UNKNOWN").accept(APPLICATION_JSON_VALUE))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @DirtiesContext
+  void testStreamChargingSessions() throws Exception {
+
+    ChargingSession startedChargingSession = getStartedChargingSession.apply("ABC-1");
+    ChargingSession stoppedChargingSession = getStoppedChargingSession.apply("ABC-2");
+
+    Mockito.when(handler.streamChargingSessions())
+        .thenReturn(Arrays.asList(stoppedChargingSession, startedChargingSession));
+
+    MvcResult mvcResult = this.mockMvc
+        .perform(get(URL_CHARGING_SESSIONS_STREAM).accept(APPLICATION_NDJSON_VALUE))
+        .andExpect(request().asyncStarted()).andReturn();
+
+    String body = this.mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_NDJSON_VALUE)).andReturn().getResponse()
+        .getContentAsString();
+
+    String[] lines = body.split("\n");
+    assertEquals(2, lines.length, () -> "Expected one line per charging session.");
+    assertEquals(stoppedChargingSession.getId().toString(), read(lines[0], "$.id"),
+        () -> "Expected the charging sessions to be streamed in order.");
+    assertEquals(startedChargingSession.getId().toString(), read(lines[1], "$.id"),
+        () -> "Expected the charging sessions to be streamed in order.");
+  }
+
   Function<String, ChargingSession> getStartedChargingSession = stationId -> {
     return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
       chargingSessionBuilder.id = UUID.randomUUID();
@@ -0,0 +1,78 @@
+package com.ajai.chargingsession.test.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import com.ajai.chargingsession.charging.cluster.ConsistentHashRing;
+
+/**
+ *
+ * Test class that contains tests for the ConsistentHashRing, which assigns the stationIds to the
+ * nodes of a cluster.
+ *
+ * @author ajai
+ *
+ */
+class ConsistentHashRingTest {
+
+  private static final int STATIONS = 30_000;
+
+  private static final List<String> NODES =
+      Arrays.asList("http://node-a:8080", "http://node-b:8080", "http://node-c:8080");
+
+  @Test
+  void testStationsAreSpreadEvenly() {
+
+    ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+
+    int[] stations = new int[NODES.size()];
+    IntStream.range(0, STATIONS).forEach(station -> stations[ring.owner("ABC-" + station)]++);
+
+    for (int node = 0; node < NODES.size(); node++) {
+      int share = stations[node];
+      assertTrue(Math.abs(share - STATIONS / NODES.size()) < STATIONS / NODES.size() / 5,
+          () -> "Expected every node to own about a third of the stations, but got " + share);
+    }
+  }
+
+  @Test
+  void testAddingANodeOnlyMovesStationsToIt() {
+
+    ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+    List<String> grownNodes = Arrays.asList(NODES.get(0), NODES.get(1), NODES.get(2),
+        "http://node-d:8080");
+    ConsistentHashRing grownRing = new ConsistentHashRing(grownNodes, 128);
+
+    int moved = 0;
+    for (int station = 0; station < STATIONS; station++) {
+      int owner = ring.owner("ABC-" + station);
+      int grownOwner = grownRing.owner("ABC-" + station);
+      if (owner != grownOwner) {
+        assertEquals(3, grownOwner, () -> "Expected a station to move to the new node only.");
+        moved++;
+      }
+    }
+    int movedStations = moved;
+    assertTrue(Math.abs(movedStations - STATIONS / 4) < STATIONS / 4 / 5,
+        () -> "Expected about a quarter of the stations to move, but got " + movedStations);
+  }
+
+  @Test
+  void testOwnersDoNotDependOnTheOrderOfTheNodes() {
+
+    ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+    List<String> reorderedNodes = Arrays.asList(NODES.get(2), NODES.get(0), NODES.get(1));
+    ConsistentHashRing reorderedRing = new ConsistentHashRing(reorderedNodes, 128);
+
+    for (int station = 0; station < 1_000; station++) {
+      String stationId = "ABC-" + station;
+      assertEquals(NODES.get(ring.owner(stationId)),
+          reorderedNodes.get(reorderedRing.owner(stationId)),
+          () -> "Expected the same node to own the station.");
+    }
+  }
+
+}
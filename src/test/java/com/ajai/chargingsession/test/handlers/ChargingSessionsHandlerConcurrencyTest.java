@@ -0,0 +1,348 @@
+package com.ajai.chargingsession.test.handlers;
+
+import static com.ajai.chargingsession.charging.clock.SessionClock.NANOS_PER_SECOND;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.RecoveryStatistics;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+
+/**
+ *
+ * Concurrency test for the ChargingSessionsHandler. Writers start charging sessions while two
+ * stoppers race to stop every one of them, one session at a time and in batches, and readers
+ * summarize and list the sessions in between. Every round checks that the outcome could have been
+ * produced by applying the calls one at a time:
+ * <ol>
+ * <li>no charging session is lost or listed twice,</li>
+ * <li>every start and every stop is applied, and appended to the journal, exactly once however
+ * many callers race to stop a session,</li>
+ * <li>every summary counts at least the calls that had returned before it was requested and at
+ * most the calls that had been made before it returned, and never goes backwards, and</li>
+ * <li>no charging session is read half stopped.</li>
+ * </ol>
+ * The summaries are read both uncached and through the summary cache, so the cache is held to the
+ * same guarantees. Many short rounds are run rather than one long one, to see more interleavings
+ * of the threads as they start and finish.
+ *
+ * @author ajai
+ *
+ */
+class ChargingSessionsHandlerConcurrencyTest {
+
+  private static final int ROUNDS = 20;
+
+  private static final int WRITERS = 4;
+
+  private static final int READERS = 2;
+
+  private static final int SESSIONS_PER_WRITER = 500;
+
+  private static final int STOP_BATCH_SIZE = 16;
+
+  private static final int SECONDS = 60;
+
+  private static final UUID END = new UUID(0, 0);
+
+  @ParameterizedTest(name = "{0} shard(s)")
+  @MethodSource("shardCounts")
+  void testStartStopSummaryAndListAreLinearizable(int shards) throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      new Round(shards).run();
+    }
+  }
+
+  static Stream<Arguments> shardCounts() {
+    return Stream.of(Arguments.of(1), Arguments.of(8));
+  }
+
+  /**
+   * A round of starts, racing stops, summaries and listings on a handler of its own.
+   */
+  private static final class Round {
+
+    private final RecordingJournal journal = new RecordingJournal();
+    private final ChargingSessionsHandler handler;
+
+    private final AtomicLong startsInvoked = new AtomicLong();
+    private final AtomicLong startsCompleted = new AtomicLong();
+    private final AtomicLong stopsInvoked = new AtomicLong();
+    private final AtomicLong stopsCompleted = new AtomicLong();
+    private final Map<UUID, Boolean> stoppedInvoked = new ConcurrentHashMap<>();
+    private final Map<UUID, Boolean> stoppedCompleted = new ConcurrentHashMap<>();
+    private final AtomicBoolean writing = new AtomicBoolean(true);
+
+    private final BlockingQueue<UUID> singleStops = new LinkedBlockingQueue<>();
+    private final BlockingQueue<UUID> batchStops = new LinkedBlockingQueue<>();
+
+    private Round(int shards) {
+      // a clock that moves a nanosecond per read, so every session falls into the same summary
+      // window and every summary is read after the sessions started before it
+      AtomicLong nanos = new AtomicLong(
+          LocalDateTime.of(2020, 3, 1, 12, 0).toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND);
+      handler = new ChargingSessionsHandler(1, SECONDS, shards, 1000, 1000, 0, journal,
+          ChargingSessionMetrics.noOp(), nanos::incrementAndGet);
+    }
+
+    private void run() throws Exception {
+      ExecutorService executorService = Executors.newFixedThreadPool(WRITERS + 2 + READERS);
+      CountDownLatch startSignal = new CountDownLatch(1);
+      List<Future<?>> writers = new ArrayList<>();
+      List<Future<?>> others = new ArrayList<>();
+      try {
+        for (int writer = 0; writer < WRITERS; writer++) {
+          int stationOffset = writer * SESSIONS_PER_WRITER;
+          writers.add(executorService.submit(() -> {
+            startSignal.await();
+            write(stationOffset);
+            return null;
+          }));
+        }
+        others.add(executorService.submit(() -> {
+          startSignal.await();
+          stopOneByOne();
+          return null;
+        }));
+        others.add(executorService.submit(() -> {
+          startSignal.await();
+          stopInBatches();
+          return null;
+        }));
+        for (int reader = 0; reader < READERS; reader++) {
+          others.add(executorService.submit(() -> {
+            startSignal.await();
+            read();
+            return null;
+          }));
+        }
+
+        startSignal.countDown();
+        for (Future<?> writer : writers) {
+          writer.get(1, TimeUnit.MINUTES);
+        }
+        singleStops.put(END);
+        batchStops.put(END);
+        for (Future<?> other : others.subList(0, 2)) {
+          other.get(1, TimeUnit.MINUTES);
+        }
+        writing.set(false);
+        for (Future<?> other : others) {
+          other.get(1, TimeUnit.MINUTES);
+        }
+      } finally {
+        executorService.shutdownNow();
+      }
+
+      verify();
+    }
+
+    private void write(int stationOffset) throws InterruptedException {
+      for (int index = 0; index < SESSIONS_PER_WRITER; index++) {
+        startsInvoked.incrementAndGet();
+        UUID chargingSessionId = handler
+            .startChargingSession(new ChargingStationDTO("ABC-" + (stationOffset + index)))
+            .getId();
+        startsCompleted.incrementAndGet();
+        // both stoppers stop every session, so they race each other
+        singleStops.put(chargingSessionId);
+        batchStops.put(chargingSessionId);
+      }
+    }
+
+    private void stopOneByOne() throws InterruptedException {
+      for (UUID chargingSessionId = singleStops.take(); chargingSessionId != END;
+          chargingSessionId = singleStops.take()) {
+        count(stoppedInvoked, stopsInvoked, chargingSessionId);
+        ChargingSession chargingSession = handler.stopChargingSession(chargingSessionId);
+        assertEquals(StatusEnum.FINISHED, chargingSession.getStatus(),
+            () -> "Expected a stopped charging session to be FINISHED.");
+        count(stoppedCompleted, stopsCompleted, chargingSessionId);
+      }
+    }
+
+    private void stopInBatches() throws InterruptedException {
+      List<UUID> batch = new ArrayList<>(STOP_BATCH_SIZE);
+      while (true) {
+        batch.add(batchStops.take());
+        batchStops.drainTo(batch, STOP_BATCH_SIZE - 1);
+        boolean end = batch.remove(END);
+        if (!batch.isEmpty()) {
+          batch.forEach(
+              chargingSessionId -> count(stoppedInvoked, stopsInvoked, chargingSessionId));
+          handler.stopChargingSessions(batch).forEach(result -> assertEquals(200,
+              result.getStatus(), () -> "Expected every started charging session to be found."));
+          batch.forEach(
+              chargingSessionId -> count(stoppedCompleted, stopsCompleted, chargingSessionId));
+          batch.clear();
+        }
+        if (end) {
+          return;
+        }
+      }
+    }
+
+    private void read() {
+      long previousTotal = 0;
+      long previousStopped = 0;
+      boolean cached = false;
+      do {
+        cached = !cached;
+        long minimumTotal = startsCompleted.get();
+        long minimumStopped = stopsCompleted.get();
+        ChargingSessionSummary summary = cached ? handler.summarize(SECONDS)
+            : new ChargingSessionSummary(handler.getChargingSessionSummary(SECONDS));
+        long maximumStopped = stopsInvoked.get();
+        long maximumTotal = startsInvoked.get();
+
+        long total = summary.getTotalCount();
+        long stopped = summary.getStoppedCount();
+        assertTrue(total >= minimumTotal && total <= maximumTotal,
+            () -> "Expected between " + minimumTotal + " and " + maximumTotal
+                + " charging sessions in the summary, got " + total);
+        assertTrue(stopped >= minimumStopped && stopped <= maximumStopped,
+            () -> "Expected between " + minimumStopped + " and " + maximumStopped
+                + " stopped charging sessions in the summary, got " + stopped);
+        assertTrue(total >= previousTotal && stopped >= previousStopped,
+            () -> "Expected the summary never to go backwards.");
+        previousTotal = total;
+        previousStopped = stopped;
+
+        verifyPage(handler.getChargingSessions(null, 1000).getChargingSessions());
+      } while (writing.get());
+    }
+
+    // a session is counted once however many stoppers race, and a stopper that loses the race only
+    // goes on once the winner has counted it, so the counter is never behind the calls it covers
+    private static void count(Map<UUID, Boolean> counted, AtomicLong counter,
+        UUID chargingSessionId) {
+      counted.computeIfAbsent(chargingSessionId, id -> {
+        counter.incrementAndGet();
+        return Boolean.TRUE;
+      });
+    }
+
+    private void verifyPage(List<ChargingSession> chargingSessions) {
+      UUID previousId = null;
+      for (ChargingSession chargingSession : chargingSessions) {
+        UUID id = chargingSession.getId();
+        assertTrue(previousId == null || previousId.compareTo(id) < 0,
+            () -> "Expected the charging sessions to be listed once each in start order.");
+        previousId = id;
+        assertNotNull(chargingSession.getStationId(), () -> "Expected a station id.");
+        if (chargingSession.getStatus() == StatusEnum.FINISHED) {
+          assertNotNull(chargingSession.getStoppedAt(),
+              () -> "Expected a FINISHED charging session to have been stopped.");
+        } else {
+          assertNull(chargingSession.getStoppedAt(),
+              () -> "Expected a charging session in progress not to have been stopped.");
+        }
+      }
+    }
+
+    private void verify() {
+      int sessions = WRITERS * SESSIONS_PER_WRITER;
+
+      List<ChargingSession> chargingSessions = new ArrayList<>();
+      handler.getAllChargingSessions().forEach(chargingSessions::add);
+      Set<UUID> ids = chargingSessions.stream().map(ChargingSession::getId)
+          .collect(Collectors.toCollection(HashSet::new));
+      assertEquals(sessions, chargingSessions.size(),
+          () -> "Expected no charging session to be lost.");
+      assertEquals(sessions, ids.size(),
+          () -> "Expected every charging session to be listed once.");
+      assertEquals(Collections.singleton(StatusEnum.FINISHED),
+          chargingSessions.stream().map(ChargingSession::getStatus).collect(Collectors.toSet()),
+          () -> "Expected every charging session to be FINISHED.");
+
+      assertEquals(ids, journal.starts.keySet(), () -> "Expected every start to be appended.");
+      assertEquals(Collections.singleton(1),
+          journal.starts.values().stream().map(AtomicInteger::get).collect(Collectors.toSet()),
+          () -> "Expected every start to be appended once.");
+      assertEquals(ids, journal.stops.keySet(), () -> "Expected every stop to be appended.");
+      assertEquals(Collections.singleton(1),
+          journal.stops.values().stream().map(AtomicInteger::get).collect(Collectors.toSet()),
+          () -> "Expected every stop to be appended once, however many callers raced.");
+
+      // once quiescent, the summaries agree with the sequential history
+      Map<StatusEnum, Long> summary = handler.getChargingSessionSummary(SECONDS);
+      assertEquals(Collections.singletonMap(StatusEnum.FINISHED, (long) sessions), summary,
+          () -> "Expected the summary to count every charging session as FINISHED.");
+      assertEquals(sessions, handler.summarize(SECONDS).getStoppedCount(),
+          () -> "Expected the cached summary to count every charging session as FINISHED.");
+      assertEquals(0, handler.getInProgressCount(),
+          () -> "Expected no charging session in progress.");
+    }
+  }
+
+  /**
+   * Journal that counts the starts and stops appended for every charging session.
+   */
+  private static final class RecordingJournal implements ChargingSessionJournal {
+
+    private final Map<UUID, AtomicInteger> starts = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicInteger> stops = new ConcurrentHashMap<>();
+
+    @Override
+    public void started(ChargingSession chargingSession) {
+      starts.computeIfAbsent(chargingSession.getId(), id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public void stopped(ChargingSession chargingSession) {
+      stops.computeIfAbsent(chargingSession.getId(), id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public long position() {
+      return 0;
+    }
+
+    @Override
+    public void snapshot(long position, Iterable<ChargingSession> chargingSessions) {
+      // EMPTY
+    }
+
+    @Override
+    public RecoveryStatistics recover(Replayer replayer) {
+      return RecoveryStatistics.NONE;
+    }
+
+    @Override
+    public void close() {
+      // EMPTY
+    }
+  }
+
+}
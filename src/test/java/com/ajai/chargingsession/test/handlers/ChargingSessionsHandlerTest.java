@@ -3,11 +3,18 @@ package com.ajai.chargingsession.test.handlers;
 import static java.util.stream.StreamSupport.stream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
@@ -15,11 +22,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.annotation.DirtiesContext;
+import com.ajai.chargingsession.charging.clock.ManualSessionClock;
 import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
 import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.journal.NoOpChargingSessionJournal;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
 import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSessionPage;
+import com.ajai.chargingsession.charging.session.ChargingSessionResult;
 import com.ajai.chargingsession.charging.session.StatusEnum;
 import com.google.common.collect.Sets;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 /**
  * 
@@ -96,6 +109,213 @@ class ChargingSessionsHandlerTest {
   }
 
 
+  @Test
+  @DirtiesContext
+  void testChargingSessionPages() {
+
+    List<ChargingSession> chargingSessions = startAndGetChargingSessions();
+
+    List<ChargingSession> pagedChargingSessions = new ArrayList<>();
+    ChargingSessionPage page = chargingSessionsHandler.getChargingSessions(null, 2);
+    pagedChargingSessions.addAll(page.getChargingSessions());
+
+    while (page.getNextCursor() != null) {
+      page = chargingSessionsHandler.getChargingSessions(page.getNextCursor(), 2);
+      pagedChargingSessions.addAll(page.getChargingSessions());
+    }
+
+    assertEquals(chargingSessions.stream().map(ChargingSession::getId).collect(Collectors.toList()),
+        pagedChargingSessions.stream().map(ChargingSession::getId).collect(Collectors.toList()),
+        () -> "Expected the pages to contain all the charging sessions in order.");
+    assertTrue(page.getChargingSessions().size() == 1,
+        () -> "Expected the last page to contain the remaining charging session.");
+    assertNull(page.getNextCursor(), () -> "Expected no cursor on the last page.");
+
+    assertThrows(IllegalArgumentException.class,
+        () -> chargingSessionsHandler.getChargingSessions(null, 0));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> chargingSessionsHandler.getChargingSessions(null, 1001));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> chargingSessionsHandler.getChargingSessions("not-a-cursor", 2));
+  }
+
+  @Test
+  @DirtiesContext
+  void testChargingSessionBatches() {
+
+    List<ChargingSessionResult> startResults = chargingSessionsHandler.startChargingSessions(
+        Arrays.asList(new ChargingStationDTO("ABC-1"), new ChargingStationDTO(" "),
+            new ChargingStationDTO("ABC-3")));
+
+    assertEquals(Arrays.asList(201, 400, 201),
+        startResults.stream().map(ChargingSessionResult::getStatus).collect(Collectors.toList()),
+        () -> "Expected a result for every charging station in order.");
+    assertNull(startResults.get(1).getChargingSession(),
+        () -> "Expected no charging session for a blank stationId.");
+
+    UUID startedId = startResults.get(0).getChargingSession().getId();
+    List<ChargingSessionResult> stopResults = chargingSessionsHandler
+        .stopChargingSessions(Arrays.asList(startedId, UUID.randomUUID()));
+
+    assertEquals(200, stopResults.get(0).getStatus(),
+        () -> "Expected the started charging session to be stopped.");
+    assertEquals(StatusEnum.FINISHED, stopResults.get(0).getChargingSession().getStatus(),
+        () -> "Expected status of the stopped charging session to be FINISHED.");
+    assertEquals(404, stopResults.get(1).getStatus(),
+        () -> "Expected an unknown charging session not to be found.");
+
+    Map<StatusEnum, Long> chargingSessionSummary =
+        chargingSessionsHandler.getChargingSessionSummary(1);
+    assertTrue(chargingSessionSummary.get(StatusEnum.IN_PROGRESS) == 1,
+        () -> "Expected 1 charging session to be in progress.");
+    assertTrue(chargingSessionSummary.get(StatusEnum.FINISHED) == 1,
+        () -> "Expected 1 charging session to be finished.");
+
+    assertThrows(IllegalArgumentException.class,
+        () -> chargingSessionsHandler.startChargingSessions(Collections.emptyList()));
+
+    assertThrows(IllegalArgumentException.class, () -> chargingSessionsHandler
+        .stopChargingSessions(Collections.nCopies(1001, startedId)));
+  }
+
+  @Test
+  void testOnlyValidItemsOfBatchesAreAdmitted() {
+
+    ChargingSessionsHandler handler = new ChargingSessionsHandler(1, 60, 8, 1000, 1000, 100,
+        NoOpChargingSessionJournal.INSTANCE, ChargingSessionMetrics.noOp(),
+        new ManualSessionClock(LocalDateTime.of(2020, 3, 1, 12, 0)));
+    List<Integer> admitted = new ArrayList<>();
+
+    List<ChargingSessionResult> startResults = handler.startChargingSessions(
+        Arrays.asList(new ChargingStationDTO("ABC-1"), null, new ChargingStationDTO("ABC-2")),
+        chargingStationDTO -> "ABC-2".equals(chargingStationDTO.getStationId()) ? "Rejected" : null,
+        admitted::add);
+    assertEquals(Arrays.asList(201, 400, 400),
+        startResults.stream().map(ChargingSessionResult::getStatus).collect(Collectors.toList()),
+        () -> "Expected the DTOs rejected by the validator to fail on their own.");
+    assertEquals("Rejected", startResults.get(2).getError(),
+        () -> "Expected the error of the validator.");
+
+    handler.stopChargingSessions(Arrays.asList(null, UUID.randomUUID()), admitted::add);
+    assertEquals(Arrays.asList(1, 1), admitted,
+        () -> "Expected only the valid items to be admitted.");
+
+    assertThrows(IllegalStateException.class,
+        () -> handler.startChargingSessions(Arrays.asList(new ChargingStationDTO("ABC-3")),
+            ChargingSessionsHandler::validate, chargingSessions -> {
+              throw new IllegalStateException();
+            }));
+    assertEquals(1, handler.getChargingSessionCount(),
+        () -> "Expected no charging session of a rejected batch to be started.");
+  }
+
+  @Test
+  void testOnlyActualStopsAreCounted() {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ChargingSessionsHandler handler = new ChargingSessionsHandler(1, 60, 8, 1000, 1000, 100,
+        NoOpChargingSessionJournal.INSTANCE, new ChargingSessionMetrics(meterRegistry, "test"),
+        new ManualSessionClock(LocalDateTime.of(2020, 3, 1, 12, 0)));
+
+    UUID firstId = handler.startChargingSession(new ChargingStationDTO("ABC-1")).getId();
+    UUID secondId = handler.startChargingSession(new ChargingStationDTO("ABC-2")).getId();
+    handler.stopChargingSession(firstId);
+    handler.stopChargingSession(firstId);
+    handler.stopChargingSessions(Arrays.asList(firstId, secondId, secondId));
+
+    assertEquals(2, meterRegistry.get("charging.sessions.stopped").counter().count(),
+        () -> "Expected the repeated stops of FINISHED charging sessions not to be counted.");
+  }
+
+  @Test
+  void testWriteLocksOfTheSessionTablesAreTimed() {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ChargingSessionsHandler handler = new ChargingSessionsHandler(1, 60, 8, 1000, 1000, 100,
+        NoOpChargingSessionJournal.INSTANCE, new ChargingSessionMetrics(meterRegistry, "test"),
+        new ManualSessionClock(LocalDateTime.of(2020, 3, 1, 12, 0)));
+
+    UUID chargingSessionId = handler.startChargingSession(new ChargingStationDTO("ABC-1")).getId();
+    handler.startChargingSession(new ChargingStationDTO("ABC-2"));
+    handler.stopChargingSession(chargingSessionId);
+    handler.getChargingSessions(null, 10);
+
+    assertEquals(3, meterRegistry.get("charging.sessions.lock.wait").timer().count(),
+        () -> "Expected the two starts and the stop to wait for the write lock.");
+    assertEquals(3, meterRegistry.get("charging.sessions.lock.hold").timer().count(),
+        () -> "Expected the two starts and the stop to hold the write lock.");
+    assertEquals(0, meterRegistry.get("charging.sessions.lock.retries").counter().count(),
+        () -> "Expected the listing without concurrent writes not to retry its reads.");
+  }
+
+  @Test
+  void testChargingSessionSummaryWindowOnManualClock() {
+
+    ManualSessionClock clock = new ManualSessionClock(LocalDateTime.of(2020, 3, 1, 12, 0));
+    ChargingSessionsHandler handler = new ChargingSessionsHandler(1, 60, 8, 1000, 1000, 100,
+        NoOpChargingSessionJournal.INSTANCE, ChargingSessionMetrics.noOp(), clock);
+
+    UUID chargingSessionId =
+        handler.startChargingSession(new ChargingStationDTO("ABC-1")).getId();
+    handler.startChargingSession(new ChargingStationDTO("ABC-2"));
+    clock.advance(Duration.ofSeconds(10));
+    handler.startChargingSession(new ChargingStationDTO("ABC-3"));
+    ChargingSession chargingSession = handler.stopChargingSession(chargingSessionId);
+
+    assertEquals(LocalDateTime.of(2020, 3, 1, 12, 0, 10), chargingSession.getStoppedAt(),
+        () -> "Expected the charging session to be stopped at the time of the clock.");
+    assertTrue(handler.getChargingSessionSummary(9).isEmpty(),
+        () -> "Expected no charging session started after 9 seconds ago and before now.");
+    Map<StatusEnum, Long> chargingSessionSummary = handler.getChargingSessionSummary(10);
+    assertTrue(chargingSessionSummary.get(StatusEnum.IN_PROGRESS) == 1,
+        () -> "Expected the charging session started exactly 10 seconds ago to be in progress.");
+    assertTrue(chargingSessionSummary.get(StatusEnum.FINISHED) == 1,
+        () -> "Expected 1 charging session to be finished.");
+    assertEquals(10_000, handler.getChargingSessionDurations(10).getMaxMillis(),
+        () -> "Expected the finished charging session to have lasted 10 seconds.");
+
+    clock.advance(Duration.ofMillis(1));
+    assertEquals(Collections.singletonMap(StatusEnum.IN_PROGRESS, 1L),
+        handler.getChargingSessionSummary(10),
+        () -> "Expected only the charging session started a millisecond ago.");
+
+    clock.advance(Duration.ofSeconds(61));
+    assertTrue(handler.getChargingSessionSummary(60).isEmpty(),
+        () -> "Expected no charging sessions started in the last minute.");
+  }
+
+  @Test
+  void testSummaryIsNotCachedAcrossAStartBetweenItsReads() {
+
+    // a start slips in right after the summary has read the clock
+    Runnable[] interleaved = new Runnable[1];
+    ManualSessionClock clock = new ManualSessionClock(LocalDateTime.of(2020, 3, 1, 12, 0)) {
+      @Override
+      public long nanos() {
+        long nanos = super.nanos();
+        Runnable interleave = interleaved[0];
+        interleaved[0] = null;
+        if (interleave != null) {
+          interleave.run();
+        }
+        return nanos;
+      }
+    };
+    ChargingSessionsHandler handler = new ChargingSessionsHandler(1, 60, 8, 1000, 1000, 0,
+        NoOpChargingSessionJournal.INSTANCE, ChargingSessionMetrics.noOp(), clock);
+    interleaved[0] = () -> {
+      handler.startChargingSession(new ChargingStationDTO("ABC-1"));
+      clock.advance(Duration.ofMillis(1));
+    };
+
+    assertEquals(0, handler.summarize(1).getStartedCount(),
+        () -> "Expected the summary not to cover the charging session started at its own time.");
+    assertEquals(1, handler.summarize(1).getStartedCount(),
+        () -> "Expected the summary after the start to cover it rather than the cached one.");
+  }
+
   private void stopChargingSessions(int chargingSessionsToBeStopped) {
 
     startAndGetChargingSessions().stream().limit(chargingSessionsToBeStopped)
@@ -1,22 +1,31 @@
 package com.ajai.chargingsession.test.integration;
 
+import static com.ajai.chargingsession.constants.Constants.IDEMPOTENCY_KEY_HEADER;
 import static com.ajai.chargingsession.constants.Constants.SECONDS;
 import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSION;
 import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS;
 import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS_SUMMARY;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSION;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS_SUMMARY;
 import static com.jayway.jsonpath.JsonPath.read;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.function.Consumer;
@@ -35,6 +44,9 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
 import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.google.gson.Gson;
 
 /**
@@ -48,7 +60,7 @@ import com.google.gson.Gson;
  * @author ajai
  *
  */
-@SpringBootTest
+@SpringBootTest(properties = "tenants=cbor,idempotent")
 class ChargingSessionsIntegrationTest {
 
   private MockMvc mockMvc;
@@ -57,6 +69,8 @@ class ChargingSessionsIntegrationTest {
 
   private final Random random = new Random();
 
+  private final ObjectMapper cborObjectMapper = new ObjectMapper(new CBORFactory());
+
   @Autowired
   private WebApplicationContext wac;
 
@@ -151,6 +165,19 @@ class ChargingSessionsIntegrationTest {
         .andExpect(status().isNotFound());
   }
 
+  @Test
+  void testTenantsAreRegistered() throws Exception {
+
+    this.mockMvc.perform(get(URL_TENANT_CHARGING_SESSIONS, "registered"))
+        .andExpect(status().isNotFound());
+
+    this.mockMvc.perform(put(URL_TENANT, "registered")).andExpect(status().isOk())
+        .andExpect(jsonPath("$.chargingSessions", equalTo(0)));
+
+    this.mockMvc.perform(get(URL_TENANT_CHARGING_SESSIONS, "registered"))
+        .andExpect(status().isOk()).andExpect(jsonPath("$.length()", equalTo(0)));
+  }
+
   @Test
   void testOutOfRangeSecondsForChargingSessionSummary() throws Exception {
 
@@ -164,6 +191,87 @@ class ChargingSessionsIntegrationTest {
   }
 
 
+  @Test
+  void testChargingSessionsInCbor() throws Exception {
+
+    // a tenant of its own, so the charging sessions of the other tests are not counted
+    MvcResult result = this.mockMvc
+        .perform(post(URL_TENANT_CHARGING_SESSIONS, "cbor").contentType(APPLICATION_CBOR_VALUE)
+            .accept(APPLICATION_CBOR_VALUE)
+            .content(cborObjectMapper.writeValueAsBytes(new ChargingStationDTO("ABC-1"))))
+        .andExpect(status().isCreated()).andExpect(content().contentType(APPLICATION_CBOR_VALUE))
+        .andReturn();
+    JsonNode chargingSession =
+        cborObjectMapper.readTree(result.getResponse().getContentAsByteArray());
+    assertEquals(StatusEnum.IN_PROGRESS.getStatus(), chargingSession.get("status").asText(),
+        () -> "Expected the started charging session in CBOR.");
+
+    // the id is written as 16 bytes rather than as text
+    UUID chargingSessionId = cborObjectMapper.treeToValue(chargingSession.get("id"), UUID.class);
+    result = this.mockMvc
+        .perform(put(URL_TENANT_CHARGING_SESSION, "cbor", chargingSessionId)
+            .contentType(APPLICATION_CBOR_VALUE).accept(APPLICATION_CBOR_VALUE))
+        .andExpect(status().isOk()).andReturn();
+    assertEquals(StatusEnum.FINISHED.getStatus(), cborObjectMapper
+        .readTree(result.getResponse().getContentAsByteArray()).get("status").asText(),
+        () -> "Expected the stopped charging session in CBOR.");
+
+    result = this.mockMvc
+        .perform(get(URL_TENANT_CHARGING_SESSIONS_SUMMARY, "cbor").queryParam(SECONDS, "60")
+            .accept(APPLICATION_CBOR_VALUE))
+        .andExpect(status().isOk()).andReturn();
+    assertEquals(1, cborObjectMapper.readTree(result.getResponse().getContentAsByteArray())
+        .get("stoppedCount").asLong(), () -> "Expected the summary in CBOR.");
+
+    this.mockMvc.perform(get(URL_TENANT_CHARGING_SESSIONS_SUMMARY, "cbor"))
+        .andExpect(content().contentType(APPLICATION_JSON_VALUE)).andExpect(status().isOk());
+  }
+
+
+  @Test
+  void testIdempotentChargingSessions() throws Exception {
+
+    // retries of a start with the same key, some of them concurrent, start a single session
+    String chargingStationDTO = gson.toJson(new ChargingStationDTO("ABC-1"));
+    Set<String> chargingSessionIds = IntStream.range(0, 10).parallel().mapToObj(index -> {
+      try {
+        MvcResult result = this.mockMvc
+            .perform(post(URL_TENANT_CHARGING_SESSIONS, "idempotent")
+                .header(IDEMPOTENCY_KEY_HEADER, "start-1").contentType(APPLICATION_JSON_VALUE)
+                .content(chargingStationDTO))
+            .andExpect(status().isCreated()).andReturn();
+        return read(result.getResponse().getContentAsString(), "$.id").toString();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }).collect(Collectors.toSet());
+    assertEquals(1, chargingSessionIds.size(),
+        () -> "Expected every retry to get the same charging session.");
+
+    String chargingSessionId = chargingSessionIds.iterator().next();
+    for (int retry = 0; retry < 2; retry++) {
+      this.mockMvc
+          .perform(put(URL_TENANT_CHARGING_SESSION, "idempotent", chargingSessionId)
+              .header(IDEMPOTENCY_KEY_HEADER, "stop-1").contentType(APPLICATION_JSON_VALUE))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.status", equalTo(StatusEnum.FINISHED.getStatus())));
+    }
+
+    // a key may not be reused for another request
+    this.mockMvc
+        .perform(post(URL_TENANT_CHARGING_SESSIONS, "idempotent")
+            .header(IDEMPOTENCY_KEY_HEADER, "start-1").contentType(APPLICATION_JSON_VALUE)
+            .content(gson.toJson(new ChargingStationDTO("ABC-2"))))
+        .andExpect(status().isBadRequest());
+
+    this.mockMvc
+        .perform(get(URL_TENANT_CHARGING_SESSIONS_SUMMARY, "idempotent").queryParam(SECONDS, "60")
+            .accept(APPLICATION_JSON_VALUE))
+        .andExpect(jsonPath("$.totalCount", equalTo(1)))
+        .andExpect(jsonPath("$.stoppedCount", equalTo(1))).andExpect(status().isOk());
+  }
+
+
   private Supplier<String> createAndGetChargingStationDTO =
       () -> gson.toJson(new ChargingStationDTO("ABC-" + random.nextInt()));
 
@@ -0,0 +1,276 @@
+package com.ajai.chargingsession.test.integration;
+
+import static com.ajai.chargingsession.constants.Constants.CLUSTER_FORWARDED_HEADER;
+import static com.ajai.chargingsession.constants.Constants.REACTIVE_PROFILE;
+import static com.ajai.chargingsession.constants.Constants.SECONDS;
+import static com.ajai.chargingsession.constants.Constants.STATION_ID;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSION;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_CHARGING_SESSIONS_SUMMARY;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS;
+import static com.ajai.chargingsession.constants.UrlConstants.URL_TENANT_CHARGING_SESSIONS_BATCH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import com.ajai.chargingsession.Application;
+import com.ajai.chargingsession.charging.cluster.ConsistentHashRing;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ *
+ * Test class that runs a cluster of three nodes, each in a JVM of its own on a loopback port, and
+ * checks that the charging sessions are partitioned on their stationId. The first two nodes run
+ * on the servlet stack and the third on the reactive one, so both forward requests to the others.
+ * Every request is sent to a node the charging sessions do not necessarily belong to.
+ *
+ * @author ajai
+ *
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class ClusterIntegrationTest {
+
+  private static final int NODES = 3;
+
+  private static final int VIRTUAL_NODES = 128;
+
+  private static final int STATIONS = 300;
+
+  private final RestTemplate restTemplate = new RestTemplate();
+
+  private final List<Process> processes = new ArrayList<>();
+
+  private List<String> nodes;
+
+  @TempDir
+  static Path logs;
+
+  @BeforeAll
+  void startNodes() throws Exception {
+    List<Integer> ports = new ArrayList<>();
+    for (int node = 0; node < NODES; node++) {
+      ports.add(freePort());
+    }
+    nodes = ports.stream().map(port -> "http://localhost:" + port).collect(Collectors.toList());
+
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    for (int node = 0; node < NODES; node++) {
+      List<String> command = new ArrayList<>(Arrays.asList(java, "-Xmx256m", "-cp",
+          System.getProperty("java.class.path"), Application.class.getName(),
+          "--server.port=" + ports.get(node), "--cluster.nodes=" + String.join(",", nodes),
+          "--cluster.node=" + node, "--cluster.virtual.nodes=" + VIRTUAL_NODES,
+          "--tenants=acme", "--spring.main.banner-mode=off", "--logging.level.root=WARN"));
+      if (node == NODES - 1) {
+        command.add("--spring.profiles.active=" + REACTIVE_PROFILE);
+      }
+      processes.add(new ProcessBuilder(command).redirectErrorStream(true)
+          .redirectOutput(logs.resolve("node-" + node + ".log").toFile()).start());
+    }
+    for (String node : nodes) {
+      awaitStarted(node);
+    }
+  }
+
+  @AfterAll
+  void stopNodes() throws InterruptedException {
+    for (Process process : processes) {
+      process.destroyForcibly().waitFor(1, TimeUnit.MINUTES);
+    }
+  }
+
+  @Test
+  void testChargingSessionsArePartitionedOnStationId() {
+
+    ConsistentHashRing ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+
+    // every start is sent to the first node and kept by the node the stationId belongs to
+    List<JsonNode> chargingSessions = IntStream.range(0, STATIONS)
+        .mapToObj(station -> exchange(0, HttpMethod.POST, URL_CHARGING_SESSIONS,
+            new ChargingStationDTO("ABC-" + station), HttpStatus.CREATED))
+        .collect(Collectors.toList());
+    int[] owned = new int[NODES];
+    for (JsonNode chargingSession : chargingSessions) {
+      int owner = ring.owner(chargingSession.get("stationId").asText());
+      assertEquals(owner,
+          SessionIdGenerator.nodeOf(UUID.fromString(chargingSession.get("id").asText())),
+          () -> "Expected the charging session to be started on the node of its station.");
+      owned[owner]++;
+    }
+    for (int node = 0; node < NODES; node++) {
+      int ownedChargingSessions = owned[node];
+      assertTrue(ownedChargingSessions > 0, () -> "Expected every node to own a station.");
+      assertEquals(ownedChargingSessions, localSummary(node).get("startedCount").asLong(),
+          () -> "Expected every node to keep the charging sessions of its stations only.");
+    }
+
+    // every stop is sent to the last node and forwarded to the node that keeps the session
+    chargingSessions.stream().limit(100)
+        .forEach(chargingSession -> assertEquals(StatusEnum.FINISHED.name(),
+            exchange(NODES - 1, HttpMethod.PUT,
+                URL_CHARGING_SESSION.replace("{charging-session-id}",
+                    chargingSession.get("id").asText()),
+                null, HttpStatus.OK).get("status").asText(),
+            () -> "Expected the charging session to be stopped by the node that keeps it."));
+
+    for (int node = 0; node < NODES; node++) {
+      JsonNode summary = exchange(node, HttpMethod.GET,
+          URL_CHARGING_SESSIONS_SUMMARY + "?" + SECONDS + "=60", null, HttpStatus.OK);
+      assertEquals(STATIONS - 100, summary.get("startedCount").asLong(),
+          () -> "Expected the summary to count the charging sessions in progress on every node.");
+      assertEquals(100, summary.get("stoppedCount").asLong(),
+          () -> "Expected the summary to count the charging sessions stopped on every node.");
+    }
+
+    String stationId = chargingSessions.get(STATIONS - 1).get("stationId").asText();
+    int owner = ring.owner(stationId);
+    JsonNode chargingSessionsOfStation = exchange((owner + 1) % NODES, HttpMethod.GET,
+        URL_CHARGING_SESSIONS + "?" + STATION_ID + "=" + stationId, null, HttpStatus.OK);
+    assertEquals(1, chargingSessionsOfStation.size(),
+        () -> "Expected the listing of a station to be forwarded to the node of the station.");
+  }
+
+  @Test
+  void testTenantsArePartitionedOnStationId() {
+
+    ConsistentHashRing ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+    String stationId = IntStream.range(0, STATIONS).mapToObj(station -> "DEF-" + station)
+        .filter(station -> ring.owner(station) == NODES - 1).findFirst().get();
+    String tenantUri = URL_TENANT_CHARGING_SESSIONS.replace("{tenant-id}", "acme");
+
+    exchange(0, HttpMethod.POST, tenantUri, new ChargingStationDTO(stationId), HttpStatus.CREATED);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(CLUSTER_FORWARDED_HEADER, "0");
+    JsonNode chargingSessionsOfStation = restTemplate.exchange(
+        nodes.get(NODES - 1) + tenantUri + "?" + STATION_ID + "=" + stationId, HttpMethod.GET,
+        new HttpEntity<>(headers), JsonNode.class).getBody();
+    assertEquals(1, chargingSessionsOfStation.size(),
+        () -> "Expected the charging session to be started for the tenant on its node.");
+  }
+
+  @Test
+  void testBatchesAreSplitByNode() {
+
+    ConsistentHashRing ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+    String batchUri = URL_TENANT_CHARGING_SESSIONS_BATCH.replace("{tenant-id}", "acme");
+    List<ChargingStationDTO> chargingStationDTOs = IntStream.range(0, 30)
+        .mapToObj(station -> new ChargingStationDTO("GHI-" + station))
+        .collect(Collectors.toList());
+    chargingStationDTOs.add(new ChargingStationDTO(""));
+
+    // the batch is sent to the first node and every start is kept by the node of its station
+    JsonNode results = exchange(0, HttpMethod.POST, batchUri, chargingStationDTOs, HttpStatus.OK);
+    assertEquals(chargingStationDTOs.size(), results.size());
+    List<String> chargingSessionIds = new ArrayList<>();
+    for (int item = 0; item < chargingStationDTOs.size() - 1; item++) {
+      String stationId = chargingStationDTOs.get(item).getStationId();
+      JsonNode chargingSession = results.get(item).get("chargingSession");
+      assertEquals(HttpStatus.CREATED.value(), results.get(item).get("status").asInt());
+      assertEquals(stationId, chargingSession.get("stationId").asText(),
+          () -> "Expected the results in the order of the items.");
+      assertEquals(ring.owner(stationId),
+          SessionIdGenerator.nodeOf(UUID.fromString(chargingSession.get("id").asText())),
+          () -> "Expected the charging session to be started on the node of its station.");
+      chargingSessionIds.add(chargingSession.get("id").asText());
+    }
+    assertEquals(HttpStatus.BAD_REQUEST.value(),
+        results.get(chargingStationDTOs.size() - 1).get("status").asInt(),
+        () -> "Expected an invalid item to be rejected in its own result.");
+
+    // the stops are sent to the last node and every one is stopped by the node that keeps it
+    chargingSessionIds.add(1, null);
+    results = exchange(NODES - 1, HttpMethod.PUT, batchUri, chargingSessionIds, HttpStatus.OK);
+    assertEquals(chargingSessionIds.size(), results.size());
+    for (int item = 0; item < chargingSessionIds.size(); item++) {
+      String chargingSessionId = chargingSessionIds.get(item);
+      JsonNode result = results.get(item);
+      if (chargingSessionId == null) {
+        assertEquals(HttpStatus.NOT_FOUND.value(), result.get("status").asInt());
+      } else {
+        assertEquals(chargingSessionId, result.get("chargingSession").get("id").asText(),
+            () -> "Expected the results in the order of the items.");
+        assertEquals(StatusEnum.FINISHED.name(),
+            result.get("chargingSession").get("status").asText(),
+            () -> "Expected the charging session to be stopped by the node that keeps it.");
+      }
+    }
+  }
+
+  private JsonNode localSummary(int node) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(CLUSTER_FORWARDED_HEADER, Integer.toString(node));
+    return restTemplate.exchange(
+        nodes.get(node) + URL_CHARGING_SESSIONS_SUMMARY + "?" + SECONDS + "=60", HttpMethod.GET,
+        new HttpEntity<>(headers), JsonNode.class).getBody();
+  }
+
+  private JsonNode exchange(int node, HttpMethod method, String uri, Object body,
+      HttpStatus expectedStatus) {
+    try {
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      ResponseEntity<JsonNode> response = restTemplate.exchange(nodes.get(node) + uri, method,
+          new HttpEntity<>(body, headers), JsonNode.class);
+      assertEquals(expectedStatus, response.getStatusCode(),
+          () -> "Unexpected status of " + method + " " + uri);
+      return response.getBody();
+    } catch (HttpStatusCodeException ex) {
+      throw new AssertionError(method + " " + uri + " failed with " + ex.getStatusCode() + " "
+          + ex.getResponseBodyAsString(), ex);
+    }
+  }
+
+  private void awaitStarted(String node) throws InterruptedException {
+    long deadlineNanos = System.nanoTime() + TimeUnit.MINUTES.toNanos(3);
+    while (true) {
+      try {
+        restTemplate.getForEntity(node + "/actuator/health", String.class);
+        return;
+      } catch (RestClientException ex) {
+        if (System.nanoTime() > deadlineNanos) {
+          throw new IllegalStateException("The node at " + node + " did not start", ex);
+        }
+        for (Process process : processes) {
+          if (!process.isAlive()) {
+            throw new IllegalStateException("A node exited, see the logs in " + logs, ex);
+          }
+        }
+        TimeUnit.MILLISECONDS.sleep(200);
+      }
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket serverSocket = new ServerSocket(0)) {
+      return serverSocket.getLocalPort();
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.ajai.chargingsession.test.integration;
+
+import static com.ajai.chargingsession.constants.Constants.APPLICATION_NDJSON_VALUE;
+import static com.ajai.chargingsession.constants.Constants.LIMIT;
+import static com.ajai.chargingsession.constants.Constants.REACTIVE_PROFILE;
+import static com.ajai.chargingsession.constants.Constants.SECONDS;
+import static com.ajai.chargingsession.constants.Constants.TENANT_ID_HEADER;
+import static com.ajai.chargingsession.constants.UrlConstants.*;
+import static com.jayway.jsonpath.JsonPath.read;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ *
+ * Test class that runs the application on WebFlux with the reactive profile and tests the
+ * functional routes of the charging sessions over HTTP, on the same URLs as the servlet stack.
+ *
+ * @author ajai
+ *
+ */
+// the test context decides on the type of application before it reads the profile
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = {"spring.main.web-application-type=reactive", "summary.stream.tick.millis=50",
+        "tenants=reactive,cbor"})
+@ActiveProfiles(REACTIVE_PROFILE)
+class ReactiveChargingSessionsIntegrationTest {
+
+  private static final String TENANT = "reactive";
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Test
+  void testChargingSessions() {
+
+    List<UUID> ids = IntStream.range(0, 10)
+        .mapToObj(index -> startChargingSession(new ChargingStationDTO("ABC-" + index)))
+        .collect(Collectors.toList());
+
+    ids.subList(5, 10).forEach(id -> webTestClient.put()
+        .uri(URL_TENANT_CHARGING_SESSION, TENANT, id).contentType(APPLICATION_JSON).exchange()
+        .expectStatus().isOk().expectBody()
+        .jsonPath("$.status").isEqualTo(StatusEnum.FINISHED.getStatus()));
+
+    webTestClient.get().uri(URL_TENANT_CHARGING_SESSIONS, TENANT).exchange().expectStatus()
+        .isOk().expectBody().jsonPath("$.length()").isEqualTo(10);
+
+    webTestClient.get()
+        .uri(uriBuilder -> uriBuilder.path(URL_TENANT_CHARGING_SESSIONS).queryParam(LIMIT, 4)
+            .build(TENANT))
+        .exchange().expectStatus().isOk().expectBody().jsonPath("$.chargingSessions.length()")
+        .isEqualTo(4);
+
+    webTestClient.get()
+        .uri(uriBuilder -> uriBuilder.path(URL_TENANT_CHARGING_SESSIONS_SUMMARY)
+            .queryParam(SECONDS, 60).build(TENANT))
+        .exchange().expectStatus().isOk().expectBody().jsonPath("$.totalCount").isEqualTo(10)
+        .jsonPath("$.startedCount").isEqualTo(5).jsonPath("$.stoppedCount").isEqualTo(5);
+
+    String stream = webTestClient.get().uri(URL_CHARGING_SESSIONS_STREAM)
+        .header(TENANT_ID_HEADER, TENANT).exchange().expectStatus().isOk().expectHeader()
+        .contentType(MediaType.valueOf(APPLICATION_NDJSON_VALUE)).expectBody(String.class)
+        .returnResult().getResponseBody();
+    assertEquals(10, stream.split("\n").length,
+        () -> "Expected a line for every charging session.");
+
+    List<String> summaries = webTestClient.get()
+        .uri(uriBuilder -> uriBuilder.path(URL_TENANT_CHARGING_SESSIONS_SUMMARY_STREAM)
+            .queryParam(SECONDS, 60).build(TENANT))
+        .accept(MediaType.TEXT_EVENT_STREAM).exchange().expectStatus().isOk()
+        .returnResult(String.class).getResponseBody().take(2).collectList()
+        .block(Duration.ofSeconds(10));
+    assertEquals(2, summaries.size(), () -> "Expected a summary every tick.");
+    assertEquals(Integer.valueOf(10), read(summaries.get(1), "$.totalCount"),
+        () -> "Expected the charging sessions in the streamed summary.");
+  }
+
+  @Test
+  void testChargingSessionsInCbor() throws Exception {
+
+    ObjectMapper cborObjectMapper = new ObjectMapper(new CBORFactory());
+
+    byte[] chargingSession = webTestClient.post().uri(URL_TENANT_CHARGING_SESSIONS, "cbor")
+        .contentType(APPLICATION_CBOR).accept(APPLICATION_CBOR)
+        .bodyValue(cborObjectMapper.writeValueAsBytes(new ChargingStationDTO("ABC-1"))).exchange()
+        .expectStatus().isCreated().expectHeader().contentType(APPLICATION_CBOR)
+        .expectBody(byte[].class).returnResult().getResponseBody();
+    JsonNode startedChargingSession = cborObjectMapper.readTree(chargingSession);
+    assertEquals(StatusEnum.IN_PROGRESS.getStatus(), startedChargingSession.get("status").asText(),
+        () -> "Expected the started charging session in CBOR.");
+
+    byte[] summary = webTestClient.get()
+        .uri(uriBuilder -> uriBuilder.path(URL_TENANT_CHARGING_SESSIONS_SUMMARY)
+            .queryParam(SECONDS, 60).build("cbor"))
+        .accept(APPLICATION_CBOR).exchange().expectStatus().isOk().expectHeader()
+        .contentType(APPLICATION_CBOR).expectBody(byte[].class).returnResult().getResponseBody();
+    assertEquals(1, cborObjectMapper.readTree(summary).get("startedCount").asLong(),
+        () -> "Expected the summary in CBOR.");
+  }
+
+  @Test
+  void testInvalidRequests() {
+
+    webTestClient.post().uri(URL_CHARGING_SESSIONS).contentType(APPLICATION_JSON)
+        .bodyValue(new ChargingStationDTO(" ")).exchange().expectStatus().isBadRequest()
+        .expectBody().jsonPath("$.errors.length()").isEqualTo(1);
+
+    webTestClient.put().uri(URL_CHARGING_SESSION, UUID.randomUUID())
+        .contentType(APPLICATION_JSON).exchange().expectStatus().isNotFound();
+
+    webTestClient.post().uri(URL_CHARGING_SESSIONS_BATCH).contentType(APPLICATION_JSON)
+        .bodyValue(Arrays.asList(new ChargingStationDTO(" "), new ChargingStationDTO("ABC-1")))
+        .exchange().expectStatus().isOk().expectBody()
+        .jsonPath("$[0].status").isEqualTo(400)
+        .jsonPath("$[0].error").isEqualTo("stationId must not be blank")
+        .jsonPath("$[1].status").isEqualTo(201);
+
+    webTestClient.get().uri(URL_TENANT_CHARGING_SESSIONS, TENANT)
+        .header(TENANT_ID_HEADER, "other").exchange().expectStatus().isBadRequest();
+  }
+
+  private UUID startChargingSession(ChargingStationDTO chargingStationDTO) {
+    String chargingSession = webTestClient.post().uri(URL_TENANT_CHARGING_SESSIONS, TENANT)
+        .contentType(APPLICATION_JSON).bodyValue(chargingStationDTO).exchange().expectStatus()
+        .isCreated().expectBody(String.class).returnResult().getResponseBody();
+    return UUID.fromString(read(chargingSession, "$.id"));
+  }
+
+}
@@ -0,0 +1,199 @@
+package com.ajai.chargingsession.test.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.FsyncPolicy;
+import com.ajai.chargingsession.charging.journal.JdbcChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.RecoveryStatistics;
+import com.ajai.chargingsession.charging.journal.UncheckedSQLException;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.store.ChargingSessionStore;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Streams;
+
+/**
+ *
+ * Test class that contains tests for the JdbcChargingSessionJournal. Every test appends to a
+ * journal in an H2 database in a temporary directory, reopens it and checks what is recovered.
+ *
+ * @author ajai
+ *
+ */
+class JdbcChargingSessionJournalTest {
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @EnumSource(FsyncPolicy.class)
+  void testRecoverStartsAndStops(FsyncPolicy fsyncPolicy) {
+
+    List<String> expectedChargingSessions;
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 8, journal);
+      List<ChargingSession> chargingSessions = IntStream.range(0, 2_000).parallel()
+          .mapToObj(index -> chargingSessionStore.add(newChargingSession("ABC-" + index)))
+          .collect(Collectors.toList());
+      chargingSessions.parallelStream().limit(100).forEach(chargingSession -> chargingSessionStore
+          .stop(chargingSession.getId(), LocalDateTime.now()));
+
+      assertEquals(2_100, journal.position(),
+          () -> "Expected the position to count the starts and stops.");
+      expectedChargingSessions = describe(chargingSessionStore.getChargingSessions());
+    }
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 8, journal);
+      RecoveryStatistics recoveryStatistics = journal.recover(replayer(chargingSessionStore));
+
+      assertEquals(2_000, recoveryStatistics.getJournalRecords(),
+          () -> "Expected a charging session to be restored per row without a snapshot.");
+      assertEquals(expectedChargingSessions, describe(chargingSessionStore.getChargingSessions()),
+          () -> "Expected every charging session to be recovered as it was.");
+      assertEquals(Long.valueOf(100),
+          chargingSessionStore.getSummary(LocalDateTime.now(), 60).get(StatusEnum.FINISHED),
+          () -> "Expected the stopped charging sessions to be recovered as stopped.");
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(FsyncPolicy.class)
+  void testFailedCommitIsReported(FsyncPolicy fsyncPolicy) {
+
+    ChargingSession chargingSession = newChargingSession("ABC-1");
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      journal.started(chargingSession);
+      assertThrows(UncheckedSQLException.class, () -> journal.started(chargingSession),
+          () -> "Expected the commit of a duplicate start to fail its append.");
+      journal.started(newChargingSession("ABC-2"));
+    }
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      assertEquals(2, recover(journal).size(),
+          () -> "Expected the appends after a failed commit to go on.");
+    }
+  }
+
+  @Test
+  void testFailedAppendDoesNotFailItsGroup() throws Exception {
+
+    ChargingSession chargingSession = newChargingSession("ABC-1");
+    ChargingSession otherChargingSession = newChargingSession("ABC-2");
+    try (ChargingSessionJournal journal = new JdbcChargingSessionJournal(
+        "jdbc:h2:file:" + directory.resolve("sessions"), FsyncPolicy.GROUP_COMMIT, 200)) {
+      journal.started(chargingSession);
+      // both are queued within the linger of the same group commit
+      CompletableFuture<Void> duplicate =
+          CompletableFuture.runAsync(() -> journal.started(chargingSession));
+      CompletableFuture<Void> other =
+          CompletableFuture.runAsync(() -> journal.started(otherChargingSession));
+
+      ExecutionException exception =
+          assertThrows(ExecutionException.class, () -> duplicate.get(1, TimeUnit.MINUTES));
+      assertTrue(exception.getCause() instanceof UncheckedSQLException,
+          () -> "Expected the duplicate start to fail.");
+      other.get(1, TimeUnit.MINUTES);
+    }
+
+    try (ChargingSessionJournal journal = newJournal(FsyncPolicy.GROUP_COMMIT)) {
+      assertEquals(2, recover(journal).size(),
+          () -> "Expected the start grouped with the failed one to be committed.");
+    }
+  }
+
+  @Test
+  void testRecoverFromSnapshotAndChangedRows() {
+
+    List<String> expectedChargingSessions;
+
+    try (ChargingSessionJournal journal = newJournal(FsyncPolicy.GROUP_COMMIT)) {
+      ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 8, journal);
+      List<ChargingSession> chargingSessions = IntStream.range(0, 5_000)
+          .mapToObj(index -> chargingSessionStore.add(newChargingSession("ABC-" + index)))
+          .collect(Collectors.toList());
+      chargingSessionStore.stop(chargingSessions.get(0).getId(), LocalDateTime.now());
+      chargingSessionStore.snapshot();
+
+      chargingSessionStore.add(newChargingSession("ABC-NEW"));
+      chargingSessionStore.stop(chargingSessions.get(1).getId(), LocalDateTime.now());
+      expectedChargingSessions = describe(chargingSessionStore.getChargingSessions());
+    }
+
+    try (ChargingSessionJournal journal = newJournal(FsyncPolicy.GROUP_COMMIT)) {
+      ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 8, journal);
+      RecoveryStatistics recoveryStatistics = journal.recover(replayer(chargingSessionStore));
+
+      assertEquals(5_000, recoveryStatistics.getSnapshotSessions(),
+          () -> "Expected the charging sessions of the snapshot to be restored.");
+      assertEquals(2, recoveryStatistics.getJournalRecords(),
+          () -> "Expected only the rows changed after the snapshot to be replayed.");
+      assertEquals(expectedChargingSessions, describe(chargingSessionStore.getChargingSessions()),
+          () -> "Expected every charging session to be recovered as it was.");
+      assertEquals(5_003, journal.position(),
+          () -> "Expected the position to go on from the starts and stops appended before.");
+    }
+  }
+
+  private static List<ChargingSession> recover(ChargingSessionJournal journal) {
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60);
+    journal.recover(replayer(chargingSessionStore));
+    return ImmutableList.copyOf(chargingSessionStore.getChargingSessions());
+  }
+
+  private static ChargingSessionJournal.Replayer replayer(
+      ChargingSessionStore chargingSessionStore) {
+    return new ChargingSessionJournal.Replayer() {
+
+      @Override
+      public void restored(ChargingSession chargingSession) {
+        chargingSessionStore.restore(chargingSession);
+      }
+
+      @Override
+      public void stopped(UUID chargingSessionId, LocalDateTime stoppedAt) {
+        chargingSessionStore.restoreStopped(chargingSessionId, stoppedAt);
+      }
+    };
+  }
+
+  private ChargingSessionJournal newJournal(FsyncPolicy fsyncPolicy) {
+    return new JdbcChargingSessionJournal("jdbc:h2:file:" + directory.resolve("sessions"),
+        fsyncPolicy, 1);
+  }
+
+  private static ChargingSession newChargingSession(String stationId) {
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = UUID.randomUUID();
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = LocalDateTime.now();
+      chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+    }).build();
+  }
+
+  private static List<String> describe(Iterable<ChargingSession> chargingSessions) {
+    return Streams.stream(chargingSessions)
+        .map(chargingSession -> chargingSession.getId() + " " + chargingSession.getStationId() + " "
+            + chargingSession.getStartedAt() + " " + chargingSession.getStoppedAt() + " "
+            + chargingSession.getStatus())
+        .collect(Collectors.toList());
+  }
+
+}
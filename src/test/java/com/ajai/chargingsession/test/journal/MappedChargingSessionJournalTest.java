@@ -0,0 +1,228 @@
+package com.ajai.chargingsession.test.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.FsyncPolicy;
+import com.ajai.chargingsession.charging.journal.MappedChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.RecoveryStatistics;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.store.ChargingSessionStore;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Streams;
+
+/**
+ *
+ * Test class that contains tests for the MappedChargingSessionJournal. Every test appends to a
+ * journal in a temporary directory, reopens it and checks what is recovered.
+ *
+ * @author ajai
+ *
+ */
+class MappedChargingSessionJournalTest {
+
+  private static final int SEGMENT_SIZE = 256 * 1024;
+
+  @TempDir
+  Path directory;
+
+  @ParameterizedTest
+  @EnumSource(FsyncPolicy.class)
+  void testReplayAcrossSegments(FsyncPolicy fsyncPolicy) {
+
+    // enough records to roll over to a few segments
+    List<ChargingSession> chargingSessions = IntStream.range(0, 10_000)
+        .mapToObj(index -> newChargingSession("ABC-" + index)).collect(Collectors.toList());
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      chargingSessions.parallelStream().forEach(journal::started);
+      chargingSessions.stream().limit(100).map(MappedChargingSessionJournalTest::stop)
+          .forEach(journal::stopped);
+    }
+
+    RecordingReplayer replayer = new RecordingReplayer();
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      assertEquals(10_100, journal.recover(replayer).getJournalRecords(),
+          () -> "Expected every start and stop to be replayed.");
+    }
+
+    assertEquals(
+        chargingSessions.stream().map(ChargingSession::getId).collect(Collectors.toSet()),
+        replayer.restored.stream().map(ChargingSession::getId).collect(Collectors.toSet()),
+        () -> "Expected every started charging session to be replayed.");
+    assertEquals(100, replayer.stopped.size(),
+        () -> "Expected every stopped charging session to be replayed.");
+
+    ChargingSession chargingSession = chargingSessions.get(0);
+    ChargingSession replayedChargingSession = replayer.restored.stream()
+        .filter(session -> session.getId().equals(chargingSession.getId())).findFirst().get();
+    assertEquals(chargingSession.getStationId(), replayedChargingSession.getStationId(),
+        () -> "Expected the stationId to be replayed.");
+    assertEquals(chargingSession.getStartedAt(), replayedChargingSession.getStartedAt(),
+        () -> "Expected the start date-time to be replayed.");
+  }
+
+  @Test
+  void testTornTailIsDiscarded() throws IOException {
+
+    FsyncPolicy fsyncPolicy = FsyncPolicy.PER_WRITE;
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      journal.started(newChargingSession("ABC-1"));
+      journal.started(newChargingSession("ABC-2"));
+    }
+
+    // tear the second record by flipping a byte of its stationId
+    Path segment;
+    try (Stream<Path> paths = Files.list(directory)) {
+      segment = paths.findFirst().get();
+    }
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      long offset = 2 * (8 + 25 + 2 + 5) - 1;
+      file.seek(offset);
+      int lastByte = file.read();
+      file.seek(offset);
+      file.write(lastByte ^ 0xFF);
+    }
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      journal.started(newChargingSession("ABC-3"));
+    }
+
+    RecordingReplayer replayer = new RecordingReplayer();
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      assertEquals(2, journal.recover(replayer).getJournalRecords(),
+          () -> "Expected the torn record to be replaced by the next append.");
+    }
+    assertEquals("ABC-1", replayer.restored.get(0).getStationId(),
+        () -> "Expected the first record to be replayed.");
+    assertEquals("ABC-3", replayer.restored.get(1).getStationId(),
+        () -> "Expected the record appended after the torn one to be replayed.");
+    assertTrue(replayer.stopped.isEmpty(), () -> "Expected no stopped charging sessions.");
+  }
+
+  @Test
+  void testRecoverFromSnapshotAndJournalTail() throws IOException {
+
+    FsyncPolicy fsyncPolicy = FsyncPolicy.OS;
+    ChargingSession stoppedAfterSnapshot;
+    List<String> expectedChargingSessions;
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 8, journal);
+      List<ChargingSession> chargingSessions = IntStream.range(0, 10_000)
+          .mapToObj(index -> chargingSessionStore.add(newChargingSession("ABC-" + index)))
+          .collect(Collectors.toList());
+      chargingSessions.stream().limit(100).forEach(chargingSession -> chargingSessionStore
+          .stop(chargingSession.getId(), LocalDateTime.now()));
+
+      chargingSessionStore.snapshot();
+
+      chargingSessionStore.add(newChargingSession("DEF-1"));
+      stoppedAfterSnapshot =
+          chargingSessionStore.stop(chargingSessions.get(100).getId(), LocalDateTime.now());
+      expectedChargingSessions = describe(chargingSessionStore.getChargingSessions());
+    }
+
+    try (Stream<Path> paths = Files.list(directory)) {
+      assertEquals(2, paths.count(),
+          () -> "Expected the segments before the snapshot to be deleted.");
+    }
+
+    try (ChargingSessionJournal journal = newJournal(fsyncPolicy)) {
+      ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 8, journal);
+      RecoveryStatistics recoveryStatistics =
+          journal.recover(new ChargingSessionJournal.Replayer() {
+
+            @Override
+            public void restored(ChargingSession chargingSession) {
+              chargingSessionStore.restore(chargingSession);
+            }
+
+            @Override
+            public void stopped(UUID chargingSessionId, LocalDateTime stoppedAt) {
+              chargingSessionStore.restoreStopped(chargingSessionId, stoppedAt);
+            }
+          });
+
+      assertEquals(10_000, recoveryStatistics.getSnapshotSessions(),
+          () -> "Expected the charging sessions to be restored from the snapshot.");
+      assertEquals(2, recoveryStatistics.getJournalRecords(),
+          () -> "Expected only the journal tail after the snapshot to be replayed.");
+      assertEquals(expectedChargingSessions, describe(chargingSessionStore.getChargingSessions()),
+          () -> "Expected every charging session to be recovered.");
+      assertEquals(stoppedAfterSnapshot.getStoppedAt(),
+          Iterables.find(chargingSessionStore.getChargingSessions(),
+              session -> session.getId().equals(stoppedAfterSnapshot.getId())).getStoppedAt(),
+          () -> "Expected the stop appended after the snapshot to be replayed.");
+      assertEquals(Long.valueOf(101),
+          chargingSessionStore.getSummary(LocalDateTime.now(), 60).get(StatusEnum.FINISHED),
+          () -> "Expected the stopped charging sessions to be counted once.");
+    }
+  }
+
+  private ChargingSessionJournal newJournal(FsyncPolicy fsyncPolicy) {
+    return new MappedChargingSessionJournal(directory, SEGMENT_SIZE, fsyncPolicy, 1);
+  }
+
+  private static ChargingSession newChargingSession(String stationId) {
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = UUID.randomUUID();
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = LocalDateTime.now();
+      chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+    }).build();
+  }
+
+  private static List<String> describe(Iterable<ChargingSession> chargingSessions) {
+    return Streams.stream(chargingSessions)
+        .map(chargingSession -> chargingSession.getId() + " " + chargingSession.getStationId() + " "
+            + chargingSession.getStartedAt() + " " + chargingSession.getStoppedAt() + " "
+            + chargingSession.getStatus())
+        .collect(Collectors.toList());
+  }
+
+  private static ChargingSession stop(ChargingSession chargingSession) {
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = chargingSession.getId();
+      chargingSessionBuilder.stationId = chargingSession.getStationId();
+      chargingSessionBuilder.startedAt = chargingSession.getStartedAt();
+      chargingSessionBuilder.stoppedAt = LocalDateTime.now();
+      chargingSessionBuilder.status = StatusEnum.FINISHED;
+    }).build();
+  }
+
+  private static final class RecordingReplayer implements ChargingSessionJournal.Replayer {
+
+    private final List<ChargingSession> restored = new ArrayList<>();
+    private final List<UUID> stopped = new ArrayList<>();
+
+    @Override
+    public void restored(ChargingSession chargingSession) {
+      restored.add(chargingSession);
+    }
+
+    @Override
+    public void stopped(UUID chargingSessionId, LocalDateTime stoppedAt) {
+      stopped.add(chargingSessionId);
+    }
+  }
+
+}
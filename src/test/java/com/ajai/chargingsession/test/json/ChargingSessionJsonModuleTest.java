@@ -0,0 +1,89 @@
+package com.ajai.chargingsession.test.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.ajai.chargingsession.charging.json.ChargingSessionJsonModule;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ *
+ * Test class that contains tests for the ChargingSessionJsonModule, whose serializers have to write
+ * the same documents as the bean serializers of Jackson.
+ *
+ * @author ajai
+ *
+ */
+class ChargingSessionJsonModuleTest {
+
+  private static final LocalDateTime STARTED_AT = LocalDateTime.of(2020, 3, 1, 12, 0);
+
+  @Test
+  void testChargingSessionsAreWrittenLikeBeans() throws Exception {
+
+    List<Object> values = Arrays.asList(
+        newChargingSession("ABC-1", STARTED_AT, null, StatusEnum.IN_PROGRESS),
+        newChargingSession("ABC-2", STARTED_AT.plusNanos(100_000_000),
+            STARTED_AT.plusSeconds(5).plusNanos(1), StatusEnum.FINISHED),
+        newChargingSession("\"A\\B\"\n\u00e9", STARTED_AT.withYear(12020), null, null),
+        newChargingSession(null, STARTED_AT.withYear(-5), STARTED_AT, StatusEnum.FINISHED),
+        newChargingSessionSummary());
+
+    for (boolean cbor : new boolean[] {false, true}) {
+      ObjectMapper beanObjectMapper = newObjectMapper(cbor).build();
+      ObjectMapper objectMapper = newObjectMapper(cbor)
+          .modulesToInstall(new ChargingSessionJsonModule(10)).build();
+      for (Object value : values) {
+        byte[] expected = beanObjectMapper.writeValueAsBytes(value);
+        // twice, since a finished session is written from the cache the second time
+        for (int write = 0; write < 2; write++) {
+          assertEquals(beanObjectMapper.readTree(expected),
+              objectMapper.readTree(objectMapper.writeValueAsBytes(value)),
+              () -> "Expected the same document as the bean serializer.");
+        }
+        if (!cbor) {
+          assertEquals(new String(expected, "UTF-8"), objectMapper.writeValueAsString(value),
+              () -> "Expected the same JSON as the bean serializer.");
+        }
+      }
+      assertEquals(beanObjectMapper.readTree(beanObjectMapper.writeValueAsBytes(values)),
+          objectMapper.readTree(objectMapper.writeValueAsBytes(values)),
+          () -> "Expected the same array as the bean serializer.");
+    }
+  }
+
+  private static Jackson2ObjectMapperBuilder newObjectMapper(boolean cbor) {
+    return (cbor ? Jackson2ObjectMapperBuilder.cbor() : Jackson2ObjectMapperBuilder.json())
+        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  private static ChargingSession newChargingSession(String stationId, LocalDateTime startedAt,
+      LocalDateTime stoppedAt, StatusEnum status) {
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = UUID.randomUUID();
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = startedAt;
+      chargingSessionBuilder.stoppedAt = stoppedAt;
+      chargingSessionBuilder.status = status;
+    }).build();
+  }
+
+  private static ChargingSessionSummary newChargingSessionSummary() {
+    Map<StatusEnum, Long> summaryMap = new EnumMap<>(StatusEnum.class);
+    summaryMap.put(StatusEnum.IN_PROGRESS, 2L);
+    summaryMap.put(StatusEnum.FINISHED, 3L);
+    return new ChargingSessionSummary(summaryMap);
+  }
+
+}
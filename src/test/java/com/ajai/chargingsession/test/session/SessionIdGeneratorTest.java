@@ -0,0 +1,96 @@
+package com.ajai.chargingsession.test.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+
+/**
+ *
+ * Test class that contains tests for the SessionIdGenerator, which generates time-ordered ids
+ * without contention between threads.
+ *
+ * @author ajai
+ *
+ */
+class SessionIdGeneratorTest {
+
+  private static final LocalDateTime STARTED_AT = LocalDateTime.of(2020, 3, 1, 12, 0);
+
+  private static final String STATION_ID = "ABC-1";
+
+  private static final int THREADS = 8;
+
+  @Test
+  void testIdsAreOrderedOnStartTime() {
+
+    UUID previousId = SessionIdGenerator.next(STARTED_AT, STATION_ID);
+    assertEquals(7, previousId.version(), () -> "Expected a version 7 id.");
+    assertEquals(2, previousId.variant(), () -> "Expected the IETF variant.");
+
+    // more ids than the counter of a millisecond holds, then a date-time that goes backwards
+    for (int index = 0; index < 10_000; index++) {
+      UUID id = SessionIdGenerator.next(STARTED_AT.plusNanos(index / 2 * 1_000L), STATION_ID);
+      assertTrue(previousId.compareTo(id) < 0, () -> "Expected the ids in start time order.");
+      previousId = id;
+    }
+    UUID id = SessionIdGenerator.next(STARTED_AT, STATION_ID);
+    assertTrue(previousId.compareTo(id) < 0,
+        () -> "Expected the ids of a thread to increase when the date-time goes backwards.");
+    assertTrue(id.compareTo(SessionIdGenerator.next(STARTED_AT.plusSeconds(1), STATION_ID)) < 0,
+        () -> "Expected the id of a later second to come after.");
+  }
+
+  @Test
+  void testIdsCarryTheHashOfTheirStation() {
+
+    Set<Integer> stationHashes = new HashSet<>();
+    for (int station = 0; station < 1_000; station++) {
+      String stationId = "ABC-" + station;
+      int stationHash = SessionIdGenerator.stationHash(stationId);
+      assertEquals(stationHash,
+          SessionIdGenerator.stationHashOf(SessionIdGenerator.next(STARTED_AT, stationId)),
+          () -> "Expected the id to carry the hash of its station.");
+      stationHashes.add(stationHash);
+    }
+    assertTrue(stationHashes.size() > 990,
+        () -> "Expected the stations to have different hashes, but got " + stationHashes.size());
+  }
+
+  @Test
+  void testIdsAreUniqueAcrossThreads() throws Exception {
+
+    Set<UUID> ids = ConcurrentHashMap.newKeySet();
+    ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+
+    try {
+      // every thread generates its ids in the same millisecond
+      List<Future<?>> futures = IntStream.range(0, THREADS)
+          .mapToObj(thread -> executorService.submit(() -> {
+            for (int index = 0; index < 50_000; index++) {
+              ids.add(SessionIdGenerator.next(STARTED_AT, STATION_ID));
+            }
+          })).collect(Collectors.toList());
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertEquals(THREADS * 50_000, ids.size(), () -> "Expected every id to be unique.");
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.ajai.chargingsession.test.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.store.ChargingSessionStore;
+import com.google.common.collect.Iterables;
+
+/**
+ *
+ * Stress test for the ChargingSessionStore. Every thread starts and stops its own charging sessions
+ * on a range of stations and periodically summarizes them while the other threads do the same, for
+ * 1, 8 and 64 shards and for an increasing number of threads up to the number of available cores.
+ * No charging session may be lost or left in progress. The throughput of this load is measured by
+ * the ChargingSessionStoreBenchmark.
+ *
+ * @author ajai
+ *
+ */
+class ChargingSessionStoreStressTest {
+
+  private static final int SESSIONS_PER_THREAD = 20_000;
+
+  private static final int STATIONS = 1_000;
+
+  private static final int SUMMARY_INTERVAL = 100;
+
+  @ParameterizedTest(name = "{0} shard(s), {1} thread(s)")
+  @MethodSource("shardAndThreadCounts")
+  void testStartAndStopUnderContention(int shards, int threads) throws Exception {
+
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, shards);
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    CountDownLatch startSignal = new CountDownLatch(1);
+
+    try {
+      Future<?>[] futures = IntStream.range(0, threads)
+          .mapToObj(thread -> executorService.submit(() -> {
+            startSignal.await();
+            for (int index = 0; index < SESSIONS_PER_THREAD; index++) {
+              ChargingSession chargingSession =
+                  chargingSessionStore.add(newChargingSession("ABC-" + (index % STATIONS)));
+              chargingSessionStore.stop(chargingSession.getId(), LocalDateTime.now());
+              if (index % SUMMARY_INTERVAL == 0) {
+                chargingSessionStore.getSummary(LocalDateTime.now(), 60);
+              }
+            }
+            return null;
+          })).toArray(Future<?>[]::new);
+
+      startSignal.countDown();
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertEquals(threads * SESSIONS_PER_THREAD, chargingSessionStore.size(),
+        () -> "Expected no charging session to be lost.");
+    assertEquals(threads * SESSIONS_PER_THREAD,
+        Iterables.size(chargingSessionStore.getChargingSessions()),
+        () -> "Expected every charging session to be indexed.");
+    chargingSessionStore.getChargingSessions()
+        .forEach(session -> assertTrue(session.getStatus() == StatusEnum.FINISHED,
+            () -> "Expected every charging session to be FINISHED."));
+  }
+
+  static Stream<Arguments> shardAndThreadCounts() {
+    int cores = Runtime.getRuntime().availableProcessors();
+    return IntStream.of(1, 8, 64).boxed()
+        .flatMap(shards -> IntStream
+            .concat(IntStream.iterate(1, threads -> threads * 2).limit(31)
+                .filter(threads -> threads < cores), IntStream.of(cores))
+            .mapToObj(threads -> Arguments.of(shards, threads)));
+  }
+
+  private static ChargingSession newChargingSession(String stationId) {
+    // time-ordered ids like the application's, since rows are only cheap to insert in id order
+    LocalDateTime startedAt = LocalDateTime.now();
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = SessionIdGenerator.next(startedAt, stationId);
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = startedAt;
+      chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+    }).build();
+  }
+
+}
@@ -0,0 +1,318 @@
+package com.ajai.chargingsession.test.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import com.ajai.chargingsession.charging.journal.ChargingSessionJournal;
+import com.ajai.chargingsession.charging.journal.RecoveryStatistics;
+import com.ajai.chargingsession.charging.session.ChargingSession;
+import com.ajai.chargingsession.charging.session.ChargingSession.ChargingSessionBuilder;
+import com.ajai.chargingsession.charging.session.SessionIdGenerator;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.store.ChargingSessionStore;
+import com.ajai.chargingsession.charging.store.SessionCursor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+/**
+ *
+ * Test class that contains tests for the ChargingSessionStore, which keeps the charging sessions as
+ * rows of primitives and only builds the ChargingSession objects when they are read.
+ *
+ * @author ajai
+ *
+ */
+class ChargingSessionStoreTest {
+
+  private static final LocalDateTime STARTED_AT = LocalDateTime.of(2020, 3, 1, 12, 0);
+
+  private static final int WRITERS = 4;
+
+  private static final Comparator<ChargingSession> START_TIME_ORDER =
+      Comparator.comparing(ChargingSession::getStartedAt).thenComparing(ChargingSession::getId);
+
+  private static final Comparator<ChargingSession> ID_ORDER =
+      Comparator.comparing(ChargingSession::getId);
+
+  @Test
+  void testChargingSessionsAreListedInStartTimeOrder() {
+
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 2);
+
+    // added out of order, with sessions started in the same millisecond, so rows have to be shifted
+    List<ChargingSession> chargingSessions = IntStream.range(0, 10_000)
+        .mapToObj(index -> newChargingSession("ABC-" + (index % 100),
+            STARTED_AT.plusNanos(index / 3 * 1_000L)))
+        .collect(Collectors.toList());
+    Collections.shuffle(chargingSessions, new Random(42));
+    chargingSessions.forEach(chargingSessionStore::add);
+
+    List<ChargingSession> expectedChargingSessions = new ArrayList<>(chargingSessions);
+    expectedChargingSessions.sort(START_TIME_ORDER);
+    assertEquals(ids(expectedChargingSessions),
+        ids(chargingSessionStore.getChargingSessions()),
+        () -> "Expected the charging sessions in start time order.");
+
+    ChargingSession chargingSession = expectedChargingSessions.get(4_999);
+    assertEquals(ids(expectedChargingSessions.subList(5_000, 10_000)),
+        ids(chargingSessionStore.getChargingSessions(SessionCursor.of(chargingSession))),
+        () -> "Expected the charging sessions after the cursor.");
+
+    ChargingSession storedChargingSession = chargingSessionStore.get(chargingSession.getId());
+    assertEquals(chargingSession.getStationId(), storedChargingSession.getStationId(),
+        () -> "Expected the station id to be decoded.");
+    assertEquals(chargingSession.getStartedAt(), storedChargingSession.getStartedAt(),
+        () -> "Expected the start date-time to be kept to the nanosecond.");
+    assertNull(chargingSessionStore.get(UUID.randomUUID()),
+        () -> "Expected no charging session for an unknown id.");
+  }
+
+  @Test
+  void testStoppedChargingSessionsAreReadBack() {
+
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 1);
+
+    ChargingSession chargingSession =
+        chargingSessionStore.add(newChargingSession("ABC-1", STARTED_AT));
+    LocalDateTime stoppedAt = STARTED_AT.plusSeconds(10).plusNanos(123);
+    ChargingSession stoppedChargingSession =
+        chargingSessionStore.stop(chargingSession.getId(), stoppedAt);
+
+    assertEquals(StatusEnum.FINISHED, stoppedChargingSession.getStatus(),
+        () -> "Expected the charging session to be FINISHED.");
+    assertEquals(stoppedAt, stoppedChargingSession.getStoppedAt(),
+        () -> "Expected the stop date-time to be kept to the nanosecond.");
+    assertEquals(stoppedAt,
+        chargingSessionStore.stop(chargingSession.getId(), stoppedAt.plusSeconds(1))
+            .getStoppedAt(),
+        () -> "Expected a second stop to leave the charging session unchanged.");
+    assertEquals(0, chargingSessionStore.getInProgressCount(),
+        () -> "Expected no charging session in progress.");
+    assertTrue(chargingSessionStore.getEstimatedMemoryBytes() > 0,
+        () -> "Expected the memory of the charging sessions to be estimated.");
+  }
+
+  @Test
+  void testChargingSessionsOfStationAreLookedUp() {
+
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 4);
+
+    List<ChargingSession> chargingSessions = IntStream.range(0, 1_000)
+        .mapToObj(index -> newChargingSession("ABC-" + (index % 10), STARTED_AT.plusSeconds(index)))
+        .collect(Collectors.toList());
+    Collections.shuffle(chargingSessions, new Random(42));
+    chargingSessions.forEach(chargingSessionStore::add);
+    chargingSessions.stream()
+        .filter(chargingSession -> "ABC-3".equals(chargingSession.getStationId())).limit(40)
+        .forEach(chargingSession -> chargingSessionStore.stop(chargingSession.getId(),
+            STARTED_AT.plusHours(1)));
+
+    List<ChargingSession> expectedChargingSessions = chargingSessions.stream()
+        .filter(chargingSession -> "ABC-3".equals(chargingSession.getStationId()))
+        .sorted(START_TIME_ORDER).collect(Collectors.toList());
+    assertEquals(ids(expectedChargingSessions),
+        ids(chargingSessionStore.getChargingSessions("ABC-3", null)),
+        () -> "Expected the charging sessions of the station in start time order.");
+    assertEquals(40, chargingSessionStore.getChargingSessions("ABC-3", StatusEnum.FINISHED).size(),
+        () -> "Expected the stopped charging sessions of the station.");
+    assertEquals(60,
+        chargingSessionStore.getChargingSessions("ABC-3", StatusEnum.IN_PROGRESS).size(),
+        () -> "Expected the charging sessions of the station in progress.");
+    assertTrue(chargingSessionStore.getChargingSessions("XYZ-1", null).isEmpty(),
+        () -> "Expected no charging session for an unknown station.");
+  }
+
+  @Test
+  void testSummaryWindowMatchesSubMapOfStartDateTimes() {
+
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 4);
+    // the summary as it was computed before the counters, from a sub map of the start date-times
+    TreeMap<LocalDateTime, List<ChargingSession>> startedAt = new TreeMap<>();
+
+    Random random = new Random(42);
+    List<LocalDateTime> nows = new ArrayList<>();
+    for (int index = 0; index < 50; index++) {
+      LocalDateTime now =
+          STARTED_AT.plusSeconds(10 + random.nextInt(40)).plusNanos(random.nextInt(1_000_000_000));
+      nows.add(now);
+      nows.add(now.withNano(0));
+      // sessions on either side of both ends of every window
+      for (LocalDateTime end : Arrays.asList(now.minusSeconds(10), now.withNano(0).minusSeconds(10),
+          now, now.withNano(0))) {
+        for (long nanos = -1; nanos <= 1; nanos++) {
+          ChargingSession chargingSession =
+              chargingSessionStore.add(newChargingSession("ABC-1", end.plusNanos(nanos)));
+          if (random.nextBoolean()) {
+            chargingSession = chargingSessionStore.stop(chargingSession.getId(), now);
+          }
+          startedAt.computeIfAbsent(chargingSession.getStartedAt(), key -> new ArrayList<>())
+              .add(chargingSession);
+        }
+      }
+    }
+
+    for (LocalDateTime now : nows) {
+      for (long seconds : new long[] {1, 10, 60}) {
+        Map<StatusEnum, Long> expectedSummary = startedAt.subMap(now.minusSeconds(seconds), now)
+            .values().stream().flatMap(List::stream).collect(
+                Collectors.groupingBy(ChargingSession::getStatus, Collectors.counting()));
+        assertEquals(expectedSummary, chargingSessionStore.getSummary(now, seconds),
+            () -> "Expected the summary of the last " + seconds + " seconds at " + now
+                + " to count the sessions of the sub map of the start date-times.");
+      }
+    }
+  }
+
+  @Test
+  void testFailedAppendsLeaveTheStoreUnchanged() {
+
+    FailingJournal journal = new FailingJournal();
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 2, journal);
+    ChargingSession chargingSession =
+        chargingSessionStore.add(newChargingSession("ABC-1", STARTED_AT));
+
+    journal.failing.set(true);
+    ChargingSession failedChargingSession = newChargingSession("ABC-2", STARTED_AT);
+    assertThrows(IllegalStateException.class,
+        () -> chargingSessionStore.add(failedChargingSession));
+    assertThrows(IllegalStateException.class, () -> chargingSessionStore
+        .addAll(ImmutableList.of(newChargingSession("ABC-3", STARTED_AT))));
+    assertThrows(IllegalStateException.class,
+        () -> chargingSessionStore.stop(chargingSession.getId(), STARTED_AT.plusSeconds(1)));
+    assertThrows(IllegalStateException.class, () -> chargingSessionStore
+        .stopAll(ImmutableList.of(chargingSession.getId()), STARTED_AT.plusSeconds(1)));
+
+    assertEquals(1, chargingSessionStore.size(),
+        () -> "Expected the charging sessions of the failed starts not to be added.");
+    assertNull(chargingSessionStore.get(failedChargingSession.getId()),
+        () -> "Expected no charging session for a failed start.");
+    assertEquals(StatusEnum.IN_PROGRESS,
+        chargingSessionStore.get(chargingSession.getId()).getStatus(),
+        () -> "Expected the charging session of the failed stops to be IN_PROGRESS.");
+    assertEquals(1, chargingSessionStore.getInProgressCount(),
+        () -> "Expected the failed stops not to be counted.");
+
+    journal.failing.set(false);
+    assertEquals(StatusEnum.FINISHED,
+        chargingSessionStore.stop(chargingSession.getId(), STARTED_AT.plusSeconds(2)).getStatus(),
+        () -> "Expected the charging session to be stopped once the journal recovers.");
+    assertEquals(ImmutableList.of(chargingSession.getId()), journal.stopped,
+        () -> "Expected only the successful stop to be appended.");
+  }
+
+  @Test
+  void testListingWhileChargingSessionsAreAdded() throws Exception {
+
+    ChargingSessionStore chargingSessionStore = new ChargingSessionStore(60, 1);
+    ExecutorService executorService = Executors.newFixedThreadPool(WRITERS);
+
+    try {
+      // the writers race between generating the id and adding, so some adds shift rows
+      List<Future<?>> futures = IntStream.range(0, WRITERS)
+          .mapToObj(writer -> executorService.submit(() -> {
+            for (int index = 0; index < 20_000; index++) {
+              chargingSessionStore
+                  .add(newChargingSession("ABC-" + writer, LocalDateTime.now()));
+            }
+          })).collect(Collectors.toList());
+
+      while (!futures.stream().allMatch(Future::isDone)) {
+        ChargingSession previousChargingSession = null;
+        for (ChargingSession chargingSession : chargingSessionStore.getChargingSessions()) {
+          if (previousChargingSession != null) {
+            assertTrue(ID_ORDER.compare(previousChargingSession, chargingSession) < 0,
+                () -> "Expected the charging sessions in id order.");
+          }
+          previousChargingSession = chargingSession;
+        }
+      }
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertEquals(WRITERS * 20_000, Iterables.size(chargingSessionStore.getChargingSessions()),
+        () -> "Expected every charging session to be listed.");
+  }
+
+  /**
+   * Journal whose appends fail while it is failing.
+   */
+  private static final class FailingJournal implements ChargingSessionJournal {
+
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final List<UUID> stopped = new ArrayList<>();
+
+    @Override
+    public void started(ChargingSession chargingSession) {
+      checkNotFailing();
+    }
+
+    @Override
+    public void stopped(ChargingSession chargingSession) {
+      checkNotFailing();
+      stopped.add(chargingSession.getId());
+    }
+
+    @Override
+    public long position() {
+      return 0;
+    }
+
+    @Override
+    public void snapshot(long position, Iterable<ChargingSession> chargingSessions) {
+      // EMPTY
+    }
+
+    @Override
+    public RecoveryStatistics recover(Replayer replayer) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      // EMPTY
+    }
+
+    private void checkNotFailing() {
+      if (failing.get()) {
+        throw new IllegalStateException("Journal is failing");
+      }
+    }
+  }
+
+  private static List<UUID> ids(Iterable<ChargingSession> chargingSessions) {
+    return ImmutableList.copyOf(Iterables.transform(chargingSessions, ChargingSession::getId));
+  }
+
+  private static ChargingSession newChargingSession(String stationId, LocalDateTime startedAt) {
+    return new ChargingSessionBuilder().with(chargingSessionBuilder -> {
+      chargingSessionBuilder.id = SessionIdGenerator.next(startedAt, stationId);
+      chargingSessionBuilder.stationId = stationId;
+      chargingSessionBuilder.startedAt = startedAt;
+      chargingSessionBuilder.status = StatusEnum.IN_PROGRESS;
+    }).build();
+  }
+
+}
@@ -0,0 +1,101 @@
+package com.ajai.chargingsession.test.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import com.ajai.chargingsession.charging.session.StatusEnum;
+import com.ajai.chargingsession.charging.store.SessionCounters;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ *
+ * Test class that contains tests for the per-second SessionCounters.
+ *
+ * @author ajai
+ *
+ */
+class SessionCountersTest {
+
+  private static final long NOW = TimeUnit.SECONDS.toNanos(1_600_000_000L);
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void testSummaryWithinWindow() {
+
+    SessionCounters sessionCounters = new SessionCounters(60);
+
+    sessionCounters.started(NOW - 5 * SECOND);
+    sessionCounters.started(NOW - 5 * SECOND);
+    sessionCounters.started(NOW - SECOND / 2);
+    sessionCounters.stopped(NOW - 5 * SECOND);
+
+    Map<StatusEnum, Long> summary = sessionCounters.summarize(NOW, 1);
+    assertEquals(1L, summary.get(StatusEnum.IN_PROGRESS),
+        () -> "Expected 1 charging session to be in progress.");
+    assertTrue(summary.get(StatusEnum.FINISHED) == null,
+        () -> "Expected no finished charging sessions.");
+
+    summary = sessionCounters.summarize(NOW, 5);
+    assertEquals(2L, summary.get(StatusEnum.IN_PROGRESS),
+        () -> "Expected 2 charging sessions to be in progress.");
+    assertEquals(1L, summary.get(StatusEnum.FINISHED),
+        () -> "Expected 1 charging session to be finished.");
+  }
+
+  @Test
+  void testWindowStartsAndEndsPartwayThroughSeconds() {
+
+    SessionCounters sessionCounters = new SessionCounters(60);
+    long now = NOW + SECOND / 4;
+
+    // either side of both ends of the window of the last 5 seconds
+    sessionCounters.started(now - 5 * SECOND - 1);
+    sessionCounters.started(now - 5 * SECOND);
+    sessionCounters.started(now - 1);
+    sessionCounters.started(now);
+    sessionCounters.stopped(now - 5 * SECOND);
+
+    Map<StatusEnum, Long> summary = sessionCounters.summarize(now, 5);
+    assertEquals(1L, summary.get(StatusEnum.IN_PROGRESS),
+        () -> "Expected the charging session started just before now to be in progress.");
+    assertEquals(1L, summary.get(StatusEnum.FINISHED),
+        () -> "Expected the charging session started exactly 5 seconds ago to be finished.");
+
+    assertEquals(Collections.singletonMap(StatusEnum.IN_PROGRESS, 2L),
+        sessionCounters.summarize(now + 1, 5),
+        () -> "Expected the window to have moved on by a nanosecond.");
+    assertEquals(ImmutableMap.of(StatusEnum.IN_PROGRESS, 1L, StatusEnum.FINISHED, 1L),
+        sessionCounters.summarize(NOW, 5),
+        () -> "Expected a window on whole seconds to cover the 5 seconds before it only.");
+  }
+
+  @Test
+  void testBucketsAreRecycled() {
+
+    SessionCounters sessionCounters = new SessionCounters(10);
+
+    sessionCounters.started(NOW);
+    sessionCounters.started(NOW + 12 * SECOND);
+
+    // the bucket of NOW has been recycled for NOW + 12, so the old session can no longer be stopped
+    sessionCounters.stopped(NOW);
+
+    Map<StatusEnum, Long> summary = sessionCounters.summarize(NOW + 13 * SECOND, 10);
+    assertEquals(1L, summary.get(StatusEnum.IN_PROGRESS),
+        () -> "Expected only the recent charging session to be counted.");
+    assertTrue(summary.get(StatusEnum.FINISHED) == null,
+        () -> "Expected no finished charging sessions.");
+
+    assertTrue(sessionCounters.summarize(NOW + 100 * SECOND, 10).isEmpty(),
+        () -> "Expected no charging sessions in an empty window.");
+
+    assertThrows(IllegalArgumentException.class, () -> sessionCounters.summarize(NOW, 11));
+    assertThrows(IllegalArgumentException.class, () -> sessionCounters.summarize(NOW, 0));
+  }
+
+}
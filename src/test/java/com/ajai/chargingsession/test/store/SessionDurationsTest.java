@@ -0,0 +1,63 @@
+package com.ajai.chargingsession.test.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import com.ajai.chargingsession.charging.session.ChargingSessionDurations;
+import com.ajai.chargingsession.charging.store.SessionDurations;
+
+/**
+ *
+ * Test class that contains tests for the per-second histograms of the SessionDurations.
+ *
+ * @author ajai
+ *
+ */
+class SessionDurationsTest {
+
+  private static final long NOW = 1_600_000_000L;
+
+  @Test
+  void testPercentilesWithinWindow() {
+
+    SessionDurations sessionDurations = new SessionDurations(60);
+
+    // 1 to 1000 seconds, spread over the seconds of the window
+    for (int duration = 1; duration <= 1000; duration++) {
+      sessionDurations.stopped(NOW - duration % 10, duration * 1000L);
+    }
+    sessionDurations.stopped(NOW - 30, 5);
+
+    ChargingSessionDurations durations = sessionDurations.summarize(NOW, 10);
+    assertEquals(500_500, durations.getMeanMillis(), () -> "Expected the exact mean.");
+    assertEquals(1_000_000, durations.getMaxMillis(), () -> "Expected the exact maximum.");
+    assertWithinPrecision(500_000, durations.getP50Millis());
+    assertWithinPrecision(900_000, durations.getP90Millis());
+    assertWithinPrecision(990_000, durations.getP99Millis());
+
+    assertEquals(5, sessionDurations.summarize(NOW - 30, 0).getP50Millis(),
+        () -> "Expected short durations to be counted exactly.");
+  }
+
+  @Test
+  void testBucketsAreRecycled() {
+
+    SessionDurations sessionDurations = new SessionDurations(10);
+
+    sessionDurations.stopped(NOW + 12, 1000);
+    // the bucket of NOW has been recycled for NOW + 12, so the old session is not counted
+    sessionDurations.stopped(NOW, 2000);
+
+    assertEquals(1000, sessionDurations.summarize(NOW + 12, 10).getMaxMillis(),
+        () -> "Expected only the recent charging session to be counted.");
+    assertSame(ChargingSessionDurations.EMPTY, sessionDurations.summarize(NOW + 100, 10),
+        () -> "Expected no durations in an empty window.");
+  }
+
+  private static void assertWithinPrecision(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected + expected / 32,
+        () -> "Expected " + actual + " to be within 1/32 above " + expected);
+  }
+
+}
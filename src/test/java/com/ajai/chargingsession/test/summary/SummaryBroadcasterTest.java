@@ -0,0 +1,86 @@
+package com.ajai.chargingsession.test.summary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.ajai.chargingsession.charging.clock.ManualSessionClock;
+import com.ajai.chargingsession.charging.dto.ChargingStationDTO;
+import com.ajai.chargingsession.charging.handlers.ChargingSessionsHandler;
+import com.ajai.chargingsession.charging.journal.NoOpChargingSessionJournal;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.summary.SummaryBroadcaster;
+import reactor.core.Disposable;
+
+/**
+ *
+ * Test class that contains tests for the SummaryBroadcaster, which summarizes every window once per
+ * tick and fans the summary out to all of its subscribers.
+ *
+ * @author ajai
+ *
+ */
+class SummaryBroadcasterTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  private ChargingSessionsHandler handler;
+
+  private SummaryBroadcaster summaryBroadcaster;
+
+  @BeforeEach
+  void setUp() {
+    ManualSessionClock clock = new ManualSessionClock(LocalDateTime.of(2020, 3, 1, 12, 0));
+    handler = new ChargingSessionsHandler(1, 60, 8, 1000, 1000, 100,
+        NoOpChargingSessionJournal.INSTANCE, ChargingSessionMetrics.noOp(), clock);
+    handler.startChargingSession(new ChargingStationDTO("ABC-1"));
+    // a summary window ends just before the current date-time
+    clock.advance(Duration.ofSeconds(1));
+  }
+
+  @AfterEach
+  void tearDown() {
+    summaryBroadcaster.close();
+  }
+
+  @Test
+  void testSummaryIsSharedBySubscribers() throws Exception {
+
+    // only the first tick falls within the test
+    summaryBroadcaster = new SummaryBroadcaster(Duration.ofHours(1).toMillis(), 16);
+
+    CompletableFuture<ChargingSessionSummary> summary = new CompletableFuture<>();
+    Disposable subscription =
+        summaryBroadcaster.subscribe(handler, 60).subscribe(summary::complete);
+    try {
+      assertEquals(1, summary.get(10, TimeUnit.SECONDS).getStartedCount(),
+          () -> "Expected the charging session in the summary.");
+      assertSame(summary.get(), summaryBroadcaster.subscribe(handler, 60).blockFirst(TIMEOUT),
+          () -> "Expected a new subscriber of a window to get the latest summary.");
+    } finally {
+      subscription.dispose();
+    }
+  }
+
+  @Test
+  void testSummariesAreStreamedEveryTick() {
+
+    summaryBroadcaster = new SummaryBroadcaster(10, 2);
+
+    List<ChargingSessionSummary> summaries =
+        summaryBroadcaster.subscribe(handler, 60).take(3).collectList().block(TIMEOUT);
+
+    assertEquals(3, summaries.size(), () -> "Expected a summary every tick.");
+    assertThrows(IllegalArgumentException.class, () -> summaryBroadcaster.subscribe(handler, 61),
+        () -> "Expected a window out of range to be rejected before subscribing.");
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.ajai.chargingsession.test.summary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import com.ajai.chargingsession.charging.metrics.ChargingSessionMetrics;
+import com.ajai.chargingsession.charging.session.ChargingSessionSummary;
+import com.ajai.chargingsession.charging.summary.SummaryCache;
+
+/**
+ *
+ * Test class that contains tests for the SummaryCache, which shares a summary between the requests
+ * of the same second and version of the store.
+ *
+ * @author ajai
+ *
+ */
+class SummaryCacheTest {
+
+  private static final int THREADS = 8;
+
+  @Test
+  void testSimultaneousRequestsShareOneComputation() throws Exception {
+
+    SummaryCache summaryCache = new SummaryCache(0, ChargingSessionMetrics.noOp());
+    AtomicInteger computations = new AtomicInteger();
+    CountDownLatch waiting = new CountDownLatch(THREADS);
+    CountDownLatch computed = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<ChargingSessionSummary>> summaries = IntStream.range(0, THREADS)
+          .mapToObj(index -> executor.submit(() -> {
+            waiting.countDown();
+            return summaryCache.get(60, 1000, 1, () -> {
+              computations.incrementAndGet();
+              // hold the computation until every request is in flight
+              await(computed);
+              return new ChargingSessionSummary(Collections.emptyMap());
+            });
+          })).collect(Collectors.toList());
+      waiting.await(10, TimeUnit.SECONDS);
+      Thread.sleep(100);
+      computed.countDown();
+
+      ChargingSessionSummary summary = summaries.get(0).get(10, TimeUnit.SECONDS);
+      for (Future<ChargingSessionSummary> other : summaries) {
+        assertSame(summary, other.get(10, TimeUnit.SECONDS),
+            () -> "Expected every request to get the same summary.");
+      }
+      assertEquals(1, computations.get(), () -> "Expected a single computation.");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testSummaryIsComputedAgainOnChange() {
+
+    SummaryCache summaryCache = new SummaryCache(0, ChargingSessionMetrics.noOp());
+    ChargingSessionSummary summary = get(summaryCache, 60, 1000, 1);
+
+    assertSame(summary, get(summaryCache, 60, 1000, 1),
+        () -> "Expected the summary to be reused while the store does not change.");
+    assertNotSame(summary, get(summaryCache, 30, 1000, 1),
+        () -> "Expected a summary per number of seconds.");
+    assertNotSame(summary, get(summaryCache, 60, 1000, 2),
+        () -> "Expected the summary to be computed again once the store changes.");
+    assertNotSame(summary, get(summaryCache, 60, 1001, 2),
+        () -> "Expected the summary to be computed again in the next second.");
+
+    assertThrows(IllegalStateException.class, () -> summaryCache.get(60, 1002, 2, () -> {
+      throw new IllegalStateException();
+    }));
+    assertEquals(0, get(summaryCache, 60, 1002, 2).getTotalCount(),
+        () -> "Expected a failed summary not to be cached.");
+  }
+
+  @Test
+  void testSummaryIsReusedWithinExpiry() {
+
+    SummaryCache summaryCache = new SummaryCache(60_000, ChargingSessionMetrics.noOp());
+    ChargingSessionSummary summary = get(summaryCache, 60, 1000, 1);
+
+    assertSame(summary, get(summaryCache, 60, 1000, 2),
+        () -> "Expected the summary to be reused while it has not expired.");
+    assertNotSame(summary, get(summaryCache, 60, 1001, 2),
+        () -> "Expected the summary not to be reused in the next second.");
+  }
+
+  private static ChargingSessionSummary get(SummaryCache summaryCache, long seconds,
+      long epochSecond, long version) {
+    return summaryCache.get(seconds, epochSecond, version,
+        () -> new ChargingSessionSummary(Collections.emptyMap()));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}